@@ -0,0 +1,61 @@
+package com.anastasiia.wallet.cache;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Согласование локальных кэшей балансов между экземплярами сервиса через Postgres LISTEN/NOTIFY.
+ * <p>
+ * Изменённые кошельки копятся в очереди {@link WalletNotifyChannel} и раз в {@code flush-interval} уходят
+ * одним запросом {@code pg_notify}. Слушатель инвалидирует записи, пришедшие от других экземпляров,
+ * и вместе с записью кэша сдвигает версию баланса для {@code ETag}. После переподключения и на нераспознанном
+ * уведомлении кэш и версии сбрасываются целиком, так как уведомления могли быть потеряны.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.balance-cache.invalidation", name = "enabled", havingValue = "true")
+public class BalanceInvalidationChannel {
+
+    private final WalletNotifyChannel channel;
+
+    public BalanceInvalidationChannel(WalletBalanceCache balanceCache,
+                                      WalletBalanceVersions balanceVersions,
+                                      JdbcTemplate jdbcTemplate,
+                                      DataSourceProperties dataSourceProperties,
+                                      BalanceCacheProperties properties) {
+        BalanceCacheProperties.Invalidation invalidation = properties.invalidation();
+        this.channel = new WalletNotifyChannel("wallet-cache", invalidation.channel(), invalidation.flushInterval(),
+                jdbcTemplate, dataSourceProperties,
+                () -> {
+                    balanceCache.invalidateAll();
+                    balanceVersions.changedAll();
+                },
+                walletId -> {
+                    balanceCache.invalidate(walletId);
+                    balanceVersions.changed(walletId);
+                });
+    }
+
+    @PostConstruct
+    void start() {
+        channel.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        channel.stop();
+    }
+
+    @EventListener
+    public void onBalanceChanged(WalletBalanceChangedEvent event) {
+        channel.enqueue(event.walletId());
+    }
+}
@@ -0,0 +1,142 @@
+package com.anastasiia.wallet.cache;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Масштабируемый фильтр Блума (Almeida et al., 2007) для идентификаторов кошельков.
+ * <p>
+ * Фильтр — цепочка обычных фильтров. Когда в последний добавлено столько элементов, на сколько он рассчитан,
+ * добавляется следующий: вдвое больше и с вдвое меньшей долей ложных срабатываний, поэтому общая доля
+ * остаётся не выше заданной при любом числе элементов. Первый фильтр рассчитан на {@code p / 2}:
+ * {@code p/2 + p/4 + ... < p}. Позиции битов — двойное хеширование Кирша—Митценмахера от перемешанных
+ * половин UUID. Биты выставляются атомарно, добавление и проверка безопасны из разных потоков.
+ */
+final class ScalableBloomFilter {
+
+    private static final double TIGHTENING = 0.5;
+    private static final int GROWTH = 2;
+
+    private volatile Stage[] stages;
+
+    /**
+     * @param expectedElements  на сколько элементов рассчитан первый фильтр цепочки
+     * @param falsePositiveRate допустимая доля ложных срабатываний всей цепочки
+     */
+    ScalableBloomFilter(long expectedElements, double falsePositiveRate) {
+        if (expectedElements < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter parameters: "
+                    + expectedElements + " elements, false positive rate " + falsePositiveRate);
+        }
+        this.stages = new Stage[]{new Stage(expectedElements, falsePositiveRate * (1 - TIGHTENING))};
+    }
+
+    boolean mightContain(UUID id) {
+        long h1 = mix(id.getMostSignificantBits());
+        long h2 = mix(id.getLeastSignificantBits()) | 1;
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void add(UUID id) {
+        long h1 = mix(id.getMostSignificantBits());
+        long h2 = mix(id.getLeastSignificantBits()) | 1;
+        Stage[] current = stages;
+        for (Stage stage : current) {
+            if (stage.mightContain(h1, h2)) {
+                // Повторное добавление не должно расходовать ёмкость фильтра
+                return;
+            }
+        }
+        Stage last = current[current.length - 1];
+        last.put(h1, h2);
+        if (last.count.incrementAndGet() >= last.capacity) {
+            grow(last);
+        }
+    }
+
+    /**
+     * @return сколько байт занимают битовые массивы
+     */
+    long sizeInBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += stage.bits.length() * (long) Long.BYTES;
+        }
+        return bytes;
+    }
+
+    int stageCount() {
+        return stages.length;
+    }
+
+    private synchronized void grow(Stage full) {
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last != full) {
+            return;
+        }
+        Stage[] grown = new Stage[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = new Stage(last.capacity * GROWTH, last.falsePositiveRate * TIGHTENING);
+        stages = grown;
+    }
+
+    /**
+     * SplitMix64: случайные UUID и так равномерны, но перемешивание не даёт последовательным
+     * или собранным вручную идентификаторам попадать в соседние биты
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Stage {
+
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long bitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = Math.toIntExact((bitCount + Long.SIZE - 1) / Long.SIZE);
+            this.bitCount = (long) words * Long.SIZE;
+            this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray(words);
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(combined, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+
+        void put(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(combined, bitCount);
+                long mask = 1L << bit;
+                bits.getAndAccumulate((int) (bit >>> 6), mask, (word, set) -> word | set);
+                combined += h2;
+            }
+        }
+    }
+}
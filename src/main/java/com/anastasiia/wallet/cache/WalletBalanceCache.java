@@ -0,0 +1,98 @@
+package com.anastasiia.wallet.cache;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ограниченный локальный кэш балансов перед {@code getBalance}.
+ * <p>
+ * Вытеснение по размеру выполняет Caffeine (W-TinyLFU: окно LRU для новых записей и частотный фильтр
+ * для основной области), время жизни задаётся {@code expire-after-write} и {@code expire-after-access}.
+ * Запись инвалидируется сразу после фиксации изменения баланса. Загрузка и инвалидация одного ключа
+ * сериализуются внутри Caffeine, поэтому значение, прочитанное до коммита, не переживёт инвалидацию.
+ * Попадания, промахи и вытеснения публикуются как метрики {@code cache.*} с тегом {@code cache=wallet.balance}.
+ */
+@Component
+public class WalletBalanceCache {
+
+    private final Cache<UUID, BigDecimal> cache;
+
+    public WalletBalanceCache(BalanceCacheProperties properties, MeterRegistry meterRegistry) {
+        if (!properties.enabled()) {
+            this.cache = null;
+            return;
+        }
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats();
+        if (properties.expireAfterAccess() != null) {
+            builder.expireAfterAccess(properties.expireAfterAccess());
+        }
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, builder.build(), "wallet.balance");
+    }
+
+    /**
+     * Возвращает баланс из кэша или загружает его
+     *
+     * @param walletId идентификатор кошелька
+     * @param loader   загрузка баланса из базы
+     * @return баланс кошелька
+     */
+    public BigDecimal get(UUID walletId, Function<UUID, BigDecimal> loader) {
+        if (cache == null) {
+            return loader.apply(walletId);
+        }
+        return cache.get(walletId, loader);
+    }
+
+    /**
+     * Возвращает закэшированные балансы, ничего не загружая. Пакетная загрузка в Caffeine не сериализуется
+     * с инвалидацией, поэтому балансы, прочитанные из базы пачкой, в кэш не кладутся
+     *
+     * @param walletIds идентификаторы кошельков
+     * @return балансы кошельков, найденных в кэше
+     */
+    public Map<UUID, BigDecimal> getAllPresent(Collection<UUID> walletIds) {
+        if (cache == null) {
+            return Map.of();
+        }
+        return cache.getAllPresent(walletIds);
+    }
+
+    public void put(UUID walletId, BigDecimal balance) {
+        if (cache != null) {
+            cache.put(walletId, balance);
+        }
+    }
+
+    public void invalidate(UUID walletId) {
+        if (cache != null) {
+            cache.invalidate(walletId);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onBalanceChanged(WalletBalanceChangedEvent event) {
+        invalidate(event.walletId());
+    }
+}
@@ -0,0 +1,318 @@
+package com.anastasiia.wallet.cache;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.config.BalanceVersionProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.threads.WalletAdmission;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Версии балансов для {@code ETag}: неизменившийся баланс подтверждается ответом 304 без обращения к базе,
+ * а запрос с {@code wait} ждёт изменения, не занимая ни потока, ни соединения.
+ * <p>
+ * Версия кошелька живёт только в памяти экземпляра: она выдаётся из общего счётчика при первом чтении баланса
+ * и заменяется следующим значением счётчика при каждом {@link WalletBalanceChangedEvent} и каждой инвалидации
+ * от других экземпляров, поэтому версия кошелька никогда не повторяется. Версия выдаётся до чтения баланса:
+ * изменение, зафиксированное после выдачи, сдвинет её, и клиент не получит 304 на устаревший баланс.
+ * В {@code ETag} входит метка экземпляра, так что версия другого экземпляра или до перезапуска просто не совпадёт.
+ * <p>
+ * Версии сдвигаются по инвалидациям от других экземпляров, поэтому без рассылки инвалидаций
+ * ({@code wallet.balance-cache.invalidation}) экземпляр отвечал бы 304 на баланс, изменённый в другом месте,
+ * и включённые версии без неё останавливают запуск.
+ * <p>
+ * Изменения кошельков с ожидающими запросами копятся в множестве и раз в {@code notify-interval} разбираются
+ * пулом из {@code notify-threads} потоков: баланс кошелька читается один раз через {@link WalletAdmission}
+ * с самым поздним токеном чтения своих записей среди ожидающих и отдаётся всем им, сколько бы изменений
+ * ни пришло за период.
+ * <p>
+ * Метрики: {@code wallet.balance.unchanged} — ответы 304, {@code wallet.balance.notifications} — пробуждения
+ * ожидающих запросов по кошельку, {@code wallet.balance.waiters} — сколько запросов ждёт сейчас.
+ */
+@Component
+@Profile("!reactive")
+public class WalletBalanceVersions {
+
+    /**
+     * Баланс и его {@code ETag}
+     */
+    public record VersionedBalance(BigDecimal balance, String etag) {
+    }
+
+    private record Waiter(CompletableFuture<VersionedBalance> result, Long readAfter) {
+    }
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<UUID, List<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final Set<UUID> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final WalletService walletService;
+    private final ReplicaReadRouter replicaRouter;
+    private final WalletAdmission walletAdmission;
+    private final BalanceVersionProperties properties;
+    private final Cache<UUID, Long> versions;
+    private final Counter unchanged;
+    private final Counter notifications;
+    private final ScheduledExecutorService notifyExecutor = Executors.newSingleThreadScheduledExecutor(
+            task -> daemon(task, "wallet-version-notify"));
+    private final ExecutorService readExecutor;
+
+    public WalletBalanceVersions(WalletService walletService,
+                                 ReplicaReadRouter replicaRouter,
+                                 WalletAdmission walletAdmission,
+                                 BalanceVersionProperties properties,
+                                 BalanceCacheProperties balanceCacheProperties,
+                                 StorageProperties storageProperties,
+                                 MeterRegistry meterRegistry) {
+        StorageProperties.Mode mode = storageProperties.mode();
+        if (properties.enabled() && (mode == StorageProperties.Mode.MINOR_UNITS || mode == StorageProperties.Mode.MEMORY)) {
+            throw new IllegalStateException("wallet.balance-versions is not supported with wallet.storage.mode="
+                    + mode.name().toLowerCase());
+        }
+        if (properties.enabled() && !balanceCacheProperties.invalidation().enabled()) {
+            throw new IllegalStateException(
+                    "wallet.balance-versions requires wallet.balance-cache.invalidation.enabled=true");
+        }
+        this.walletService = walletService;
+        this.replicaRouter = replicaRouter;
+        this.walletAdmission = walletAdmission;
+        this.properties = properties;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .build();
+        this.readExecutor = Executors.newFixedThreadPool(Math.max(1, properties.notifyThreads()),
+                task -> daemon(task, "wallet-version-read"));
+        this.unchanged = Counter.builder("wallet.balance.unchanged")
+                .description("Balance reads answered with 304 Not Modified")
+                .register(meterRegistry);
+        this.notifications = Counter.builder("wallet.balance.notifications")
+                .description("Wallets whose waiting balance reads were woken by a change")
+                .register(meterRegistry);
+        Gauge.builder("wallet.balance.waiters", waiting, AtomicInteger::get)
+                .description("Balance reads waiting for a change")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        long interval = properties.notifyInterval().toMillis();
+        notifyExecutor.scheduleWithFixedDelay(this::notifyWaiters, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        notifyExecutor.shutdownNow();
+        readExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * @param walletId    идентификатор кошелька
+     * @param ifNoneMatch значение {@code If-None-Match} или {@code null}
+     * @return версия из {@code If-None-Match}, если она выдана этим экземпляром и всё ещё текущая
+     */
+    public OptionalLong currentVersion(UUID walletId, String ifNoneMatch) {
+        OptionalLong version = parse(ifNoneMatch);
+        Long current = versions.getIfPresent(walletId);
+        if (version.isEmpty() || current == null || current != version.getAsLong()) {
+            return OptionalLong.empty();
+        }
+        return version;
+    }
+
+    /**
+     * Учитывает ответ 304
+     */
+    public void recordUnchanged() {
+        unchanged.increment();
+    }
+
+    /**
+     * Читает баланс и его версию
+     *
+     * @param walletId  идентификатор кошелька
+     * @param readAfter токен чтения своих записей или {@code null}
+     * @return баланс с {@code ETag}
+     */
+    public VersionedBalance read(UUID walletId, Long readAfter) {
+        long version = versions.get(walletId, id -> sequence.incrementAndGet());
+        try {
+            // Реплика должна догнать момент выдачи версии, иначе версия достанется устаревшему балансу
+            long token = replicaRouter.currentToken();
+            BigDecimal balance = replicaRouter.readAfter(readAfter == null ? token : Math.max(readAfter, token),
+                    () -> walletService.getBalance(walletId));
+            return new VersionedBalance(balance, etag(version));
+        } catch (RuntimeException ex) {
+            // Несуществующие кошельки не должны вытеснять версии настоящих
+            versions.asMap().remove(walletId, version);
+            throw ex;
+        }
+    }
+
+    /**
+     * Ставит запрос в ожидание изменения баланса
+     *
+     * @param walletId  идентификатор кошелька
+     * @param version   текущая версия, полученная из {@link #currentVersion}
+     * @param readAfter токен чтения своих записей или {@code null}
+     * @return результат, который завершится новым балансом, или {@code null}, если ожидающих слишком много
+     */
+    public CompletableFuture<VersionedBalance> await(UUID walletId, long version, Long readAfter) {
+        if (waiting.incrementAndGet() > properties.maxWaiters()) {
+            waiting.decrementAndGet();
+            return null;
+        }
+        CompletableFuture<VersionedBalance> result = new CompletableFuture<>();
+        waiters.compute(walletId, (id, list) -> {
+            List<Waiter> updated = list == null ? new ArrayList<>() : list;
+            updated.add(new Waiter(result, readAfter));
+            return updated;
+        });
+        // Изменение между проверкой версии и постановкой в ожидание иначе было бы пропущено
+        Long current = versions.getIfPresent(walletId);
+        if (current == null || current != version) {
+            changed.add(walletId);
+        }
+        return result;
+    }
+
+    /**
+     * Снимает ожидание, завершившееся по времени или вместе с запросом
+     */
+    public void cancel(UUID walletId, CompletableFuture<VersionedBalance> result) {
+        boolean[] removed = new boolean[1];
+        waiters.computeIfPresent(walletId, (id, list) -> {
+            removed[0] = list.removeIf(waiter -> waiter.result() == result);
+            return list.isEmpty() ? null : list;
+        });
+        if (removed[0]) {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    @EventListener
+    public void onBalanceChanged(WalletBalanceChangedEvent event) {
+        changed(event.walletId());
+    }
+
+    /**
+     * Сдвигает версию кошелька, изменённого здесь или на другом экземпляре
+     */
+    public void changed(UUID walletId) {
+        if (!properties.enabled()) {
+            return;
+        }
+        versions.asMap().computeIfPresent(walletId, (id, version) -> sequence.incrementAndGet());
+        if (waiters.containsKey(walletId)) {
+            changed.add(walletId);
+        }
+    }
+
+    /**
+     * Сбрасывает все версии, когда изменения могли быть пропущены
+     */
+    public void changedAll() {
+        if (!properties.enabled()) {
+            return;
+        }
+        versions.invalidateAll();
+        changed.addAll(waiters.keySet());
+    }
+
+    void notifyWaiters() {
+        for (UUID walletId : changed) {
+            changed.remove(walletId);
+            List<Waiter> woken = waiters.remove(walletId);
+            if (woken == null) {
+                continue;
+            }
+            waiting.addAndGet(-woken.size());
+            notifications.increment();
+            // Одно чтение на всех ожидающих должно увидеть запись каждого из них
+            Long readAfter = woken.stream()
+                    .map(Waiter::readAfter)
+                    .filter(Objects::nonNull)
+                    .max(Long::compare)
+                    .orElse(null);
+            readExecutor.execute(() -> {
+                try {
+                    VersionedBalance balance = walletAdmission.run(walletId, () -> read(walletId, readAfter));
+                    woken.forEach(waiter -> waiter.result().complete(balance));
+                } catch (RuntimeException ex) {
+                    woken.forEach(waiter -> waiter.result().completeExceptionally(ex));
+                }
+            });
+        }
+    }
+
+    private OptionalLong parse(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return OptionalLong.empty();
+        }
+        String prefix = epoch + "-";
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.strip();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.startsWith(prefix)) {
+                try {
+                    return OptionalLong.of(Long.parseLong(value.substring(prefix.length())));
+                } catch (NumberFormatException ex) {
+                    return OptionalLong.empty();
+                }
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
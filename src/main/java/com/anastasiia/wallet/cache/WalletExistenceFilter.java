@@ -0,0 +1,253 @@
+package com.anastasiia.wallet.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.config.ExistenceFilterProperties;
+import com.anastasiia.wallet.config.ShardingProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фильтр Блума известных кошельков: запрос к несуществующему кошельку отклоняется, не доходя до операции.
+ * <p>
+ * Фильтр не даёт ложноотрицательных ответов о кошельках, которые он видел, а до базы доходит не больше
+ * {@code false-positive-rate} запросов к несуществующим. Кошельки не удаляются, так что фильтру не нужно удаление,
+ * ради которого выбирают фильтр с кукушкой.
+ * <p>
+ * При старте, после каждого переподключения слушателя и на нераспознанном уведомлении фильтр строится заново:
+ * {@code wallets} делится на {@code load-threads} диапазонов идентификаторов, которые читаются параллельно курсором.
+ * Пока фильтр строится, работает предыдущий, а до первой загрузки проверка пропускает все запросы.
+ * Промах фильтра отклоняет запрос без обращения к базе. Поэтому кошелёк добавляется в фильтр и рассылается
+ * остальным экземплярам через {@link WalletNotifyChannel} в той же транзакции, что его создаёт: Postgres доставляет
+ * уведомление при фиксации, и другой экземпляр узнаёт о кошельке через время доставки NOTIFY, без окна,
+ * в котором уведомление ещё ждёт рассылки или потеряно из-за ошибки отправки после фиксации.
+ * <p>
+ * Метрики: {@code wallet.existence.filter.size} — объём битовых массивов, {@code wallet.existence.rejected} —
+ * запросы к неизвестным кошелькам, отклонённые фильтром.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class WalletExistenceFilter {
+
+    private static final int FETCH_SIZE = 10_000;
+    // Запас на кошельки, созданные после последнего ANALYZE
+    private static final double ESTIMATE_HEADROOM = 1.1;
+    private static final String ESTIMATE_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'wallets'::regclass";
+    private static final String SCAN_SQL = "SELECT id FROM wallets WHERE id >= ?";
+    private static final String SCAN_RANGE_SQL = SCAN_SQL + " AND id < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExistenceFilterProperties properties;
+    private final WalletNotifyChannel channel;
+    private final Counter rejected;
+    private volatile ScalableBloomFilter filter;
+    private volatile ScalableBloomFilter loading;
+
+    public WalletExistenceFilter(JdbcTemplate jdbcTemplate,
+                                 DataSourceProperties dataSourceProperties,
+                                 ExistenceFilterProperties properties,
+                                 ShardingProperties shardingProperties,
+                                 StorageProperties storageProperties,
+                                 MeterRegistry meterRegistry) {
+        StorageProperties.Mode mode = storageProperties.mode();
+        if (properties.enabled() && (shardingProperties.enabled()
+                || mode == StorageProperties.Mode.MINOR_UNITS || mode == StorageProperties.Mode.MEMORY)) {
+            throw new IllegalStateException("wallet.existence-filter cannot be combined with wallet.sharding or "
+                    + "wallet.storage.mode=" + mode.name().toLowerCase());
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.channel = properties.enabled()
+                ? new WalletNotifyChannel("wallet-existence", properties.channel(), null,
+                        jdbcTemplate, dataSourceProperties, this::reload, this::addLocally)
+                : null;
+        this.rejected = Counter.builder("wallet.existence.rejected")
+                .description("Requests for unknown wallets rejected before reaching the operation")
+                .register(meterRegistry);
+        Gauge.builder("wallet.existence.filter.size", this, WalletExistenceFilter::sizeInBytes)
+                .description("Memory held by the wallet existence Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (channel != null) {
+            channel.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (channel != null) {
+            channel.stop();
+        }
+    }
+
+    /**
+     * @param walletId идентификатор кошелька
+     * @return {@code false}, только если кошелька точно нет
+     */
+    public boolean mightExist(UUID walletId) {
+        ScalableBloomFilter current = filter;
+        if (!properties.enabled() || current == null || current.mightContain(walletId)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Добавляет кошелёк и рассылает его остальным экземплярам; вызывается в транзакции, создающей кошелёк,
+     * чтобы уведомление ушло при её фиксации
+     *
+     * @param walletId идентификатор создаваемого кошелька
+     */
+    public void add(UUID walletId) {
+        if (channel == null) {
+            return;
+        }
+        addLocally(walletId);
+        channel.publish(List.of(walletId));
+    }
+
+    /**
+     * Добавляет пачку кошельков и рассылает её остальным экземплярам в транзакции переданного соединения
+     *
+     * @param connection соединение, в транзакции которого создаются кошельки
+     * @param walletIds  идентификаторы создаваемых кошельков
+     */
+    public void addAll(Connection connection, Collection<UUID> walletIds) throws SQLException {
+        if (channel == null) {
+            return;
+        }
+        walletIds.forEach(this::addLocally);
+        channel.publish(connection, walletIds);
+    }
+
+    /**
+     * Строит фильтр заново по {@code wallets} и подменяет им текущий
+     */
+    synchronized void reload() {
+        long started = System.nanoTime();
+        long estimate = jdbcTemplate.queryForObject(ESTIMATE_SQL, Long.class);
+        ScalableBloomFilter rebuilt = new ScalableBloomFilter(
+                Math.max(properties.expectedWallets(), (long) (estimate * ESTIMATE_HEADROOM)),
+                properties.falsePositiveRate());
+        // Кошелёк, зафиксированный после начала чтения, попадает в новый фильтр через add, а не через чтение
+        loading = rebuilt;
+        try {
+            long loaded = load(rebuilt);
+            filter = rebuilt;
+            log.info("Loaded {} wallets into the existence filter ({} bytes, {} stages) in {} ms",
+                    loaded, rebuilt.sizeInBytes(), rebuilt.stageCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } finally {
+            loading = null;
+        }
+    }
+
+    private void addLocally(UUID walletId) {
+        // Сначала строящийся фильтр: если он появится после этой проверки, чтение таблицы уже увидит кошелёк
+        ScalableBloomFilter next = loading;
+        if (next != null) {
+            next.add(walletId);
+        }
+        ScalableBloomFilter current = filter;
+        if (current != null && current != next) {
+            current.add(walletId);
+        }
+    }
+
+    private long load(ScalableBloomFilter target) {
+        int ranges = Math.max(1, properties.loadThreads());
+        long step = Long.divideUnsigned(-1L, ranges);
+        ExecutorService executor = Executors.newFixedThreadPool(ranges, task -> daemon(task, "wallet-existence-load"));
+        try {
+            List<Future<Long>> futures = new ArrayList<>(ranges);
+            for (int i = 0; i < ranges; i++) {
+                UUID from = new UUID(step * i, 0);
+                UUID to = i == ranges - 1 ? null : new UUID(step * (i + 1), 0);
+                futures.add(executor.submit(() -> scan(target, from, to)));
+            }
+            long loaded = 0;
+            for (Future<Long> future : futures) {
+                loaded += future.get();
+            }
+            return loaded;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Existence filter load interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException("Existence filter load failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Читает диапазон идентификаторов {@code [from, to)}; Postgres сравнивает uuid побайтно,
+     * как беззнаковые старшие, затем младшие 64 бита
+     */
+    private long scan(ScalableBloomFilter target, UUID from, UUID to) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            // Драйвер читает результат порциями только внутри транзакции
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(to == null ? SCAN_SQL : SCAN_RANGE_SQL)) {
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setObject(1, from);
+                if (to != null) {
+                    statement.setObject(2, to);
+                }
+                long loaded = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        target.add(resultSet.getObject(1, UUID.class));
+                        loaded++;
+                    }
+                }
+                connection.commit();
+                return loaded;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private double sizeInBytes() {
+        ScalableBloomFilter current = filter;
+        return current == null ? 0 : current.sizeInBytes();
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,240 @@
+package com.anastasiia.wallet.cache;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Канал Postgres LISTEN/NOTIFY, по которому экземпляры сервиса сообщают друг другу идентификаторы кошельков.
+ * <p>
+ * Уведомление несёт идентификатор экземпляра и до {@value #MAX_IDS_PER_NOTIFICATION} идентификаторов
+ * кошельков (лимит payload — 8000 байт), свои уведомления слушатель пропускает. Идентификаторы отправляются
+ * либо сразу в текущей транзакции, и тогда Postgres доставит их при фиксации, либо копятся в очереди и раз
+ * в {@code flushInterval} уходят одним запросом; неотправленные из-за ошибки уходят со следующей рассылкой.
+ * <p>
+ * Слушатель держит отдельное соединение вне пула. После каждого подключения и на уведомлении, которое
+ * не удалось разобрать, вызывается {@code resync}: уведомления за это время потеряны.
+ */
+@Slf4j
+final class WalletNotifyChannel {
+
+    private static final int MAX_IDS_PER_NOTIFICATION = 200;
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload";
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Queue<UUID> pending = new ConcurrentLinkedQueue<>();
+    private final String name;
+    private final String channel;
+    private final Duration flushInterval;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final Runnable resync;
+    private final Consumer<UUID> received;
+    private final ScheduledExecutorService flushExecutor;
+    private final ExecutorService listenExecutor;
+    private volatile boolean running = true;
+
+    /**
+     * @param name                 имя для потоков канала
+     * @param channel              имя канала Postgres
+     * @param flushInterval        период рассылки очереди; {@code null} — очереди нет, только {@link #publish}
+     * @param jdbcTemplate         через него отправляются уведомления
+     * @param dataSourceProperties подключение слушателя
+     * @param resync               восстанавливает состояние, когда уведомления могли быть потеряны
+     * @param received             получает каждый идентификатор, присланный другим экземпляром
+     */
+    WalletNotifyChannel(String name,
+                        String channel,
+                        Duration flushInterval,
+                        JdbcTemplate jdbcTemplate,
+                        DataSourceProperties dataSourceProperties,
+                        Runnable resync,
+                        Consumer<UUID> received) {
+        this.name = name;
+        this.channel = channel;
+        this.flushInterval = flushInterval;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.resync = resync;
+        this.received = received;
+        this.flushExecutor = flushInterval == null
+                ? null
+                : Executors.newSingleThreadScheduledExecutor(task -> daemon(task, name + "-notify"));
+        this.listenExecutor = Executors.newSingleThreadExecutor(task -> daemon(task, name + "-listen"));
+    }
+
+    void start() {
+        if (flushExecutor != null) {
+            long interval = flushInterval.toMillis();
+            flushExecutor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        listenExecutor.execute(this::listen);
+    }
+
+    void stop() {
+        running = false;
+        listenExecutor.shutdownNow();
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flush();
+        }
+    }
+
+    /**
+     * Ставит идентификатор в очередь ближайшей рассылки
+     */
+    void enqueue(UUID walletId) {
+        pending.add(walletId);
+    }
+
+    /**
+     * Отправляет идентификаторы сразу; внутри транзакции уведомление уйдёт при её фиксации
+     * и пропадёт при откате
+     */
+    void publish(Collection<UUID> walletIds) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            publish(connection, walletIds);
+            return null;
+        });
+    }
+
+    /**
+     * Отправляет идентификаторы в транзакции переданного соединения
+     */
+    void publish(Connection connection, Collection<UUID> walletIds) throws SQLException {
+        if (walletIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL)) {
+            statement.setString(1, channel);
+            statement.setArray(2, connection.createArrayOf("text", payloads(walletIds).toArray()));
+            statement.executeQuery().close();
+        }
+    }
+
+    void flush() {
+        List<UUID> drained = new ArrayList<>();
+        UUID walletId;
+        while ((walletId = pending.poll()) != null) {
+            drained.add(walletId);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            publish(drained);
+        } catch (RuntimeException ex) {
+            // Идентификаторы уйдут со следующей рассылкой
+            pending.addAll(drained);
+            log.warn("Failed to publish {} wallet ids on channel {}, retrying with the next flush",
+                    drained.size(), channel, ex);
+        }
+    }
+
+    private List<String> payloads(Collection<UUID> walletIds) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = null;
+        int idsInPayload = 0;
+        for (UUID walletId : walletIds) {
+            if (payload == null || idsInPayload == MAX_IDS_PER_NOTIFICATION) {
+                if (payload != null) {
+                    payloads.add(payload.toString());
+                }
+                payload = new StringBuilder(instanceId).append(';');
+                idsInPayload = 0;
+            } else {
+                payload.append(',');
+            }
+            payload.append(walletId);
+            idsInPayload++;
+        }
+        if (payload != null) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + channel + "\"");
+                }
+                // Пришедшие во время восстановления уведомления дождутся его в драйвере
+                resync.run();
+                log.info("Listening for wallet ids on channel {}", channel);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listener {} failed, reconnecting", name, ex);
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        int separator = payload.indexOf(';');
+        if (payload.startsWith(instanceId)) {
+            return;
+        }
+        List<UUID> walletIds = new ArrayList<>();
+        try {
+            if (separator < 0) {
+                throw new IllegalArgumentException("No instance separator");
+            }
+            for (String walletId : payload.substring(separator + 1).split(",")) {
+                walletIds.add(UUID.fromString(walletId));
+            }
+        } catch (IllegalArgumentException ex) {
+            // Какие кошельки в нём были, неизвестно: уведомление считается потерянным
+            log.warn("Malformed notification {} on channel {}, resynchronizing", payload, channel, ex);
+            resync.run();
+            return;
+        }
+        walletIds.forEach(received);
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
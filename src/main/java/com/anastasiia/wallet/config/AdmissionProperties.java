@@ -0,0 +1,22 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки допуска запросов к базе
+ *
+ * @param enabled  включает ограничение числа одновременно обрабатываемых запросов к API
+ * @param permits  количество одновременно обрабатываемых запросов; 0 — размер пула соединений
+ * @param maxWait  сколько запрос ждёт свободного места, прежде чем получить 503
+ * @param maxQueue сколько запросов может ждать одновременно; остальные отклоняются сразу
+ */
+@ConfigurationProperties(prefix = "wallet.admission")
+public record AdmissionProperties(
+        boolean enabled,
+        @DefaultValue("0") int permits,
+        @DefaultValue("200ms") Duration maxWait,
+        @DefaultValue("1000") int maxQueue) {
+}
@@ -0,0 +1,35 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки локального кэша балансов
+ *
+ * @param enabled          включает кэш перед {@code getBalance}
+ * @param maximumSize      максимальное количество кошельков в кэше
+ * @param expireAfterWrite время жизни записи с момента загрузки
+ * @param expireAfterAccess время жизни записи с момента последнего чтения; не задано — не ограничено
+ * @param invalidation     рассылка инвалидаций между экземплярами сервиса
+ */
+@ConfigurationProperties(prefix = "wallet.balance-cache")
+public record BalanceCacheProperties(
+        boolean enabled,
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("30s") Duration expireAfterWrite,
+        Duration expireAfterAccess,
+        @DefaultValue Invalidation invalidation) {
+
+    /**
+     * @param enabled       включает канал Postgres LISTEN/NOTIFY
+     * @param channel       имя канала
+     * @param flushInterval период, с которым накопленные инвалидации отправляются одним NOTIFY
+     */
+    public record Invalidation(
+            boolean enabled,
+            @DefaultValue("wallet_balance_invalidation") String channel,
+            @DefaultValue("20ms") Duration flushInterval) {
+    }
+}
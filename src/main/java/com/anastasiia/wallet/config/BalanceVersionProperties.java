@@ -0,0 +1,30 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки версий балансов для условного чтения и ожидания изменений
+ *
+ * @param enabled          включает {@code ETag} и {@code If-None-Match} у {@code GET /api/v1/wallets/{walletId}}
+ *                         и ожидание изменения с параметром {@code wait}
+ * @param maximumSize      сколько кошельков хранится в таблице версий
+ * @param expireAfterWrite сколько живёт версия без изменений баланса
+ * @param notifyInterval   период, с которым ожидающие запросы узнают об изменениях; изменения одного кошелька
+ *                         за период дают одно уведомление
+ * @param notifyThreads    сколько потоков читают изменившиеся балансы для ожидающих запросов
+ * @param maxWait          наибольшее время ожидания изменения
+ * @param maxWaiters       сколько запросов может ждать одновременно; сверх этого ответ отдаётся сразу
+ */
+@ConfigurationProperties(prefix = "wallet.balance-versions")
+public record BalanceVersionProperties(
+        boolean enabled,
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("30s") Duration expireAfterWrite,
+        @DefaultValue("50ms") Duration notifyInterval,
+        @DefaultValue("4") int notifyThreads,
+        @DefaultValue("30s") Duration maxWait,
+        @DefaultValue("10000") int maxWaiters) {
+}
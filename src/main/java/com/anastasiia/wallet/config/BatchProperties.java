@@ -0,0 +1,18 @@
+package com.anastasiia.wallet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки пакетной обработки операций
+ *
+ * @param jdbcBatchSize       количество кошельков, блокируемых одним запросом и обновляемых одним JDBC-батчем
+ * @param bulkCreateChunkSize количество кошельков, создаваемых одним COPY при массовом создании
+ * @param lookupChunkSize     количество кошельков, балансы которых читаются одним запросом при пакетном чтении
+ */
+@ConfigurationProperties(prefix = "wallet.batch")
+public record BatchProperties(
+        @DefaultValue("500") int jdbcBatchSize,
+        @DefaultValue("50000") int bulkCreateChunkSize,
+        @DefaultValue("1000") int lookupChunkSize) {
+}
@@ -0,0 +1,22 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки группового применения операций (group commit) для горячих кошельков
+ *
+ * @param enabled      включает коалесцирование операций в {@code processOperation}
+ * @param maxBatchSize максимальное количество операций, применяемых в одной транзакции
+ * @param drainThreads количество потоков, применяющих накопленные операции
+ * @param maxWait      сколько вызов ждёт применения своей операции; столько же длится транзакция пачки
+ */
+@ConfigurationProperties(prefix = "wallet.coalescing")
+public record CoalescingProperties(
+        boolean enabled,
+        @DefaultValue("256") int maxBatchSize,
+        @DefaultValue("8") int drainThreads,
+        @DefaultValue("5s") Duration maxWait) {
+}
@@ -0,0 +1,37 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки конкурентной записи балансов
+ *
+ * @param strategy            способ изменения строки кошелька в {@code processOperation}
+ * @param maxRetries          сколько раз оптимистичная запись повторяется после конфликта версий
+ * @param backoffBase         начальная пауза перед повтором; удваивается с каждым повтором
+ * @param backoffMax          верхняя граница паузы перед повтором
+ * @param contendedFor        сколько кошелёк, исчерпавший повторы, обрабатывается с блокировкой строки
+ * @param maxContendedWallets сколько таких кошельков запоминается
+ */
+@ConfigurationProperties(prefix = "wallet.concurrency")
+public record ConcurrencyProperties(
+        @DefaultValue("LOCKING") Strategy strategy,
+        @DefaultValue("3") int maxRetries,
+        @DefaultValue("1ms") Duration backoffBase,
+        @DefaultValue("20ms") Duration backoffMax,
+        @DefaultValue("30s") Duration contendedFor,
+        @DefaultValue("10000") long maxContendedWallets) {
+
+    public enum Strategy {
+        /**
+         * UPDATE строки кошелька, конкурирующие операции ждут её блокировку
+         */
+        LOCKING,
+        /**
+         * Чтение строки без блокировки и запись с проверкой версии; конфликт повторяется с паузой
+         */
+        OPTIMISTIC
+    }
+}
@@ -0,0 +1,22 @@
+package com.anastasiia.wallet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки фильтра существующих кошельков
+ *
+ * @param enabled           включает фильтр Блума перед операциями и чтением балансов
+ * @param falsePositiveRate доля неизвестных идентификаторов, которые всё же дойдут до базы
+ * @param expectedWallets   на сколько кошельков рассчитан фильтр, если оценка размера {@code wallets} меньше
+ * @param loadThreads       на сколько диапазонов идентификаторов делится загрузка, диапазоны читаются параллельно
+ * @param channel           канал Postgres LISTEN/NOTIFY, по которому экземпляры сообщают о созданных кошельках
+ */
+@ConfigurationProperties(prefix = "wallet.existence-filter")
+public record ExistenceFilterProperties(
+        boolean enabled,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("1000000") long expectedWallets,
+        @DefaultValue("4") int loadThreads,
+        @DefaultValue("wallet_created") String channel) {
+}
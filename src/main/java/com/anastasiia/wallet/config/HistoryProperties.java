@@ -0,0 +1,20 @@
+package com.anastasiia.wallet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки истории операций кошельков
+ *
+ * @param enabled         включает запись истории в {@code processOperation} и {@code GET /api/v1/wallets/{id}/operations}
+ * @param pageSize        размер страницы истории по умолчанию
+ * @param maxPageSize     наибольший размер страницы истории
+ * @param exportFetchSize сколько записей выгрузка читает из курсора за один раз
+ */
+@ConfigurationProperties(prefix = "wallet.history")
+public record HistoryProperties(
+        boolean enabled,
+        @DefaultValue("100") int pageSize,
+        @DefaultValue("1000") int maxPageSize,
+        @DefaultValue("1000") int exportFetchSize) {
+}
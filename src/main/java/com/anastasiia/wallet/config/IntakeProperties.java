@@ -0,0 +1,26 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки асинхронного приёма операций
+ *
+ * @param enabled      включает {@code POST /api/v1/wallet?mode=async} и потоки, применяющие принятые операции
+ * @param workers      количество потоков, забирающих операции из очереди
+ * @param claimSize    сколько операций поток забирает и применяет в одной транзакции
+ * @param pollInterval пауза потока после того, как очередь оказалась пустой
+ * @param retention    сколько хранятся результаты применённых операций
+ * @param maxAttempts  после скольких неудачных попыток операция получает состояние {@code FAILED}
+ */
+@ConfigurationProperties(prefix = "wallet.intake")
+public record IntakeProperties(
+        boolean enabled,
+        @DefaultValue("4") int workers,
+        @DefaultValue("500") int claimSize,
+        @DefaultValue("100ms") Duration pollInterval,
+        @DefaultValue("7d") Duration retention,
+        @DefaultValue("3") int maxAttempts) {
+}
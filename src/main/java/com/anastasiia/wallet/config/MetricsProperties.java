@@ -0,0 +1,30 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки метрик сервиса
+ *
+ * @param hotWallets выборочный учёт самых нагруженных кошельков
+ */
+@ConfigurationProperties(prefix = "wallet.metrics")
+public record MetricsProperties(@DefaultValue HotWallets hotWallets) {
+
+    /**
+     * @param enabled    включает учёт и эндпоинт {@code /actuator/hotwallets}
+     * @param sampleRate доля операций, попадающих в выборку
+     * @param top        сколько кошельков отдаёт эндпоинт
+     * @param capacity   сколько кошельков отслеживается одновременно; должно быть заметно больше {@code top}
+     * @param window     длительность окна, после которого счётчики начинаются заново
+     */
+    public record HotWallets(
+            boolean enabled,
+            @DefaultValue("0.01") double sampleRate,
+            @DefaultValue("10") int top,
+            @DefaultValue("1000") int capacity,
+            @DefaultValue("1m") Duration window) {
+    }
+}
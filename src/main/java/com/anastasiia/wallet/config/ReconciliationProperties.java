@@ -0,0 +1,24 @@
+package com.anastasiia.wallet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки сверки балансов с историей операций
+ *
+ * @param enabled        включает {@code /actuator/reconciliation}
+ * @param ranges         на сколько диапазонов идентификаторов делится таблица кошельков
+ * @param parallelism    сколько диапазонов сверяется одновременно, каждый на своём соединении из общего пула
+ * @param checkpointSize после скольких кошельков диапазона сохраняются его позиция и найденные расхождения
+ * @param fetchSize      сколько строк драйвер получает из курсора за один раз
+ * @param maxRate        не больше скольких кошельков в секунду сверяется всеми потоками вместе; 0 — без ограничения
+ */
+@ConfigurationProperties(prefix = "wallet.reconciliation")
+public record ReconciliationProperties(
+        boolean enabled,
+        @DefaultValue("64") int ranges,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("10000") int checkpointSize,
+        @DefaultValue("1000") int fetchSize,
+        @DefaultValue("0") int maxRate) {
+}
@@ -0,0 +1,38 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки чтения балансов с реплик
+ *
+ * @param enabled          включает чтение с реплик; записи и транзакции остаются на {@code spring.datasource}
+ * @param maxLag           отставание, сверх которого реплика не используется
+ * @param lagCheckInterval интервал сверки позиции журнала реплик с основной базой
+ * @param nodes            реплики потоковой репликации основной базы
+ */
+@ConfigurationProperties(prefix = "wallet.read-replicas")
+public record ReplicaProperties(
+        boolean enabled,
+        @DefaultValue("1s") Duration maxLag,
+        @DefaultValue("200ms") Duration lagCheckInterval,
+        @DefaultValue List<Node> nodes) {
+
+    /**
+     * @param name            имя реплики в метриках
+     * @param url             JDBC URL реплики
+     * @param username        пользователь базы
+     * @param password        пароль пользователя
+     * @param maximumPoolSize размер пула соединений реплики
+     */
+    public record Node(
+            String name,
+            String url,
+            String username,
+            String password,
+            @DefaultValue("10") int maximumPoolSize) {
+    }
+}
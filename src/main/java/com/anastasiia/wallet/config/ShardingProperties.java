@@ -0,0 +1,36 @@
+package com.anastasiia.wallet.config;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки распределения кошельков по нескольким базам
+ *
+ * @param enabled      включает шардирование; без него используется {@code spring.datasource}
+ * @param virtualNodes количество точек каждого шарда на кольце консистентного хэширования
+ * @param shards       базы-шарды; имя шарда определяет его точки на кольце, поэтому при добавлении шарда
+ *                     имена существующих не меняются
+ */
+@ConfigurationProperties(prefix = "wallet.sharding")
+public record ShardingProperties(
+        boolean enabled,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue List<Shard> shards) {
+
+    /**
+     * @param name            имя шарда
+     * @param url             JDBC URL базы
+     * @param username        пользователь базы
+     * @param password        пароль пользователя
+     * @param maximumPoolSize размер пула соединений шарда
+     */
+    public record Shard(
+            String name,
+            String url,
+            String username,
+            String password,
+            @DefaultValue("10") int maximumPoolSize) {
+    }
+}
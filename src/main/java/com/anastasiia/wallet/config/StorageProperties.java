@@ -0,0 +1,72 @@
+package com.anastasiia.wallet.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Настройки хранения балансов
+ *
+ * @param mode   способ записи операций
+ * @param ledger настройки журнала операций для режима {@link Mode#LEDGER}
+ * @param memory настройки движка в памяти для режима {@link Mode#MEMORY}
+ */
+@ConfigurationProperties(prefix = "wallet.storage")
+public record StorageProperties(
+        @DefaultValue("BALANCE") Mode mode,
+        @DefaultValue Ledger ledger,
+        @DefaultValue Memory memory) {
+
+    public enum Mode {
+        /**
+         * Операция изменяет {@code wallets.balance} на месте
+         */
+        BALANCE,
+        /**
+         * Операция добавляет запись в журнал {@code wallet_operations}, баланс — снимок плюс более новые записи
+         */
+        LEDGER,
+        /**
+         * Операции и чтение баланса обрабатывают суммы в копейках как {@code long}, баланс — в {@code wallets.balance_minor}.
+         * Пакеты, переводы и слоты недоступны; другие режимы не запускаются, пока {@code balance_minor} где-то задан
+         */
+        MINOR_UNITS,
+        /**
+         * Балансы хранятся в памяти в шардах с одним писателем и журналом предзаписи на диске,
+         * {@code wallets} — асинхронная проекция
+         */
+        MEMORY
+    }
+
+    /**
+     * @param compactionInterval   период свёртки журнала в снимки балансов
+     * @param partitionMaintenance период проверки партиций журнала
+     * @param partitionsAhead      на сколько месяцев вперёд создаются партиции журнала
+     */
+    public record Ledger(
+            @DefaultValue("1s") Duration compactionInterval,
+            @DefaultValue("1h") Duration partitionMaintenance,
+            @DefaultValue("2") int partitionsAhead) {
+    }
+
+    /**
+     * @param shards             количество шардов; после первого запуска не меняется, потому что определяет,
+     *                           в журнале какого шарда лежат операции кошелька
+     * @param queueCapacity      ёмкость очереди команд шарда (степень двойки); при полной очереди запрос получает 503
+     * @param walDirectory       каталог журналов предзаписи и снимков шардов
+     * @param walSegmentSize     размер сегмента журнала, отображаемого в память
+     * @param snapshotInterval   период снимков шардов, после которых старые сегменты журнала удаляются
+     * @param projectionInterval период записи изменившихся балансов в {@code wallets}
+     */
+    public record Memory(
+            @DefaultValue("8") int shards,
+            @DefaultValue("65536") int queueCapacity,
+            @DefaultValue("data/wal") Path walDirectory,
+            @DefaultValue("64MB") DataSize walSegmentSize,
+            @DefaultValue("5m") Duration snapshotInterval,
+            @DefaultValue("1s") Duration projectionInterval) {
+    }
+}
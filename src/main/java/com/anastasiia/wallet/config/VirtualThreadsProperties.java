@@ -0,0 +1,16 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки наблюдения за виртуальными потоками
+ *
+ * @param pinningThreshold минимальная длительность закрепления виртуального потока за несущим, о которой сообщается
+ */
+@ConfigurationProperties(prefix = "wallet.virtual-threads")
+public record VirtualThreadsProperties(
+        @DefaultValue("20ms") Duration pinningThreshold) {
+}
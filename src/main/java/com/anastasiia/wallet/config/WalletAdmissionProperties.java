@@ -0,0 +1,32 @@
+package com.anastasiia.wallet.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки допуска операций по отдельному кошельку
+ *
+ * @param enabled          включает ограничение числа одновременных операций по одному кошельку
+ * @param stripes          число полос; кошельки с одинаковым номером полосы делят общий лимит
+ * @param initialLimit     начальное число одновременных операций на полосу
+ * @param minLimit         нижняя граница адаптивного лимита
+ * @param maxLimit         верхняя граница адаптивного лимита
+ * @param maxQueue         сколько операций может ждать в очереди полосы; остальные отклоняются сразу
+ * @param maxWait          сколько операция ждёт в очереди, прежде чем получить 429
+ * @param latencyThreshold длительность операции, сверх которой лимит полосы уменьшается
+ * @param retryAfter       значение {@code Retry-After} в ответе 429
+ */
+@ConfigurationProperties(prefix = "wallet.admission.per-wallet")
+public record WalletAdmissionProperties(
+        boolean enabled,
+        @DefaultValue("4096") int stripes,
+        @DefaultValue("4") int initialLimit,
+        @DefaultValue("1") int minLimit,
+        @DefaultValue("16") int maxLimit,
+        @DefaultValue("16") int maxQueue,
+        @DefaultValue("50ms") Duration maxWait,
+        @DefaultValue("100ms") Duration latencyThreshold,
+        @DefaultValue("1s") Duration retryAfter) {
+}
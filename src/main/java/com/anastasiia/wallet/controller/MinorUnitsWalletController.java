@@ -0,0 +1,63 @@
+package com.anastasiia.wallet.controller;
+
+import java.util.UUID;
+
+import com.anastasiia.wallet.money.MinorUnits;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.service.MinorUnitsOperationRequest;
+import com.anastasiia.wallet.service.MinorUnitsWalletService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Операции и чтение баланса для режима {@code wallet.storage.mode=minor_units}, с тем же JSON, что
+ * у {@link WalletController}. Их запросы без {@code mode} и {@code wait} попадают сюда как более точные,
+ * остальные эндпоинты обслуживает {@link WalletController}, который в этом режиме создаёт кошельки,
+ * а операции над {@code wallets.balance} отклоняет.
+ */
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "minor_units")
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Slf4j
+public class MinorUnitsWalletController {
+
+    private final MinorUnitsWalletService walletService;
+    private final ReplicaReadRouter replicaRouter;
+
+    @PostMapping(value = "/wallet", params = "!mode")
+    public ResponseEntity<MinorUnitsWalletResponse> processOperation(@Valid @RequestBody MinorUnitsOperationRequest request) {
+        log.debug("Processing operation: {}", request);
+
+        // Без истории операция выполняется в автокоммите, и токен читается отдельным запросом к основной базе
+        ReplicaReadRouter.Tracked<Long> balance =
+                replicaRouter.trackWrites(() -> walletService.processOperation(request));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        balance.token().ifPresent(
+                token -> response.header(WalletController.READ_YOUR_WRITES_HEADER, String.valueOf(token)));
+        return response.body(new MinorUnitsWalletResponse(request.getWalletId(), balance.result()));
+    }
+
+    /**
+     * Баланс — голое число JSON, как в {@link WalletController#getBalance}; записывается готовой строкой
+     */
+    @GetMapping(value = "/wallets/{walletId}", params = "!wait", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getBalance(@PathVariable UUID walletId) {
+        log.debug("Getting balance for wallet: {}", walletId);
+
+        long balance = walletService.getBalance(walletId);
+        return ResponseEntity.ok(MinorUnits.format(balance));
+    }
+}
@@ -0,0 +1,12 @@
+package com.anastasiia.wallet.controller;
+
+import java.util.UUID;
+
+import com.anastasiia.wallet.money.MinorUnitsSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Ответ в режиме {@code wallet.storage.mode=minor_units}, в JSON совпадает с {@link WalletResponse}
+ */
+public record MinorUnitsWalletResponse(UUID walletId, @JsonSerialize(using = MinorUnitsSerializer.class) long balance) {
+}
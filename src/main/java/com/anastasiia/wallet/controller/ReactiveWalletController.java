@@ -0,0 +1,86 @@
+package com.anastasiia.wallet.controller;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.ReactiveWalletService;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletStripesRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Те же эндпоинты, что и у {@link WalletController}, на WebFlux для профиля {@code reactive}
+ */
+@RestController
+@RequestMapping("/api/v1")
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveWalletController {
+
+    private final ReactiveWalletService walletService;
+
+    @PostMapping("/create")
+    public Mono<ResponseEntity<WalletResponse>> createWallet() {
+        return walletService.createWallet()
+                .map(wallet -> ResponseEntity.ok(WalletResponse.fromEntity(wallet)));
+    }
+
+    @PostMapping("/wallet")
+    public Mono<ResponseEntity<WalletResponse>> processOperation(@Valid @RequestBody WalletOperationRequest request) {
+        log.debug("Processing operation: {}", request);
+
+        return walletService.processOperation(request)
+                .map(balance -> ResponseEntity.ok(new WalletResponse(request.getWalletId(), balance)));
+    }
+
+    @PostMapping("/wallets/operations:batch")
+    public Mono<ResponseEntity<WalletBatchResult>> processBatch(@Valid @RequestBody WalletBatchRequest request) {
+        log.debug("Processing batch of {} operations in {} mode", request.getOperations().size(), request.getMode());
+
+        return walletService.processBatch(request)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/wallets/operations:transfer")
+    public Mono<ResponseEntity<WalletTransferResult>> transfer(@Valid @RequestBody WalletTransferRequest request) {
+        log.debug("Transferring {} from wallet {} to wallet {}",
+                request.getAmount(), request.getFromWalletId(), request.getToWalletId());
+
+        return walletService.transfer(request)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/wallets/{walletId}")
+    public Mono<ResponseEntity<BigDecimal>> getBalance(@PathVariable UUID walletId) {
+        log.debug("Getting balance for wallet: {}", walletId);
+
+        return walletService.getBalance(walletId)
+                .map(ResponseEntity::ok);
+    }
+
+    @PutMapping("/wallets/{walletId}/stripes")
+    public Mono<ResponseEntity<WalletResponse>> restripeWallet(@PathVariable UUID walletId,
+                                                               @Valid @RequestBody WalletStripesRequest request) {
+        log.debug("Restriping wallet {} into {} slots", walletId, request.getStripes());
+
+        return walletService.restripeWallet(walletId, request.getStripes())
+                .map(balance -> ResponseEntity.ok(new WalletResponse(walletId, balance)));
+    }
+}
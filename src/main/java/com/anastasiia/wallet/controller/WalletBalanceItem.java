@@ -0,0 +1,22 @@
+package com.anastasiia.wallet.controller;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Строка ответа пакетного чтения балансов
+ *
+ * @param walletId идентификатор кошелька; {@code null}, если строку запроса не удалось разобрать
+ * @param status   результат чтения
+ * @param balance  баланс найденного кошелька
+ * @param input    нераспознанная строка запроса
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record WalletBalanceItem(UUID walletId, Status status, BigDecimal balance, String input) {
+
+    public enum Status {
+        FOUND, NOT_FOUND, INVALID
+    }
+}
@@ -1,49 +1,318 @@
 package com.anastasiia.wallet.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
-import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.cache.WalletBalanceVersions;
+import com.anastasiia.wallet.config.BalanceVersionProperties;
+import com.anastasiia.wallet.config.BatchProperties;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.service.WalletBalancesRequest;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletBulkCreateRequest;
 import com.anastasiia.wallet.service.WalletOperationRequest;
 import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletStripesRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import com.anastasiia.wallet.threads.AdmissionInterceptor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
 @Slf4j
 public class WalletController {
 
+    /**
+     * Токен согласованности: ответ на запись несёт его, а чтение с ним видит эту запись, даже если реплики отстают
+     */
+    static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+
     private final WalletService walletService;
+    private final BatchProperties batchProperties;
+    private final ObjectMapper objectMapper;
+    private final ReplicaReadRouter replicaRouter;
+    private final WalletBalanceVersions balanceVersions;
+    private final BalanceVersionProperties balanceVersionProperties;
 
     @PostMapping("/create")
     public ResponseEntity<WalletResponse> createWallet() {
-        Wallet wallet = walletService.createWallet();
-        return ResponseEntity.ok(WalletResponse.fromEntity(wallet));
+        return written(() -> WalletResponse.fromEntity(walletService.createWallet()));
+    }
+
+    /**
+     * Создаёт кошельки пачками и отдаёт их идентификаторы в NDJSON ({@code {"walletId":"..."}} на строку)
+     * по мере фиксации каждой пачки
+     */
+    @PostMapping(value = "/wallets:bulkCreate", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> bulkCreate(@Valid @RequestBody WalletBulkCreateRequest request) {
+        log.debug("Creating {} wallets", request.getCount());
+
+        StreamingResponseBody body = output -> walletService.createWallets(request.getCount(),
+                walletIds -> writeWalletIds(output, walletIds));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @PostMapping("/wallet")
-    public ResponseEntity<Void> processOperation(@Valid @RequestBody WalletOperationRequest request) {
+    public ResponseEntity<WalletResponse> processOperation(@Valid @RequestBody WalletOperationRequest request) {
         log.debug("Processing operation: {}", request);
 
-        walletService.processOperation(request);
-        return ResponseEntity.ok().build();
+        return written(() -> new WalletResponse(request.getWalletId(), walletService.processOperation(request)));
+    }
+
+    @PostMapping("/wallets/operations:batch")
+    public ResponseEntity<WalletBatchResult> processBatch(@Valid @RequestBody WalletBatchRequest request) {
+        log.debug("Processing batch of {} operations in {} mode", request.getOperations().size(), request.getMode());
+
+        return written(() -> walletService.processBatch(request));
+    }
+
+    @PostMapping("/wallets/operations:transfer")
+    public ResponseEntity<WalletTransferResult> transfer(@Valid @RequestBody WalletTransferRequest request) {
+        log.debug("Transferring {} from wallet {} to wallet {}",
+                request.getAmount(), request.getFromWalletId(), request.getToWalletId());
+
+        return written(() -> walletService.transfer(request));
     }
 
     @GetMapping("/wallets/{walletId}")
-    public ResponseEntity<BigDecimal> getBalance(@PathVariable UUID walletId) {
+    public ResponseEntity<BigDecimal> getBalance(@PathVariable UUID walletId,
+                                                 @RequestHeader(name = READ_YOUR_WRITES_HEADER, required = false)
+                                                 Long readAfter,
+                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                 String ifNoneMatch) {
         log.debug("Getting balance for wallet: {}", walletId);
 
-        BigDecimal balance = walletService.getBalance(walletId);
-        return ResponseEntity.ok(balance);
+        if (!balanceVersions.isEnabled()) {
+            BigDecimal balance = replicaRouter.readAfter(readAfter, () -> walletService.getBalance(walletId));
+            return ResponseEntity.ok(balance);
+        }
+        OptionalLong version = balanceVersions.currentVersion(walletId, ifNoneMatch);
+        if (version.isPresent()) {
+            return notModified(version.getAsLong());
+        }
+        return versioned(balanceVersions.read(walletId, readAfter));
+    }
+
+    /**
+     * Ждёт до {@code wait} секунд (не дольше {@code wallet.balance-versions.max-wait}), пока баланс не сменит
+     * версию из {@code If-None-Match}, и отдаёт новый баланс, а если не дождался — 304. Запрос без текущей версии
+     * в {@code If-None-Match} получает ответ сразу, как обычное чтение
+     */
+    @GetMapping(value = "/wallets/{walletId}", params = "wait")
+    public DeferredResult<ResponseEntity<BigDecimal>> awaitBalance(@PathVariable UUID walletId,
+                                                                   @RequestParam("wait") long waitSeconds,
+                                                                   @RequestHeader(name = READ_YOUR_WRITES_HEADER,
+                                                                           required = false) Long readAfter,
+                                                                   @RequestHeader(name = HttpHeaders.IF_NONE_MATCH,
+                                                                           required = false) String ifNoneMatch,
+                                                                   HttpServletRequest request) {
+        long timeout = Math.min(TimeUnit.SECONDS.toMillis(Math.max(0, waitSeconds)),
+                balanceVersionProperties.maxWait().toMillis());
+        DeferredResult<ResponseEntity<BigDecimal>> result = new DeferredResult<>(timeout);
+        OptionalLong version = balanceVersions.currentVersion(walletId, ifNoneMatch);
+        if (version.isEmpty() || timeout == 0) {
+            result.setResult(getBalance(walletId, readAfter, ifNoneMatch));
+            return result;
+        }
+        long current = version.getAsLong();
+        CompletableFuture<WalletBalanceVersions.VersionedBalance> change = balanceVersions.await(walletId, current, readAfter);
+        if (change == null) {
+            result.setResult(notModified(current));
+            return result;
+        }
+        log.debug("Waiting for balance change of wallet {} after version {}", walletId, current);
+
+        // Ожидание не держит соединение с базой, поэтому не занимает разрешение допуска
+        request.setAttribute(AdmissionInterceptor.PARKED_ATTRIBUTE, Boolean.TRUE);
+        result.onTimeout(() -> result.setResult(notModified(current)));
+        result.onCompletion(() -> balanceVersions.cancel(walletId, change));
+        change.whenComplete((balance, ex) -> {
+            if (ex != null) {
+                result.setErrorResult(ex);
+            } else {
+                result.setResult(versioned(balance));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Балансы нескольких кошельков в NDJSON, по строке на идентификатор в порядке запроса. Идентификаторы
+     * читаются пачками по {@code wallet.batch.lookup-chunk-size}, каждая пачка — один запрос к базе
+     */
+    @PostMapping(value = "/wallets/balances:batchGet",
+            consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getBalances(@Valid @RequestBody WalletBalancesRequest request,
+                                                             @RequestHeader(name = READ_YOUR_WRITES_HEADER,
+                                                                     required = false) Long readAfter) {
+        log.debug("Getting balances for {} wallets", request.getWalletIds().size());
+
+        List<UUID> walletIds = request.getWalletIds();
+        StreamingResponseBody body = output -> writeBalances(output,
+                walletIds.stream().map(walletId -> new BalanceLookup(walletId, null)).iterator(), readAfter);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * То же для запроса в NDJSON: строка — {@code {"walletId":"..."}} (формат ответа {@code wallets:bulkCreate}),
+     * JSON-строка или идентификатор без кавычек. Тело читается по мере ответа и целиком в памяти не держится,
+     * нераспознанные строки возвращаются со статусом {@code INVALID}
+     */
+    @PostMapping(value = "/wallets/balances:batchGet",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getBalances(InputStream input,
+                                                             @RequestHeader(name = READ_YOUR_WRITES_HEADER,
+                                                                     required = false) Long readAfter) {
+        StreamingResponseBody body = output -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                writeBalances(output, reader.lines()
+                        .filter(line -> !line.isBlank())
+                        .map(this::parseLookup)
+                        .iterator(), readAfter);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PutMapping("/wallets/{walletId}/stripes")
+    public ResponseEntity<WalletResponse> restripeWallet(@PathVariable UUID walletId,
+                                                         @Valid @RequestBody WalletStripesRequest request) {
+        log.debug("Restriping wallet {} into {} slots", walletId, request.getStripes());
+
+        return written(() -> new WalletResponse(walletId,
+                walletService.restripeWallet(walletId, request.getStripes())));
+    }
+
+    private ResponseEntity<BigDecimal> notModified(long version) {
+        balanceVersions.recordUnchanged();
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(balanceVersions.etag(version))
+                .build();
+    }
+
+    private static ResponseEntity<BigDecimal> versioned(WalletBalanceVersions.VersionedBalance balance) {
+        return ResponseEntity.ok()
+                .eTag(balance.etag())
+                .body(balance.balance());
+    }
+
+    /**
+     * Выполняет запись и отвечает на неё с токеном для чтения своих записей; без реплик заголовка нет
+     */
+    private <T> ResponseEntity<T> written(Supplier<T> write) {
+        ReplicaReadRouter.Tracked<T> tracked = replicaRouter.trackWrites(write);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        tracked.token().ifPresent(token -> response.header(READ_YOUR_WRITES_HEADER, String.valueOf(token)));
+        return response.body(tracked.result());
+    }
+
+    private void writeBalances(OutputStream output, Iterator<BalanceLookup> lookups, Long readAfter)
+            throws IOException {
+        int chunkSize = batchProperties.lookupChunkSize();
+        List<BalanceLookup> chunk = new ArrayList<>(chunkSize);
+        while (lookups.hasNext()) {
+            chunk.add(lookups.next());
+            if (chunk.size() == chunkSize || !lookups.hasNext()) {
+                List<UUID> walletIds = chunk.stream()
+                        .map(BalanceLookup::walletId)
+                        .filter(Objects::nonNull)
+                        .toList();
+                Map<UUID, BigDecimal> balances = replicaRouter.readAfter(readAfter,
+                        () -> walletService.getBalances(walletIds));
+                for (BalanceLookup lookup : chunk) {
+                    output.write(objectMapper.writeValueAsBytes(lookup.toItem(balances)));
+                    output.write('\n');
+                }
+                output.flush();
+                chunk.clear();
+            }
+        }
+    }
+
+    private BalanceLookup parseLookup(String line) {
+        String text = line.strip();
+        try {
+            if (text.startsWith("{")) {
+                text = objectMapper.readTree(text).path("walletId").asText();
+            } else if (text.startsWith("\"")) {
+                text = objectMapper.readTree(text).asText();
+            }
+            return new BalanceLookup(UUID.fromString(text), null);
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            return new BalanceLookup(null, line);
+        }
+    }
+
+    private static void writeWalletIds(OutputStream output, List<UUID> walletIds) {
+        StringBuilder lines = new StringBuilder(walletIds.size() * 50);
+        for (UUID walletId : walletIds) {
+            lines.append("{\"walletId\":\"").append(walletId).append("\"}\n");
+        }
+        try {
+            output.write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record BalanceLookup(UUID walletId, String input) {
+
+        WalletBalanceItem toItem(Map<UUID, BigDecimal> balances) {
+            if (walletId == null) {
+                return new WalletBalanceItem(null, WalletBalanceItem.Status.INVALID, null, input);
+            }
+            BigDecimal balance = balances.get(walletId);
+            return balance != null
+                    ? new WalletBalanceItem(walletId, WalletBalanceItem.Status.FOUND, balance, null)
+                    : new WalletBalanceItem(walletId, WalletBalanceItem.Status.NOT_FOUND, null, null);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.anastasiia.wallet.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import com.anastasiia.wallet.config.HistoryProperties;
+import com.anastasiia.wallet.service.WalletHistoryEntry;
+import com.anastasiia.wallet.service.WalletHistoryPage;
+import com.anastasiia.wallet.service.impl.WalletHistory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * История операций кошелька: страницы по курсору и потоковая выгрузка в NDJSON или CSV
+ */
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.history", name = "enabled", havingValue = "true")
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Slf4j
+public class WalletHistoryController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final byte[] CSV_HEADER = "id,created_at,operation_type,amount,balance_after\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final WalletHistory history;
+    private final HistoryProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Страница истории в порядке применения операций; следующая страница запрашивается с {@code after=next}
+     */
+    @GetMapping("/wallets/{walletId}/operations")
+    public ResponseEntity<WalletHistoryPage> getHistory(@PathVariable UUID walletId,
+                                                        @RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestHeader(name = WalletController.READ_YOUR_WRITES_HEADER,
+                                                                required = false) Long readAfter) {
+        log.debug("Getting history of wallet {} after {}", walletId, after);
+
+        return ResponseEntity.ok(history.page(walletId, after, limit, readAfter));
+    }
+
+    /**
+     * Вся история в NDJSON, по операции на строку. Прерванную выгрузку можно продолжить с {@code after},
+     * равным {@code id} последней полученной строки
+     */
+    @GetMapping(value = "/wallets/{walletId}/operations:export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportNdjson(@PathVariable UUID walletId,
+                                                              @RequestParam(required = false) Long after,
+                                                              @RequestHeader(name = WalletController.READ_YOUR_WRITES_HEADER,
+                                                                      required = false) Long readAfter) {
+        log.debug("Exporting history of wallet {} as NDJSON", walletId);
+
+        StreamingResponseBody body = output -> export(walletId, after, readAfter, output, null,
+                objectMapper::writeValueAsBytes);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * То же в CSV с заголовком {@code id,created_at,operation_type,amount,balance_after}
+     */
+    @GetMapping(value = "/wallets/{walletId}/operations:export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@PathVariable UUID walletId,
+                                                           @RequestParam(required = false) Long after,
+                                                           @RequestHeader(name = WalletController.READ_YOUR_WRITES_HEADER,
+                                                                   required = false) Long readAfter) {
+        log.debug("Exporting history of wallet {} as CSV", walletId);
+
+        StreamingResponseBody body = output -> export(walletId, after, readAfter, output, CSV_HEADER,
+                entry -> (entry.id() + "," + entry.createdAt() + "," + entry.operationType() + ","
+                        + entry.amount().toPlainString() + "," + entry.balanceAfter().toPlainString())
+                        .getBytes(StandardCharsets.US_ASCII));
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .body(body);
+    }
+
+    private void export(UUID walletId, Long after, Long readAfter, OutputStream output, byte[] header,
+                        LineFormat format) throws IOException {
+        if (header != null) {
+            output.write(header);
+        }
+        int flushEvery = properties.exportFetchSize();
+        long[] written = new long[1];
+        history.export(walletId, after, readAfter, entry -> {
+            output.write(format.apply(entry));
+            output.write('\n');
+            // Клиент получает каждую порцию курсора сразу, а не весь ответ в конце
+            if (++written[0] % flushEvery == 0) {
+                output.flush();
+            }
+        });
+        output.flush();
+        log.debug("Exported {} history entries of wallet {}", written[0], walletId);
+    }
+
+    @FunctionalInterface
+    private interface LineFormat {
+        byte[] apply(WalletHistoryEntry entry) throws IOException;
+    }
+}
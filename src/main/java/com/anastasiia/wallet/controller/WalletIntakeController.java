@@ -0,0 +1,53 @@
+package com.anastasiia.wallet.controller;
+
+import java.net.URI;
+import java.util.UUID;
+
+import com.anastasiia.wallet.exception.OperationNotFoundException;
+import com.anastasiia.wallet.service.WalletIntakeOperation;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.impl.WalletIntake;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Асинхронный приём операций: {@code POST /api/v1/wallet?mode=async} сохраняет операцию и сразу отвечает 202,
+ * результат опрашивается по идентификатору операции
+ */
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.intake", name = "enabled", havingValue = "true")
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Slf4j
+public class WalletIntakeController {
+
+    private final WalletIntake intake;
+
+    @PostMapping(value = "/wallet", params = "mode=async")
+    public ResponseEntity<WalletIntakeOperation> submitOperation(@Valid @RequestBody WalletOperationRequest request) {
+        log.debug("Accepting operation: {}", request);
+
+        WalletIntakeOperation operation = intake.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/wallet/operations/" + operation.operationId()))
+                .body(operation);
+    }
+
+    @GetMapping("/wallet/operations/{operationId}")
+    public ResponseEntity<WalletIntakeOperation> getOperation(@PathVariable UUID operationId) {
+        log.debug("Getting accepted operation: {}", operationId);
+
+        return ResponseEntity.ok(intake.find(operationId).orElseThrow(() -> new OperationNotFoundException(operationId)));
+    }
+}
@@ -0,0 +1,291 @@
+package com.anastasiia.wallet.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Движок балансов в памяти для режима {@code wallet.storage.mode=memory}. Кошельки распределены по шардам
+ * по хэшу идентификатора, баланс каждого меняет только поток его шарда, поэтому на пути операции нет ни
+ * блокировок, ни обращений к базе. Операция подтверждается после сброса на диск журнала предзаписи шарда;
+ * сброс общий для всей пачки команд, выбранной потоком шарда из очереди.
+ * <p>
+ * При запуске каждый шард загружает последний снимок и применяет журнал после него, затем незачисленные
+ * переводы между шардами зачисляются повторно. Снимки пишутся раз в {@code snapshot-interval} и при остановке,
+ * после снимка старые сегменты журнала удаляются. Таблица {@code wallets} — проекция, которую ведёт
+ * {@link WalletProjection}.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "memory")
+public class MemoryWalletEngine {
+
+    /**
+     * Сколько команд массового создания держится неподтверждёнными, чтобы не переполнить очереди шардов
+     */
+    private static final int CREATE_WINDOW = 1024;
+
+    private final WalletShard[] shards;
+    private final ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "wallet-engine-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+
+    public MemoryWalletEngine(StorageProperties properties) {
+        StorageProperties.Memory memory = properties.memory();
+        Path directory = memory.walDirectory().toAbsolutePath();
+        try {
+            checkShardLayout(directory, memory.shards());
+            shards = new WalletShard[memory.shards()];
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new WalletShard(this, i, shards.length, directory.resolve("shard-" + i),
+                        memory.walSegmentSize().toBytes(), memory.queueCapacity());
+            }
+            List<List<WalEntry>> transfers = new ArrayList<>(shards.length);
+            for (WalletShard shard : shards) {
+                transfers.add(shard.recover());
+            }
+            for (WalletShard source : shards) {
+                for (WalEntry transfer : transfers.get(source.index)) {
+                    shardOf(transfer.counterpartyId()).recoverTransfer(source, transfer);
+                }
+            }
+            for (WalletShard shard : shards) {
+                shard.commit();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to recover wallet engine from " + directory, ex);
+        }
+        for (WalletShard shard : shards) {
+            shard.start();
+        }
+        long interval = memory.snapshotInterval().toMillis();
+        snapshots.scheduleWithFixedDelay(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Создаёт кошелёк
+     *
+     * @param balance начальный баланс в копейках
+     * @return завершается после сброса записи о кошельке на диск
+     */
+    public CompletableFuture<Void> create(UUID walletId, long balance) {
+        return submit(walletId, new WalletShard.Create(walletId, balance));
+    }
+
+    /**
+     * Создаёт кошельки, держа неподтверждёнными не больше {@value #CREATE_WINDOW} команд, и ждёт подтверждения всех
+     *
+     * @param balances начальные балансы в копейках в порядке {@code walletIds}
+     */
+    public void createAll(List<UUID> walletIds, long[] balances) {
+        List<CompletableFuture<Void>> window = new ArrayList<>(CREATE_WINDOW);
+        for (int i = 0; i < walletIds.size(); i++) {
+            window.add(create(walletIds.get(i), balances == null ? 0 : balances[i]));
+            if (window.size() == CREATE_WINDOW || i == walletIds.size() - 1) {
+                window.forEach(MemoryWalletEngine::await);
+                window.clear();
+            }
+        }
+    }
+
+    /**
+     * Пополняет кошелёк или списывает с него сумму
+     *
+     * @param amount сумма в копейках
+     * @return баланс после операции; завершается после сброса операции на диск
+     */
+    public CompletableFuture<Long> apply(UUID walletId, WalletOperationRequest.OperationType type, long amount) {
+        return submit(walletId, new WalletShard.Apply(walletId, type, amount));
+    }
+
+    /**
+     * Переводит сумму между кошельками. Перевод между шардами подтверждается после сброса зачисления
+     * в журнал шарда получателя
+     *
+     * @param amount сумма в копейках
+     * @return балансы обоих кошельков после перевода
+     */
+    public CompletableFuture<TransferOutcome> transfer(UUID fromWalletId, UUID toWalletId, long amount) {
+        return submit(fromWalletId, new WalletShard.Transfer(fromWalletId, toWalletId, amount));
+    }
+
+    /**
+     * @return последний сброшенный на диск баланс кошелька в копейках
+     */
+    public OptionalLong findBalance(UUID walletId) {
+        WalletShard.Account account = shardOf(walletId).accounts.get(walletId);
+        if (account == null) {
+            return OptionalLong.empty();
+        }
+        long balance = account.durable;
+        return balance == WalletShard.Account.ABSENT ? OptionalLong.empty() : OptionalLong.of(balance);
+    }
+
+    public long walletCount() {
+        long count = 0;
+        for (WalletShard shard : shards) {
+            count += shard.accounts.size();
+        }
+        return count;
+    }
+
+    /**
+     * Передаёт балансы, изменившиеся после прошлого вызова
+     *
+     * @param limit    сколько кошельков передать за вызов
+     * @param consumer получает идентификатор кошелька и баланс в копейках
+     * @return количество переданных кошельков
+     */
+    public int drainChanged(int limit, BiConsumer<UUID, Long> consumer) {
+        int drained = 0;
+        for (WalletShard shard : shards) {
+            Iterator<WalletShard.Account> changed = shard.changed.iterator();
+            while (drained < limit && changed.hasNext()) {
+                WalletShard.Account account = changed.next();
+                // Удаляется до чтения баланса: изменение после чтения вернёт кошелёк в набор
+                changed.remove();
+                consumer.accept(account.walletId, account.durable);
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Помечает изменившимися все кошельки, чтобы проекция записала их заново
+     */
+    public void markAllChanged() {
+        for (WalletShard shard : shards) {
+            for (WalletShard.Account account : shard.accounts.values()) {
+                if (account.durable != WalletShard.Account.ABSENT) {
+                    shard.changed.add(account);
+                }
+            }
+        }
+    }
+
+    /**
+     * Снимает снимки всех шардов и удаляет покрытые ими сегменты журналов. Шард собирает снимок в своём потоке
+     * между пачками команд, запись на диск идёт уже вне его
+     */
+    public void snapshot() {
+        for (WalletShard shard : shards) {
+            try {
+                ShardSnapshot snapshot = await(shard.deliver(new WalletShard.Snapshot()));
+                snapshot.write(shard.directory);
+                shard.wal.truncateBefore(snapshot.sequence());
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Failed to snapshot wallet shard {}", shard.index, ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        snapshots.shutdownNow();
+        try {
+            for (WalletShard shard : shards) {
+                shard.stop();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while stopping wallet shards, skipping shutdown snapshot");
+            return;
+        }
+        // Переводы и снимки, переданные шарду после остановки его потока, выполняются здесь
+        boolean drained = true;
+        while (drained) {
+            drained = false;
+            for (WalletShard shard : shards) {
+                drained |= shard.drainStopped();
+            }
+        }
+        try {
+            snapshots.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (WalletShard shard : shards) {
+            try {
+                ShardSnapshot snapshot = shard.captureSnapshot();
+                snapshot.write(shard.directory);
+                shard.wal.truncateBefore(snapshot.sequence());
+                shard.wal.close();
+            } catch (IOException ex) {
+                log.warn("Failed to snapshot wallet shard {} on shutdown", shard.index, ex);
+            }
+        }
+    }
+
+    WalletShard shardOf(UUID walletId) {
+        return shards[Math.floorMod(walletId.hashCode(), shards.length)];
+    }
+
+    /**
+     * Ждёт завершения команды, пробрасывая исключение, с которым она отклонена
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(UUID walletId, WalletShard.Command<T> command) {
+        if (closed) {
+            throw new IllegalStateException("Wallet engine is closed");
+        }
+        return shardOf(walletId).submit(command);
+    }
+
+    private static void checkShardLayout(Path directory, int shards) throws IOException {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("wallet.storage.memory.shards must be positive: " + shards);
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            long existing = files.filter(path -> path.getFileName().toString().startsWith("shard-")).count();
+            if (existing != 0 && existing != shards) {
+                throw new IllegalStateException("WAL in " + directory + " was written by " + existing
+                        + " shards, but wallet.storage.memory.shards=" + shards);
+            }
+        }
+    }
+
+    /**
+     * @param fromBalance баланс кошелька списания после перевода в копейках
+     * @param toBalance   баланс кошелька зачисления после перевода в копейках
+     */
+    public record TransferOutcome(long fromBalance, long toBalance) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.anastasiia.wallet.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченная очередь без блокировок для многих производителей и одного потребителя.
+ * <p>
+ * Производитель занимает номер ячейки CAS-ом хвоста и только потом записывает в неё элемент, поэтому
+ * потребитель, встретив пустую ячейку, считает очередь пустой, даже если номер уже занят: элемент
+ * он заберёт на следующем проходе. Ячейка очищается до сдвига головы, и производитель, увидевший
+ * новую голову, пишет уже в пустую ячейку.
+ */
+final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Queue capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return {@code false}, если очередь заполнена
+     */
+    boolean offer(E element) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) sequence & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Вызывается только потребителем
+     *
+     * @return следующий элемент или {@code null}, если очередь пуста
+     */
+    E poll() {
+        long sequence = head;
+        int index = (int) sequence & mask;
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.setPlain(index, null);
+        head = sequence + 1;
+        return element;
+    }
+
+    /**
+     * Вызывается только потребителем
+     */
+    boolean isEmpty() {
+        return slots.get((int) head & mask) == null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.anastasiia.wallet.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Снимок шарда: балансы всех кошельков после записи журнала {@code sequence}. Пишется во временный файл,
+ * сбрасывается на диск и переименовывается, поэтому на диске всегда есть целый снимок либо ни одного.
+ *
+ * @param sequence    номер последней учтённой записи журнала шарда
+ * @param appliedFrom по каждому шарду-источнику — номер последней зачисленной записи {@link WalEntry.Type#TRANSFER_OUT}
+ * @param inFlight    переводы из этого шарда, зачисление которых ещё не подтверждено шардом получателя
+ * @param walletIds   идентификаторы кошельков
+ * @param balances    балансы кошельков в копейках в порядке {@code walletIds}
+ */
+@Slf4j
+record ShardSnapshot(long sequence, long[] appliedFrom, List<WalEntry> inFlight, UUID[] walletIds, long[] balances) {
+
+    private static final int MAGIC = 0x57534e50;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    /**
+     * Записывает снимок и удаляет более старые
+     */
+    void write(Path directory) throws IOException {
+        Path target = directory.resolve("%s%020d%s".formatted(PREFIX, sequence, SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32C());
+            DataOutputStream output = new DataOutputStream(checked);
+            output.writeInt(MAGIC);
+            output.writeLong(sequence);
+            output.writeInt(appliedFrom.length);
+            for (long applied : appliedFrom) {
+                output.writeLong(applied);
+            }
+            output.writeInt(inFlight.size());
+            for (WalEntry entry : inFlight) {
+                output.writeLong(entry.sequence());
+                writeUuid(output, entry.walletId());
+                writeUuid(output, entry.counterpartyId());
+                output.writeLong(entry.amount());
+            }
+            output.writeInt(walletIds.length);
+            for (int i = 0; i < walletIds.length; i++) {
+                writeUuid(output, walletIds[i]);
+                output.writeLong(balances[i]);
+            }
+            output.writeInt((int) checked.getChecksum().getValue());
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.syncDirectory(directory);
+        for (Path snapshot : snapshots(directory)) {
+            if (!snapshot.equals(target)) {
+                Files.delete(snapshot);
+            }
+        }
+    }
+
+    /**
+     * @return последний целый снимок шарда
+     */
+    static Optional<ShardSnapshot> readLatest(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return Optional.of(read(snapshots.get(i)));
+            } catch (IOException | IllegalStateException ex) {
+                log.warn("Skipping unreadable shard snapshot {}", snapshots.get(i), ex);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static ShardSnapshot read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16), new CRC32C());
+            DataInputStream input = new DataInputStream(checked);
+            if (input.readInt() != MAGIC) {
+                throw new IllegalStateException("Not a shard snapshot: " + path);
+            }
+            long sequence = input.readLong();
+            long[] appliedFrom = new long[input.readInt()];
+            for (int i = 0; i < appliedFrom.length; i++) {
+                appliedFrom[i] = input.readLong();
+            }
+            int inFlightCount = input.readInt();
+            List<WalEntry> inFlight = new ArrayList<>(inFlightCount);
+            for (int i = 0; i < inFlightCount; i++) {
+                inFlight.add(new WalEntry(input.readLong(), WalEntry.Type.TRANSFER_OUT,
+                        readUuid(input), readUuid(input), input.readLong(), 0, 0));
+            }
+            int count = input.readInt();
+            UUID[] walletIds = new UUID[count];
+            long[] balances = new long[count];
+            for (int i = 0; i < count; i++) {
+                walletIds[i] = readUuid(input);
+                balances[i] = input.readLong();
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (input.readInt() != expected) {
+                throw new IllegalStateException("Shard snapshot checksum mismatch: " + path);
+            }
+            return new ShardSnapshot(sequence, appliedFrom, inFlight, walletIds, balances);
+        }
+    }
+
+    private static List<Path> snapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void writeUuid(DataOutputStream output, UUID uuid) throws IOException {
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream input) throws IOException {
+        return new UUID(input.readLong(), input.readLong());
+    }
+}
@@ -0,0 +1,45 @@
+package com.anastasiia.wallet.engine;
+
+import java.util.UUID;
+
+/**
+ * Запись журнала предзаписи шарда. Суммы — в копейках; записи уже проверены при добавлении
+ * и при восстановлении применяются без проверок.
+ *
+ * @param sequence       номер записи в журнале шарда; назначается журналом
+ * @param type           тип записи
+ * @param walletId       кошелёк, баланс которого изменяет запись; для переводов — кошелёк списания,
+ *                       для {@link Type#TRANSFER_IN} — кошелёк зачисления
+ * @param counterpartyId второй кошелёк перевода
+ * @param amount         сумма; для {@link Type#CREATE} — начальный баланс
+ * @param sourceShard    для {@link Type#TRANSFER_IN} — шард, списавший сумму
+ * @param sourceSequence для {@link Type#TRANSFER_IN} — номер записи {@link Type#TRANSFER_OUT} в журнале того шарда
+ */
+record WalEntry(long sequence, Type type, UUID walletId, UUID counterpartyId, long amount,
+                int sourceShard, long sourceSequence) {
+
+    /**
+     * Код типа в журнале — порядковый номер плюс один, ноль означает конец записей. Новые типы добавляются в конец
+     */
+    enum Type {
+        CREATE,
+        DEPOSIT,
+        WITHDRAW,
+        /**
+         * Перевод между кошельками одного шарда
+         */
+        TRANSFER,
+        /**
+         * Списание перевода в шард кошелька зачисления
+         */
+        TRANSFER_OUT,
+        /**
+         * Зачисление перевода из другого шарда
+         */
+        TRANSFER_IN
+    }
+
+    static WalEntry of(Type type, UUID walletId, UUID counterpartyId, long amount) {
+        return new WalEntry(0, type, walletId, counterpartyId, amount, 0, 0);
+    }
+}
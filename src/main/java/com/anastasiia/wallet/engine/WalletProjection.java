@@ -0,0 +1,122 @@
+package com.anastasiia.wallet.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.config.BatchProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.money.MinorUnits;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Проекция балансов {@link MemoryWalletEngine} в таблицу {@code wallets}: изменившиеся балансы раз
+ * в {@code projection-interval} записываются JDBC-батчами. При запуске проекция перестраивается целиком,
+ * поэтому её можно потерять или откатить вместе с базой. Пустой движок при первом запуске заполняется
+ * из {@code wallets} с учётом слотов, после чего слоты больше не ведутся.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "memory")
+public class WalletProjection {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO wallets (id, balance) VALUES (?, ?)
+            ON CONFLICT (id) DO UPDATE SET balance = EXCLUDED.balance, stripe_count = 0
+            """;
+
+    private static final String IMPORT_SQL = """
+            SELECT w.id, w.balance + CASE WHEN w.stripe_count = 0 THEN 0 ELSE (
+                SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s WHERE s.wallet_id = w.id
+            ) END AS balance
+            FROM wallets w
+            """;
+
+    private final MemoryWalletEngine engine;
+    private final JdbcTemplate jdbcTemplate;
+    private final StorageProperties.Memory properties;
+    private final BatchProperties batchProperties;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "wallet-projection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WalletProjection(MemoryWalletEngine engine,
+                            JdbcTemplate jdbcTemplate,
+                            StorageProperties properties,
+                            BatchProperties batchProperties) {
+        this.engine = engine;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties.memory();
+        this.batchProperties = batchProperties;
+    }
+
+    @PostConstruct
+    void start() {
+        if (engine.walletCount() == 0) {
+            importWallets();
+        }
+        engine.markAllChanged();
+        long interval = properties.projectionInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::project, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Записывает в {@code wallets} все балансы, изменившиеся после прошлого вызова
+     *
+     * @return количество записанных кошельков
+     */
+    public long project() {
+        long projected = 0;
+        try {
+            int batchSize = batchProperties.jdbcBatchSize();
+            List<Object[]> rows = new ArrayList<>(batchSize);
+            while (engine.drainChanged(batchSize, (walletId, balance) ->
+                    rows.add(new Object[]{walletId, MinorUnits.toDecimal(balance)})) > 0) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+                projected += rows.size();
+                rows.clear();
+            }
+        } catch (RuntimeException ex) {
+            // Непопавшие в базу балансы уже убраны из набора изменившихся, поэтому следующий проход пишет все
+            log.warn("Wallet projection failed, rewriting all wallets on the next run", ex);
+            engine.markAllChanged();
+        }
+        if (projected > 0) {
+            log.debug("Projected {} wallet balances", projected);
+        }
+        return projected;
+    }
+
+    private void importWallets() {
+        List<UUID> walletIds = new ArrayList<>();
+        List<BigDecimal> balances = new ArrayList<>();
+        jdbcTemplate.query(IMPORT_SQL, resultSet -> {
+            walletIds.add(resultSet.getObject("id", UUID.class));
+            balances.add(resultSet.getBigDecimal("balance"));
+        });
+        if (walletIds.isEmpty()) {
+            return;
+        }
+        engine.createAll(walletIds, balances.stream().mapToLong(MinorUnits::fromDecimal).toArray());
+        jdbcTemplate.update("DELETE FROM wallet_balance_slots");
+        log.info("Imported {} wallets into the memory engine", walletIds.size());
+    }
+}
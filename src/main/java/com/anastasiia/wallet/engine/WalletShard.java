@@ -0,0 +1,551 @@
+package com.anastasiia.wallet.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.anastasiia.wallet.exception.BalanceOverflowException;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.ServiceOverloadedException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.money.MinorUnits;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Шард движка в памяти: кошельки с одинаковым хэшем идентификатора и единственный поток, который меняет
+ * их балансы. Команды приходят через очередь без блокировок; поток выбирает их пачкой, проверяет и применяет
+ * к балансам в памяти, добавляет записи в журнал, одним {@link WriteAheadLog#force()} сбрасывает на диск всю
+ * пачку и только после этого публикует новые балансы читателям и завершает команды.
+ * <p>
+ * Перевод в кошелёк другого шарда списывается здесь записью {@link WalEntry.Type#TRANSFER_OUT} и после сброса
+ * журнала передаётся шарду получателя, который зачисляет его записью {@link WalEntry.Type#TRANSFER_IN}.
+ * Шард получателя помнит номер последней зачисленной записи каждого источника, поэтому при восстановлении
+ * незачисленные переводы находятся сравнением номеров.
+ */
+@Slf4j
+final class WalletShard {
+
+    /**
+     * Максимальный баланс {@code numeric(15,2)} в копейках, чтобы проекция в {@code wallets} не переполнялась
+     */
+    static final long MAX_BALANCE = 999_999_999_999_999L;
+
+    private static final int MAX_BATCH = 4096;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    final int index;
+    final Path directory;
+    final WriteAheadLog wal;
+
+    /**
+     * Кошельки шарда. Мапу меняет только поток шарда, читатели видят сброшенный на диск баланс {@link Account#durable}
+     */
+    final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Кошельки, баланс которых изменился после последней записи в проекцию
+     */
+    final Set<Account> changed = ConcurrentHashMap.newKeySet();
+
+    private final MemoryWalletEngine engine;
+    private final MpscRingBuffer<Command<?>> queue;
+    private final Queue<Command<?>> inbox = new ConcurrentLinkedQueue<>();
+    private final long[] appliedFrom;
+    private final Map<Long, WalEntry> inFlight = new ConcurrentHashMap<>();
+    private final List<WalEntry> unresolved = new ArrayList<>();
+
+    private final List<Command<?>> executed = new ArrayList<>();
+    private final List<Account> touched = new ArrayList<>();
+    private final List<Credit> outgoing = new ArrayList<>();
+
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    private volatile Throwable failure;
+
+    WalletShard(MemoryWalletEngine engine, int index, int shards, Path directory, long segmentSize, int queueCapacity) {
+        this.engine = engine;
+        this.index = index;
+        this.directory = directory;
+        this.wal = new WriteAheadLog(directory, segmentSize);
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        this.appliedFrom = new long[shards];
+        this.thread = new Thread(this::run, "wallet-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Загружает последний снимок и применяет журнал после него
+     *
+     * @return записи {@link WalEntry.Type#TRANSFER_OUT}, зачисление которых нужно проверить в шардах получателей
+     */
+    List<WalEntry> recover() throws IOException {
+        Files.createDirectories(directory);
+        long afterSequence = 0;
+        ShardSnapshot snapshot = ShardSnapshot.readLatest(directory).orElse(null);
+        if (snapshot != null) {
+            if (snapshot.appliedFrom().length != appliedFrom.length) {
+                throw new IllegalStateException("Snapshot in " + directory + " was written for "
+                        + snapshot.appliedFrom().length + " shards");
+            }
+            for (int i = 0; i < snapshot.walletIds().length; i++) {
+                accounts.put(snapshot.walletIds()[i], new Account(snapshot.walletIds()[i], snapshot.balances()[i]));
+            }
+            System.arraycopy(snapshot.appliedFrom(), 0, appliedFrom, 0, appliedFrom.length);
+            unresolved.addAll(snapshot.inFlight());
+            afterSequence = snapshot.sequence();
+        }
+        long lastSequence = wal.replay(afterSequence, this::replay);
+        log.info("Recovered wallet shard {}: {} wallets, snapshot at {}, WAL up to {}",
+                index, accounts.size(), afterSequence, lastSequence);
+        List<WalEntry> transfers = new ArrayList<>(unresolved);
+        unresolved.clear();
+        transfers.sort(Comparator.comparingLong(WalEntry::sequence));
+        return transfers;
+    }
+
+    /**
+     * Зачисляет перевод, списание которого восстановлено из журнала шарда {@code source}, если он ещё не зачислен.
+     * Вызывается до запуска потоков
+     */
+    void recoverTransfer(WalletShard source, WalEntry transfer) {
+        if (transfer.sequence() > appliedFrom[source.index]) {
+            execute(new Credit(source, transfer, null, 0));
+        }
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Останавливает поток после того, как он выполнит уже принятые команды
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    <T> CompletableFuture<T> submit(Command<T> command) {
+        if (failure != null) {
+            throw new IllegalStateException("Wallet shard " + index + " has failed", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Wallet shard " + index + " is stopped");
+        }
+        if (!queue.offer(command)) {
+            throw new ServiceOverloadedException("wallet shard " + index + " queue is full", RETRY_AFTER);
+        }
+        wake();
+        return command.future;
+    }
+
+    /**
+     * Передаёт служебную команду мимо очереди запросов: она не ограничена и не отклоняет команды
+     */
+    <T> CompletableFuture<T> deliver(Command<T> command) {
+        inbox.add(command);
+        wake();
+        return command.future;
+    }
+
+    /**
+     * Выполняет и фиксирует служебные команды, оставшиеся после остановки потока. Вызывается после {@link #stop()}
+     *
+     * @return были ли такие команды
+     */
+    boolean drainStopped() {
+        boolean drained = false;
+        while (drain() > 0) {
+            commit();
+            drained = true;
+        }
+        return drained;
+    }
+
+    /**
+     * Сбрасывает журнал на диск, публикует новые балансы, передаёт переводы шардам получателей и завершает
+     * выполненные команды
+     */
+    void commit() {
+        wal.force();
+        for (Account account : touched) {
+            account.touched = false;
+            account.durable = account.balance;
+            changed.add(account);
+        }
+        touched.clear();
+        for (Credit credit : outgoing) {
+            engine.shardOf(credit.transfer.counterpartyId()).deliver(credit);
+        }
+        outgoing.clear();
+        for (Command<?> command : executed) {
+            command.complete();
+        }
+        executed.clear();
+    }
+
+    ShardSnapshot captureSnapshot() {
+        wal.force();
+        UUID[] walletIds = new UUID[accounts.size()];
+        long[] balances = new long[walletIds.length];
+        int i = 0;
+        for (Account account : accounts.values()) {
+            walletIds[i] = account.walletId;
+            balances[i++] = account.balance;
+        }
+        return new ShardSnapshot(wal.lastSequence(), appliedFrom.clone(), List.copyOf(inFlight.values()),
+                walletIds, balances);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (drain() > 0) {
+                    commit();
+                    continue;
+                }
+                if (!running) {
+                    break;
+                }
+                parked = true;
+                if (queue.isEmpty() && inbox.isEmpty() && running) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                parked = false;
+            }
+        } catch (Throwable ex) {
+            log.error("Wallet shard {} failed, its operations are rejected until restart", index, ex);
+            failure = ex;
+            IllegalStateException error = new IllegalStateException("Wallet shard " + index + " has failed", ex);
+            executed.forEach(command -> command.abort(error));
+            outgoing.forEach(command -> command.abort(error));
+            Command<?> command;
+            while ((command = queue.poll()) != null || (command = inbox.poll()) != null) {
+                command.abort(error);
+            }
+        }
+    }
+
+    private int drain() {
+        int count = 0;
+        Command<?> command;
+        while (count < MAX_BATCH && (command = inbox.poll()) != null) {
+            execute(command);
+            count++;
+        }
+        while (count < MAX_BATCH && (command = queue.poll()) != null) {
+            execute(command);
+            count++;
+        }
+        return count;
+    }
+
+    private void execute(Command<?> command) {
+        if (command instanceof Apply apply) {
+            apply(apply);
+        } else if (command instanceof Transfer transfer) {
+            transfer(transfer);
+        } else if (command instanceof Credit credit) {
+            credit(credit);
+        } else if (command instanceof Create create) {
+            create(create);
+        } else if (command instanceof Snapshot snapshot) {
+            snapshot.result = captureSnapshot();
+            executed.add(snapshot);
+        }
+    }
+
+    private void create(Create create) {
+        if (accounts.containsKey(create.walletId)) {
+            fail(create, new IllegalStateException("Wallet already exists: " + create.walletId));
+            return;
+        }
+        wal.append(WalEntry.of(WalEntry.Type.CREATE, create.walletId, null, create.balance));
+        Account account = new Account(create.walletId, Account.ABSENT);
+        accounts.put(create.walletId, account);
+        update(account, create.balance);
+        executed.add(create);
+    }
+
+    private void apply(Apply apply) {
+        Account account = accounts.get(apply.walletId);
+        if (account == null) {
+            fail(apply, new WalletNotFoundException(apply.walletId));
+            return;
+        }
+        long balance;
+        if (apply.type == WalletOperationRequest.OperationType.DEPOSIT) {
+            if (account.balance > MAX_BALANCE - apply.amount) {
+                fail(apply, new BalanceOverflowException(apply.walletId));
+                return;
+            }
+            wal.append(WalEntry.of(WalEntry.Type.DEPOSIT, apply.walletId, null, apply.amount));
+            balance = account.balance + apply.amount;
+        } else {
+            if (account.balance < apply.amount) {
+                fail(apply, new InsufficientFundsException(apply.walletId,
+                        MinorUnits.toDecimal(apply.amount), MinorUnits.toDecimal(account.balance)));
+                return;
+            }
+            wal.append(WalEntry.of(WalEntry.Type.WITHDRAW, apply.walletId, null, apply.amount));
+            balance = account.balance - apply.amount;
+        }
+        update(account, balance);
+        apply.result = balance;
+        executed.add(apply);
+    }
+
+    private void transfer(Transfer transfer) {
+        Account from = accounts.get(transfer.fromWalletId);
+        if (from == null) {
+            fail(transfer, new WalletNotFoundException(transfer.fromWalletId));
+            return;
+        }
+        WalletShard target = engine.shardOf(transfer.toWalletId);
+        // Кошельки не удаляются, поэтому найденный в чужом шарде получатель останется там и к зачислению
+        Account to = target == this ? accounts.get(transfer.toWalletId) : target.findDurable(transfer.toWalletId);
+        if (to == null) {
+            fail(transfer, new WalletNotFoundException(transfer.toWalletId));
+            return;
+        }
+        if (from.balance < transfer.amount) {
+            fail(transfer, new InsufficientFundsException(transfer.fromWalletId,
+                    MinorUnits.toDecimal(transfer.amount), MinorUnits.toDecimal(from.balance)));
+            return;
+        }
+        // Баланс получателя из другого шарда может уже вырасти, проверка переполнения для него приблизительная
+        long toBalance = target == this ? to.balance : to.durable;
+        if (toBalance > MAX_BALANCE - transfer.amount) {
+            fail(transfer, new BalanceOverflowException(transfer.toWalletId));
+            return;
+        }
+
+        if (target == this) {
+            wal.append(WalEntry.of(WalEntry.Type.TRANSFER, transfer.fromWalletId, transfer.toWalletId, transfer.amount));
+            update(from, from.balance - transfer.amount);
+            update(to, to.balance + transfer.amount);
+            transfer.result = new MemoryWalletEngine.TransferOutcome(from.balance, to.balance);
+            executed.add(transfer);
+            return;
+        }
+        WalEntry entry = WalEntry.of(WalEntry.Type.TRANSFER_OUT,
+                transfer.fromWalletId, transfer.toWalletId, transfer.amount);
+        long sequence = wal.append(entry);
+        WalEntry out = new WalEntry(sequence, entry.type(), entry.walletId(), entry.counterpartyId(), entry.amount(), 0, 0);
+        update(from, from.balance - transfer.amount);
+        inFlight.put(sequence, out);
+        outgoing.add(new Credit(this, out, transfer, from.balance));
+    }
+
+    private void credit(Credit credit) {
+        WalEntry out = credit.transfer;
+        Account to = accounts.get(out.counterpartyId());
+        if (to == null) {
+            throw new IllegalStateException("Transfer " + credit.source.index + "/" + out.sequence()
+                    + " targets unknown wallet " + out.counterpartyId());
+        }
+        wal.append(new WalEntry(0, WalEntry.Type.TRANSFER_IN, out.counterpartyId(), out.walletId(), out.amount(),
+                credit.source.index, out.sequence()));
+        update(to, to.balance + out.amount());
+        appliedFrom[credit.source.index] = out.sequence();
+        credit.toBalance = to.balance;
+        executed.add(credit);
+    }
+
+    private void replay(WalEntry entry) {
+        switch (entry.type()) {
+            case CREATE -> accounts.put(entry.walletId(), new Account(entry.walletId(), entry.amount()));
+            case DEPOSIT -> restored(entry.walletId()).restore(entry.amount());
+            case WITHDRAW -> restored(entry.walletId()).restore(-entry.amount());
+            case TRANSFER -> {
+                restored(entry.walletId()).restore(-entry.amount());
+                restored(entry.counterpartyId()).restore(entry.amount());
+            }
+            case TRANSFER_OUT -> {
+                restored(entry.walletId()).restore(-entry.amount());
+                unresolved.add(entry);
+            }
+            case TRANSFER_IN -> {
+                restored(entry.walletId()).restore(entry.amount());
+                appliedFrom[entry.sourceShard()] = Math.max(appliedFrom[entry.sourceShard()], entry.sourceSequence());
+            }
+        }
+    }
+
+    private Account restored(UUID walletId) {
+        Account account = accounts.get(walletId);
+        if (account == null) {
+            throw new IllegalStateException("WAL in " + directory + " references unknown wallet " + walletId);
+        }
+        return account;
+    }
+
+    private Account findDurable(UUID walletId) {
+        Account account = accounts.get(walletId);
+        return account == null || account.durable == Account.ABSENT ? null : account;
+    }
+
+    private void update(Account account, long balance) {
+        account.balance = balance;
+        if (!account.touched) {
+            account.touched = true;
+            touched.add(account);
+        }
+    }
+
+    private void fail(Command<?> command, RuntimeException error) {
+        command.error = error;
+        executed.add(command);
+    }
+
+    private void wake() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    static final class Account {
+
+        /**
+         * Значение {@link #durable} кошелька, созданного в ещё не сброшенной пачке
+         */
+        static final long ABSENT = Long.MIN_VALUE;
+
+        final UUID walletId;
+
+        /**
+         * Баланс с учётом всех выполненных команд; читает и пишет только поток шарда
+         */
+        long balance;
+
+        /**
+         * Баланс, сброшенный на диск в журнале
+         */
+        volatile long durable;
+
+        boolean touched;
+
+        Account(UUID walletId, long balance) {
+            this.walletId = walletId;
+            this.balance = balance;
+            this.durable = balance;
+        }
+
+        void restore(long delta) {
+            balance += delta;
+            durable = balance;
+        }
+    }
+
+    abstract static class Command<T> {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        RuntimeException error;
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        void abort(RuntimeException error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    static final class Create extends Command<Void> {
+
+        final UUID walletId;
+        final long balance;
+
+        Create(UUID walletId, long balance) {
+            this.walletId = walletId;
+            this.balance = balance;
+        }
+    }
+
+    static final class Apply extends Command<Long> {
+
+        final UUID walletId;
+        final WalletOperationRequest.OperationType type;
+        final long amount;
+
+        Apply(UUID walletId, WalletOperationRequest.OperationType type, long amount) {
+            this.walletId = walletId;
+            this.type = type;
+            this.amount = amount;
+        }
+    }
+
+    static final class Transfer extends Command<MemoryWalletEngine.TransferOutcome> {
+
+        final UUID fromWalletId;
+        final UUID toWalletId;
+        final long amount;
+
+        Transfer(UUID fromWalletId, UUID toWalletId, long amount) {
+            this.fromWalletId = fromWalletId;
+            this.toWalletId = toWalletId;
+            this.amount = amount;
+        }
+    }
+
+    static final class Snapshot extends Command<ShardSnapshot> {
+    }
+
+    /**
+     * Зачисление перевода из другого шарда; завершает исходную команду перевода, когда зачисление сброшено на диск
+     */
+    private static final class Credit extends Command<Void> {
+
+        final WalletShard source;
+        final WalEntry transfer;
+        final Transfer command;
+        final long fromBalance;
+        long toBalance;
+
+        Credit(WalletShard source, WalEntry transfer, Transfer command, long fromBalance) {
+            this.source = source;
+            this.transfer = transfer;
+            this.command = command;
+            this.fromBalance = fromBalance;
+        }
+
+        @Override
+        void complete() {
+            source.inFlight.remove(transfer.sequence());
+            if (command != null) {
+                command.result = new MemoryWalletEngine.TransferOutcome(fromBalance, toBalance);
+                command.complete();
+            }
+        }
+
+        @Override
+        void abort(RuntimeException error) {
+            super.abort(error);
+            if (command != null) {
+                command.abort(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.anastasiia.wallet.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал предзаписи одного шарда: сегменты фиксированного размера, отображаемые в память. Записи фиксированной
+ * длины {@value #RECORD_SIZE} байт с CRC32C; сегмент назван номером своей первой записи и заполняется нулями
+ * при создании, поэтому нулевая запись — конец журнала, а запись с неверной контрольной суммой — оборванная
+ * при сбое. Запись добавляется в память, на диск всё добавленное с прошлого раза сбрасывает {@link #force()}.
+ * <p>
+ * Не потокобезопасен: добавляет и сбрасывает записи только поток шарда, {@link #truncateBefore} удаляет
+ * лишь закрытые сегменты.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    static final int RECORD_SIZE = 72;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int forcedPosition;
+    private long lastSequence;
+
+    WriteAheadLog(Path directory, long segmentSize) {
+        if (segmentSize < RECORD_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid WAL segment size: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = (int) (segmentSize / RECORD_SIZE * RECORD_SIZE);
+    }
+
+    /**
+     * Читает журнал и готовит его к добавлению записей после последней целой. Оборванный хвост последнего
+     * сегмента обнуляется: эти записи не были сброшены на диск, и их операции не подтверждались
+     *
+     * @param afterSequence номер последней записи, уже учтённой в снимке; более ранние записи пропускаются
+     * @param handler       получает записи после {@code afterSequence} по порядку
+     * @return номер последней записи журнала
+     */
+    long replay(long afterSequence, Consumer<WalEntry> handler) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        lastSequence = afterSequence;
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            FileChannel segmentChannel = FileChannel.open(segments.get(i),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentChannel.size());
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int position = buffer.position();
+                WalEntry entry = read(buffer, position);
+                if (entry == null) {
+                    if (!last && !isZero(buffer, position)) {
+                        throw new IllegalStateException("Corrupted WAL record in " + segments.get(i) + " at " + position);
+                    }
+                    // Страницы после оборванной записи тоже могли частично попасть на диск
+                    zeroFrom(buffer, position);
+                    break;
+                }
+                if (entry.sequence() > afterSequence) {
+                    if (entry.sequence() != lastSequence + 1) {
+                        throw new IllegalStateException("WAL sequence gap in " + directory
+                                + ": expected " + (lastSequence + 1) + ", found " + entry.sequence());
+                    }
+                    handler.accept(entry);
+                    lastSequence = entry.sequence();
+                }
+                buffer.position(position + RECORD_SIZE);
+            }
+            if (last) {
+                buffer.force();
+                channel = segmentChannel;
+                segment = buffer;
+                forcedPosition = buffer.position();
+            } else {
+                segmentChannel.close();
+            }
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Добавляет запись в текущий сегмент, не сбрасывая её на диск
+     *
+     * @return номер записи
+     */
+    long append(WalEntry entry) {
+        if (segment == null || segment.remaining() < RECORD_SIZE) {
+            roll();
+        }
+        long sequence = lastSequence + 1;
+        int position = segment.position();
+        segment.putInt(0)
+                .put((byte) (entry.type().ordinal() + 1))
+                .put((byte) 0).put((byte) 0).put((byte) 0)
+                .putLong(sequence);
+        putUuid(entry.walletId());
+        putUuid(entry.counterpartyId());
+        segment.putLong(entry.amount())
+                .putInt(entry.sourceShard())
+                .putInt(0)
+                .putLong(entry.sourceSequence());
+        segment.putInt(position, checksum(segment, position));
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Сбрасывает на диск записи, добавленные после прошлого вызова
+     */
+    void force() {
+        if (segment != null && segment.position() > forcedPosition) {
+            segment.force(forcedPosition, segment.position() - forcedPosition);
+            forcedPosition = segment.position();
+        }
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Удаляет сегменты, все записи которых не новее {@code sequence}
+     */
+    void truncateBefore(long sequence) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequence(segments.get(i + 1)) > sequence + 1) {
+                break;
+            }
+            Files.delete(segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            segment = null;
+        }
+    }
+
+    private void roll() {
+        force();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            // Сегмент с тем же именем мог остаться от сбоя сразу после создания: целых записей в нём нет
+            Path path = directory.resolve("%020d%s".formatted(lastSequence + 1, SEGMENT_SUFFIX));
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Отображение расширяет файл нулями; прежнее отображение освобождается сборщиком мусора
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            forcedPosition = 0;
+            channel.force(true);
+            syncDirectory(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private WalEntry read(ByteBuffer buffer, int position) {
+        int checksum = buffer.getInt(position);
+        int type = buffer.get(position + 4);
+        if (type <= 0 || type > WalEntry.Type.values().length || checksum != checksum(buffer, position)) {
+            return null;
+        }
+        return new WalEntry(
+                buffer.getLong(position + 8),
+                WalEntry.Type.values()[type - 1],
+                getUuid(buffer, position + 16),
+                getUuid(buffer, position + 32),
+                buffer.getLong(position + 48),
+                buffer.getInt(position + 56),
+                buffer.getLong(position + 64));
+    }
+
+    private int checksum(ByteBuffer buffer, int position) {
+        crc.reset();
+        crc.update(buffer.slice(position + 4, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    private void putUuid(UUID uuid) {
+        segment.putLong(uuid == null ? 0 : uuid.getMostSignificantBits())
+                .putLong(uuid == null ? 0 : uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer, int position) {
+        long most = buffer.getLong(position);
+        long least = buffer.getLong(position + 8);
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+    private static void zeroFrom(ByteBuffer buffer, int position) {
+        byte[] chunk = new byte[4096];
+        byte[] zeros = new byte[chunk.length];
+        for (int offset = position; offset < buffer.limit(); offset += chunk.length) {
+            int length = Math.min(chunk.length, buffer.limit() - offset);
+            buffer.get(offset, chunk, 0, length);
+            if (Arrays.mismatch(chunk, 0, length, zeros, 0, length) >= 0) {
+                buffer.put(offset, zeros, 0, length);
+            }
+        }
+    }
+
+    private static boolean isZero(ByteBuffer buffer, int position) {
+        for (int i = position; i < position + RECORD_SIZE; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Сбрасывает на диск запись каталога о созданном или переименованном файле
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
@@ -6,11 +6,20 @@ import java.util.UUID;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 @Entity
 @Table(name = "wallets")
@@ -18,7 +27,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Wallet {
+public class Wallet implements Persistable<UUID> {
 
     @Id
     @Column(name = "id")
@@ -26,4 +35,39 @@ public class Wallet {
 
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal balance = BigDecimal.ZERO;
+
+    /**
+     * Количество слотов, по которым разнесён баланс горячего кошелька; 0 — баланс хранится только в этой строке
+     */
+    @Column(name = "stripe_count", nullable = false)
+    private int stripeCount;
+
+    /**
+     * Версия строки: её увеличивает каждое изменение кошелька, а оптимистичная запись проверяет
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * Идентификатор назначается приложением, поэтому новизну кошелька Spring Data не может определить по нему:
+     * без этого флага {@code save} выполнял бы {@code merge} с SELECT перед каждым INSERT
+     */
+    @Transient
+    @Builder.Default
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
 }
\ No newline at end of file
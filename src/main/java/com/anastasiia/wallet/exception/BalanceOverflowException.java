@@ -0,0 +1,10 @@
+package com.anastasiia.wallet.exception;
+
+import java.util.UUID;
+
+public class BalanceOverflowException extends RuntimeException {
+
+    public BalanceOverflowException(UUID walletId) {
+        super("Balance overflow in wallet with id: " + walletId);
+    }
+}
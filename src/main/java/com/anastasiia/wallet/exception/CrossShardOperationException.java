@@ -0,0 +1,10 @@
+package com.anastasiia.wallet.exception;
+
+import java.util.UUID;
+
+public class CrossShardOperationException extends RuntimeException {
+
+    public CrossShardOperationException(String operation, UUID firstWalletId, UUID secondWalletId) {
+        super(operation + " spans wallets on different shards: " + firstWalletId + ", " + secondWalletId);
+    }
+}
@@ -0,0 +1,10 @@
+package com.anastasiia.wallet.exception;
+
+import java.util.UUID;
+
+public class OperationNotFoundException extends RuntimeException {
+
+    public OperationNotFoundException(UUID operationId) {
+        super("Operation not found with id: " + operationId);
+    }
+}
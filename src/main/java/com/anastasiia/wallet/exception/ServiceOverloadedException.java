@@ -0,0 +1,17 @@
+package com.anastasiia.wallet.exception;
+
+import java.time.Duration;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String reason, Duration retryAfter) {
+        super("Service is overloaded: " + reason);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,8 @@
+package com.anastasiia.wallet.exception;
+
+public class UnsupportedWalletOperationException extends RuntimeException {
+
+    public UnsupportedWalletOperationException(String message) {
+        super(message);
+    }
+}
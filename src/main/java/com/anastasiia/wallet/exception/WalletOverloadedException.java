@@ -0,0 +1,18 @@
+package com.anastasiia.wallet.exception;
+
+import java.time.Duration;
+import java.util.UUID;
+
+public class WalletOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public WalletOverloadedException(UUID walletId, Duration retryAfter) {
+        super("Too many concurrent operations on wallet: " + walletId);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
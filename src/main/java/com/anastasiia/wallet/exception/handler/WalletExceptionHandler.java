@@ -1,12 +1,22 @@
 package com.anastasiia.wallet.exception.handler;
 
+import com.anastasiia.wallet.exception.BalanceOverflowException;
+import com.anastasiia.wallet.exception.CrossShardOperationException;
 import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.OperationNotFoundException;
+import com.anastasiia.wallet.exception.ServiceOverloadedException;
+import com.anastasiia.wallet.exception.UnsupportedWalletOperationException;
 import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.exception.WalletOverloadedException;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
 
 @RestControllerAdvice
 public class WalletExceptionHandler {
@@ -19,15 +29,69 @@ public class WalletExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    @ExceptionHandler(OperationNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleOperationNotFound(OperationNotFoundException ex) {
+        ErrorResponse error = new ErrorResponse("NOT_FOUND", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
     @ExceptionHandler(InsufficientFundsException.class)
     public ResponseEntity<ErrorResponse> handleInsufficientFunds(InsufficientFundsException ex) {
         ErrorResponse error = new ErrorResponse("INSUFFICIENT_FUNDS", ex.getMessage());
         return ResponseEntity.status(UNPROCESSABLE_ENTITY).body(error);
     }
 
+    @ExceptionHandler(BalanceOverflowException.class)
+    public ResponseEntity<ErrorResponse> handleBalanceOverflow(BalanceOverflowException ex) {
+        ErrorResponse error = new ErrorResponse("BALANCE_OVERFLOW", ex.getMessage());
+        return ResponseEntity.status(UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(CrossShardOperationException.class)
+    public ResponseEntity<ErrorResponse> handleCrossShardOperation(CrossShardOperationException ex) {
+        ErrorResponse error = new ErrorResponse("CROSS_SHARD_OPERATION", ex.getMessage());
+        return ResponseEntity.status(UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(UnsupportedWalletOperationException.class)
+    public ResponseEntity<ErrorResponse> handleUnsupportedOperation(UnsupportedWalletOperationException ex) {
+        ErrorResponse error = new ErrorResponse("UNSUPPORTED_OPERATION", ex.getMessage());
+        return ResponseEntity.status(UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(ServiceOverloadedException ex) {
+        ErrorResponse error = new ErrorResponse("SERVICE_UNAVAILABLE", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(error);
+    }
+
+    @ExceptionHandler(WalletOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleWalletOverloaded(WalletOverloadedException ex) {
+        ErrorResponse error = new ErrorResponse("TOO_MANY_REQUESTS", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(error);
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ErrorResponse> handleInvalidJson(HttpMessageNotReadableException ex) {
         ErrorResponse error = new ErrorResponse("BAD_REQUEST", "Invalid JSON format");
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    /**
+     * Ошибки чтения запроса в профиле {@code reactive}; ошибки валидации остаются на стандартной обработке,
+     * как и в блокирующем стеке
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidInput(ServerWebInputException ex) throws WebExchangeBindException {
+        if (ex instanceof WebExchangeBindException bindException) {
+            throw bindException;
+        }
+        String message = ex.getCause() instanceof DecodingException ? "Invalid JSON format" : ex.getReason();
+        ErrorResponse error = new ErrorResponse("BAD_REQUEST", message);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
 }
\ No newline at end of file
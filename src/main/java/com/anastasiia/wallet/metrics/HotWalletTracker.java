@@ -0,0 +1,160 @@
+package com.anastasiia.wallet.metrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.anastasiia.wallet.config.MetricsProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Выборочный учёт самых нагруженных кошельков.
+ * <p>
+ * В выборку попадает доля {@code sample-rate} операций, и каждая весит столько, сколько она длилась:
+ * операции кошелька, за строку которого идёт борьба, ждут блокировку и весят больше, поэтому такой кошелёк
+ * поднимается в рейтинге раньше, чем его операции начнут упираться в таймауты. Отслеживается не больше
+ * {@code capacity} кошельков по алгоритму Space-Saving: новый кошелёк вытесняет самый лёгкий и наследует
+ * его вес как оценку погрешности. Счётчики начинаются заново каждые {@code window}, последнее завершённое
+ * окно сохраняется.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.metrics.hot-wallets", name = "enabled", havingValue = "true")
+public class HotWalletTracker {
+
+    /**
+     * Кошелёк в рейтинге
+     *
+     * @param walletId    идентификатор кошелька
+     * @param samples     операций в выборке
+     * @param weightMillis суммарное время операций в выборке
+     * @param errorMillis верхняя граница переоценки веса, унаследованная от вытесненного кошелька
+     */
+    public record HotWallet(UUID walletId, long samples, double weightMillis, double errorMillis) {
+    }
+
+    /**
+     * Рейтинг за окно
+     *
+     * @param from    начало окна
+     * @param to      конец окна; для текущего окна — момент снимка
+     * @param wallets самые нагруженные кошельки по убыванию веса
+     */
+    public record Window(Instant from, Instant to, List<HotWallet> wallets) {
+    }
+
+    private final double sampleRate;
+    private final int top;
+    private final int capacity;
+    private final Duration window;
+    private final Clock clock;
+
+    private Map<UUID, Counter> counters = new HashMap<>();
+    private Instant windowStart;
+    private Window previous;
+
+    public HotWalletTracker(MetricsProperties properties) {
+        this(properties.hotWallets(), Clock.systemUTC());
+    }
+
+    HotWalletTracker(MetricsProperties.HotWallets properties, Clock clock) {
+        if (properties.capacity() < properties.top()) {
+            throw new IllegalStateException("wallet.metrics.hot-wallets.capacity must not be less than top");
+        }
+        this.sampleRate = properties.sampleRate();
+        this.top = properties.top();
+        this.capacity = properties.capacity();
+        this.window = properties.window();
+        this.clock = clock;
+        this.windowStart = clock.instant();
+    }
+
+    /**
+     * Учитывает операцию, если она попала в выборку
+     *
+     * @param walletId кошелёк операции
+     * @param nanos    длительность операции
+     */
+    public void record(UUID walletId, long nanos) {
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        synchronized (this) {
+            rotate(clock.instant());
+            Counter counter = counters.get(walletId);
+            if (counter == null) {
+                counter = counters.size() < capacity ? new Counter(0) : evictLightest();
+                counters.put(walletId, counter);
+            }
+            counter.samples++;
+            counter.weightNanos += nanos;
+        }
+    }
+
+    /**
+     * @return рейтинг текущего окна
+     */
+    public synchronized Window current() {
+        Instant now = clock.instant();
+        rotate(now);
+        return new Window(windowStart, now, rank(counters));
+    }
+
+    /**
+     * @return рейтинг последнего завершённого окна или {@code null}, если окно ещё не завершалось
+     */
+    public synchronized Window previous() {
+        rotate(clock.instant());
+        return previous;
+    }
+
+    private void rotate(Instant now) {
+        if (now.isBefore(windowStart.plus(window))) {
+            return;
+        }
+        Instant windowEnd = windowStart.plus(window);
+        // Окно, за которое не было ни одной операции, не затирает последнее непустое
+        if (!counters.isEmpty()) {
+            previous = new Window(windowStart, windowEnd, rank(counters));
+            counters = new HashMap<>();
+        }
+        windowStart = now.isBefore(windowEnd.plus(window)) ? windowEnd : now;
+    }
+
+    private Counter evictLightest() {
+        Map.Entry<UUID, Counter> lightest = counters.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().weightNanos))
+                .orElseThrow();
+        counters.remove(lightest.getKey());
+        return new Counter(lightest.getValue().weightNanos);
+    }
+
+    private List<HotWallet> rank(Map<UUID, Counter> counters) {
+        List<HotWallet> wallets = new ArrayList<>(counters.size());
+        counters.forEach((walletId, counter) -> wallets.add(new HotWallet(walletId, counter.samples,
+                counter.weightNanos / 1_000_000.0, counter.errorNanos / 1_000_000.0)));
+        wallets.sort(Comparator.comparingDouble(HotWallet::weightMillis).reversed());
+        return List.copyOf(wallets.subList(0, Math.min(top, wallets.size())));
+    }
+
+    private static final class Counter {
+
+        private final long errorNanos;
+        private long samples;
+        private long weightNanos;
+
+        private Counter(long inheritedNanos) {
+            this.errorNanos = inheritedNanos;
+            this.weightNanos = inheritedNanos;
+        }
+    }
+}
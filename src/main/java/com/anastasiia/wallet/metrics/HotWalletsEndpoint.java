@@ -0,0 +1,33 @@
+package com.anastasiia.wallet.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/hotwallets} — самые нагруженные кошельки текущего и последнего завершённого окна
+ * {@link HotWalletTracker}
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.metrics.hot-wallets", name = "enabled", havingValue = "true")
+@Endpoint(id = "hotwallets")
+@RequiredArgsConstructor
+public class HotWalletsEndpoint {
+
+    private final HotWalletTracker tracker;
+
+    @ReadOperation
+    public Map<String, HotWalletTracker.Window> hotWallets() {
+        Map<String, HotWalletTracker.Window> windows = new LinkedHashMap<>();
+        windows.put("current", tracker.current());
+        windows.put("previous", tracker.previous());
+        return windows;
+    }
+}
@@ -0,0 +1,54 @@
+package com.anastasiia.wallet.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * Время коммита транзакций — {@code wallet.transaction.commit} с тегом {@code outcome}.
+ * <p>
+ * Spring Boot подключает слушатель к автоматически настроенному менеджеру транзакций, поэтому учитываются
+ * коммиты и {@code @Transactional}, и {@link org.springframework.transaction.support.TransactionTemplate}.
+ * Коммит выполняется в потоке транзакции, так что начало хранится в {@link ThreadLocal}.
+ */
+@Component
+@Profile("!reactive")
+public class TransactionCommitTimer implements TransactionExecutionListener {
+
+    private final ThreadLocal<Long> commitStartedAt = new ThreadLocal<>();
+    private final Timer committed;
+    private final Timer failed;
+
+    public TransactionCommitTimer(MeterRegistry meterRegistry) {
+        this.committed = commitTimer(meterRegistry, "success");
+        this.failed = commitTimer(meterRegistry, "failure");
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        commitStartedAt.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        Long startedAt = commitStartedAt.get();
+        if (startedAt == null) {
+            return;
+        }
+        commitStartedAt.remove();
+        (commitFailure == null ? committed : failed).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer commitTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("wallet.transaction.commit")
+                .description("Time to commit a database transaction")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,154 @@
+package com.anastasiia.wallet.metrics;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Таймеры операций над кошельками и ожидания блокировок.
+ * <p>
+ * {@code wallet.operation} — полное время операции или перевода с тегами {@code type} и {@code outcome},
+ * {@code wallet.lock.wait} — время получения явной блокировки с тегом {@code lock}. У обоих таймеров
+ * публикуется гистограмма, поэтому процентили можно считать по нескольким экземплярам сервиса.
+ * Время одиночного UPDATE, включая ожидание блокировки строки внутри него, — в метрике репозиториев
+ * {@code spring.data.repository.invocations}, время получения соединения — в {@code hikaricp.connections.acquire}.
+ * Все таймеры создаются заранее, чтобы запись не искала их в реестре.
+ */
+@Component
+@Profile("!reactive")
+public class WalletMetrics {
+
+    /**
+     * Исход операции
+     */
+    public enum Outcome {
+        SUCCESS, NOT_FOUND, INSUFFICIENT_FUNDS, ERROR;
+
+        static Outcome of(RuntimeException ex) {
+            if (ex instanceof WalletNotFoundException) {
+                return NOT_FOUND;
+            }
+            if (ex instanceof InsufficientFundsException) {
+                return INSUFFICIENT_FUNDS;
+            }
+            return ERROR;
+        }
+    }
+
+    /**
+     * Вид явной блокировки
+     */
+    public enum Lock {
+        /** {@code SELECT ... FOR UPDATE} строки кошелька */
+        ROW,
+        /** {@code SELECT ... FOR UPDATE} строк кошельков пакета */
+        BATCH,
+        /** advisory-блокировки журнала операций */
+        ADVISORY
+    }
+
+    private static final String TRANSFER = "transfer";
+
+    private final Map<String, Map<Outcome, Timer>> operationTimers = new HashMap<>();
+    private final Map<Lock, Timer> lockTimers = new EnumMap<>(Lock.class);
+    private final Optional<HotWalletTracker> hotWalletTracker;
+
+    public WalletMetrics(MeterRegistry meterRegistry, Optional<HotWalletTracker> hotWalletTracker) {
+        this.hotWalletTracker = hotWalletTracker;
+        for (WalletOperationRequest.OperationType type : WalletOperationRequest.OperationType.values()) {
+            registerOperationTimers(meterRegistry, type.name().toLowerCase());
+        }
+        registerOperationTimers(meterRegistry, TRANSFER);
+        for (Lock lock : Lock.values()) {
+            lockTimers.put(lock, Timer.builder("wallet.lock.wait")
+                    .description("Time to acquire an explicit wallet lock")
+                    .tag("lock", lock.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Выполняет операцию над кошельком, записывая её время с исходом
+     *
+     * @param type     тип операции
+     * @param walletId кошелёк операции, учитывается в {@link HotWalletTracker}
+     * @param action   операция
+     * @return результат операции
+     */
+    public <T> T timeOperation(WalletOperationRequest.OperationType type, UUID walletId, Supplier<T> action) {
+        return time(type.name().toLowerCase(), walletId, action);
+    }
+
+    /**
+     * Выполняет перевод между кошельками, записывая его время с исходом как операцию {@code transfer}
+     *
+     * @param fromWalletId кошелёк списания, учитывается в {@link HotWalletTracker}
+     * @param action       перевод
+     * @return результат перевода
+     */
+    public <T> T timeTransfer(UUID fromWalletId, Supplier<T> action) {
+        return time(TRANSFER, fromWalletId, action);
+    }
+
+    private <T> T time(String type, UUID walletId, Supplier<T> action) {
+        long startedAt = System.nanoTime();
+        Outcome outcome = Outcome.SUCCESS;
+        try {
+            return action.get();
+        } catch (RuntimeException ex) {
+            outcome = Outcome.of(ex);
+            throw ex;
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            operationTimers.get(type).get(outcome).record(elapsed, TimeUnit.NANOSECONDS);
+            hotWalletTracker.ifPresent(tracker -> tracker.record(walletId, elapsed));
+        }
+    }
+
+    private void registerOperationTimers(MeterRegistry meterRegistry, String type) {
+        Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            timers.put(outcome, Timer.builder("wallet.operation")
+                    .description("Time to apply a wallet operation")
+                    .tag("type", type)
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        operationTimers.put(type, timers);
+    }
+
+    /**
+     * Получает блокировку, записывая время ожидания
+     *
+     * @param lock   вид блокировки
+     * @param action запрос, берущий блокировку
+     * @return результат запроса
+     */
+    public <T> T timeLockWait(Lock lock, Supplier<T> action) {
+        return lockTimers.get(lock).record(action);
+    }
+
+    /**
+     * Получает блокировку, записывая время ожидания
+     *
+     * @param lock   вид блокировки
+     * @param action запрос, берущий блокировку
+     */
+    public void timeLockWait(Lock lock, Runnable action) {
+        lockTimers.get(lock).record(action);
+    }
+}
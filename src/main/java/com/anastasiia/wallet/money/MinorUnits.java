@@ -0,0 +1,106 @@
+package com.anastasiia.wallet.money;
+
+import java.math.BigDecimal;
+
+/**
+ * Денежные суммы в минимальных единицах (копейках) типа {@code long} для режима
+ * {@code wallet.storage.mode=minor_units}. Разбор и форматирование не создают {@link BigDecimal}
+ * и проверяют переполнение.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    public static final int MAX_LENGTH = 24;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * Разбирает десятичную запись суммы вида {@code -123.45}
+     *
+     * @throws NumberFormatException если запись не десятичное число, в ней больше {@value #SCALE} знаков
+     *                               после точки или сумма не помещается в {@code long}
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative || i < end && chars[i] == '+') {
+            i++;
+        }
+        long units = 0;
+        int fractionDigits = -1;
+        boolean digits = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw invalid(chars, offset, length);
+            }
+            if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+                // Незначащие нули после второго знака допустимы, как и в numeric(15,2) без округления
+                if (c != '0') {
+                    throw invalid(chars, offset, length);
+                }
+                continue;
+            }
+            units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            digits = true;
+        }
+        if (!digits) {
+            throw invalid(chars, offset, length);
+        }
+        for (int scale = Math.max(fractionDigits, 0); scale < SCALE; scale++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        return negative ? -units : units;
+    }
+
+    /**
+     * @return запись суммы с {@value #SCALE} знаками после точки, как у {@code numeric(15,2)}
+     */
+    public static String format(long units) {
+        char[] chars = new char[MAX_LENGTH];
+        return new String(chars, 0, format(units, chars));
+    }
+
+    /**
+     * Записывает сумму в конец буфера не короче {@value #MAX_LENGTH} символов
+     *
+     * @return количество записанных символов, начиная с нулевого
+     */
+    public static int format(long units, char[] chars) {
+        int position = MAX_LENGTH;
+        // Отрицательный остаток, чтобы не переполниться на Long.MIN_VALUE
+        long value = units < 0 ? units : -units;
+        for (int digit = 0; digit < SCALE || value != 0 || digit == SCALE; digit++) {
+            if (digit == SCALE) {
+                chars[--position] = '.';
+            }
+            chars[--position] = (char) ('0' - value % 10);
+            value /= 10;
+        }
+        if (units < 0) {
+            chars[--position] = '-';
+        }
+        int length = MAX_LENGTH - position;
+        System.arraycopy(chars, position, chars, 0, length);
+        return length;
+    }
+
+    public static BigDecimal toDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    public static long fromDecimal(BigDecimal amount) {
+        return amount.setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    private static NumberFormatException invalid(char[] chars, int offset, int length) {
+        return new NumberFormatException("Invalid amount: " + new String(chars, offset, length));
+    }
+}
@@ -0,0 +1,47 @@
+package com.anastasiia.wallet.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+/**
+ * Читает десятичную сумму из JSON прямо в минимальные единицы: символы числа разбираются из буфера парсера,
+ * без промежуточных {@link java.math.BigDecimal} и строк. Запись с экспонентой разбирается обычным путём.
+ */
+public class MinorUnitsDeserializer extends JsonDeserializer<Long> {
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                && token != JsonToken.VALUE_STRING) {
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                return Math.multiplyExact(parser.getLongValue(), 100L);
+            }
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            if (indexOfExponent(chars, offset, length) >= 0) {
+                return MinorUnits.fromDecimal(parser.getDecimalValue());
+            }
+            return MinorUnits.parse(chars, offset, length);
+        } catch (NumberFormatException | ArithmeticException ex) {
+            return (Long) context.handleWeirdStringValue(Long.class, parser.getText(), ex.getMessage());
+        }
+    }
+
+    private static int indexOfExponent(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (chars[i] == 'e' || chars[i] == 'E') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
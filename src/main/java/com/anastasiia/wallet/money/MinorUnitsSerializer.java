@@ -0,0 +1,20 @@
+package com.anastasiia.wallet.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Пишет сумму в минимальных единицах десятичным числом JSON с двумя знаками после точки,
+ * как сериализуется {@code numeric(15,2)}
+ */
+public class MinorUnitsSerializer extends JsonSerializer<Long> {
+
+    @Override
+    public void serialize(Long units, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        char[] chars = new char[MinorUnits.MAX_LENGTH];
+        generator.writeNumber(chars, 0, MinorUnits.format(units, chars));
+    }
+}
@@ -0,0 +1,74 @@
+package com.anastasiia.wallet.replica;
+
+import java.util.List;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.config.ReplicaProperties;
+import com.anastasiia.wallet.config.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+/**
+ * Источник соединений для {@code wallet.read-replicas.enabled=true}: пул основной базы настраивается
+ * из {@code spring.datasource}, как и без реплик, у каждой реплики свой пул {@code wallet-replica-<имя>}.
+ * Миграции применяются только к основной базе, реплики получают их репликацией.
+ * <p>
+ * Реплики несовместимы с шардированием и с локальным кэшем балансов: промах кэша, прочитанный с реплики,
+ * мог бы вернуть в кэш значение старше уже выполненной инвалидации.
+ */
+@Slf4j
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.read-replicas", name = "enabled", havingValue = "true")
+public class ReplicaConfiguration {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                               ReplicaProperties properties,
+                                               ShardingProperties shardingProperties,
+                                               BalanceCacheProperties balanceCacheProperties,
+                                               Environment environment,
+                                               MeterRegistry meterRegistry) {
+        if (properties.nodes().isEmpty()) {
+            throw new IllegalStateException("wallet.read-replicas.nodes must list at least one replica");
+        }
+        if (shardingProperties.enabled() || balanceCacheProperties.enabled()) {
+            throw new IllegalStateException(
+                    "wallet.read-replicas cannot be combined with wallet.sharding or wallet.balance-cache");
+        }
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("wallet-primary");
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        List<HikariDataSource> replicas = properties.nodes().stream()
+                .map(node -> {
+                    HikariDataSource dataSource = new HikariDataSource();
+                    dataSource.setPoolName("wallet-replica-" + node.name());
+                    dataSource.setJdbcUrl(node.url());
+                    dataSource.setUsername(node.username());
+                    dataSource.setPassword(node.password());
+                    dataSource.setMaximumPoolSize(node.maximumPoolSize());
+                    dataSource.setReadOnly(true);
+                    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                    return dataSource;
+                })
+                .toList();
+        log.info("Reading balances from {} replicas: {}", replicas.size(),
+                properties.nodes().stream().map(ReplicaProperties.Node::name).toList());
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+}
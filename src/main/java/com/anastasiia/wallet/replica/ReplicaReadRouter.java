@@ -0,0 +1,352 @@
+package com.anastasiia.wallet.replica;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.anastasiia.wallet.config.ReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Выбор реплики для чтения балансов.
+ * <p>
+ * Раз в {@code lag-check-interval} запоминается позиция журнала основной базы, и реплика, доигравшая журнал
+ * до этой позиции, считается догнавшей основную базу на момент начала проверки. Чтение идёт на реплику,
+ * догнавшую основную базу не раньше {@code max-lag} назад, реплики перебираются по кругу. Клиент может
+ * передать токен из ответа на запись — тогда реплика должна доиграть журнал и до этой записи, иначе чтение
+ * выполняется на основной базе. Токен — позиция журнала основной базы ({@code pg_current_wal_lsn()}) после
+ * записи, она сравнивается с {@code pg_last_wal_replay_lsn()} реплики, поэтому часы экземпляров сервиса
+ * в чтении своих записей не участвуют.
+ * <p>
+ * Позиция для токена записи читается сразу после фиксации на соединении той же транзакции, пока оно не вернулось
+ * в пул: до фиксации позиция ещё не покрывает запись о фиксации, и реплика, доигравшая до неё, могла бы
+ * не видеть записи. Токен для чтения без записи ({@link #currentToken}) запрашивается у основной базы одним
+ * запросом на всех, кто ждёт его одновременно, так что основная база получает не больше одного такого запроса
+ * за раз, сколько бы чтений его ни ждали.
+ * <p>
+ * Без реплик и внутри уже открытой транзакции чтение выполняется как есть, на соединении основной базы.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class ReplicaReadRouter implements TransactionExecutionListener {
+
+    /**
+     * Результат записи и токен для ответа на неё; без реплик токена нет
+     */
+    public record Tracked<T>(T result, OptionalLong token) {
+    }
+
+    // Позиция журнала в байтах от начала, чтобы токен был числом
+    private static final String PRIMARY_POSITION_SQL = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint";
+    private static final String REPLAYED_SQL = """
+            SELECT pg_is_in_recovery(), pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0')::bigint
+            """;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Long> READ_AFTER = new ThreadLocal<>();
+    // Позиция после последней фиксации в отслеживаемой записи, -1 — фиксаций не было
+    private static final ThreadLocal<long[]> WRITTEN = new ThreadLocal<>();
+
+    private final List<Replica> replicas;
+    private final HikariDataSource primary;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReplicaProperties properties;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "wallet-replica-lag");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService positionExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "wallet-replica-position");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object positionLock = new Object();
+    // Ждущие позицию, запрос за которой ещё не начат
+    private CompletableFuture<Long> nextPosition;
+    private boolean fetchingPosition;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReplicaReadRouter(ReplicaProperties properties,
+                             ObjectProvider<ReplicaRoutingDataSource> dataSource,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        ReplicaRoutingDataSource routing = properties.enabled() ? dataSource.getObject() : null;
+        this.primary = routing != null ? routing.getPrimary() : null;
+        // Через маршрутизирующий источник JdbcTemplate попадает на соединение текущей транзакции
+        this.jdbcTemplate = routing != null ? new JdbcTemplate(routing) : null;
+        this.replicas = routing == null ? List.of() : routing.getReplicas().stream().map(Replica::new).toList();
+        for (Replica replica : replicas) {
+            Gauge.builder("wallet.replica.lag", replica, Replica::lagSeconds)
+                    .description("Time since the replica was last seen replaying the primary's WAL position")
+                    .tag("replica", replica.dataSource.getPoolName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.primaryReads = readCounter(meterRegistry, "primary");
+    }
+
+    @PostConstruct
+    void start() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long interval = properties.lagCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::checkLag, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+        positionExecutor.shutdownNow();
+    }
+
+    /**
+     * Выполняет запись и выдаёт токен, с которым чтения видят все транзакции, зафиксированные ею в этом потоке
+     * и переданные через {@link #recordWrite}
+     *
+     * @param action запись
+     * @return результат записи и токен, если есть реплики
+     */
+    public <T> Tracked<T> trackWrites(Supplier<T> action) {
+        if (replicas.isEmpty()) {
+            return new Tracked<>(action.get(), OptionalLong.empty());
+        }
+        long[] written = {-1};
+        WRITTEN.set(written);
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            WRITTEN.remove();
+        }
+        // Фиксаций в этом потоке не было — позиция основной базы сейчас не раньше любой из них
+        return new Tracked<>(result, OptionalLong.of(written[0] >= 0 ? written[0] : positionOrMax()));
+    }
+
+    /**
+     * Учитывает в отслеживаемой записи токен транзакции, зафиксированной в другом потоке
+     */
+    public void recordWrite(long token) {
+        long[] written = WRITTEN.get();
+        if (written != null) {
+            written[0] = Math.max(written[0], token);
+        }
+    }
+
+    /**
+     * Токен, с которым чтения видят все записи, зафиксированные до вызова. Вызовы, пришедшие, пока запрос
+     * за позицией уже выполняется, ждут следующего, который начнётся после них, и получают его результат вместе
+     *
+     * @return токен или {@code 0}, если реплик нет
+     */
+    public long currentToken() {
+        if (replicas.isEmpty()) {
+            return 0;
+        }
+        CompletableFuture<Long> position;
+        synchronized (positionLock) {
+            if (nextPosition == null) {
+                nextPosition = new CompletableFuture<>();
+                if (!fetchingPosition) {
+                    fetchingPosition = true;
+                    positionExecutor.execute(this::fetchPositions);
+                }
+            }
+            position = nextPosition;
+        }
+        return position.join();
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        long[] written = WRITTEN.get();
+        if (written == null || commitFailure != null) {
+            return;
+        }
+        long position;
+        try {
+            // Транзакция уже зафиксирована, а её соединение ещё не вернулось в пул
+            position = jdbcTemplate.queryForObject(PRIMARY_POSITION_SQL, Long.class);
+        } catch (DataAccessException ex) {
+            // Токен, который не догонит ни одна реплика, отправляет чтения на основную базу
+            log.warn("Failed to read the primary WAL position for a write token", ex);
+            position = Long.MAX_VALUE;
+        }
+        written[0] = Math.max(written[0], position);
+    }
+
+    /**
+     * @return реплика, выбранная для текущего потока, или {@code null} для основной базы
+     */
+    static Integer currentReplica() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет действие с токеном клиента: чтения внутри него видят записи, выполненные до выдачи токена
+     *
+     * @param token токен из ответа на запись или {@code null}
+     */
+    public <T> T readAfter(Long token, Supplier<T> action) {
+        if (token == null || replicas.isEmpty()) {
+            return action.get();
+        }
+        READ_AFTER.set(token);
+        try {
+            return action.get();
+        } finally {
+            READ_AFTER.remove();
+        }
+    }
+
+    /**
+     * Выполняет чтение на подходящей реплике или, если такой нет, на основной базе
+     */
+    public <T> T read(Supplier<T> action) {
+        if (replicas.isEmpty() || CURRENT.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        int replica = choose();
+        if (replica < 0) {
+            primaryReads.increment();
+            return action.get();
+        }
+        replicaReads.increment();
+        CURRENT.set(replica);
+        try {
+            return action.get();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    private int choose() {
+        Long token = READ_AFTER.get();
+        long caughtUpAfter = System.currentTimeMillis() - properties.maxLag().toMillis();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidate = (start + i) % replicas.size();
+            Replica replica = replicas.get(candidate);
+            if (replica.caughtUpAt >= caughtUpAfter && (token == null || replica.replayed >= token)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private void checkLag() {
+        long startedAt = System.currentTimeMillis();
+        long position;
+        try {
+            position = primaryPosition();
+        } catch (SQLException ex) {
+            log.warn("Failed to read the primary WAL position", ex);
+            return;
+        }
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(REPLAYED_SQL)) {
+                resultSet.next();
+                if (!resultSet.getBoolean(1)) {
+                    continue;
+                }
+                long replayed = resultSet.getLong(2);
+                replica.replayed = replayed;
+                // Запись, подтверждённая до начала проверки, лежит в журнале не дальше прочитанной позиции
+                if (replayed >= position) {
+                    replica.caughtUpAt = startedAt;
+                }
+            } catch (SQLException ex) {
+                log.debug("Replica {} is unavailable", replica.dataSource.getPoolName(), ex);
+            }
+        }
+    }
+
+    private void fetchPositions() {
+        while (true) {
+            CompletableFuture<Long> position;
+            synchronized (positionLock) {
+                position = nextPosition;
+                nextPosition = null;
+                if (position == null) {
+                    fetchingPosition = false;
+                    return;
+                }
+            }
+            // Все ждущие этот результат пришли до начала запроса
+            position.complete(positionOrMax());
+        }
+    }
+
+    private long positionOrMax() {
+        try {
+            return primaryPosition();
+        } catch (SQLException ex) {
+            // Как и при ошибке после фиксации: такой токен отправляет чтения на основную базу
+            log.warn("Failed to read the primary WAL position for a read-your-writes token", ex);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private long primaryPosition() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(PRIMARY_POSITION_SQL)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("wallet.replica.reads")
+                .description("Balance reads by the database that served them")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile long caughtUpAt;
+        private volatile long replayed;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        double lagSeconds() {
+            long caughtUpAt = this.caughtUpAt;
+            return caughtUpAt == 0 ? Double.NaN : (System.currentTimeMillis() - caughtUpAt) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.anastasiia.wallet.repository;
+
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Доступ к балансам в копейках для режима {@code wallet.storage.mode=minor_units}. Баланс режима хранится
+ * только в {@code wallets.balance_minor} ({@code bigint}): сложение, проверка остатка и ограничение диапазона
+ * {@code numeric(15,2)} выполняются над {@code bigint}. Кошелёк, у которого {@code balance_minor} ещё не задан
+ * (создан или последний раз изменён в другом режиме), при первой операции переводит в копейки
+ * {@code wallets.balance}. Запросы {@link WalletQueries} этой колонки не читают, поэтому другие режимы
+ * не запускаются, пока она где-то задана, а кошельки, разнесённые по слотам, не запускают этот режим.
+ */
+@Repository
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "minor_units")
+@RequiredArgsConstructor
+public class MinorUnitsWalletRepository {
+
+    private static final String FIND_BALANCE_SQL =
+            "SELECT COALESCE(balance_minor, (balance * 100)::bigint) FROM wallets WHERE id = ?";
+
+    private static final String HAS_STRIPED_WALLETS_SQL = "SELECT EXISTS (SELECT 1 FROM wallets WHERE stripe_count > 0)";
+
+    private static final String DEPOSIT_SQL = """
+            WITH updated AS (
+                UPDATE wallets SET balance_minor = COALESCE(balance_minor, (balance * 100)::bigint) + ?,
+                    version = version + 1
+                WHERE id = ?
+                RETURNING balance_minor
+            )
+            SELECT (SELECT balance_minor FROM updated) AS balance,
+                   COALESCE(w.balance_minor, (w.balance * 100)::bigint) AS available
+            FROM (SELECT 1) AS request
+            LEFT JOIN wallets w ON w.id = ?
+            """;
+
+    private static final String WITHDRAW_SQL = """
+            WITH updated AS (
+                UPDATE wallets SET balance_minor = COALESCE(balance_minor, (balance * 100)::bigint) - ?,
+                    version = version + 1
+                WHERE id = ? AND COALESCE(balance_minor, (balance * 100)::bigint) >= ?
+                RETURNING balance_minor
+            )
+            SELECT (SELECT balance_minor FROM updated) AS balance,
+                   COALESCE(w.balance_minor, (w.balance * 100)::bigint) AS available
+            FROM (SELECT 1) AS request
+            LEFT JOIN wallets w ON w.id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OptionalLong findBalance(UUID walletId) {
+        return jdbcTemplate.query(FIND_BALANCE_SQL,
+                resultSet -> resultSet.next() ? OptionalLong.of(resultSet.getLong(1)) : OptionalLong.empty(),
+                walletId);
+    }
+
+    /**
+     * @return есть ли кошельки, разнесённые по слотам: операции в копейках слотов не видят
+     */
+    public boolean hasStripedWallets() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_STRIPED_WALLETS_SQL, Boolean.class));
+    }
+
+    /**
+     * Пополнение одним запросом, см. {@link WalletRepository#deposit}
+     */
+    public Outcome deposit(UUID walletId, long amount) {
+        return operation(DEPOSIT_SQL, statement -> {
+            statement.setLong(1, amount);
+            statement.setObject(2, walletId);
+            statement.setObject(3, walletId);
+        });
+    }
+
+    /**
+     * Списание одним запросом, см. {@link WalletRepository#withdraw}
+     */
+    public Outcome withdraw(UUID walletId, long amount) {
+        return operation(WITHDRAW_SQL, statement -> {
+            statement.setLong(1, amount);
+            statement.setObject(2, walletId);
+            statement.setLong(3, amount);
+            statement.setObject(4, walletId);
+        });
+    }
+
+    // Суммы привязываются как long, без упаковки в объекты
+    private Outcome operation(String sql, PreparedStatementSetter parameters) {
+        return jdbcTemplate.query(sql, parameters, resultSet -> {
+            resultSet.next();
+            long balance = resultSet.getLong("balance");
+            boolean applied = !resultSet.wasNull();
+            long available = resultSet.getLong("available");
+            boolean found = !resultSet.wasNull();
+            return new Outcome(found, applied, applied ? balance : available);
+        });
+    }
+
+    /**
+     * @param found   кошелёк существует
+     * @param applied операция применена
+     * @param balance баланс после операции, а если она не применена — баланс строки на момент запроса
+     */
+    public record Outcome(boolean found, boolean applied, long balance) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.anastasiia.wallet.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.entity.Wallet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Неблокирующий доступ к кошелькам через R2DBC для профиля {@code reactive}.
+ * Операции над балансом используют те же запросы {@link WalletQueries}, что и {@link WalletRepository}.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveWalletRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO wallets (id, balance) VALUES (:walletId, :balance)";
+
+    private static final String FIND_FOR_UPDATE_SQL =
+            "SELECT id, balance, stripe_count FROM wallets WHERE id = :walletId FOR UPDATE";
+
+    private static final String FIND_ALL_FOR_UPDATE_SQL =
+            "SELECT id, balance, stripe_count FROM wallets WHERE id = ANY(:walletIds) ORDER BY id FOR UPDATE";
+
+    private static final String UPDATE_BALANCE_SQL = "UPDATE wallets SET balance = :balance, version = version + 1 WHERE id = :walletId";
+
+    private static final String UPDATE_BALANCES_SQL = """
+            UPDATE wallets w SET balance = v.balance, version = w.version + 1
+            FROM unnest(:walletIds, :balances) AS v(id, balance)
+            WHERE w.id = v.id
+            """;
+
+    private static final String UPDATE_STRIPE_COUNT_SQL =
+            "UPDATE wallets SET stripe_count = :stripes, version = version + 1 WHERE id = :walletId";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Void> insert(Wallet wallet) {
+        return databaseClient.sql(INSERT_SQL)
+                .bind("walletId", wallet.getId())
+                .bind("balance", wallet.getBalance())
+                .then();
+    }
+
+    /**
+     * Пополнение строки кошелька одним запросом, см. {@link WalletRepository#deposit}
+     */
+    public Mono<WalletOperationOutcome> deposit(UUID walletId, BigDecimal amount) {
+        return operation(WalletQueries.DEPOSIT, walletId, amount);
+    }
+
+    /**
+     * Списание со строки кошелька одним запросом, см. {@link WalletRepository#withdraw}
+     */
+    public Mono<WalletOperationOutcome> withdraw(UUID walletId, BigDecimal amount) {
+        return operation(WalletQueries.WITHDRAW, walletId, amount);
+    }
+
+    /**
+     * Перевод между строками двух кошельков одним запросом, см. {@link WalletRepository#transfer}
+     */
+    public Mono<WalletTransferOutcome> transfer(UUID fromWalletId, UUID toWalletId, BigDecimal amount) {
+        return databaseClient.sql(WalletQueries.TRANSFER)
+                .bind("fromWalletId", fromWalletId)
+                .bind("toWalletId", toWalletId)
+                .bind("amount", amount)
+                .map(row -> (WalletTransferOutcome) new TransferOutcome(
+                        row.get("fromBalance", BigDecimal.class),
+                        row.get("toBalance", BigDecimal.class),
+                        row.get("available", BigDecimal.class),
+                        row.get("fromFound", Boolean.class),
+                        row.get("toFound", Boolean.class),
+                        row.get("striped", Boolean.class)))
+                .one();
+    }
+
+    public Mono<BigDecimal> findBalance(UUID walletId) {
+        return databaseClient.sql(WalletQueries.FIND_BALANCE)
+                .bind("walletId", walletId)
+                .map(row -> row.get(0, BigDecimal.class))
+                .one();
+    }
+
+    public Mono<Boolean> hasMinorUnitBalances() {
+        return databaseClient.sql(WalletQueries.HAS_MINOR_UNIT_BALANCES)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    public Mono<Wallet> findByIdForUpdate(UUID walletId) {
+        return databaseClient.sql(FIND_FOR_UPDATE_SQL)
+                .bind("walletId", walletId)
+                .map(row -> Wallet.builder()
+                        .id(row.get("id", UUID.class))
+                        .balance(row.get("balance", BigDecimal.class))
+                        .stripeCount(row.get("stripe_count", Integer.class))
+                        .build())
+                .one();
+    }
+
+    /**
+     * Блокирует строки кошельков в порядке идентификаторов
+     */
+    public Flux<Wallet> findAllForUpdate(List<UUID> walletIds) {
+        return databaseClient.sql(FIND_ALL_FOR_UPDATE_SQL)
+                .bind("walletIds", walletIds.toArray(UUID[]::new))
+                .map(row -> Wallet.builder()
+                        .id(row.get("id", UUID.class))
+                        .balance(row.get("balance", BigDecimal.class))
+                        .stripeCount(row.get("stripe_count", Integer.class))
+                        .build())
+                .all();
+    }
+
+    public Flux<BigDecimal> findSlotBalancesForUpdate(UUID walletId) {
+        return databaseClient.sql(WalletQueries.FIND_SLOT_BALANCES_FOR_UPDATE)
+                .bind("walletId", walletId)
+                .map(row -> row.get(0, BigDecimal.class))
+                .all();
+    }
+
+    /**
+     * @return общий баланс кошелька после операции или пустой результат, см. {@link WalletRepository#depositToSlot}
+     */
+    public Mono<BigDecimal> depositToSlot(UUID walletId, int slot, BigDecimal amount) {
+        return slotOperation(WalletQueries.DEPOSIT_TO_SLOT, walletId, slot, amount);
+    }
+
+    /**
+     * @return общий баланс кошелька после операции или пустой результат, см. {@link WalletRepository#withdrawFromSlot}
+     */
+    public Mono<BigDecimal> withdrawFromSlot(UUID walletId, int slot, BigDecimal amount) {
+        return slotOperation(WalletQueries.WITHDRAW_FROM_SLOT, walletId, slot, amount);
+    }
+
+    public Mono<Void> updateBalance(UUID walletId, BigDecimal balance) {
+        return databaseClient.sql(UPDATE_BALANCE_SQL)
+                .bind("walletId", walletId)
+                .bind("balance", balance)
+                .then();
+    }
+
+    /**
+     * Обновляет балансы нескольких кошельков одним запросом
+     */
+    public Mono<Void> updateBalances(List<UUID> walletIds, List<BigDecimal> balances) {
+        return databaseClient.sql(UPDATE_BALANCES_SQL)
+                .bind("walletIds", walletIds.toArray(UUID[]::new))
+                .bind("balances", balances.toArray(BigDecimal[]::new))
+                .then();
+    }
+
+    public Mono<Void> updateStripeCount(UUID walletId, int stripes) {
+        return databaseClient.sql(UPDATE_STRIPE_COUNT_SQL)
+                .bind("walletId", walletId)
+                .bind("stripes", stripes)
+                .then();
+    }
+
+    public Mono<Void> distributeToSlots(UUID walletId, BigDecimal share, int extraSlots) {
+        return databaseClient.sql(WalletQueries.DISTRIBUTE_TO_SLOTS)
+                .bind("walletId", walletId)
+                .bind("share", share)
+                .bind("extraSlots", extraSlots)
+                .then();
+    }
+
+    public Mono<Void> createSlots(UUID walletId, int stripes) {
+        return databaseClient.sql(WalletQueries.CREATE_SLOTS)
+                .bind("walletId", walletId)
+                .bind("stripes", stripes)
+                .then();
+    }
+
+    public Mono<Void> deleteSlots(UUID walletId) {
+        return databaseClient.sql(WalletQueries.DELETE_SLOTS)
+                .bind("walletId", walletId)
+                .then();
+    }
+
+    private Mono<WalletOperationOutcome> operation(String sql, UUID walletId, BigDecimal amount) {
+        return databaseClient.sql(sql)
+                .bind("walletId", walletId)
+                .bind("amount", amount)
+                .map(row -> (WalletOperationOutcome) new Outcome(
+                        row.get("balance", BigDecimal.class),
+                        row.get("available", BigDecimal.class),
+                        row.get("stripeCount", Integer.class)))
+                .one();
+    }
+
+    private Mono<BigDecimal> slotOperation(String sql, UUID walletId, int slot, BigDecimal amount) {
+        return databaseClient.sql(sql)
+                .bind("walletId", walletId)
+                .bind("slot", slot)
+                .bind("amount", amount)
+                .map(row -> row.get(0, BigDecimal.class))
+                .one();
+    }
+
+    private record Outcome(BigDecimal balance, BigDecimal available, Integer stripeCount)
+            implements WalletOperationOutcome {
+
+        @Override
+        public BigDecimal getBalance() {
+            return balance;
+        }
+
+        @Override
+        public BigDecimal getAvailable() {
+            return available;
+        }
+
+        @Override
+        public Integer getStripeCount() {
+            return stripeCount;
+        }
+    }
+
+    private record TransferOutcome(BigDecimal fromBalance,
+                                   BigDecimal toBalance,
+                                   BigDecimal available,
+                                   Boolean fromFound,
+                                   Boolean toFound,
+                                   Boolean striped) implements WalletTransferOutcome {
+
+        @Override
+        public BigDecimal getFromBalance() {
+            return fromBalance;
+        }
+
+        @Override
+        public BigDecimal getToBalance() {
+            return toBalance;
+        }
+
+        @Override
+        public BigDecimal getAvailable() {
+            return available;
+        }
+
+        @Override
+        public Boolean getFromFound() {
+            return fromFound;
+        }
+
+        @Override
+        public Boolean getToFound() {
+            return toFound;
+        }
+
+        @Override
+        public Boolean getStriped() {
+            return striped;
+        }
+    }
+}
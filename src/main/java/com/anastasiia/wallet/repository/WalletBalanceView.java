@@ -0,0 +1,14 @@
+package com.anastasiia.wallet.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Общий баланс кошелька
+ */
+public interface WalletBalanceView {
+
+    UUID getWalletId();
+
+    BigDecimal getBalance();
+}
@@ -0,0 +1,141 @@
+package com.anastasiia.wallet.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletHistoryEntry;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Доступ к истории операций {@code wallet_history}.
+ * <p>
+ * Чтение идёт по ключу {@code (wallet_id, id)}: первичный ключ включает остальные колонки ({@code INCLUDE}),
+ * поэтому страница читается сканированием только индекса, без обращения к строкам таблицы, и её стоимость
+ * не зависит от того, насколько далеко от начала истории она лежит.
+ */
+@Repository
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class WalletHistoryRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO wallet_history (wallet_id, operation_type, amount, balance_after) VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String FIND_PAGE_SQL = """
+            SELECT id, operation_type, amount, balance_after, created_at
+            FROM wallet_history
+            WHERE wallet_id = ? AND id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String EXPORT_SQL = """
+            SELECT id, operation_type, amount, balance_after, created_at
+            FROM wallet_history
+            WHERE wallet_id = ? AND id > ?
+            ORDER BY id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(UUID walletId, WalletOperationRequest.OperationType operationType,
+                       BigDecimal amount, BigDecimal balanceAfter) {
+        jdbcTemplate.update(INSERT_SQL, walletId, operationType.name(), amount, balanceAfter);
+    }
+
+    /**
+     * Добавляет операции одного кошелька одним JDBC-батчем
+     *
+     * @param requests      применённые операции в порядке применения
+     * @param balancesAfter балансы после каждой из них
+     */
+    public void insertAll(UUID walletId, List<WalletOperationRequest> requests, List<BigDecimal> balancesAfter) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                WalletOperationRequest request = requests.get(i);
+                statement.setObject(1, walletId);
+                statement.setString(2, request.getOperationType().name());
+                statement.setBigDecimal(3, request.getAmount());
+                statement.setBigDecimal(4, balancesAfter.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return requests.size();
+            }
+        });
+    }
+
+    /**
+     * @param after номер последней прочитанной записи; 0 — с начала истории
+     * @param limit сколько записей прочитать
+     */
+    public List<WalletHistoryEntry> findPage(UUID walletId, long after, int limit) {
+        return jdbcTemplate.query(FIND_PAGE_SQL, (resultSet, row) -> map(resultSet), walletId, after, limit);
+    }
+
+    /**
+     * Читает историю курсором на сервере: в памяти одновременно не больше {@code fetchSize} записей
+     *
+     * @param after     номер последней прочитанной записи; 0 — с начала истории
+     * @param fetchSize сколько записей драйвер получает за один раз
+     * @param consumer  получает записи по одной в порядке применения
+     * @return количество прочитанных записей
+     */
+    public long export(UUID walletId, long after, int fetchSize, EntryConsumer consumer) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            // Драйвер читает результат порциями только внутри транзакции
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(EXPORT_SQL)) {
+                statement.setFetchSize(fetchSize);
+                statement.setObject(1, walletId);
+                statement.setLong(2, after);
+                long exported = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(map(resultSet));
+                        exported++;
+                    }
+                }
+                return exported;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private static WalletHistoryEntry map(ResultSet resultSet) throws SQLException {
+        return new WalletHistoryEntry(
+                resultSet.getLong("id"),
+                WalletOperationRequest.OperationType.valueOf(resultSet.getString("operation_type")),
+                resultSet.getBigDecimal("amount"),
+                resultSet.getBigDecimal("balance_after"),
+                resultSet.getTimestamp("created_at").toInstant());
+    }
+
+    /**
+     * Получатель записей выгрузки, который пишет их в ответ
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(WalletHistoryEntry entry) throws IOException;
+    }
+}
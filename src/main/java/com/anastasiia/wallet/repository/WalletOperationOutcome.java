@@ -0,0 +1,24 @@
+package com.anastasiia.wallet.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат однозапросной операции над строкой кошелька
+ */
+public interface WalletOperationOutcome {
+
+    /**
+     * @return баланс после операции или {@code null}, если строка не изменена
+     */
+    BigDecimal getBalance();
+
+    /**
+     * @return баланс кошелька на момент запроса или {@code null}, если кошелька нет
+     */
+    BigDecimal getAvailable();
+
+    /**
+     * @return количество слотов кошелька или {@code null}, если кошелька нет
+     */
+    Integer getStripeCount();
+}
@@ -0,0 +1,138 @@
+package com.anastasiia.wallet.repository;
+
+/**
+ * Запросы к балансам кошельков, общие для JPA-репозитория {@link WalletRepository}
+ * и реактивного {@link ReactiveWalletRepository}, чтобы обе реализации изменяли данные одинаково.
+ * Каждое изменение строки кошелька увеличивает {@code version}, на которую опирается оптимистичная запись
+ */
+public final class WalletQueries {
+
+    public static final String DEPOSIT = """
+            WITH updated AS (
+                UPDATE wallets SET balance = balance + :amount, version = version + 1
+                WHERE id = :walletId AND stripe_count = 0
+                RETURNING balance
+            )
+            SELECT (SELECT balance FROM updated) AS "balance",
+                   w.balance AS "available",
+                   w.stripe_count AS "stripeCount"
+            FROM (SELECT 1) AS request
+            LEFT JOIN wallets w ON w.id = :walletId
+            """;
+
+    public static final String WITHDRAW = """
+            WITH updated AS (
+                UPDATE wallets SET balance = balance - :amount, version = version + 1
+                WHERE id = :walletId AND stripe_count = 0 AND balance >= :amount
+                RETURNING balance
+            )
+            SELECT (SELECT balance FROM updated) AS "balance",
+                   w.balance AS "available",
+                   w.stripe_count AS "stripeCount"
+            FROM (SELECT 1) AS request
+            LEFT JOIN wallets w ON w.id = :walletId
+            """;
+
+    /**
+     * Перевод между строками двух кошельков одним запросом. Строки блокируются в порядке идентификаторов,
+     * поэтому встречные переводы не взаимоблокируются, а оба изменения видны только вместе.
+     * Если одного из кошельков нет, на кошельке списания не хватает средств или баланс одного из них
+     * разнесён по слотам, строки не изменяются
+     */
+    public static final String TRANSFER = """
+            WITH locked AS (
+                SELECT id, balance, stripe_count FROM wallets
+                WHERE id IN (:fromWalletId, :toWalletId)
+                ORDER BY id
+                FOR UPDATE
+            ), state AS (
+                SELECT MAX(balance) FILTER (WHERE id = :fromWalletId) AS available,
+                       COALESCE(BOOL_OR(id = :fromWalletId), false) AS from_found,
+                       COALESCE(BOOL_OR(id = :toWalletId), false) AS to_found,
+                       COALESCE(BOOL_OR(stripe_count > 0), false) AS striped
+                FROM locked
+            ), updated AS (
+                UPDATE wallets w
+                SET balance = w.balance + CASE WHEN w.id = :toWalletId THEN :amount ELSE -:amount END,
+                    version = w.version + 1
+                FROM state s
+                WHERE w.id IN (:fromWalletId, :toWalletId)
+                  AND s.from_found AND s.to_found AND NOT s.striped AND s.available >= :amount
+                RETURNING w.id, w.balance
+            )
+            SELECT (SELECT balance FROM updated WHERE id = :fromWalletId) AS "fromBalance",
+                   (SELECT balance FROM updated WHERE id = :toWalletId) AS "toBalance",
+                   s.available AS "available",
+                   s.from_found AS "fromFound",
+                   s.to_found AS "toFound",
+                   s.striped AS "striped"
+            FROM state s
+            """;
+
+    public static final String FIND_BALANCE = """
+            SELECT w.balance + CASE WHEN w.stripe_count = 0 THEN 0 ELSE (
+                       SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s WHERE s.wallet_id = w.id
+                   ) END
+            FROM wallets w
+            WHERE w.id = :walletId
+            """;
+
+    public static final String FIND_BALANCES = """
+            SELECT w.id AS "walletId",
+                   w.balance + CASE WHEN w.stripe_count = 0 THEN 0 ELSE (
+                       SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s WHERE s.wallet_id = w.id
+                   ) END AS "balance"
+            FROM wallets w
+            WHERE w.id = ANY(:walletIds)
+            """;
+
+    /**
+     * Есть ли балансы, записанные режимом {@code minor_units}: остальные запросы {@code balance_minor} не читают
+     */
+    public static final String HAS_MINOR_UNIT_BALANCES =
+            "SELECT EXISTS (SELECT 1 FROM wallets WHERE balance_minor IS NOT NULL)";
+
+    public static final String FIND_SLOT_BALANCES_FOR_UPDATE =
+            "SELECT balance FROM wallet_balance_slots WHERE wallet_id = :walletId ORDER BY slot FOR UPDATE";
+
+    public static final String DEPOSIT_TO_SLOT = """
+            WITH updated AS (
+                UPDATE wallet_balance_slots SET balance = balance + :amount
+                WHERE wallet_id = :walletId AND slot = :slot
+                RETURNING slot, balance
+            )
+            SELECT u.balance
+                   + (SELECT balance FROM wallets WHERE id = :walletId)
+                   + (SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s
+                      WHERE s.wallet_id = :walletId AND s.slot <> u.slot)
+            FROM updated u
+            """;
+
+    public static final String WITHDRAW_FROM_SLOT = """
+            WITH updated AS (
+                UPDATE wallet_balance_slots SET balance = balance - :amount
+                WHERE wallet_id = :walletId AND slot = :slot AND balance >= :amount
+                RETURNING slot, balance
+            )
+            SELECT u.balance
+                   + (SELECT balance FROM wallets WHERE id = :walletId)
+                   + (SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s
+                      WHERE s.wallet_id = :walletId AND s.slot <> u.slot)
+            FROM updated u
+            """;
+
+    public static final String DISTRIBUTE_TO_SLOTS = """
+            UPDATE wallet_balance_slots SET balance = :share + CASE WHEN slot < :extraSlots THEN 0.01 ELSE 0 END
+            WHERE wallet_id = :walletId
+            """;
+
+    public static final String CREATE_SLOTS = """
+            INSERT INTO wallet_balance_slots (wallet_id, slot, balance)
+            SELECT :walletId, slot, 0 FROM generate_series(0, :stripes - 1) AS slot
+            """;
+
+    public static final String DELETE_SLOTS = "DELETE FROM wallet_balance_slots WHERE wallet_id = :walletId";
+
+    private WalletQueries() {
+    }
+}
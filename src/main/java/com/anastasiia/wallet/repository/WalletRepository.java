@@ -1,21 +1,98 @@
 package com.anastasiia.wallet.repository;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import com.anastasiia.wallet.entity.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface WalletRepository extends JpaRepository<Wallet, UUID> {
 
+    /**
+     * Пополнение строки кошелька одним запросом. Кошельки, разнесённые по слотам, не изменяются
+     */
+    @Query(value = WalletQueries.DEPOSIT, nativeQuery = true)
+    WalletOperationOutcome deposit(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Списание со строки кошелька одним запросом. Кошельки, разнесённые по слотам, не изменяются
+     */
+    @Query(value = WalletQueries.WITHDRAW, nativeQuery = true)
+    WalletOperationOutcome withdraw(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Перевод между строками двух кошельков одним запросом. Кошельки, разнесённые по слотам, не изменяются
+     */
+    @Query(value = WalletQueries.TRANSFER, nativeQuery = true)
+    WalletTransferOutcome transfer(@Param("fromWalletId") UUID fromWalletId,
+                                   @Param("toWalletId") UUID toWalletId,
+                                   @Param("amount") BigDecimal amount);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id = :walletId")
+    Optional<Wallet> findByIdForUpdate(@Param("walletId") UUID walletId);
+
+    /**
+     * Общий баланс кошелька одним запросом: строка кошелька плюс слоты, если баланс разнесён
+     */
+    @Query(value = WalletQueries.FIND_BALANCE, nativeQuery = true)
+    Optional<BigDecimal> findBalance(@Param("walletId") UUID walletId);
+
+    /**
+     * Общие балансы нескольких кошельков одним запросом
+     *
+     * @return балансы найденных кошельков
+     */
+    @Query(value = WalletQueries.FIND_BALANCES, nativeQuery = true)
+    List<WalletBalanceView> findBalances(@Param("walletIds") UUID[] walletIds);
+
+    @Query(value = WalletQueries.HAS_MINOR_UNIT_BALANCES, nativeQuery = true)
+    boolean hasMinorUnitBalances();
+
+    @Query(value = WalletQueries.FIND_SLOT_BALANCES_FOR_UPDATE, nativeQuery = true)
+    List<BigDecimal> findSlotBalancesForUpdate(@Param("walletId") UUID walletId);
+
+    /**
+     * Пополнение одного слота
+     *
+     * @return общий баланс кошелька после операции или пустой результат, если слота нет
+     */
+    @Query(value = WalletQueries.DEPOSIT_TO_SLOT, nativeQuery = true)
+    Optional<BigDecimal> depositToSlot(@Param("walletId") UUID walletId,
+                                       @Param("slot") int slot,
+                                       @Param("amount") BigDecimal amount);
+
+    /**
+     * Списание с одного слота
+     *
+     * @return общий баланс кошелька после операции или пустой результат, если в слоте не хватило средств
+     */
+    @Query(value = WalletQueries.WITHDRAW_FROM_SLOT, nativeQuery = true)
+    Optional<BigDecimal> withdrawFromSlot(@Param("walletId") UUID walletId,
+                                          @Param("slot") int slot,
+                                          @Param("amount") BigDecimal amount);
+
+    /**
+     * Раскладывает баланс по слотам поровну: каждый слот получает {@code share}, первые {@code extraSlots} слотов — ещё по 0.01
+     */
+    @Modifying
+    @Query(value = WalletQueries.DISTRIBUTE_TO_SLOTS, nativeQuery = true)
+    void distributeToSlots(@Param("walletId") UUID walletId,
+                           @Param("share") BigDecimal share,
+                           @Param("extraSlots") int extraSlots);
+
     @Modifying
-    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount WHERE w.id = :walletId")
-    void deposit(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
+    @Query(value = WalletQueries.CREATE_SLOTS, nativeQuery = true)
+    void createSlots(@Param("walletId") UUID walletId, @Param("stripes") int stripes);
 
     @Modifying
-    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount WHERE w.id = :walletId AND w.balance >= :amount")
-    int withdraw(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
-}
\ No newline at end of file
+    @Query(value = WalletQueries.DELETE_SLOTS, nativeQuery = true)
+    void deleteSlots(@Param("walletId") UUID walletId);
+}
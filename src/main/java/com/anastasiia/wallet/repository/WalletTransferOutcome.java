@@ -0,0 +1,33 @@
+package com.anastasiia.wallet.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат однозапросного перевода между строками кошельков
+ */
+public interface WalletTransferOutcome {
+
+    /**
+     * @return баланс кошелька списания после перевода или {@code null}, если перевод не применён
+     */
+    BigDecimal getFromBalance();
+
+    /**
+     * @return баланс кошелька зачисления после перевода или {@code null}, если перевод не применён
+     */
+    BigDecimal getToBalance();
+
+    /**
+     * @return баланс строки кошелька списания под блокировкой или {@code null}, если кошелька нет
+     */
+    BigDecimal getAvailable();
+
+    Boolean getFromFound();
+
+    Boolean getToFound();
+
+    /**
+     * @return разнесён ли баланс хотя бы одного из кошельков по слотам; такие переводы запрос не применяет
+     */
+    Boolean getStriped();
+}
@@ -0,0 +1,30 @@
+package com.anastasiia.wallet.service;
+
+import java.util.UUID;
+
+import com.anastasiia.wallet.money.MinorUnitsDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Запрос операции для режима {@code wallet.storage.mode=minor_units}: тот же JSON, что и
+ * {@link WalletOperationRequest}, но сумма читается сразу в копейки
+ */
+@Data
+public class MinorUnitsOperationRequest {
+
+    @NotNull(message = "Wallet ID is required")
+    private UUID walletId;
+
+    @NotNull(message = "Operation type is required")
+    private WalletOperationRequest.OperationType operationType;
+
+    /**
+     * Сумма в копейках; отсутствующая в запросе сумма остаётся нулевой и не проходит проверку
+     */
+    @JsonDeserialize(using = MinorUnitsDeserializer.class)
+    @Min(value = 1, message = "Amount must be at least 0.01")
+    private long amount;
+}
@@ -0,0 +1,26 @@
+package com.anastasiia.wallet.service;
+
+import java.util.UUID;
+
+/**
+ * Операции над кошельками в режиме {@code wallet.storage.mode=minor_units}: суммы и балансы — копейки типа {@code long}.
+ * Создание кошельков и остальные операции в этом режиме выполняет {@link WalletService}
+ */
+public interface MinorUnitsWalletService {
+
+    /**
+     * Выполнение операции с кошельком (пополнение/списание)
+     *
+     * @param request запрос
+     * @return баланс кошелька после операции в копейках
+     */
+    long processOperation(MinorUnitsOperationRequest request);
+
+    /**
+     * Получение текущего баланса кошелька
+     *
+     * @param walletId идентификатор кошелька
+     * @return текущий баланс кошелька в копейках
+     */
+    long getBalance(UUID walletId);
+}
@@ -0,0 +1,61 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.anastasiia.wallet.entity.Wallet;
+import reactor.core.publisher.Mono;
+
+/**
+ * Неблокирующий вариант {@link WalletService} для профиля {@code reactive}
+ */
+public interface ReactiveWalletService {
+
+    /**
+     * Создание нового кошелька
+     *
+     * @return дто кошелька
+     */
+    Mono<Wallet> createWallet();
+
+    /**
+     * Выполнение операции с кошельком (пополнение/списание)
+     *
+     * @param request запрос
+     * @return баланс кошелька после операции
+     */
+    Mono<BigDecimal> processOperation(WalletOperationRequest request);
+
+    /**
+     * Пакетное выполнение операций с кошельками
+     *
+     * @param request пакет операций и режим его применения
+     * @return результат по каждой операции
+     */
+    Mono<WalletBatchResult> processBatch(WalletBatchRequest request);
+
+    /**
+     * Перевод между кошельками: списание и зачисление в одной транзакции
+     *
+     * @param request кошельки и сумма перевода
+     * @return балансы обоих кошельков после перевода
+     */
+    Mono<WalletTransferResult> transfer(WalletTransferRequest request);
+
+    /**
+     * Получение текущего баланса кошелька
+     *
+     * @param walletId идентификатор кошелька
+     * @return текущий баланс кошелька
+     */
+    Mono<BigDecimal> getBalance(UUID walletId);
+
+    /**
+     * Разнесение баланса горячего кошелька по слотам или возврат его в одну строку
+     *
+     * @param walletId идентификатор кошелька
+     * @param stripes  количество слотов; 0 — хранить баланс в строке кошелька
+     * @return текущий баланс кошелька
+     */
+    Mono<BigDecimal> restripeWallet(UUID walletId, int stripes);
+}
@@ -0,0 +1,11 @@
+package com.anastasiia.wallet.service;
+
+import java.util.UUID;
+
+/**
+ * Событие об изменении баланса кошелька; публикуется после фиксации транзакции
+ *
+ * @param walletId идентификатор кошелька
+ */
+public record WalletBalanceChangedEvent(UUID walletId) {
+}
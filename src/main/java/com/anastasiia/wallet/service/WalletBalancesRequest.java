@@ -0,0 +1,17 @@
+package com.anastasiia.wallet.service;
+
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class WalletBalancesRequest {
+
+    @NotEmpty(message = "Wallet IDs are required")
+    @Size(max = 100000, message = "At most 100000 wallet IDs per request; use NDJSON for more")
+    private List<@NotNull UUID> walletIds;
+}
@@ -0,0 +1,31 @@
+package com.anastasiia.wallet.service;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class WalletBatchRequest {
+
+    @NotEmpty(message = "Operations are required")
+    @Size(max = 10000, message = "Batch must contain at most 10000 operations")
+    private List<@Valid @NotNull WalletOperationRequest> operations;
+
+    @NotNull(message = "Mode is required")
+    private Mode mode = Mode.PER_ITEM;
+
+    public enum Mode {
+        /**
+         * Все операции применяются вместе или не применяется ни одна
+         */
+        ATOMIC,
+        /**
+         * Каждая операция применяется независимо и получает свой результат
+         */
+        PER_ITEM
+    }
+}
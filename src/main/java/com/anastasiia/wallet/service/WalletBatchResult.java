@@ -0,0 +1,27 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Результат пакетной обработки операций
+ *
+ * @param committed были ли изменения зафиксированы
+ * @param items     результаты операций в порядке запроса
+ */
+public record WalletBatchResult(boolean committed, List<Item> items) {
+
+    /**
+     * @param index    позиция операции в запросе
+     * @param walletId идентификатор кошелька
+     * @param status   результат операции
+     * @param balance  баланс кошелька сразу после операции; {@code null}, если операция не применена
+     */
+    public record Item(int index, UUID walletId, Status status, BigDecimal balance) {
+    }
+
+    public enum Status {
+        SUCCESS, NOT_FOUND, INSUFFICIENT_FUNDS, ROLLED_BACK
+    }
+}
@@ -0,0 +1,15 @@
+package com.anastasiia.wallet.service;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class WalletBulkCreateRequest {
+
+    @NotNull(message = "Count is required")
+    @Min(value = 1, message = "Count must be at least 1")
+    @Max(value = 10_000_000, message = "Count must be at most 10000000")
+    private Integer count;
+}
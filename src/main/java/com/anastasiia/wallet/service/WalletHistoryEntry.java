@@ -0,0 +1,20 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Операция в истории кошелька
+ *
+ * @param id            номер записи; записи кошелька возрастают в порядке применения операций
+ * @param operationType тип операции
+ * @param amount        сумма операции
+ * @param balanceAfter  баланс кошелька сразу после операции
+ * @param createdAt     время применения операции
+ */
+public record WalletHistoryEntry(long id,
+                                 WalletOperationRequest.OperationType operationType,
+                                 BigDecimal amount,
+                                 BigDecimal balanceAfter,
+                                 Instant createdAt) {
+}
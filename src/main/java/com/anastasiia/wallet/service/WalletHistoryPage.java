@@ -0,0 +1,12 @@
+package com.anastasiia.wallet.service;
+
+import java.util.List;
+
+/**
+ * Страница истории кошелька
+ *
+ * @param items операции в порядке применения
+ * @param next  курсор следующей страницы для параметра {@code after}; {@code null}, если страница последняя
+ */
+public record WalletHistoryPage(List<WalletHistoryEntry> items, Long next) {
+}
@@ -0,0 +1,28 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Операция, принятая асинхронно
+ *
+ * @param operationId   идентификатор операции для опроса результата
+ * @param walletId      идентификатор кошелька
+ * @param operationType тип операции
+ * @param amount        сумма операции
+ * @param status        состояние операции
+ * @param balance       баланс кошелька сразу после операции; {@code null}, пока операция не применена или если она отклонена
+ * @param error         последняя ошибка применения; {@code null}, если попыток с ошибкой не было
+ */
+public record WalletIntakeOperation(UUID operationId,
+                                    UUID walletId,
+                                    WalletOperationRequest.OperationType operationType,
+                                    BigDecimal amount,
+                                    Status status,
+                                    BigDecimal balance,
+                                    String error) {
+
+    public enum Status {
+        PENDING, SUCCESS, NOT_FOUND, INSUFFICIENT_FUNDS, FAILED
+    }
+}
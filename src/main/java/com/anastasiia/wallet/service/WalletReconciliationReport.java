@@ -0,0 +1,40 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Состояние сверки балансов с историей операций
+ *
+ * @param runId            номер сверки
+ * @param startedAt        когда сверка начата
+ * @param finishedAt       когда сверены все диапазоны; {@code null}, пока сверка не завершена
+ * @param running          идёт ли сверка сейчас на этом экземпляре
+ * @param ranges           на сколько диапазонов поделена таблица кошельков
+ * @param rangesDone       сколько диапазонов сверено полностью
+ * @param scanned          сколько кошельков сверено
+ * @param mismatchCount    у скольких кошельков баланс не совпал с суммой операций
+ * @param walletsPerSecond скорость сверки с последнего запуска или продолжения на этом экземпляре
+ * @param mismatches       первые расхождения по идентификатору кошелька
+ */
+public record WalletReconciliationReport(long runId,
+                                         Instant startedAt,
+                                         Instant finishedAt,
+                                         boolean running,
+                                         int ranges,
+                                         int rangesDone,
+                                         long scanned,
+                                         long mismatchCount,
+                                         double walletsPerSecond,
+                                         List<Mismatch> mismatches) {
+
+    /**
+     * @param walletId          идентификатор кошелька
+     * @param storedBalance     баланс кошелька вместе со слотами
+     * @param recomputedBalance сумма пополнений минус сумма списаний из истории
+     */
+    public record Mismatch(UUID walletId, BigDecimal storedBalance, BigDecimal recomputedBalance) {
+    }
+}
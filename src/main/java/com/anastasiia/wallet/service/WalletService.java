@@ -1,7 +1,11 @@
 package com.anastasiia.wallet.service;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import com.anastasiia.wallet.entity.Wallet;
 
@@ -14,12 +18,37 @@ public interface WalletService {
      */
     Wallet createWallet();
 
+    /**
+     * Массовое создание кошельков с нулевым балансом
+     *
+     * @param count   количество кошельков
+     * @param created получает идентификаторы кошельков пачками по мере фиксации в базе
+     */
+    void createWallets(int count, Consumer<List<UUID>> created);
+
     /**
      * Выполнение операции с кошельком (пополнение/списание)
      *
      * @param request запрос
+     * @return баланс кошелька после операции
+     */
+    BigDecimal processOperation(WalletOperationRequest request);
+
+    /**
+     * Пакетное выполнение операций с кошельками
+     *
+     * @param request пакет операций и режим его применения
+     * @return результат по каждой операции
+     */
+    WalletBatchResult processBatch(WalletBatchRequest request);
+
+    /**
+     * Перевод между кошельками: списание и зачисление в одной транзакции
+     *
+     * @param request кошельки и сумма перевода
+     * @return балансы обоих кошельков после перевода
      */
-    void processOperation(WalletOperationRequest request);
+    WalletTransferResult transfer(WalletTransferRequest request);
 
     /**
      * Получение текущего баланса кошелька
@@ -28,4 +57,21 @@ public interface WalletService {
      * @return текущий баланс кошелька
      */
     BigDecimal getBalance(UUID walletId);
+
+    /**
+     * Получение балансов нескольких кошельков: закэшированные берутся из кэша, остальные читаются одним запросом
+     *
+     * @param walletIds идентификаторы кошельков
+     * @return балансы найденных кошельков
+     */
+    Map<UUID, BigDecimal> getBalances(Collection<UUID> walletIds);
+
+    /**
+     * Разнесение баланса горячего кошелька по слотам или возврат его в одну строку
+     *
+     * @param walletId идентификатор кошелька
+     * @param stripes  количество слотов; 0 — хранить баланс в строке кошелька
+     * @return текущий баланс кошелька
+     */
+    BigDecimal restripeWallet(UUID walletId, int stripes);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.anastasiia.wallet.service;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+@Data
+public class WalletStripesRequest {
+
+    @Min(value = 0, message = "Stripes must not be negative")
+    @Max(value = 64, message = "Stripes must be at most 64")
+    private int stripes;
+}
@@ -0,0 +1,32 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class WalletTransferRequest {
+
+    @NotNull(message = "Source wallet ID is required")
+    private UUID fromWalletId;
+
+    @NotNull(message = "Destination wallet ID is required")
+    private UUID toWalletId;
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be at least 0.01")
+    @Digits(integer = 13, fraction = 2, message = "Amount must have at most 13 integer digits and 2 decimal places")
+    private BigDecimal amount;
+
+    @JsonIgnore
+    @AssertTrue(message = "Source and destination wallets must differ")
+    public boolean isDistinctWallets() {
+        return fromWalletId == null || !fromWalletId.equals(toWalletId);
+    }
+}
@@ -0,0 +1,15 @@
+package com.anastasiia.wallet.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Результат перевода между кошельками
+ *
+ * @param fromWalletId кошелёк списания
+ * @param fromBalance  баланс кошелька списания после перевода
+ * @param toWalletId   кошелёк зачисления
+ * @param toBalance    баланс кошелька зачисления после перевода
+ */
+public record WalletTransferResult(UUID fromWalletId, BigDecimal fromBalance, UUID toWalletId, BigDecimal toBalance) {
+}
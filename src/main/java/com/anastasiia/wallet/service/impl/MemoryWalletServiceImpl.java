@@ -0,0 +1,165 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.config.BatchProperties;
+import com.anastasiia.wallet.config.CoalescingProperties;
+import com.anastasiia.wallet.engine.MemoryWalletEngine;
+import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.UnsupportedWalletOperationException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.money.MinorUnits;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+/**
+ * Реализация {@link WalletService} над {@link MemoryWalletEngine}: операции выполняются в памяти и подтверждаются
+ * после сброса журнала предзаписи, база в них не участвует.
+ * <p>
+ * Атомарные пакеты и разнесение по слотам в этом режиме недоступны и отклоняются с 422: пакет {@code PER_ITEM} выполняется
+ * как независимые операции, а горячему кошельку слоты не нужны — его операции и так идут без блокировок.
+ * Кэш балансов и коалесцирование не используются, и включённые они останавливают запуск.
+ */
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "memory")
+public class MemoryWalletServiceImpl implements WalletService {
+
+    private final MemoryWalletEngine engine;
+    private final BatchProperties batchProperties;
+    private final WalletMetrics metrics;
+
+    public MemoryWalletServiceImpl(MemoryWalletEngine engine,
+                                   BatchProperties batchProperties,
+                                   WalletMetrics metrics,
+                                   CoalescingProperties coalescingProperties,
+                                   BalanceCacheProperties balanceCacheProperties) {
+        if (coalescingProperties.enabled() || balanceCacheProperties.enabled()) {
+            throw new IllegalStateException(
+                    "wallet.coalescing and wallet.balance-cache are not supported with wallet.storage.mode=memory");
+        }
+        this.engine = engine;
+        this.batchProperties = batchProperties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Wallet createWallet() {
+        UUID walletId = UUID.randomUUID();
+        MemoryWalletEngine.await(engine.create(walletId, 0));
+        return Wallet.builder()
+                .id(walletId)
+                .balance(MinorUnits.toDecimal(0))
+                .build();
+    }
+
+    @Override
+    public void createWallets(int count, Consumer<List<UUID>> created) {
+        int chunkSize = batchProperties.bulkCreateChunkSize();
+        for (int from = 0; from < count; from += chunkSize) {
+            List<UUID> walletIds = new ArrayList<>(Math.min(chunkSize, count - from));
+            for (int i = 0; i < Math.min(chunkSize, count - from); i++) {
+                walletIds.add(UUID.randomUUID());
+            }
+            engine.createAll(walletIds, null);
+            created.accept(walletIds);
+        }
+    }
+
+    @Override
+    public BigDecimal processOperation(WalletOperationRequest request) {
+        long amount = toUnits(request.getAmount());
+        long balance = metrics.timeOperation(request.getOperationType(), request.getWalletId(), () ->
+                MemoryWalletEngine.await(engine.apply(request.getWalletId(), request.getOperationType(), amount)));
+        return MinorUnits.toDecimal(balance);
+    }
+
+    @Override
+    public WalletBatchResult processBatch(WalletBatchRequest request) {
+        if (request.getMode() == WalletBatchRequest.Mode.ATOMIC) {
+            throw new UnsupportedWalletOperationException("ATOMIC batches are not supported with wallet.storage.mode=memory");
+        }
+        List<WalletOperationRequest> operations = request.getOperations();
+        List<CompletableFuture<Long>> balances = new ArrayList<>(operations.size());
+        // Операции одного кошелька попадают в очередь одного шарда в порядке пакета
+        for (WalletOperationRequest operation : operations) {
+            balances.add(engine.apply(operation.getWalletId(), operation.getOperationType(),
+                    toUnits(operation.getAmount())));
+        }
+        List<WalletBatchResult.Item> items = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            UUID walletId = operations.get(i).getWalletId();
+            try {
+                BigDecimal balance = MinorUnits.toDecimal(MemoryWalletEngine.await(balances.get(i)));
+                items.add(new WalletBatchResult.Item(i, walletId, WalletBatchResult.Status.SUCCESS, balance));
+            } catch (WalletNotFoundException ex) {
+                items.add(new WalletBatchResult.Item(i, walletId, WalletBatchResult.Status.NOT_FOUND, null));
+            } catch (InsufficientFundsException ex) {
+                items.add(new WalletBatchResult.Item(i, walletId, WalletBatchResult.Status.INSUFFICIENT_FUNDS, null));
+            }
+        }
+        return new WalletBatchResult(true, items);
+    }
+
+    @Override
+    public WalletTransferResult transfer(WalletTransferRequest request) {
+        long amount = toUnits(request.getAmount());
+        if (request.getFromWalletId().equals(request.getToWalletId())) {
+            throw new IllegalArgumentException("Cannot transfer to the same wallet: " + request.getFromWalletId());
+        }
+
+        MemoryWalletEngine.TransferOutcome outcome = metrics.timeTransfer(request.getFromWalletId(), () ->
+                MemoryWalletEngine.await(engine.transfer(request.getFromWalletId(), request.getToWalletId(), amount)));
+        return new WalletTransferResult(request.getFromWalletId(), MinorUnits.toDecimal(outcome.fromBalance()),
+                request.getToWalletId(), MinorUnits.toDecimal(outcome.toBalance()));
+    }
+
+    @Override
+    public BigDecimal getBalance(UUID walletId) {
+        OptionalLong balance = engine.findBalance(walletId);
+        if (balance.isEmpty()) {
+            throw new WalletNotFoundException(walletId);
+        }
+        return MinorUnits.toDecimal(balance.getAsLong());
+    }
+
+    @Override
+    public Map<UUID, BigDecimal> getBalances(Collection<UUID> walletIds) {
+        Map<UUID, BigDecimal> balances = new HashMap<>(walletIds.size() * 2);
+        for (UUID walletId : walletIds) {
+            engine.findBalance(walletId).ifPresent(balance -> balances.put(walletId, MinorUnits.toDecimal(balance)));
+        }
+        return balances;
+    }
+
+    @Override
+    public BigDecimal restripeWallet(UUID walletId, int stripes) {
+        throw new UnsupportedWalletOperationException("Wallet stripes are not used with wallet.storage.mode=memory");
+    }
+
+    private static long toUnits(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+        return MinorUnits.fromDecimal(amount);
+    }
+}
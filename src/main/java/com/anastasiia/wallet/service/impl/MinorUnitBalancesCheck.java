@@ -0,0 +1,35 @@
+package com.anastasiia.wallet.service.impl;
+
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Останавливает запуск не в режиме {@code minor_units}, пока в базе остаются балансы, записанные этим режимом.
+ * Запросы остальных режимов читают только {@code wallets.balance}, поэтому такие балансы сначала переносятся
+ * обратно одним запросом из {@link #MESSAGE}.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnExpression("!'${wallet.storage.mode:balance}'.equalsIgnoreCase('minor_units')")
+@RequiredArgsConstructor
+public class MinorUnitBalancesCheck {
+
+    static final String MESSAGE = "wallets.balance_minor holds balances written with wallet.storage.mode=minor_units; "
+            + "run UPDATE wallets SET balance = balance_minor / 100.0, balance_minor = NULL "
+            + "WHERE balance_minor IS NOT NULL before switching to another mode";
+
+    private final WalletRepository walletRepository;
+    private final WalletShardRouter shardRouter;
+
+    @PostConstruct
+    void verify() {
+        if (shardRouter.onEachShard(walletRepository::hasMinorUnitBalances).contains(true)) {
+            throw new IllegalStateException(MESSAGE);
+        }
+    }
+}
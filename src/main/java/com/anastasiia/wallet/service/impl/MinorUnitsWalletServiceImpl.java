@@ -0,0 +1,146 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.config.CoalescingProperties;
+import com.anastasiia.wallet.exception.BalanceOverflowException;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.money.MinorUnits;
+import com.anastasiia.wallet.repository.MinorUnitsWalletRepository;
+import com.anastasiia.wallet.service.MinorUnitsOperationRequest;
+import com.anastasiia.wallet.service.MinorUnitsWalletService;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import com.anastasiia.wallet.threads.WalletAdmission;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Реализация {@link MinorUnitsWalletService}: каждая операция — один запрос в автокоммите над
+ * {@code wallets.balance_minor}, без {@link java.math.BigDecimal} между JSON и базой и без {@code numeric} в базе.
+ * Допуск по кошельку, шард, история и событие об изменении баланса — те же, что у операции {@link WalletServiceImpl}.
+ * <p>
+ * Слоты, коалесцирование и кэш балансов в режиме недоступны: включённые коалесцирование или кэш, как и кошельки,
+ * разнесённые по слотам в другом режиме, останавливают запуск. Пакеты, переводы и остальные операции над
+ * {@code wallets.balance} {@link WalletServiceImpl} в этом режиме отклоняет.
+ */
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "minor_units")
+public class MinorUnitsWalletServiceImpl implements MinorUnitsWalletService {
+
+    private static final String NUMERIC_VALUE_OUT_OF_RANGE = "22003";
+    // Ограничение wallets_balance_minor_range: баланс вышел за диапазон numeric(15,2)
+    private static final String CHECK_VIOLATION = "23514";
+
+    private final MinorUnitsWalletRepository walletRepository;
+    private final WalletMetrics metrics;
+    private final WalletAdmission walletAdmission;
+    private final WalletShardRouter shardRouter;
+    private final WalletHistory history;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public MinorUnitsWalletServiceImpl(MinorUnitsWalletRepository walletRepository,
+                                       WalletMetrics metrics,
+                                       WalletAdmission walletAdmission,
+                                       WalletShardRouter shardRouter,
+                                       WalletHistory history,
+                                       TransactionTemplate transactionTemplate,
+                                       ApplicationEventPublisher eventPublisher,
+                                       CoalescingProperties coalescingProperties,
+                                       BalanceCacheProperties balanceCacheProperties) {
+        if (coalescingProperties.enabled() || balanceCacheProperties.enabled()) {
+            throw new IllegalStateException(
+                    "wallet.coalescing and wallet.balance-cache are not supported with wallet.storage.mode=minor_units");
+        }
+        this.walletRepository = walletRepository;
+        this.metrics = metrics;
+        this.walletAdmission = walletAdmission;
+        this.shardRouter = shardRouter;
+        this.history = history;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    void verifyNoStripedWallets() {
+        if (shardRouter.onEachShard(walletRepository::hasStripedWallets).contains(true)) {
+            throw new IllegalStateException("wallet.storage.mode=minor_units does not support wallets split into "
+                    + "balance slots; restripe them to 0 stripes in another mode first");
+        }
+    }
+
+    @Override
+    public long processOperation(MinorUnitsOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        long amount = request.getAmount();
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + MinorUnits.format(amount));
+        }
+        // История пишется в транзакции операции, без неё операция остаётся одним запросом в автокоммите
+        long balance = metrics.timeOperation(request.getOperationType(), walletId, () ->
+                walletAdmission.run(walletId, () -> shardRouter.onShardOf(walletId, () -> history.isEnabled()
+                        ? transactionTemplate.execute(status -> record(request, apply(request)))
+                        : apply(request))));
+        eventPublisher.publishEvent(new WalletBalanceChangedEvent(walletId));
+        return balance;
+    }
+
+    @Override
+    public long getBalance(UUID walletId) {
+        return walletRepository.findBalance(walletId)
+                .orElseThrow(() -> new WalletNotFoundException(walletId));
+    }
+
+    private long apply(MinorUnitsOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        long amount = request.getAmount();
+        MinorUnitsWalletRepository.Outcome outcome;
+        try {
+            outcome = switch (request.getOperationType()) {
+                case DEPOSIT -> walletRepository.deposit(walletId, amount);
+                case WITHDRAW -> walletRepository.withdraw(walletId, amount);
+            };
+        } catch (DataAccessException ex) {
+            if (ex.getMostSpecificCause() instanceof SQLException sqlException
+                    && (NUMERIC_VALUE_OUT_OF_RANGE.equals(sqlException.getSQLState())
+                    || CHECK_VIOLATION.equals(sqlException.getSQLState()))) {
+                throw new BalanceOverflowException(walletId);
+            }
+            throw ex;
+        }
+
+        if (!outcome.found()) {
+            throw new WalletNotFoundException(walletId);
+        }
+        if (!outcome.applied()) {
+            throw new InsufficientFundsException(walletId, MinorUnits.toDecimal(amount),
+                    MinorUnits.toDecimal(outcome.balance()));
+        }
+        return outcome.balance();
+    }
+
+    private long record(MinorUnitsOperationRequest request, long balance) {
+        history.record(toDecimal(request), MinorUnits.toDecimal(balance));
+        return balance;
+    }
+
+    private static WalletOperationRequest toDecimal(MinorUnitsOperationRequest request) {
+        WalletOperationRequest decimal = new WalletOperationRequest();
+        decimal.setWalletId(request.getWalletId());
+        decimal.setOperationType(request.getOperationType());
+        decimal.setAmount(MinorUnits.toDecimal(request.getAmount()));
+        return decimal;
+    }
+}
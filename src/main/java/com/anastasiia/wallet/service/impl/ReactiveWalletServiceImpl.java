@@ -0,0 +1,339 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.anastasiia.wallet.config.BatchProperties;
+import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.repository.ReactiveWalletRepository;
+import com.anastasiia.wallet.repository.WalletOperationOutcome;
+import com.anastasiia.wallet.service.ReactiveWalletService;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Реализация {@link ReactiveWalletService} поверх R2DBC.
+ * <p>
+ * Повторяет поведение {@link WalletServiceImpl} для режима хранения {@code balance}: операция — один атомарный
+ * запрос, кошельки со слотами и пакеты обрабатываются под теми же блокировками и в том же порядке.
+ * Коалесцирование, журнал операций и кэш балансов относятся к блокирующему стеку и здесь не используются.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveWalletServiceImpl implements ReactiveWalletService {
+
+    private final ReactiveWalletRepository walletRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final BatchProperties batchProperties;
+
+    @PostConstruct
+    void verifyNoMinorUnitBalances() {
+        if (Boolean.TRUE.equals(walletRepository.hasMinorUnitBalances().block())) {
+            throw new IllegalStateException(MinorUnitBalancesCheck.MESSAGE);
+        }
+    }
+
+    @Override
+    public Mono<Wallet> createWallet() {
+        Wallet wallet = Wallet.builder()
+                .id(UUID.randomUUID())
+                .balance(BigDecimal.ZERO)
+                .build();
+        return walletRepository.insert(wallet).thenReturn(wallet);
+    }
+
+    @Override
+    public Mono<BigDecimal> processOperation(WalletOperationRequest request) {
+        return Mono.defer(() -> {
+            validateAmount(request.getAmount());
+            return applyOperation(request);
+        }).as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<WalletBatchResult> processBatch(WalletBatchRequest request) {
+        return Mono.defer(() -> {
+            List<WalletOperationRequest> operations = request.getOperations();
+            operations.forEach(operation -> validateAmount(operation.getAmount()));
+
+            Map<UUID, List<Integer>> indexesByWallet = new TreeMap<>(WalletLockOrder.COMPARATOR);
+            for (int i = 0; i < operations.size(); i++) {
+                indexesByWallet.computeIfAbsent(operations.get(i).getWalletId(), id -> new ArrayList<>()).add(i);
+            }
+
+            boolean atomic = request.getMode() == WalletBatchRequest.Mode.ATOMIC;
+            WalletBatchResult.Item[] items = new WalletBatchResult.Item[operations.size()];
+            List<UUID> walletIds = new ArrayList<>(indexesByWallet.keySet());
+            int chunkSize = batchProperties.jdbcBatchSize();
+
+            return transactionalOperator.execute(status -> Flux.range(0, (walletIds.size() + chunkSize - 1) / chunkSize)
+                            .concatMap(chunk -> applyChunk(
+                                    walletIds.subList(chunk * chunkSize, Math.min((chunk + 1) * chunkSize, walletIds.size())),
+                                    indexesByWallet, operations, items))
+                            .filter(failed -> atomic && failed)
+                            .next()
+                            .map(failed -> {
+                                status.setRollbackOnly();
+                                return false;
+                            })
+                            .defaultIfEmpty(true))
+                    .single()
+                    .map(applied -> {
+                        for (int i = 0; i < items.length; i++) {
+                            if (items[i] == null || !applied && items[i].status() == WalletBatchResult.Status.SUCCESS) {
+                                items[i] = new WalletBatchResult.Item(i, operations.get(i).getWalletId(),
+                                        WalletBatchResult.Status.ROLLED_BACK, null);
+                            }
+                        }
+                        return new WalletBatchResult(applied, Arrays.asList(items));
+                    });
+        });
+    }
+
+    @Override
+    public Mono<WalletTransferResult> transfer(WalletTransferRequest request) {
+        return Mono.defer(() -> {
+            validateAmount(request.getAmount());
+            if (request.getFromWalletId().equals(request.getToWalletId())) {
+                throw new IllegalArgumentException("Cannot transfer to the same wallet: " + request.getFromWalletId());
+            }
+            return applyTransfer(request);
+        }).as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<BigDecimal> getBalance(UUID walletId) {
+        return walletRepository.findBalance(walletId)
+                .switchIfEmpty(Mono.error(() -> new WalletNotFoundException(walletId)));
+    }
+
+    @Override
+    public Mono<BigDecimal> restripeWallet(UUID walletId, int stripes) {
+        return walletRepository.findByIdForUpdate(walletId)
+                .switchIfEmpty(Mono.error(() -> new WalletNotFoundException(walletId)))
+                .flatMap(wallet -> lockedBalance(wallet).flatMap(balance -> {
+                    wallet.setStripeCount(stripes);
+                    return walletRepository.deleteSlots(walletId)
+                            .then(stripes > 0 ? walletRepository.createSlots(walletId, stripes) : Mono.empty())
+                            .then(walletRepository.updateStripeCount(walletId, stripes))
+                            .then(updateLockedBalance(wallet, balance))
+                            .thenReturn(balance);
+                }))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<BigDecimal> applyOperation(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        Mono<WalletOperationOutcome> outcome = switch (request.getOperationType()) {
+            case DEPOSIT -> walletRepository.deposit(walletId, request.getAmount());
+            case WITHDRAW -> walletRepository.withdraw(walletId, request.getAmount());
+        };
+
+        return outcome.flatMap(result -> {
+            if (result.getBalance() != null) {
+                return Mono.just(result.getBalance());
+            }
+            if (result.getStripeCount() == null) {
+                return Mono.error(new WalletNotFoundException(walletId));
+            }
+            if (result.getStripeCount() > 0) {
+                return applyToSlot(request, result.getStripeCount());
+            }
+            if (request.getOperationType() == WalletOperationRequest.OperationType.WITHDRAW
+                    && result.getAvailable().compareTo(request.getAmount()) < 0) {
+                return Mono.error(new InsufficientFundsException(walletId, request.getAmount(), result.getAvailable()));
+            }
+            // Раскладка кошелька изменилась между снимком запроса и блокировкой строки
+            return applyLocked(request);
+        });
+    }
+
+    private Mono<BigDecimal> applyToSlot(WalletOperationRequest request, int stripes) {
+        UUID walletId = request.getWalletId();
+        int slot = ThreadLocalRandom.current().nextInt(stripes);
+        Mono<BigDecimal> balance = switch (request.getOperationType()) {
+            case DEPOSIT -> walletRepository.depositToSlot(walletId, slot, request.getAmount());
+            case WITHDRAW -> walletRepository.withdrawFromSlot(walletId, slot, request.getAmount());
+        };
+        return balance.switchIfEmpty(Mono.defer(() -> applyLocked(request)));
+    }
+
+    private Mono<BigDecimal> applyLocked(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        return walletRepository.findByIdForUpdate(walletId)
+                .switchIfEmpty(Mono.error(() -> new WalletNotFoundException(walletId)))
+                .flatMap(wallet -> lockedBalance(wallet).flatMap(balance -> {
+                    if (request.getOperationType() == WalletOperationRequest.OperationType.WITHDRAW
+                            && balance.compareTo(request.getAmount()) < 0) {
+                        return Mono.error(new InsufficientFundsException(walletId, request.getAmount(), balance));
+                    }
+                    BigDecimal newBalance = switch (request.getOperationType()) {
+                        case DEPOSIT -> balance.add(request.getAmount());
+                        case WITHDRAW -> balance.subtract(request.getAmount());
+                    };
+                    return updateLockedBalance(wallet, newBalance).thenReturn(newBalance);
+                }));
+    }
+
+    private Mono<WalletTransferResult> applyTransfer(WalletTransferRequest request) {
+        UUID fromWalletId = request.getFromWalletId();
+        UUID toWalletId = request.getToWalletId();
+        return walletRepository.transfer(fromWalletId, toWalletId, request.getAmount()).flatMap(outcome -> {
+            if (outcome.getFromBalance() != null) {
+                return Mono.just(new WalletTransferResult(
+                        fromWalletId, outcome.getFromBalance(), toWalletId, outcome.getToBalance()));
+            }
+            if (!outcome.getFromFound()) {
+                return Mono.error(new WalletNotFoundException(fromWalletId));
+            }
+            if (!outcome.getToFound()) {
+                return Mono.error(new WalletNotFoundException(toWalletId));
+            }
+            if (!outcome.getStriped()) {
+                return Mono.error(new InsufficientFundsException(fromWalletId, request.getAmount(), outcome.getAvailable()));
+            }
+            return transferLocked(request);
+        });
+    }
+
+    /**
+     * Перевод с кошельками, разнесёнными по слотам: строки уже заблокированы запросом перевода,
+     * слоты блокируются в порядке идентификаторов кошельков
+     */
+    private Mono<WalletTransferResult> transferLocked(WalletTransferRequest request) {
+        UUID fromWalletId = request.getFromWalletId();
+        UUID toWalletId = request.getToWalletId();
+        BigDecimal amount = request.getAmount();
+        return walletRepository.findAllForUpdate(List.of(fromWalletId, toWalletId))
+                .concatMap(wallet -> lockedBalance(wallet).map(balance -> Map.entry(wallet, balance)))
+                .collectMap(entry -> entry.getKey().getId())
+                .flatMap(locked -> {
+                    Map.Entry<Wallet, BigDecimal> from = locked.get(fromWalletId);
+                    Map.Entry<Wallet, BigDecimal> to = locked.get(toWalletId);
+                    if (from.getValue().compareTo(amount) < 0) {
+                        return Mono.error(new InsufficientFundsException(fromWalletId, amount, from.getValue()));
+                    }
+                    BigDecimal fromBalance = from.getValue().subtract(amount);
+                    BigDecimal toBalance = to.getValue().add(amount);
+                    return updateLockedBalance(from.getKey(), fromBalance)
+                            .then(updateLockedBalance(to.getKey(), toBalance))
+                            .thenReturn(new WalletTransferResult(fromWalletId, fromBalance, toWalletId, toBalance));
+                });
+    }
+
+    /**
+     * @return была ли среди операций пачки хоть одна неуспешная
+     */
+    private Mono<Boolean> applyChunk(List<UUID> walletIds,
+                                     Map<UUID, List<Integer>> indexesByWallet,
+                                     List<WalletOperationRequest> operations,
+                                     WalletBatchResult.Item[] items) {
+        return walletRepository.findAllForUpdate(walletIds)
+                .collectMap(Wallet::getId)
+                .flatMap(lockedWallets -> {
+                    List<UUID> updatedIds = new ArrayList<>();
+                    List<BigDecimal> updatedBalances = new ArrayList<>();
+                    return Flux.fromIterable(walletIds)
+                            .concatMap(walletId -> {
+                                List<Integer> indexes = indexesByWallet.get(walletId);
+                                Wallet wallet = lockedWallets.get(walletId);
+                                if (wallet == null) {
+                                    indexes.forEach(index -> items[index] = new WalletBatchResult.Item(
+                                            index, walletId, WalletBatchResult.Status.NOT_FOUND, null));
+                                    return Mono.just(true);
+                                }
+                                if (wallet.getStripeCount() > 0) {
+                                    return lockedBalance(wallet).flatMap(balance -> {
+                                        Folded folded = fold(walletId, balance, indexes, operations, items);
+                                        return updateLockedBalance(wallet, folded.balance()).thenReturn(folded.failed());
+                                    });
+                                }
+                                Folded folded = fold(walletId, wallet.getBalance(), indexes, operations, items);
+                                if (folded.balance().compareTo(wallet.getBalance()) != 0) {
+                                    updatedIds.add(walletId);
+                                    updatedBalances.add(folded.balance());
+                                }
+                                return Mono.just(folded.failed());
+                            })
+                            .reduce(false, Boolean::logicalOr)
+                            .flatMap(failed -> updatedIds.isEmpty()
+                                    ? Mono.just(failed)
+                                    : walletRepository.updateBalances(updatedIds, updatedBalances).thenReturn(failed));
+                });
+    }
+
+    private Folded fold(UUID walletId,
+                        BigDecimal balance,
+                        List<Integer> indexes,
+                        List<WalletOperationRequest> operations,
+                        WalletBatchResult.Item[] items) {
+        boolean failed = false;
+        for (int index : indexes) {
+            BigDecimal amount = operations.get(index).getAmount();
+            WalletBatchResult.Status status = WalletBatchResult.Status.SUCCESS;
+            switch (operations.get(index).getOperationType()) {
+                case DEPOSIT -> balance = balance.add(amount);
+                case WITHDRAW -> {
+                    if (balance.compareTo(amount) >= 0) {
+                        balance = balance.subtract(amount);
+                    } else {
+                        status = WalletBatchResult.Status.INSUFFICIENT_FUNDS;
+                        failed = true;
+                    }
+                }
+            }
+            items[index] = new WalletBatchResult.Item(index, walletId, status,
+                    status == WalletBatchResult.Status.SUCCESS ? balance : null);
+        }
+        return new Folded(balance, failed);
+    }
+
+    private Mono<BigDecimal> lockedBalance(Wallet wallet) {
+        if (wallet.getStripeCount() == 0) {
+            return Mono.just(wallet.getBalance());
+        }
+        return walletRepository.findSlotBalancesForUpdate(wallet.getId())
+                .reduce(wallet.getBalance(), BigDecimal::add);
+    }
+
+    private Mono<Void> updateLockedBalance(Wallet wallet, BigDecimal balance) {
+        int stripes = wallet.getStripeCount();
+        if (stripes == 0) {
+            return walletRepository.updateBalance(wallet.getId(), balance);
+        }
+
+        long cents = balance.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        return walletRepository.updateBalance(wallet.getId(), BigDecimal.ZERO)
+                .then(walletRepository.distributeToSlots(
+                        wallet.getId(), BigDecimal.valueOf(cents / stripes, 2), (int) (cents % stripes)));
+    }
+
+    private void validateAmount(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    private record Folded(BigDecimal balance, boolean failed) {
+    }
+}
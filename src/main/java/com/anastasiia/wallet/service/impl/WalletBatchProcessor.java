@@ -0,0 +1,220 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import com.anastasiia.wallet.config.BatchProperties;
+import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.CrossShardOperationException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Пакетное применение операций.
+ * <p>
+ * Операции группируются по кошельку, кошельки блокируются пачками по {@code wallet.batch.jdbc-batch-size}
+ * строго в порядке идентификаторов, поэтому параллельные пакеты не взаимоблокируются. Все операции одного
+ * кошелька сворачиваются в памяти по порядку, и в базу уходит один UPDATE на кошелёк в составе JDBC-батча.
+ * В режиме журнала кошельки блокируются advisory-блокировками {@link WalletLedger}, а успешные операции
+ * добавляются в журнал одним JDBC-батчем.
+ * <p>
+ * При шардировании пакет {@code PER_ITEM} делится по шардам кошельков, и части выполняются параллельно
+ * в своих транзакциях. Атомарный пакет должен целиком лежать в одном шарде.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class WalletBatchProcessor {
+
+    private static final String LOCK_WALLETS_SQL =
+            "SELECT id, balance, stripe_count FROM wallets WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+    private static final String UPDATE_BALANCE_SQL = "UPDATE wallets SET balance = ?, version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletRepository walletRepository;
+    private final WalletStripeManager stripeManager;
+    private final WalletLedger ledger;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchProperties properties;
+    private final WalletMetrics metrics;
+    private final WalletShardRouter shardRouter;
+    private final WalletHistory history;
+
+    public WalletBatchResult process(WalletBatchRequest request) {
+        List<WalletOperationRequest> operations = request.getOperations();
+        Map<Integer, List<Integer>> indexesByShard = shardRouter.partition(
+                IntStream.range(0, operations.size()).boxed().toList(), index -> operations.get(index).getWalletId());
+        if (indexesByShard.size() <= 1) {
+            int shard = indexesByShard.isEmpty() ? 0 : indexesByShard.keySet().iterator().next();
+            return shardRouter.onShard(shard, () -> processOnShard(request));
+        }
+        if (request.getMode() == WalletBatchRequest.Mode.ATOMIC) {
+            List<List<Integer>> parts = new ArrayList<>(indexesByShard.values());
+            throw new CrossShardOperationException("ATOMIC batch", operations.get(parts.get(0).get(0)).getWalletId(),
+                    operations.get(parts.get(1).get(0)).getWalletId());
+        }
+
+        WalletBatchResult.Item[] items = new WalletBatchResult.Item[operations.size()];
+        shardRouter.fanOut(indexesByShard, indexes -> {
+            WalletBatchRequest part = new WalletBatchRequest();
+            part.setMode(request.getMode());
+            part.setOperations(indexes.stream().map(operations::get).toList());
+            List<WalletBatchResult.Item> partItems = processOnShard(part).items();
+            for (int i = 0; i < indexes.size(); i++) {
+                WalletBatchResult.Item item = partItems.get(i);
+                items[indexes.get(i)] = new WalletBatchResult.Item(
+                        indexes.get(i), item.walletId(), item.status(), item.balance());
+            }
+            return null;
+        });
+        return new WalletBatchResult(true, Arrays.asList(items));
+    }
+
+    private WalletBatchResult processOnShard(WalletBatchRequest request) {
+        List<WalletOperationRequest> operations = request.getOperations();
+        Map<UUID, List<Integer>> indexesByWallet = new TreeMap<>(WalletLockOrder.COMPARATOR);
+        for (int i = 0; i < operations.size(); i++) {
+            indexesByWallet.computeIfAbsent(operations.get(i).getWalletId(), id -> new ArrayList<>()).add(i);
+        }
+
+        boolean atomic = request.getMode() == WalletBatchRequest.Mode.ATOMIC;
+        WalletBatchResult.Item[] items = new WalletBatchResult.Item[operations.size()];
+        Boolean committed = transactionTemplate.execute(status -> {
+            List<UUID> walletIds = new ArrayList<>(indexesByWallet.keySet());
+            int chunkSize = properties.jdbcBatchSize();
+            for (int from = 0; from < walletIds.size(); from += chunkSize) {
+                List<UUID> chunk = walletIds.subList(from, Math.min(from + chunkSize, walletIds.size()));
+                boolean failed = applyChunk(chunk, indexesByWallet, operations, items);
+                if (atomic && failed) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+            }
+            return true;
+        });
+
+        boolean applied = Boolean.TRUE.equals(committed);
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null || !applied && items[i].status() == WalletBatchResult.Status.SUCCESS) {
+                items[i] = new WalletBatchResult.Item(i, operations.get(i).getWalletId(),
+                        WalletBatchResult.Status.ROLLED_BACK, null);
+            }
+        }
+        return new WalletBatchResult(applied, Arrays.asList(items));
+    }
+
+    /**
+     * @return была ли среди операций пачки хоть одна неуспешная
+     */
+    private boolean applyChunk(List<UUID> walletIds,
+                               Map<UUID, List<Integer>> indexesByWallet,
+                               List<WalletOperationRequest> operations,
+                               WalletBatchResult.Item[] items) {
+        Map<UUID, LockedWallet> lockedWallets = lock(walletIds);
+        List<Object[]> updates = new ArrayList<>();
+        List<WalletOperationRequest> ledgerEntries = new ArrayList<>();
+        boolean failed = false;
+
+        for (UUID walletId : walletIds) {
+            List<Integer> indexes = indexesByWallet.get(walletId);
+            LockedWallet locked = lockedWallets.get(walletId);
+            if (locked == null) {
+                indexes.forEach(index -> items[index] = new WalletBatchResult.Item(
+                        index, walletId, WalletBatchResult.Status.NOT_FOUND, null));
+                failed = true;
+                continue;
+            }
+
+            Wallet stripedWallet = null;
+            BigDecimal balance = locked.balance();
+            if (locked.stripeCount() > 0) {
+                stripedWallet = metrics.timeLockWait(WalletMetrics.Lock.ROW,
+                        () -> walletRepository.findByIdForUpdate(walletId)).orElseThrow();
+                balance = stripeManager.lockedBalance(stripedWallet);
+            }
+
+            BigDecimal initialBalance = balance;
+            List<WalletOperationRequest> applied = new ArrayList<>(indexes.size());
+            List<BigDecimal> balancesAfter = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                BigDecimal amount = operations.get(index).getAmount();
+                WalletBatchResult.Status status = WalletBatchResult.Status.SUCCESS;
+                switch (operations.get(index).getOperationType()) {
+                    case DEPOSIT -> balance = balance.add(amount);
+                    case WITHDRAW -> {
+                        if (balance.compareTo(amount) >= 0) {
+                            balance = balance.subtract(amount);
+                        } else {
+                            status = WalletBatchResult.Status.INSUFFICIENT_FUNDS;
+                            failed = true;
+                        }
+                    }
+                }
+                items[index] = new WalletBatchResult.Item(index, walletId, status,
+                        status == WalletBatchResult.Status.SUCCESS ? balance : null);
+                if (status == WalletBatchResult.Status.SUCCESS) {
+                    applied.add(operations.get(index));
+                    balancesAfter.add(balance);
+                }
+            }
+            // Откат атомарного пакета откатывает и историю
+            history.recordAll(walletId, applied, balancesAfter);
+
+            if (ledger.isEnabled()) {
+                ledgerEntries.addAll(applied);
+                continue;
+            }
+            if (stripedWallet != null) {
+                stripeManager.updateLockedBalance(stripedWallet, balance);
+            } else if (balance.compareTo(initialBalance) != 0) {
+                updates.add(new Object[]{balance, walletId});
+            }
+        }
+
+        if (!ledgerEntries.isEmpty()) {
+            ledger.appendAll(ledgerEntries);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, updates);
+        }
+        return failed;
+    }
+
+    private Map<UUID, LockedWallet> lock(List<UUID> walletIds) {
+        Map<UUID, LockedWallet> lockedWallets = new HashMap<>(walletIds.size() * 2);
+        if (ledger.isEnabled()) {
+            // Баланс из журнала уже включает слоты, строки кошельков не блокируются
+            ledger.lockBalances(walletIds).forEach((id, balance) -> lockedWallets.put(id, new LockedWallet(balance, 0)));
+            return lockedWallets;
+        }
+        return metrics.timeLockWait(WalletMetrics.Lock.BATCH, () -> {
+            jdbcTemplate.query(LOCK_WALLETS_SQL,
+                    statement -> statement.setArray(1,
+                            statement.getConnection().createArrayOf("uuid", walletIds.toArray())),
+                    resultSet -> {
+                        lockedWallets.put(resultSet.getObject("id", UUID.class),
+                                new LockedWallet(resultSet.getBigDecimal("balance"), resultSet.getInt("stripe_count")));
+                    });
+            return lockedWallets;
+        });
+    }
+
+    private record LockedWallet(BigDecimal balance, int stripeCount) {
+    }
+}
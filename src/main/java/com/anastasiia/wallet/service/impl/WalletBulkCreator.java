@@ -0,0 +1,99 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.anastasiia.wallet.cache.WalletExistenceFilter;
+import com.anastasiia.wallet.config.BatchProperties;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Массовое создание кошельков через протокол COPY.
+ * <p>
+ * Идентификаторы генерируются в приложении, кошельки пишутся пачками по {@code wallet.batch.bulk-create-chunk-size}
+ * строк одним {@code COPY ... FROM STDIN} без разбора отдельных INSERT на сервере. В транзакции пачки её кошельки
+ * добавляются в фильтр существующих и рассылаются остальным экземплярам. Каждая пачка
+ * фиксируется до того, как её идентификаторы отдаются вызывающему, поэтому отданные кошельки уже существуют,
+ * даже если создание прервётся на следующей пачке. При шардировании пачка делится по шардам,
+ * и её части копируются в свои базы параллельно.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class WalletBulkCreator {
+
+    private static final String COPY_SQL = "COPY wallets (id, balance) FROM STDIN";
+
+    // UUID в текстовом виде, табуляция, нулевой баланс и перевод строки
+    private static final int ROW_LENGTH = 36 + 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BatchProperties properties;
+    private final WalletShardRouter shardRouter;
+    private final WalletExistenceFilter existenceFilter;
+
+    /**
+     * Создаёт кошельки с нулевым балансом
+     *
+     * @param count   количество кошельков
+     * @param created получает идентификаторы каждой зафиксированной пачки
+     */
+    public void create(int count, Consumer<List<UUID>> created) {
+        int chunkSize = properties.bulkCreateChunkSize();
+        for (int from = 0; from < count; from += chunkSize) {
+            int size = Math.min(chunkSize, count - from);
+            List<UUID> walletIds = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                walletIds.add(UUID.randomUUID());
+            }
+            shardRouter.fanOut(shardRouter.partition(walletIds, walletId -> walletId), this::copy);
+            created.accept(walletIds);
+        }
+    }
+
+    private long copy(List<UUID> walletIds) {
+        byte[] rows = new byte[walletIds.size() * ROW_LENGTH];
+        int position = 0;
+        for (UUID walletId : walletIds) {
+            byte[] id = walletId.toString().getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(id, 0, rows, position, id.length);
+            position += id.length;
+            rows[position++] = '\t';
+            rows[position++] = '0';
+            rows[position++] = '\n';
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_SQL, new ByteArrayInputStream(rows));
+                existenceFilter.addAll(connection, walletIds);
+                connection.commit();
+                return copied;
+            } catch (IOException ex) {
+                connection.rollback();
+                throw new UncheckedIOException(ex);
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.config.HistoryProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.repository.WalletHistoryRepository;
+import com.anastasiia.wallet.service.WalletHistoryEntry;
+import com.anastasiia.wallet.service.WalletHistoryPage;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * История операций кошельков для {@code wallet.history.enabled=true}.
+ * <p>
+ * Запись в историю добавляется в той же транзакции, что изменяет баланс, поэтому у каждой применённой операции
+ * ровно одна запись, а откаченная не оставляет следов. Записи одного кошелька нумеруются в порядке применения:
+ * операции над кошельком сериализуются блокировкой строки или проверкой версии. Исключение — пополнения
+ * в режиме {@code ledger}, которые кошелёк не блокируют: номера одновременных пополнений могут идти не в порядке
+ * их балансов. Перевод записывается двумя строками: списанием и пополнением.
+ * <p>
+ * История читается страницами по курсору (номер последней записи) и выгружается курсором на сервере;
+ * то и другое идёт на реплику, если она подходит, и в базу шарда кошелька.
+ */
+@Component
+@Profile("!reactive")
+public class WalletHistory {
+
+    private final WalletHistoryRepository repository;
+    private final HistoryProperties properties;
+    private final WalletShardRouter shardRouter;
+    private final ReplicaReadRouter replicaRouter;
+
+    public WalletHistory(WalletHistoryRepository repository,
+                         HistoryProperties properties,
+                         StorageProperties storageProperties,
+                         WalletShardRouter shardRouter,
+                         ReplicaReadRouter replicaRouter) {
+        if (properties.enabled() && storageProperties.mode() == StorageProperties.Mode.MEMORY) {
+            throw new IllegalStateException("wallet.history is not supported with wallet.storage.mode=memory");
+        }
+        this.repository = repository;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.replicaRouter = replicaRouter;
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Добавляет применённую операцию в историю; вызывается в транзакции операции
+     *
+     * @param request      применённая операция
+     * @param balanceAfter баланс сразу после неё
+     * @return {@code balanceAfter}
+     */
+    public BigDecimal record(WalletOperationRequest request, BigDecimal balanceAfter) {
+        if (properties.enabled()) {
+            repository.insert(request.getWalletId(), request.getOperationType(), request.getAmount(), balanceAfter);
+        }
+        return balanceAfter;
+    }
+
+    /**
+     * Добавляет в историю пачку применённых операций одного кошелька; вызывается в транзакции пачки
+     *
+     * @param requests      применённые операции в порядке применения
+     * @param balancesAfter балансы после каждой из них
+     */
+    public void recordAll(UUID walletId, List<WalletOperationRequest> requests, List<BigDecimal> balancesAfter) {
+        if (properties.enabled() && !requests.isEmpty()) {
+            repository.insertAll(walletId, requests, balancesAfter);
+        }
+    }
+
+    /**
+     * Добавляет в историю перевод — списание с одного кошелька и пополнение другого; вызывается в транзакции перевода
+     *
+     * @param request перевод
+     * @param result  балансы обоих кошельков сразу после него
+     * @return {@code result}
+     */
+    public WalletTransferResult recordTransfer(WalletTransferRequest request, WalletTransferResult result) {
+        if (properties.enabled()) {
+            repository.insert(result.fromWalletId(), WalletOperationRequest.OperationType.WITHDRAW,
+                    request.getAmount(), result.fromBalance());
+            repository.insert(result.toWalletId(), WalletOperationRequest.OperationType.DEPOSIT,
+                    request.getAmount(), result.toBalance());
+        }
+        return result;
+    }
+
+    /**
+     * @param after     курсор из предыдущей страницы или {@code null} для начала истории
+     * @param limit     размер страницы или {@code null} для {@code wallet.history.page-size}
+     * @param readAfter токен чтения своих записей или {@code null}
+     * @return страница истории в порядке применения операций
+     */
+    public WalletHistoryPage page(UUID walletId, Long after, Integer limit, Long readAfter) {
+        int size = Math.max(1, Math.min(limit == null ? properties.pageSize() : limit, properties.maxPageSize()));
+        long from = after == null ? 0 : after;
+        // Лишняя запись показывает, есть ли следующая страница
+        List<WalletHistoryEntry> entries = shardRouter.onShardOf(walletId, () -> replicaRouter.readAfter(readAfter,
+                () -> replicaRouter.read(() -> repository.findPage(walletId, from, size + 1))));
+        if (entries.size() <= size) {
+            return new WalletHistoryPage(entries, null);
+        }
+        List<WalletHistoryEntry> items = entries.subList(0, size);
+        return new WalletHistoryPage(items, items.get(size - 1).id());
+    }
+
+    /**
+     * Выгружает историю целиком, не держа её в памяти
+     *
+     * @param after     курсор, с которого продолжить выгрузку, или {@code null} для начала истории
+     * @param readAfter токен чтения своих записей или {@code null}
+     * @param consumer  получает записи по одной в порядке применения
+     * @return количество выгруженных записей
+     */
+    public long export(UUID walletId, Long after, Long readAfter, WalletHistoryRepository.EntryConsumer consumer) {
+        long from = after == null ? 0 : after;
+        return shardRouter.onShardOf(walletId, () -> replicaRouter.readAfter(readAfter,
+                () -> replicaRouter.read(() -> repository.export(walletId, from, properties.exportFetchSize(), consumer))));
+    }
+}
@@ -0,0 +1,300 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anastasiia.wallet.config.IntakeProperties;
+import com.anastasiia.wallet.config.ShardingProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletIntakeOperation;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Асинхронный приём операций.
+ * <p>
+ * Принятая операция только добавляется строкой в {@code wallet_intake}, без блокировки кошелька.
+ * Потоки-обработчики забирают до {@code claim-size} самых старых операций через {@code FOR UPDATE SKIP LOCKED},
+ * так что параллельные обработчики, в том числе других экземпляров сервиса, не ждут друг друга, и применяют
+ * их через {@link WalletBatchProcessor} в режиме {@code PER_ITEM}: операции группируются по кошельку,
+ * и на кошелёк уходит один UPDATE. Результаты записываются в той же транзакции, поэтому каждая операция
+ * применяется ровно один раз. Операции одного кошелька из разных пачек могут примениться не в порядке приёма.
+ * <p>
+ * Если пачка падает целиком (например, баланс одного кошелька переполнил {@code numeric(15,2)}), её операции
+ * применяются по одной в отдельных транзакциях: остальные операции пачки применяются, а у неудачной растёт
+ * счётчик попыток, и после {@code max-attempts} она получает состояние {@code FAILED} с текстом ошибки
+ * и больше не забирается.
+ * <p>
+ * Несовместимо с шардированием и с движком в памяти: очередь и балансы должны лежать в одной базе и меняться
+ * одной транзакцией. Несовместимо и с режимом {@code minor_units}: его балансы лежат в {@code wallets.balance_minor},
+ * которого пачка не видит.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.intake", name = "enabled", havingValue = "true")
+public class WalletIntake {
+
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO wallet_intake (id, wallet_id, operation_type, amount) VALUES (?, ?, ?, ?)";
+
+    private static final String CLAIM_SQL = """
+            SELECT id, wallet_id, operation_type, amount, status, balance, error FROM wallet_intake
+            WHERE status = 'PENDING'
+            ORDER BY seq
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String CLAIM_ONE_SQL = """
+            SELECT id, wallet_id, operation_type, amount, status, balance, error FROM wallet_intake
+            WHERE id = ? AND status = 'PENDING'
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String FAIL_SQL = """
+            UPDATE wallet_intake
+            SET attempts = attempts + 1,
+                error = ?,
+                status = CASE WHEN attempts + 1 >= ? THEN 'FAILED' ELSE status END,
+                completed_at = CASE WHEN attempts + 1 >= ? THEN now() END
+            WHERE id = ? AND status = 'PENDING'
+            """;
+
+    private static final String COMPLETE_SQL =
+            "UPDATE wallet_intake SET status = ?, balance = ?, completed_at = now() WHERE id = ?";
+
+    private static final String FIND_SQL =
+            "SELECT id, wallet_id, operation_type, amount, status, balance, error FROM wallet_intake WHERE id = ?";
+
+    private static final String PURGE_SQL = "DELETE FROM wallet_intake WHERE status <> 'PENDING' AND completed_at < ?";
+
+    private static final RowMapper<WalletIntakeOperation> ROW_MAPPER = (resultSet, rowNum) -> new WalletIntakeOperation(
+            resultSet.getObject("id", UUID.class),
+            resultSet.getObject("wallet_id", UUID.class),
+            WalletOperationRequest.OperationType.valueOf(resultSet.getString("operation_type")),
+            resultSet.getBigDecimal("amount"),
+            WalletIntakeOperation.Status.valueOf(resultSet.getString("status")),
+            resultSet.getBigDecimal("balance"),
+            resultSet.getString("error"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletBatchProcessor batchProcessor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IntakeProperties properties;
+    private final ScheduledExecutorService executor;
+    private final Counter submitted;
+    private final Counter applied;
+    private final Counter failures;
+
+    public WalletIntake(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        WalletBatchProcessor batchProcessor,
+                        ApplicationEventPublisher eventPublisher,
+                        IntakeProperties properties,
+                        StorageProperties storageProperties,
+                        ShardingProperties shardingProperties,
+                        MeterRegistry meterRegistry) {
+        StorageProperties.Mode mode = storageProperties.mode();
+        if (shardingProperties.enabled() || mode == StorageProperties.Mode.MEMORY
+                || mode == StorageProperties.Mode.MINOR_UNITS) {
+            throw new IllegalStateException("wallet.intake cannot be combined with wallet.sharding or "
+                    + "wallet.storage.mode=" + mode.name().toLowerCase());
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchProcessor = batchProcessor;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(properties.workers() + 1, task -> {
+            Thread thread = new Thread(task, "wallet-intake-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.submitted = Counter.builder("wallet.intake.submitted")
+                .description("Operations accepted for asynchronous processing")
+                .register(meterRegistry);
+        this.applied = Counter.builder("wallet.intake.applied")
+                .description("Asynchronously accepted operations that have been processed")
+                .register(meterRegistry);
+        this.failures = Counter.builder("wallet.intake.failures")
+                .description("Failed attempts to apply an asynchronously accepted operation")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        long interval = properties.pollInterval().toMillis();
+        for (int i = 0; i < properties.workers(); i++) {
+            executor.scheduleWithFixedDelay(this::drain, 0, interval, TimeUnit.MILLISECONDS);
+        }
+        executor.scheduleWithFixedDelay(this::purge, PURGE_INTERVAL_MILLIS, PURGE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("Processing accepted operations with {} workers, up to {} per transaction",
+                properties.workers(), properties.claimSize());
+    }
+
+    @PreDestroy
+    void stop() {
+        // Прерванная транзакция откатывается, и забранные операции вернутся в очередь
+        executor.shutdownNow();
+    }
+
+    /**
+     * Сохраняет операцию в очередь, не блокируя кошелёк
+     *
+     * @param request запрос
+     * @return принятая операция в состоянии {@code PENDING}
+     */
+    public WalletIntakeOperation submit(WalletOperationRequest request) {
+        UUID operationId = UUID.randomUUID();
+        jdbcTemplate.update(INSERT_SQL, operationId, request.getWalletId(),
+                request.getOperationType().name(), request.getAmount());
+        submitted.increment();
+        return new WalletIntakeOperation(operationId, request.getWalletId(), request.getOperationType(),
+                request.getAmount(), WalletIntakeOperation.Status.PENDING, null, null);
+    }
+
+    public Optional<WalletIntakeOperation> find(UUID operationId) {
+        return jdbcTemplate.query(FIND_SQL, ROW_MAPPER, operationId).stream().findFirst();
+    }
+
+    /**
+     * Забирает и применяет одну пачку принятых операций. Если пачка не применяется целиком, её операции
+     * применяются по одной, и ошибка одной операции не задерживает остальные
+     *
+     * @return количество забранных операций; 0, если очередь пуста
+     */
+    public int processNext() {
+        List<WalletIntakeOperation> claimed = new ArrayList<>();
+        WalletBatchResult result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                claimed.addAll(jdbcTemplate.query(CLAIM_SQL, ROW_MAPPER, properties.claimSize()));
+                return claimed.isEmpty() ? null : apply(claimed);
+            });
+        } catch (RuntimeException ex) {
+            if (claimed.isEmpty()) {
+                throw ex;
+            }
+            log.debug("Batch of {} accepted operations failed, applying them one by one", claimed.size(), ex);
+            claimed.forEach(this::processOne);
+            return claimed.size();
+        }
+        if (result == null) {
+            return 0;
+        }
+        applied.increment(claimed.size());
+        publishChanges(result);
+        return claimed.size();
+    }
+
+    /**
+     * Применяет одну операцию в своей транзакции; неудачная попытка записывается в строку операции,
+     * и после {@code max-attempts} попыток операция получает состояние {@code FAILED}
+     */
+    private void processOne(WalletIntakeOperation operation) {
+        try {
+            WalletBatchResult result = transactionTemplate.execute(status -> {
+                // Строка могла быть уже забрана другим обработчиком после отката пачки
+                List<WalletIntakeOperation> claimed = jdbcTemplate.query(CLAIM_ONE_SQL, ROW_MAPPER, operation.operationId());
+                return claimed.isEmpty() ? null : apply(claimed);
+            });
+            if (result != null) {
+                applied.increment();
+                publishChanges(result);
+            }
+        } catch (RuntimeException ex) {
+            String error = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+            int failed = jdbcTemplate.update(FAIL_SQL, error, properties.maxAttempts(), properties.maxAttempts(),
+                    operation.operationId());
+            log.warn("Failed to apply accepted operation {}: {}", operation.operationId(), error);
+            if (failed > 0) {
+                failures.increment();
+            }
+        }
+    }
+
+    /**
+     * Применяет забранные операции и записывает их результаты; вызывается в транзакции, в которой они забраны
+     */
+    private WalletBatchResult apply(List<WalletIntakeOperation> claimed) {
+        WalletBatchRequest request = new WalletBatchRequest();
+        request.setMode(WalletBatchRequest.Mode.PER_ITEM);
+        request.setOperations(claimed.stream().map(WalletIntake::toRequest).toList());
+        // Транзакция процессора присоединяется к текущей, так что балансы и результаты фиксируются вместе
+        WalletBatchResult processed = batchProcessor.process(request);
+        List<Object[]> completions = new ArrayList<>(claimed.size());
+        for (WalletBatchResult.Item item : processed.items()) {
+            completions.add(new Object[]{item.status().name(), item.balance(), claimed.get(item.index()).operationId()});
+        }
+        jdbcTemplate.batchUpdate(COMPLETE_SQL, completions);
+        return processed;
+    }
+
+    private void publishChanges(WalletBatchResult result) {
+        result.items().stream()
+                .filter(item -> item.status() == WalletBatchResult.Status.SUCCESS)
+                .map(WalletBatchResult.Item::walletId)
+                .distinct()
+                .forEach(walletId -> eventPublisher.publishEvent(new WalletBalanceChangedEvent(walletId)));
+    }
+
+    private void drain() {
+        try {
+            // Полная пачка — в очереди, вероятно, есть ещё операции, и пауза не нужна
+            int processed;
+            do {
+                processed = processNext();
+            } while (processed == properties.claimSize() && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException ex) {
+            log.warn("Failed to process accepted operations, they stay queued", ex);
+        }
+    }
+
+    private void purge() {
+        try {
+            Instant threshold = Instant.now().minus(properties.retention());
+            int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.from(threshold));
+            if (purged > 0) {
+                log.debug("Purged {} processed operations", purged);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to purge processed operations", ex);
+        }
+    }
+
+    private static WalletOperationRequest toRequest(WalletIntakeOperation operation) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(operation.walletId());
+        request.setOperationType(operation.operationType());
+        request.setAmount(operation.amount());
+        return request;
+    }
+}
@@ -0,0 +1,224 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Журнал операций {@code wallet_operations} для режима {@code wallet.storage.mode=ledger}.
+ * <p>
+ * Операция не изменяет строку кошелька, а добавляет запись в журнал, поэтому пополнения одного кошелька
+ * не ждут друг друга. Баланс — снимок в {@code wallets.balance} (вместе со слотами) плюс сумма записей,
+ * ещё не свёрнутых {@link WalletLedgerCompactor}: записей транзакций с номером не меньше горизонта
+ * {@code wallet_ledger_horizon}. Списания одного кошелька сериализуются транзакционной advisory-блокировкой,
+ * и баланс для проверки читается отдельным запросом уже после её получения.
+ * Методы должны вызываться внутри транзакции.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class WalletLedger {
+
+    private static final String BALANCE_SQL = """
+            w.balance
+                + CASE WHEN w.stripe_count = 0 THEN 0 ELSE (
+                      SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s WHERE s.wallet_id = w.id
+                  ) END
+                + (SELECT COALESCE(SUM(o.amount), 0) FROM wallet_operations o
+                   WHERE o.wallet_id = w.id AND o.tx_id >= h.horizon)
+            """;
+
+    private static final String FIND_BALANCE_SQL =
+            "SELECT " + BALANCE_SQL + " AS balance FROM wallets w, wallet_ledger_horizon h WHERE w.id = ?";
+
+    private static final String FIND_BALANCES_SQL =
+            "SELECT w.id, " + BALANCE_SQL + " AS balance FROM wallets w, wallet_ledger_horizon h WHERE w.id = ANY(?)";
+
+    private static final String DEPOSIT_SQL = """
+            WITH wallet AS (
+                SELECT w.id, %s AS balance FROM wallets w, wallet_ledger_horizon h WHERE w.id = ?
+            ), appended AS (
+                INSERT INTO wallet_operations (wallet_id, operation_type, amount)
+                SELECT id, 'DEPOSIT', ? FROM wallet
+                RETURNING amount
+            )
+            SELECT wallet.balance + appended.amount AS balance FROM wallet, appended
+            """.formatted(BALANCE_SQL);
+
+    private static final String WITHDRAW_SQL = """
+            WITH wallet AS (
+                SELECT w.id, %s AS balance FROM wallets w, wallet_ledger_horizon h WHERE w.id = ?
+            ), appended AS (
+                INSERT INTO wallet_operations (wallet_id, operation_type, amount)
+                SELECT id, 'WITHDRAW', -? FROM wallet WHERE balance >= ?
+                RETURNING amount
+            )
+            SELECT wallet.balance AS available, wallet.balance + appended.amount AS balance
+            FROM wallet LEFT JOIN appended ON true
+            """.formatted(BALANCE_SQL);
+
+    private static final String APPEND_SQL =
+            "INSERT INTO wallet_operations (wallet_id, operation_type, amount) VALUES (?, ?, ?)";
+
+    // Подзапрос с ORDER BY не разворачивается планировщиком, поэтому блокировки берутся в порядке
+    // идентификаторов — том же, в котором пакеты обходят кошельки
+    private static final String LOCK_SQL = """
+            SELECT pg_advisory_xact_lock(hashtextextended(id::text, 0))
+            FROM (SELECT id FROM unnest(?::uuid[]) AS id ORDER BY id) AS ids
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StorageProperties properties;
+    private final WalletMetrics metrics;
+
+    public boolean isEnabled() {
+        return properties.mode() == StorageProperties.Mode.LEDGER;
+    }
+
+    /**
+     * Добавляет операцию в журнал
+     *
+     * @param request запрос
+     * @return баланс кошелька сразу после операции
+     */
+    public BigDecimal append(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        BigDecimal amount = request.getAmount();
+        if (request.getOperationType() == WalletOperationRequest.OperationType.DEPOSIT) {
+            List<BigDecimal> balance = jdbcTemplate.queryForList(DEPOSIT_SQL, BigDecimal.class, walletId, amount);
+            if (balance.isEmpty()) {
+                throw new WalletNotFoundException(walletId);
+            }
+            return balance.get(0);
+        }
+
+        lock(List.of(walletId));
+        List<BigDecimal[]> outcome = jdbcTemplate.query(WITHDRAW_SQL,
+                (resultSet, row) -> new BigDecimal[]{
+                        resultSet.getBigDecimal("available"), resultSet.getBigDecimal("balance")},
+                walletId, amount, amount);
+        if (outcome.isEmpty()) {
+            throw new WalletNotFoundException(walletId);
+        }
+        BigDecimal available = outcome.get(0)[0];
+        BigDecimal balance = outcome.get(0)[1];
+        if (balance == null) {
+            throw new InsufficientFundsException(walletId, amount, available);
+        }
+        return balance;
+    }
+
+    /**
+     * Переводит сумму между кошельками двумя записями журнала. Списания с обоих кошельков блокируются
+     * в порядке идентификаторов, поэтому встречные переводы не взаимоблокируются
+     *
+     * @param request запрос перевода
+     * @return балансы обоих кошельков сразу после перевода
+     */
+    public WalletTransferResult transfer(WalletTransferRequest request) {
+        UUID fromWalletId = request.getFromWalletId();
+        UUID toWalletId = request.getToWalletId();
+        BigDecimal amount = request.getAmount();
+        Map<UUID, BigDecimal> balances = lockBalances(List.of(fromWalletId, toWalletId));
+        BigDecimal available = balances.get(fromWalletId);
+        if (available == null) {
+            throw new WalletNotFoundException(fromWalletId);
+        }
+        if (!balances.containsKey(toWalletId)) {
+            throw new WalletNotFoundException(toWalletId);
+        }
+        if (available.compareTo(amount) < 0) {
+            throw new InsufficientFundsException(fromWalletId, amount, available);
+        }
+
+        appendAll(List.of(
+                entry(fromWalletId, WalletOperationRequest.OperationType.WITHDRAW, amount),
+                entry(toWalletId, WalletOperationRequest.OperationType.DEPOSIT, amount)));
+        return new WalletTransferResult(fromWalletId, available.subtract(amount),
+                toWalletId, balances.get(toWalletId).add(amount));
+    }
+
+    /**
+     * Добавляет в журнал уже проверенные записи одним JDBC-батчем
+     *
+     * @param operations операции над кошельками, заблокированными через {@link #lockBalances}
+     */
+    public void appendAll(List<WalletOperationRequest> operations) {
+        jdbcTemplate.batchUpdate(APPEND_SQL, operations, operations.size(), (statement, operation) -> {
+            statement.setObject(1, operation.getWalletId());
+            statement.setString(2, operation.getOperationType().name());
+            statement.setBigDecimal(3, operation.getOperationType() == WalletOperationRequest.OperationType.DEPOSIT
+                    ? operation.getAmount()
+                    : operation.getAmount().negate());
+        });
+    }
+
+    /**
+     * Блокирует списания с кошельков и читает их балансы
+     *
+     * @param walletIds идентификаторы кошельков
+     * @return балансы найденных кошельков
+     */
+    public Map<UUID, BigDecimal> lockBalances(Collection<UUID> walletIds) {
+        lock(walletIds);
+        return findBalances(walletIds);
+    }
+
+    /**
+     * Текущие балансы нескольких кошельков одним запросом
+     *
+     * @param walletIds идентификаторы кошельков
+     * @return балансы найденных кошельков
+     */
+    public Map<UUID, BigDecimal> findBalances(Collection<UUID> walletIds) {
+        Map<UUID, BigDecimal> balances = new HashMap<>(walletIds.size() * 2);
+        jdbcTemplate.query(FIND_BALANCES_SQL,
+                statement -> statement.setArray(1,
+                        statement.getConnection().createArrayOf("uuid", walletIds.toArray())),
+                resultSet -> {
+                    balances.put(resultSet.getObject("id", UUID.class), resultSet.getBigDecimal("balance"));
+                });
+        return balances;
+    }
+
+    /**
+     * Текущий баланс кошелька: снимок плюс несвёрнутые записи журнала
+     */
+    public Optional<BigDecimal> findBalance(UUID walletId) {
+        return jdbcTemplate.queryForList(FIND_BALANCE_SQL, BigDecimal.class, walletId).stream().findFirst();
+    }
+
+    private static WalletOperationRequest entry(UUID walletId,
+                                                WalletOperationRequest.OperationType type,
+                                                BigDecimal amount) {
+        WalletOperationRequest entry = new WalletOperationRequest();
+        entry.setWalletId(walletId);
+        entry.setOperationType(type);
+        entry.setAmount(amount);
+        return entry;
+    }
+
+    private void lock(Collection<UUID> walletIds) {
+        metrics.timeLockWait(WalletMetrics.Lock.ADVISORY, () -> jdbcTemplate.query(LOCK_SQL,
+                statement -> statement.setArray(1,
+                        statement.getConnection().createArrayOf("uuid", walletIds.toArray())),
+                resultSet -> {
+                }));
+    }
+}
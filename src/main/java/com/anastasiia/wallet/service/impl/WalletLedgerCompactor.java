@@ -0,0 +1,145 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.config.StorageProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Фоновая свёртка журнала {@code wallet_operations} в снимки балансов и поддержание его партиций.
+ * <p>
+ * Горизонт свёртки — {@code pg_snapshot_xmin} снимка самого запроса свёртки: все транзакции с меньшим номером
+ * уже завершены, поэтому запись с номером ниже горизонта больше не появится. Записи между старым и новым
+ * горизонтом прибавляются к {@code wallets.balance}, и горизонт сдвигается тем же запросом, так что читатели
+ * видят либо старый снимок со старым горизонтом, либо новый с новым. Записи журнала не удаляются.
+ * Одновременно работает только один экземпляр свёртки на базу — его выбирает advisory-блокировка.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.storage", name = "mode", havingValue = "ledger")
+public class WalletLedgerCompactor {
+
+    private static final long COMPACTOR_LOCK_KEY = 0x77616c6c65746c67L;
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final String COMPACT_SQL = """
+            WITH horizon AS (
+                SELECT horizon AS from_tx, pg_snapshot_xmin(pg_current_snapshot()) AS to_tx FROM wallet_ledger_horizon
+            ), deltas AS (
+                SELECT o.wallet_id, SUM(o.amount) AS delta
+                FROM wallet_operations o, horizon h
+                WHERE o.tx_id >= h.from_tx AND o.tx_id < h.to_tx
+                GROUP BY o.wallet_id
+            ), folded AS (
+                UPDATE wallets w SET balance = w.balance + d.delta
+                FROM deltas d
+                WHERE w.id = d.wallet_id
+                RETURNING w.id
+            ), moved AS (
+                UPDATE wallet_ledger_horizon SET horizon = (SELECT to_tx FROM horizon)
+                RETURNING horizon
+            )
+            SELECT (SELECT COUNT(*) FROM folded) FROM moved
+            """;
+
+    private static final String PARTITION_EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+
+    private static final String CREATE_PARTITION_SQL = """
+            CREATE TABLE IF NOT EXISTS %s PARTITION OF wallet_operations
+            FOR VALUES FROM ('%s 00:00:00+00') TO ('%s 00:00:00+00')
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageProperties.Ledger properties;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "wallet-ledger-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WalletLedgerCompactor(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 StorageProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties.ledger();
+    }
+
+    @PostConstruct
+    void start() {
+        // Партиции текущего месяца создаются до приёма операций, чтобы записи не попадали в партицию по умолчанию
+        createPartitions();
+        long maintenance = properties.partitionMaintenance().toMillis();
+        executor.scheduleWithFixedDelay(this::createPartitions, maintenance, maintenance, TimeUnit.MILLISECONDS);
+        long interval = properties.compactionInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Сворачивает завершённые записи журнала в снимки балансов
+     *
+     * @return количество кошельков, снимки которых изменились; 0, если свёртку выполняет другой экземпляр
+     */
+    public long compact() {
+        try {
+            Long folded = transactionTemplate.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, COMPACTOR_LOCK_KEY))) {
+                    return 0L;
+                }
+                return jdbcTemplate.queryForObject(COMPACT_SQL, Long.class);
+            });
+            if (folded != null && folded > 0) {
+                log.debug("Folded ledger entries of {} wallets into balance snapshots", folded);
+            }
+            return folded == null ? 0 : folded;
+        } catch (RuntimeException ex) {
+            log.warn("Ledger compaction failed", ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Создаёт месячные партиции журнала от текущего месяца на {@code partitions-ahead} месяцев вперёд
+     */
+    public void createPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= properties.partitionsAhead(); i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = "wallet_operations_p%d%02d".formatted(month.getYear(), month.getMonthValue());
+            try {
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITION_EXISTS_SQL, Boolean.class, name))) {
+                    continue;
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, COMPACTOR_LOCK_KEY))) {
+                        LocalDate from = month.atDay(1);
+                        jdbcTemplate.execute(CREATE_PARTITION_SQL.formatted(name, from, from.plusMonths(1)));
+                        log.info("Created ledger partition {}", name);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                log.warn("Failed to create ledger partition {}", name, ex);
+            }
+        }
+    }
+}
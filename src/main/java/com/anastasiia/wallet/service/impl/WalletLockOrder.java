@@ -0,0 +1,18 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Порядок захвата блокировок кошельков. Совпадает с сортировкой {@code uuid} в Postgres (побайтовое сравнение без знака),
+ * поэтому блокировки, взятые через {@code ORDER BY id ... FOR UPDATE}, и порядок обхода в Java не расходятся.
+ */
+final class WalletLockOrder {
+
+    static final Comparator<UUID> COMPARATOR = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private WalletLockOrder() {
+    }
+}
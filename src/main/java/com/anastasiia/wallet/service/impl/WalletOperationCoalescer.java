@@ -0,0 +1,271 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anastasiia.wallet.config.CoalescingProperties;
+import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.exception.WalletOverloadedException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Групповое применение операций над одним кошельком.
+ * <p>
+ * Операции складываются в очередь кошелька, а один поток-применитель забирает накопленную пачку
+ * и применяет её в одной транзакции: одна блокировка строки и один UPDATE на всю пачку.
+ * Списания проверяются по порядку относительно текущего баланса, поэтому каждый вызывающий
+ * получает свой результат — успех или {@link InsufficientFundsException}.
+ * Ожидающие вызовы не держат соединение с базой и ждут не дольше {@code max-wait}: операция, которую за это время
+ * не забрали из очереди, снимается с неё и отклоняется как перегрузка кошелька, а транзакция пачки ограничена тем же
+ * временем, так что вызов, чью операцию уже применяют, тоже не ждёт бесконечно. Токен чтения своих записей пачки вызывающие получают
+ * от потока-применителя вместе с результатом.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class WalletOperationCoalescer {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final WalletRepository walletRepository;
+    private final WalletStripeManager stripeManager;
+    private final WalletHistory history;
+    private final TransactionTemplate transactionTemplate;
+    private final CoalescingProperties properties;
+    private final WalletMetrics metrics;
+    private final ReplicaReadRouter replicaRouter;
+    private final ExecutorService drainExecutor;
+    private final ConcurrentMap<UUID, WalletQueue> queues = new ConcurrentHashMap<>();
+
+    public WalletOperationCoalescer(WalletRepository walletRepository,
+                                    WalletStripeManager stripeManager,
+                                    WalletHistory history,
+                                    TransactionTemplate transactionTemplate,
+                                    CoalescingProperties properties,
+                                    WalletMetrics metrics,
+                                    ReplicaReadRouter replicaRouter) {
+        this.walletRepository = walletRepository;
+        this.stripeManager = stripeManager;
+        this.history = history;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                transactionTemplate);
+        this.transactionTemplate.setTimeout((int) Math.max(1, properties.maxWait().toSeconds()));
+        this.properties = properties;
+        this.metrics = metrics;
+        this.replicaRouter = replicaRouter;
+        // Без коалесцирования submit не вызывается, и потоки-применители не нужны
+        this.drainExecutor = properties.enabled()
+                ? Executors.newFixedThreadPool(properties.drainThreads(), new DrainThreadFactory())
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Ставит операцию в очередь кошелька и ждёт её применения
+     *
+     * @param request запрос
+     * @return баланс кошелька сразу после применения операции
+     * @throws WalletOverloadedException операцию не начали применять за {@code max-wait}, она не выполнена
+     */
+    public BigDecimal submit(WalletOperationRequest request) {
+        if (drainExecutor == null) {
+            throw new IllegalStateException("wallet.coalescing is disabled");
+        }
+        PendingOperation operation = new PendingOperation(request, new CompletableFuture<>());
+        UUID walletId = request.getWalletId();
+
+        WalletQueue queue = queues.compute(walletId, (id, existing) -> {
+            WalletQueue target = existing != null ? existing : new WalletQueue();
+            target.pending.add(operation);
+            return target;
+        });
+        schedule(walletId, queue);
+
+        Applied applied = await(walletId, queue, operation);
+        applied.writeToken().ifPresent(replicaRouter::recordWrite);
+        return applied.balance();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (drainExecutor != null) {
+            drainExecutor.shutdown();
+        }
+    }
+
+    private Applied await(UUID walletId, WalletQueue queue, PendingOperation operation) {
+        try {
+            try {
+                return operation.result().get(properties.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (queue.pending.remove(operation)) {
+                    // Операция не попала в пачку, повтор её не задвоит
+                    throw new WalletOverloadedException(walletId, RETRY_AFTER);
+                }
+                // Операция в пачке, транзакция которой откатится по таймауту не позже чем через max-wait
+                return operation.result().join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for coalesced operation", ex);
+        } catch (ExecutionException | CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Coalesced operation failed", ex.getCause());
+        }
+    }
+
+    private void schedule(UUID walletId, WalletQueue queue) {
+        if (queue.scheduled.compareAndSet(false, true)) {
+            drainExecutor.execute(() -> drain(walletId, queue));
+        }
+    }
+
+    private void drain(UUID walletId, WalletQueue queue) {
+        try {
+            List<PendingOperation> batch = poll(queue);
+            while (!batch.isEmpty()) {
+                apply(walletId, batch);
+                batch = poll(queue);
+            }
+        } finally {
+            queue.scheduled.set(false);
+            // Пустая очередь удаляется под той же блокировкой ключа, под которой в неё добавляют операции
+            queues.computeIfPresent(walletId, (id, current) ->
+                    current == queue && queue.pending.isEmpty() ? null : current);
+            if (!queue.pending.isEmpty()) {
+                schedule(walletId, queue);
+            }
+        }
+    }
+
+    private List<PendingOperation> poll(WalletQueue queue) {
+        List<PendingOperation> batch = new ArrayList<>();
+        PendingOperation operation;
+        while (batch.size() < properties.maxBatchSize() && (operation = queue.pending.poll()) != null) {
+            batch.add(operation);
+        }
+        return batch;
+    }
+
+    private void apply(UUID walletId, List<PendingOperation> batch) {
+        ReplicaReadRouter.Tracked<Object[]> outcomes;
+        try {
+            outcomes = replicaRouter.trackWrites(() -> transactionTemplate.execute(status -> fold(walletId, batch)));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to apply {} coalesced operations for wallet {}", batch.size(), walletId, ex);
+            batch.forEach(operation -> operation.result().completeExceptionally(ex));
+            return;
+        }
+
+        // Результаты отдаются только после коммита
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Applied> result = batch.get(i).result();
+            if (outcomes.result()[i] instanceof RuntimeException failure) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(new Applied((BigDecimal) outcomes.result()[i], outcomes.token()));
+            }
+        }
+    }
+
+    private Object[] fold(UUID walletId, List<PendingOperation> batch) {
+        Object[] outcomes = new Object[batch.size()];
+        Wallet wallet = metrics.timeLockWait(WalletMetrics.Lock.ROW,
+                () -> walletRepository.findByIdForUpdate(walletId)).orElse(null);
+        if (wallet == null) {
+            Arrays.setAll(outcomes, i -> new WalletNotFoundException(walletId));
+            return outcomes;
+        }
+
+        BigDecimal balance = stripeManager.lockedBalance(wallet);
+        List<WalletOperationRequest> applied = new ArrayList<>(batch.size());
+        List<BigDecimal> balancesAfter = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            WalletOperationRequest request = batch.get(i).request();
+            BigDecimal amount = request.getAmount();
+            switch (request.getOperationType()) {
+                case DEPOSIT -> {
+                    balance = balance.add(amount);
+                    outcomes[i] = balance;
+                    applied.add(request);
+                    balancesAfter.add(balance);
+                }
+                case WITHDRAW -> {
+                    if (balance.compareTo(amount) >= 0) {
+                        balance = balance.subtract(amount);
+                        outcomes[i] = balance;
+                        applied.add(request);
+                        balancesAfter.add(balance);
+                    } else {
+                        outcomes[i] = new InsufficientFundsException(walletId, amount, balance);
+                    }
+                }
+                default -> outcomes[i] = new IllegalArgumentException(
+                        "Unknown operation type: " + request.getOperationType());
+            }
+        }
+
+        // Для обычного кошелька единственный UPDATE на всю пачку выполняется при flush управляемой сущности
+        stripeManager.updateLockedBalance(wallet, balance);
+        history.recordAll(walletId, applied, balancesAfter);
+        return outcomes;
+    }
+
+    private record PendingOperation(WalletOperationRequest request, CompletableFuture<Applied> result) {
+    }
+
+    private record Applied(BigDecimal balance, OptionalLong writeToken) {
+    }
+
+    private static final class WalletQueue {
+
+        private final Queue<PendingOperation> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private static final class DrainThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "wallet-coalescer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
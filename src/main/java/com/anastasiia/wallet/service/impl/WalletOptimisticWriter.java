@@ -0,0 +1,204 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.config.CoalescingProperties;
+import com.anastasiia.wallet.config.ConcurrencyProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Оптимистичная запись баланса для {@code wallet.concurrency.strategy=optimistic}.
+ * <p>
+ * Строка кошелька читается без блокировки, новый баланс записывается с проверкой {@code version}
+ * при коммите. Конфликт версий повторяется не больше {@code max-retries} раз с паузой со случайным
+ * разбросом (full jitter) от нуля до {@code backoff-base * 2^n}, но не дольше {@code backoff-max}.
+ * Кошелёк, на котором повторы исчерпаны, считается горячим и {@code contended-for} обрабатывается
+ * с блокировкой строки; туда же уходят сама операция и кошельки, разнесённые по слотам.
+ * <p>
+ * Метрики: {@code wallet.concurrency.operations} с тегом {@code strategy} — сколько операций выполнено
+ * каждым способом, {@code wallet.concurrency.conflicts} и {@code wallet.concurrency.retries} — конфликты
+ * версий и повторы, {@code wallet.concurrency.fallbacks} с тегом {@code reason} — переходы на блокировку.
+ * Конкуренция операций с блокировкой строки видна по времени её ожидания в метриках репозитория.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class WalletOptimisticWriter {
+
+    /**
+     * Причина выполнения операции с блокировкой строки
+     */
+    public enum Fallback {
+        /** кошелёк недавно исчерпал повторы */
+        CONTENDED,
+        /** повторы исчерпаны этой операцией */
+        EXHAUSTED,
+        /** баланс кошелька разнесён по слотам */
+        STRIPED
+    }
+
+    private final WalletRepository walletRepository;
+    private final WalletHistory history;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrencyProperties properties;
+    private final Cache<UUID, Boolean> contended;
+    private final Map<ConcurrencyProperties.Strategy, Counter> operations =
+            new EnumMap<>(ConcurrencyProperties.Strategy.class);
+    private final Map<Fallback, Counter> fallbacks = new EnumMap<>(Fallback.class);
+    private final Counter conflicts;
+    private final Counter retries;
+
+    public WalletOptimisticWriter(WalletRepository walletRepository,
+                                  WalletHistory history,
+                                  TransactionTemplate transactionTemplate,
+                                  ConcurrencyProperties properties,
+                                  StorageProperties storageProperties,
+                                  CoalescingProperties coalescingProperties,
+                                  MeterRegistry meterRegistry) {
+        if (properties.strategy() == ConcurrencyProperties.Strategy.OPTIMISTIC
+                && (storageProperties.mode() != StorageProperties.Mode.BALANCE || coalescingProperties.enabled())) {
+            throw new IllegalStateException(
+                    "wallet.concurrency.strategy=optimistic requires wallet.storage.mode=balance and no wallet.coalescing");
+        }
+        this.walletRepository = walletRepository;
+        this.history = history;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.contended = Caffeine.newBuilder()
+                .maximumSize(properties.maxContendedWallets())
+                .expireAfterWrite(properties.contendedFor())
+                .build();
+        for (ConcurrencyProperties.Strategy strategy : ConcurrencyProperties.Strategy.values()) {
+            operations.put(strategy, Counter.builder("wallet.concurrency.operations")
+                    .description("Wallet operations applied by each concurrency strategy")
+                    .tag("strategy", strategy.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        for (Fallback fallback : Fallback.values()) {
+            fallbacks.put(fallback, Counter.builder("wallet.concurrency.fallbacks")
+                    .description("Optimistic operations handed over to row locking")
+                    .tag("reason", fallback.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.conflicts = Counter.builder("wallet.concurrency.conflicts")
+                .description("Version conflicts of optimistic balance writes")
+                .tag("strategy", "optimistic")
+                .register(meterRegistry);
+        this.retries = Counter.builder("wallet.concurrency.retries")
+                .description("Retries of optimistic balance writes after a version conflict")
+                .tag("strategy", "optimistic")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.strategy() == ConcurrencyProperties.Strategy.OPTIMISTIC;
+    }
+
+    /**
+     * Применяет операцию с проверкой версии строки кошелька
+     *
+     * @param request запрос
+     * @return баланс сразу после операции или пустой результат, если операцию нужно выполнить с блокировкой строки
+     */
+    public Optional<BigDecimal> apply(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        if (contended.getIfPresent(walletId) != null) {
+            return fallBack(Fallback.CONTENDED);
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                BigDecimal balance = transactionTemplate.execute(status -> {
+                    BigDecimal updated = compareAndSet(request);
+                    return updated == null ? null : history.record(request, updated);
+                });
+                if (balance == null) {
+                    return fallBack(Fallback.STRIPED);
+                }
+                operations.get(ConcurrencyProperties.Strategy.OPTIMISTIC).increment();
+                return Optional.of(balance);
+            } catch (OptimisticLockingFailureException ex) {
+                conflicts.increment();
+                if (attempt >= properties.maxRetries()) {
+                    log.debug("Wallet {} is contended, switching it to row locking", walletId);
+                    contended.put(walletId, Boolean.TRUE);
+                    return fallBack(Fallback.EXHAUSTED);
+                }
+                retries.increment();
+                if (!backOff(attempt)) {
+                    return fallBack(Fallback.EXHAUSTED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Учитывает операцию, выполненную с блокировкой строки
+     */
+    public void recordLocking() {
+        operations.get(ConcurrencyProperties.Strategy.LOCKING).increment();
+    }
+
+    /**
+     * @return новый баланс или {@code null}, если баланс разнесён по слотам
+     */
+    private BigDecimal compareAndSet(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        Wallet wallet = walletRepository.findById(walletId).orElseThrow(() -> new WalletNotFoundException(walletId));
+        if (wallet.getStripeCount() > 0) {
+            return null;
+        }
+        BigDecimal balance = wallet.getBalance();
+        BigDecimal amount = request.getAmount();
+        BigDecimal updated = switch (request.getOperationType()) {
+            case DEPOSIT -> balance.add(amount);
+            case WITHDRAW -> {
+                if (balance.compareTo(amount) < 0) {
+                    throw new InsufficientFundsException(walletId, amount, balance);
+                }
+                yield balance.subtract(amount);
+            }
+        };
+        // UPDATE ... WHERE version = ? выполняется при коммите; ноль изменённых строк — конфликт
+        wallet.setBalance(updated);
+        return updated;
+    }
+
+    private Optional<BigDecimal> fallBack(Fallback reason) {
+        fallbacks.get(reason).increment();
+        return Optional.empty();
+    }
+
+    /**
+     * @return {@code false}, если ожидание прервано
+     */
+    private boolean backOff(int attempt) {
+        long ceiling = Math.min(properties.backoffMax().toNanos(), properties.backoffBase().toNanos() << Math.min(attempt, 20));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
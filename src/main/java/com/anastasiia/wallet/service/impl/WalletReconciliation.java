@@ -0,0 +1,452 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.anastasiia.wallet.config.HistoryProperties;
+import com.anastasiia.wallet.config.ReconciliationProperties;
+import com.anastasiia.wallet.config.ShardingProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.service.WalletReconciliationReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Сверка балансов кошельков с историей операций {@link WalletHistory}.
+ * <p>
+ * Баланс кошелька вместе со слотами сравнивается с начальным балансом плюс сумма пополнений минус сумма списаний
+ * из {@code wallet_history}. Начальный баланс — баланс до первой записи истории кошелька, он восстанавливается
+ * из её баланса после операции, так что операции до включения истории не дают расхождений; кошелёк без истории
+ * сверять не с чем. Баланс и история одного кошелька читаются одним запросом, то есть из одного снимка: история
+ * пишется в транзакции операции, поэтому одновременные операции не дают ложных расхождений. История кошелька
+ * читается только из индекса первичного ключа {@code wallet_history}.
+ * <p>
+ * Пространство UUID делится на {@code ranges} диапазонов, которые сверяются в отдельном {@link ForkJoinPool}
+ * из {@code parallelism} потоков: диапазонов больше, чем потоков, и освободившийся поток берёт следующий,
+ * так что неравномерные диапазоны не оставляют потоки без дела. Диапазон читается курсором на своём соединении
+ * порциями по {@code checkpoint-size} кошельков; позиция диапазона и найденные в порции расхождения фиксируются
+ * одной транзакцией, поэтому прерванная сверка продолжается с последней позиции без пропусков и повторов.
+ * Скорость всех потоков вместе ограничена {@code max-rate} кошельков в секунду.
+ * <p>
+ * Метрики: {@code wallet.reconciliation.wallets} — сверенные кошельки, {@code wallet.reconciliation.mismatches} —
+ * расхождения, {@code wallet.reconciliation.rate} — кошельков в секунду с запуска текущей сверки.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.reconciliation", name = "enabled", havingValue = "true")
+public class WalletReconciliation {
+
+    private static final int REPORTED_MISMATCHES = 100;
+
+    private static final String SCAN_SQL = """
+            SELECT w.id,
+                   w.balance + coalesce(s.balance, 0) AS stored_balance,
+                   coalesce(o.balance + h.balance, w.balance + coalesce(s.balance, 0)) AS recomputed_balance
+            FROM wallets w
+            LEFT JOIN LATERAL (
+                SELECT sum(balance) AS balance FROM wallet_balance_slots WHERE wallet_id = w.id
+            ) s ON true
+            LEFT JOIN LATERAL (
+                SELECT balance_after - CASE operation_type WHEN 'DEPOSIT' THEN amount ELSE -amount END AS balance
+                FROM wallet_history WHERE wallet_id = w.id
+                ORDER BY id
+                LIMIT 1
+            ) o ON true
+            LEFT JOIN LATERAL (
+                SELECT sum(CASE operation_type WHEN 'DEPOSIT' THEN amount ELSE -amount END) AS balance
+                FROM wallet_history WHERE wallet_id = w.id
+            ) h ON true
+            WHERE w.id %s ? %s
+            ORDER BY w.id
+            LIMIT ?
+            """;
+
+    private static final String CREATE_RUN_SQL = "INSERT INTO wallet_reconciliation_runs DEFAULT VALUES RETURNING id";
+
+    private static final String CREATE_RANGE_SQL =
+            "INSERT INTO wallet_reconciliation_ranges (run_id, range_no, range_from, range_to) VALUES (?, ?, ?, ?)";
+
+    private static final String UNFINISHED_RUN_SQL =
+            "SELECT max(id) FROM wallet_reconciliation_runs WHERE finished_at IS NULL";
+
+    private static final String LATEST_RUN_SQL = "SELECT max(id) FROM wallet_reconciliation_runs";
+
+    private static final String PENDING_RANGES_SQL = """
+            SELECT range_no, range_from, range_to, position FROM wallet_reconciliation_ranges
+            WHERE run_id = ? AND NOT done
+            ORDER BY range_no
+            """;
+
+    private static final String INSERT_MISMATCH_SQL = """
+            INSERT INTO wallet_reconciliation_mismatches (run_id, wallet_id, stored_balance, recomputed_balance)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String CHECKPOINT_SQL = """
+            UPDATE wallet_reconciliation_ranges
+            SET position = coalesce(?, position), scanned = scanned + ?, mismatches = mismatches + ?, done = ?
+            WHERE run_id = ? AND range_no = ?
+            """;
+
+    private static final String FINISH_RUN_SQL = """
+            UPDATE wallet_reconciliation_runs SET finished_at = now()
+            WHERE id = ? AND NOT EXISTS (SELECT 1 FROM wallet_reconciliation_ranges WHERE run_id = ? AND NOT done)
+            """;
+
+    private static final String REPORT_SQL = """
+            SELECT r.started_at, r.finished_at, count(g.range_no) AS ranges,
+                   count(g.range_no) FILTER (WHERE g.done) AS ranges_done,
+                   coalesce(sum(g.scanned), 0) AS scanned, coalesce(sum(g.mismatches), 0) AS mismatches
+            FROM wallet_reconciliation_runs r
+            LEFT JOIN wallet_reconciliation_ranges g ON g.run_id = r.id
+            WHERE r.id = ?
+            GROUP BY r.id
+            """;
+
+    private static final String MISMATCHES_SQL = """
+            SELECT wallet_id, stored_balance, recomputed_balance FROM wallet_reconciliation_mismatches
+            WHERE run_id = ?
+            ORDER BY wallet_id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReconciliationProperties properties;
+    private final Throttle throttle;
+    private final Counter wallets;
+    private final Counter mismatches;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "wallet-reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Session session;
+
+    public WalletReconciliation(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ReconciliationProperties properties,
+                                HistoryProperties historyProperties,
+                                StorageProperties storageProperties,
+                                ShardingProperties shardingProperties,
+                                MeterRegistry meterRegistry) {
+        StorageProperties.Mode mode = storageProperties.mode();
+        if (!historyProperties.enabled()) {
+            throw new IllegalStateException("wallet.reconciliation requires wallet.history.enabled=true");
+        }
+        // В режиме ledger wallets.balance отстаёт от журнала до свёртки
+        if (shardingProperties.enabled() || mode != StorageProperties.Mode.BALANCE) {
+            throw new IllegalStateException("wallet.reconciliation cannot be combined with wallet.sharding or "
+                    + "wallet.storage.mode=" + mode.name().toLowerCase());
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.throttle = new Throttle(properties.maxRate());
+        this.wallets = Counter.builder("wallet.reconciliation.wallets")
+                .description("Wallets whose balance has been reconciled with their history")
+                .register(meterRegistry);
+        this.mismatches = Counter.builder("wallet.reconciliation.mismatches")
+                .description("Wallets whose balance differs from the sum of their history")
+                .register(meterRegistry);
+        Gauge.builder("wallet.reconciliation.rate", this, WalletReconciliation::walletsPerSecond)
+                .description("Wallets reconciled per second since the current run was started or resumed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        // Сверенные порции уже зафиксированы, следующий запуск продолжит с них
+        Session current = session;
+        if (current != null) {
+            current.pool.shutdownNow();
+        }
+        runner.shutdownNow();
+    }
+
+    /**
+     * Продолжает незавершённую сверку или начинает новую; сверка идёт в фоне
+     *
+     * @return состояние запущенной сверки
+     */
+    public synchronized WalletReconciliationReport start() {
+        Session current = session;
+        if (current != null && !current.finished) {
+            return report(current.runId);
+        }
+        long runId = Optional.ofNullable(jdbcTemplate.queryForObject(UNFINISHED_RUN_SQL, Long.class))
+                .orElseGet(this::createRun);
+        Session started = new Session(runId, newPool());
+        session = started;
+        runner.execute(() -> run(started));
+        return report(runId);
+    }
+
+    /**
+     * @return состояние последней сверки, если сверки уже запускались
+     */
+    public Optional<WalletReconciliationReport> latest() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(LATEST_RUN_SQL, Long.class)).map(this::report);
+    }
+
+    private long createRun() {
+        return transactionTemplate.execute(status -> {
+            long runId = jdbcTemplate.queryForObject(CREATE_RUN_SQL, Long.class);
+            int ranges = Math.max(1, properties.ranges());
+            long step = Long.divideUnsigned(-1L, ranges);
+            List<Object[]> rows = new ArrayList<>(ranges);
+            for (int i = 0; i < ranges; i++) {
+                rows.add(new Object[]{runId, i, new UUID(step * i, 0), i == ranges - 1 ? null : new UUID(step * (i + 1), 0)});
+            }
+            jdbcTemplate.batchUpdate(CREATE_RANGE_SQL, rows);
+            log.info("Started reconciliation run {} over {} ranges", runId, ranges);
+            return runId;
+        });
+    }
+
+    private void run(Session current) {
+        try {
+            List<Range> ranges = jdbcTemplate.query(PENDING_RANGES_SQL, (resultSet, row) -> new Range(
+                    resultSet.getInt("range_no"),
+                    resultSet.getObject("range_from", UUID.class),
+                    resultSet.getObject("range_to", UUID.class),
+                    resultSet.getObject("position", UUID.class)), current.runId);
+            List<Callable<Long>> scans = ranges.stream()
+                    .map(range -> (Callable<Long>) () -> scan(current, range))
+                    .toList();
+            for (Future<Long> scan : current.pool.invokeAll(scans)) {
+                scan.get();
+            }
+            jdbcTemplate.update(FINISH_RUN_SQL, current.runId, current.runId);
+            log.info("Reconciliation run {} finished: {} wallets at {} wallets/s",
+                    current.runId, current.scanned.get(), Math.round(current.walletsPerSecond()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.info("Reconciliation run {} interrupted, it resumes from its checkpoints", current.runId);
+        } catch (ExecutionException | RuntimeException ex) {
+            log.warn("Reconciliation run {} failed, it resumes from its checkpoints", current.runId,
+                    ex instanceof ExecutionException ? ex.getCause() : ex);
+        } finally {
+            current.pool.shutdownNow();
+            current.finished = true;
+        }
+    }
+
+    /**
+     * Сверяет диапазон {@code [from, to)} от сохранённой позиции; Postgres сравнивает uuid побайтно,
+     * как беззнаковые старшие, затем младшие 64 бита
+     *
+     * @return сколько кошельков сверено
+     */
+    private long scan(Session current, Range range) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            // Драйвер читает результат порциями только внутри транзакции
+            connection.setAutoCommit(false);
+            try {
+                UUID position = range.position();
+                long scanned = 0;
+                boolean done = false;
+                while (!done && !Thread.currentThread().isInterrupted()) {
+                    Chunk chunk = reconcileChunk(connection, current.runId, range, position);
+                    done = chunk.scanned() < properties.checkpointSize();
+                    checkpoint(connection, current.runId, range, chunk, done);
+                    connection.commit();
+
+                    wallets.increment(chunk.scanned());
+                    mismatches.increment(chunk.mismatches());
+                    current.scanned.addAndGet(chunk.scanned());
+                    scanned += chunk.scanned();
+                    position = chunk.last() == null ? position : chunk.last();
+                    throttle.acquire(chunk.scanned());
+                }
+                return scanned;
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } catch (InterruptedException ex) {
+                connection.rollback();
+                Thread.currentThread().interrupt();
+                return 0L;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private Chunk reconcileChunk(Connection connection, long runId, Range range, UUID position) throws SQLException {
+        // Первая порция диапазона включает его начало, следующие начинаются после последнего сверенного кошелька
+        String sql = SCAN_SQL.formatted(position == null ? ">=" : ">", range.to() == null ? "" : "AND w.id < ?");
+        List<Object[]> found = new ArrayList<>();
+        int scanned = 0;
+        UUID last = null;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(properties.fetchSize());
+            int index = 1;
+            statement.setObject(index++, position == null ? range.from() : position);
+            if (range.to() != null) {
+                statement.setObject(index++, range.to());
+            }
+            statement.setInt(index, properties.checkpointSize());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    last = resultSet.getObject("id", UUID.class);
+                    BigDecimal stored = resultSet.getBigDecimal("stored_balance");
+                    BigDecimal recomputed = resultSet.getBigDecimal("recomputed_balance");
+                    if (stored.compareTo(recomputed) != 0) {
+                        found.add(new Object[]{runId, last, stored, recomputed});
+                    }
+                    scanned++;
+                }
+            }
+        }
+        if (!found.isEmpty()) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_MISMATCH_SQL)) {
+                for (Object[] mismatch : found) {
+                    for (int i = 0; i < mismatch.length; i++) {
+                        statement.setObject(i + 1, mismatch[i]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            log.warn("Reconciliation run {} found {} mismatched wallets in range {}", runId, found.size(), range.number());
+        }
+        return new Chunk(scanned, found.size(), last);
+    }
+
+    private void checkpoint(Connection connection, long runId, Range range, Chunk chunk, boolean done)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(CHECKPOINT_SQL)) {
+            statement.setObject(1, chunk.last());
+            statement.setLong(2, chunk.scanned());
+            statement.setLong(3, chunk.mismatches());
+            statement.setBoolean(4, done);
+            statement.setLong(5, runId);
+            statement.setInt(6, range.number());
+            statement.executeUpdate();
+        }
+    }
+
+    private WalletReconciliationReport report(long runId) {
+        Session current = session;
+        boolean running = current != null && current.runId == runId && !current.finished;
+        List<WalletReconciliationReport.Mismatch> found = jdbcTemplate.query(MISMATCHES_SQL,
+                (resultSet, row) -> new WalletReconciliationReport.Mismatch(
+                        resultSet.getObject("wallet_id", UUID.class),
+                        resultSet.getBigDecimal("stored_balance"),
+                        resultSet.getBigDecimal("recomputed_balance")),
+                runId, REPORTED_MISMATCHES);
+        return jdbcTemplate.queryForObject(REPORT_SQL, (resultSet, row) -> {
+            Timestamp finishedAt = resultSet.getTimestamp("finished_at");
+            return new WalletReconciliationReport(runId,
+                    resultSet.getTimestamp("started_at").toInstant(),
+                    finishedAt == null ? null : finishedAt.toInstant(),
+                    running,
+                    resultSet.getInt("ranges"),
+                    resultSet.getInt("ranges_done"),
+                    resultSet.getLong("scanned"),
+                    resultSet.getLong("mismatches"),
+                    current != null && current.runId == runId ? current.walletsPerSecond() : 0,
+                    found);
+        }, runId);
+    }
+
+    private double walletsPerSecond() {
+        Session current = session;
+        return current == null || current.finished ? 0 : current.walletsPerSecond();
+    }
+
+    private ForkJoinPool newPool() {
+        // Отдельный пул: потоки сверки блокируются на запросах и не должны занимать общий ForkJoinPool
+        return new ForkJoinPool(Math.max(1, properties.parallelism()), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("wallet-reconciliation-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    private record Range(int number, UUID from, UUID to, UUID position) {
+    }
+
+    private record Chunk(int scanned, int mismatches, UUID last) {
+    }
+
+    /**
+     * Запуск или продолжение сверки на этом экземпляре
+     */
+    private static final class Session {
+
+        private final long runId;
+        private final ForkJoinPool pool;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong scanned = new AtomicLong();
+        private volatile boolean finished;
+
+        Session(long runId, ForkJoinPool pool) {
+            this.runId = runId;
+            this.pool = pool;
+        }
+
+        double walletsPerSecond() {
+            long elapsed = System.nanoTime() - startedNanos;
+            return elapsed == 0 ? 0 : scanned.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+    }
+
+    /**
+     * Общее ограничение скорости: каждая сверенная порция занимает в общей очереди время, за которое её пропустил бы
+     * {@code max-rate}, и поток спит до конца своего отрезка, поэтому вместе потоки не превышают {@code max-rate}
+     */
+    private static final class Throttle {
+
+        private final long nanosPerWallet;
+        private long next = System.nanoTime();
+
+        Throttle(int maxRate) {
+            this.nanosPerWallet = maxRate <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxRate;
+        }
+
+        void acquire(long permits) throws InterruptedException {
+            if (nanosPerWallet == 0 || permits == 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                next = Math.max(next, now) + permits * nanosPerWallet;
+                wait = next - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
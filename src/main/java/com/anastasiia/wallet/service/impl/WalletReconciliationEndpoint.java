@@ -0,0 +1,39 @@
+package com.anastasiia.wallet.service.impl;
+
+import com.anastasiia.wallet.service.WalletReconciliationReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/reconciliation} — запуск и состояние сверки {@link WalletReconciliation}
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.reconciliation", name = "enabled", havingValue = "true")
+@Endpoint(id = "reconciliation")
+@RequiredArgsConstructor
+public class WalletReconciliationEndpoint {
+
+    private final WalletReconciliation reconciliation;
+
+    /**
+     * @return состояние последней сверки; 404, если сверок ещё не было
+     */
+    @ReadOperation
+    public WalletReconciliationReport latest() {
+        return reconciliation.latest().orElse(null);
+    }
+
+    /**
+     * Продолжает прерванную сверку или начинает новую
+     */
+    @WriteOperation
+    public WalletReconciliationReport start() {
+        return reconciliation.start();
+    }
+}
@@ -1,23 +1,66 @@
 package com.anastasiia.wallet.service.impl;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import com.anastasiia.wallet.cache.WalletBalanceCache;
+import com.anastasiia.wallet.cache.WalletExistenceFilter;
+import com.anastasiia.wallet.config.StorageProperties;
 import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.CrossShardOperationException;
 import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.UnsupportedWalletOperationException;
 import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.repository.WalletOperationOutcome;
 import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.repository.WalletTransferOutcome;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
 import com.anastasiia.wallet.service.WalletOperationRequest;
 import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import com.anastasiia.wallet.threads.WalletAdmission;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
+@Profile("!reactive")
+@ConditionalOnExpression("!'${wallet.storage.mode:balance}'.equalsIgnoreCase('memory')")
 @RequiredArgsConstructor
 public class WalletServiceImpl implements WalletService {
 
     private final WalletRepository walletRepository;
+    private final WalletBalanceCache balanceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WalletOperationCoalescer operationCoalescer;
+    private final WalletStripeManager stripeManager;
+    private final WalletBatchProcessor batchProcessor;
+    private final WalletBulkCreator bulkCreator;
+    private final WalletLedger ledger;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletMetrics metrics;
+    private final WalletShardRouter shardRouter;
+    private final ReplicaReadRouter replicaRouter;
+    private final WalletAdmission walletAdmission;
+    private final WalletOptimisticWriter optimisticWriter;
+    private final WalletExistenceFilter existenceFilter;
+    private final WalletHistory history;
+    private final StorageProperties storageProperties;
 
     @Override
     public Wallet createWallet() {
@@ -26,37 +69,198 @@ public class WalletServiceImpl implements WalletService {
                 .id(walletId)
                 .balance(BigDecimal.ZERO)
                 .build();
-        return walletRepository.save(wallet);
+        Wallet created = shardRouter.onShardOf(walletId, () -> transactionTemplate.execute(status -> {
+            // Другие экземпляры получат кошелёк в фильтр при фиксации его INSERT
+            existenceFilter.add(walletId);
+            return walletRepository.save(wallet);
+        }));
+        // Масштаб как у numeric(15,2), чтобы ответ из кэша не отличался от ответа из базы
+        balanceCache.put(walletId, created.getBalance().setScale(2));
+        return created;
     }
 
     @Override
-    @Transactional
-    public void processOperation(WalletOperationRequest request) {
+    public void createWallets(int count, Consumer<List<UUID>> created) {
+        // Кэш балансов не заполняется: миллион новых кошельков вытеснил бы из него горячие
+        bulkCreator.create(count, created);
+    }
+
+    @Override
+    public BigDecimal processOperation(WalletOperationRequest request) {
+        requireBalanceColumn("Decimal operations");
         validateAmount(request.getAmount());
+        requireKnown(request.getWalletId());
+
+        BigDecimal balance = metrics.timeOperation(request.getOperationType(), request.getWalletId(), () -> {
+            if (ledger.isEnabled()) {
+                // Запись в журнал не блокирует строку кошелька, коалесцировать нечего
+                return transactionTemplate.execute(status -> history.record(request, ledger.append(request)));
+            }
+            if (operationCoalescer.isEnabled()) {
+                // Транзакция открывается только здесь, чтобы ожидание в очереди коалесцера не держало соединение
+                return operationCoalescer.submit(request);
+            }
+            // Лишние операции по горячему кошельку отклоняются до того, как встанут в очередь к его строке
+            return walletAdmission.run(request.getWalletId(), () -> shardRouter.onShardOf(request.getWalletId(), () -> {
+                if (optimisticWriter.isEnabled()) {
+                    Optional<BigDecimal> applied = optimisticWriter.apply(request);
+                    if (applied.isPresent()) {
+                        return applied.get();
+                    }
+                }
+                optimisticWriter.recordLocking();
+                return transactionTemplate.execute(status -> history.record(request, applyOperation(request)));
+            }));
+        });
+        eventPublisher.publishEvent(new WalletBalanceChangedEvent(request.getWalletId()));
+        return balance;
+    }
 
-        if (!walletRepository.existsById(request.getWalletId())) {
-            throw new WalletNotFoundException(request.getWalletId());
+    @Override
+    public WalletBatchResult processBatch(WalletBatchRequest request) {
+        requireBalanceColumn("Batches");
+        request.getOperations().forEach(operation -> validateAmount(operation.getAmount()));
+        WalletBatchResult result = batchProcessor.process(request);
+        if (result.committed()) {
+            result.items().stream()
+                    .filter(item -> item.status() == WalletBatchResult.Status.SUCCESS)
+                    .map(WalletBatchResult.Item::walletId)
+                    .distinct()
+                    .forEach(walletId -> eventPublisher.publishEvent(new WalletBalanceChangedEvent(walletId)));
         }
+        return result;
+    }
 
-        switch (request.getOperationType()) {
-            case DEPOSIT -> walletRepository.deposit(request.getWalletId(), request.getAmount());
-            case WITHDRAW -> {
-                int updatedRows = walletRepository.withdraw(request.getWalletId(), request.getAmount());
-                if (updatedRows == 0) {
-                    BigDecimal currentBalance = getBalance(request.getWalletId());
-                    throw new InsufficientFundsException(request.getWalletId(), request.getAmount(), currentBalance);
-                }
-            }
-            default -> throw new IllegalArgumentException("Unknown operation type: " + request.getOperationType());
+    @Override
+    public WalletTransferResult transfer(WalletTransferRequest request) {
+        requireBalanceColumn("Transfers");
+        validateAmount(request.getAmount());
+        if (request.getFromWalletId().equals(request.getToWalletId())) {
+            throw new IllegalArgumentException("Cannot transfer to the same wallet: " + request.getFromWalletId());
+        }
+        requireKnown(request.getFromWalletId());
+        requireKnown(request.getToWalletId());
+        // Перевод — одна транзакция, поэтому оба кошелька должны быть в одной базе
+        int shard = shardRouter.shardOf(request.getFromWalletId());
+        if (shardRouter.shardOf(request.getToWalletId()) != shard) {
+            throw new CrossShardOperationException("Transfer", request.getFromWalletId(), request.getToWalletId());
         }
+
+        WalletTransferResult result = metrics.timeTransfer(request.getFromWalletId(), () -> ledger.isEnabled()
+                ? transactionTemplate.execute(status -> history.recordTransfer(request, ledger.transfer(request)))
+                : shardRouter.onShard(shard, () -> transactionTemplate.execute(
+                        status -> history.recordTransfer(request, applyTransfer(request)))));
+        eventPublisher.publishEvent(new WalletBalanceChangedEvent(request.getFromWalletId()));
+        eventPublisher.publishEvent(new WalletBalanceChangedEvent(request.getToWalletId()));
+        return result;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public BigDecimal getBalance(UUID walletId) {
-        return walletRepository.findById(walletId)
-                .map(Wallet::getBalance)
-                .orElseThrow(() -> new WalletNotFoundException(walletId));
+        requireBalanceColumn("Decimal balance reads");
+        return balanceCache.get(walletId, this::loadBalance);
+    }
+
+    @Override
+    public Map<UUID, BigDecimal> getBalances(Collection<UUID> walletIds) {
+        requireBalanceColumn("Batch balance reads");
+        Map<UUID, BigDecimal> balances = new HashMap<>(balanceCache.getAllPresent(walletIds));
+        // Фильтр существования здесь не нужен: отсутствующие кошельки выясняются тем же одним запросом
+        UUID[] missing = walletIds.stream()
+                .filter(walletId -> !balances.containsKey(walletId))
+                .distinct()
+                .toArray(UUID[]::new);
+        if (missing.length == 0) {
+            return balances;
+        }
+        if (ledger.isEnabled()) {
+            balances.putAll(replicaRouter.read(() -> ledger.findBalances(List.of(missing))));
+            return balances;
+        }
+        // Шарды читаются параллельно, каждый одним запросом
+        shardRouter.fanOut(shardRouter.partition(List.of(missing), walletId -> walletId),
+                        shardWalletIds -> replicaRouter.read(
+                                () -> walletRepository.findBalances(shardWalletIds.toArray(UUID[]::new))))
+                .forEach(views -> views.forEach(view -> balances.put(view.getWalletId(), view.getBalance())));
+        return balances;
+    }
+
+    @Override
+    public BigDecimal restripeWallet(UUID walletId, int stripes) {
+        requireBalanceColumn("Wallet stripes");
+        return shardRouter.onShardOf(walletId,
+                () -> transactionTemplate.execute(status -> stripeManager.restripe(walletId, stripes)));
+    }
+
+    private BigDecimal applyOperation(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        WalletOperationOutcome outcome = switch (request.getOperationType()) {
+            case DEPOSIT -> walletRepository.deposit(walletId, request.getAmount());
+            case WITHDRAW -> walletRepository.withdraw(walletId, request.getAmount());
+        };
+
+        if (outcome.getBalance() != null) {
+            return outcome.getBalance();
+        }
+        if (outcome.getStripeCount() == null) {
+            throw new WalletNotFoundException(walletId);
+        }
+        if (outcome.getStripeCount() > 0) {
+            return stripeManager.apply(request, outcome.getStripeCount());
+        }
+        if (request.getOperationType() == WalletOperationRequest.OperationType.WITHDRAW
+                && outcome.getAvailable().compareTo(request.getAmount()) < 0) {
+            throw new InsufficientFundsException(walletId, request.getAmount(), outcome.getAvailable());
+        }
+        // Снимок запроса устарел к блокировке строки: кошелёк разнесли по слотам или параллельное списание
+        // уменьшило баланс. Раскладка и баланс перечитываются под блокировкой
+        return stripeManager.applyLocked(request);
+    }
+
+    private WalletTransferResult applyTransfer(WalletTransferRequest request) {
+        UUID fromWalletId = request.getFromWalletId();
+        UUID toWalletId = request.getToWalletId();
+        WalletTransferOutcome outcome = walletRepository.transfer(fromWalletId, toWalletId, request.getAmount());
+
+        if (outcome.getFromBalance() != null) {
+            return new WalletTransferResult(fromWalletId, outcome.getFromBalance(), toWalletId, outcome.getToBalance());
+        }
+        if (!outcome.getFromFound()) {
+            throw new WalletNotFoundException(fromWalletId);
+        }
+        if (!outcome.getToFound()) {
+            throw new WalletNotFoundException(toWalletId);
+        }
+        if (!outcome.getStriped()) {
+            throw new InsufficientFundsException(fromWalletId, request.getAmount(), outcome.getAvailable());
+        }
+        // Строки обоих кошельков уже заблокированы запросом, дальше блокируются и слоты
+        return stripeManager.transferLocked(request);
+    }
+
+    private BigDecimal loadBalance(UUID walletId) {
+        requireKnown(walletId);
+        Optional<BigDecimal> balance = ledger.isEnabled()
+                ? replicaRouter.read(() -> ledger.findBalance(walletId))
+                : shardRouter.onShardOf(walletId, () -> replicaRouter.read(() -> walletRepository.findBalance(walletId)));
+        return balance.orElseThrow(() -> new WalletNotFoundException(walletId));
+    }
+
+    /**
+     * Запросы сервиса работают с {@code wallets.balance}, а режим {@code minor_units} хранит баланс
+     * в {@code wallets.balance_minor}; в нём доступны только создание кошельков и операции в копейках
+     */
+    private void requireBalanceColumn(String operation) {
+        if (storageProperties.mode() == StorageProperties.Mode.MINOR_UNITS) {
+            throw new UnsupportedWalletOperationException(
+                    operation + " are not supported with wallet.storage.mode=minor_units");
+        }
+    }
+
+    private void requireKnown(UUID walletId) {
+        if (!existenceFilter.mightExist(walletId)) {
+            throw new WalletNotFoundException(walletId);
+        }
     }
 
     private void validateAmount(BigDecimal amount) {
@@ -64,4 +268,4 @@ public class WalletServiceImpl implements WalletService {
             throw new IllegalArgumentException("Amount must be positive: " + amount);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package com.anastasiia.wallet.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.anastasiia.wallet.entity.Wallet;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Работа с балансом горячих кошельков, разнесённым по слотам {@code wallet_balance_slots}.
+ * <p>
+ * Баланс такого кошелька — сумма строки {@code wallets} и всех его слотов. Пополнение попадает в случайный слот,
+ * списание пробует один слот и при нехватке средств в нём переходит к ребалансировке: блокируется строка
+ * кошелька и все слоты, проверяется общий баланс, а остаток заново раскладывается по слотам поровну.
+ * Блокировки всегда берутся в порядке «строка кошелька, затем слоты по номеру», поэтому пути не взаимоблокируются.
+ * Методы должны вызываться внутри транзакции.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class WalletStripeManager {
+
+    private final WalletRepository walletRepository;
+    private final WalletMetrics metrics;
+
+    /**
+     * Применяет операцию к кошельку с разнесённым балансом
+     *
+     * @param request запрос
+     * @param stripes количество слотов кошелька
+     * @return общий баланс кошелька после операции
+     */
+    public BigDecimal apply(WalletOperationRequest request, int stripes) {
+        UUID walletId = request.getWalletId();
+        int slot = ThreadLocalRandom.current().nextInt(stripes);
+
+        Optional<BigDecimal> balance = switch (request.getOperationType()) {
+            case DEPOSIT -> walletRepository.depositToSlot(walletId, slot, request.getAmount());
+            case WITHDRAW -> walletRepository.withdrawFromSlot(walletId, slot, request.getAmount());
+        };
+        // В выбранном слоте не хватило средств или раскладка кошелька изменилась — работаем по всем слотам
+        return balance.orElseGet(() -> applyLocked(request));
+    }
+
+    /**
+     * Меняет количество слотов кошелька, перенося весь текущий баланс в новую раскладку
+     *
+     * @param walletId идентификатор кошелька
+     * @param stripes  новое количество слотов; 0 возвращает баланс в строку кошелька
+     * @return общий баланс кошелька
+     */
+    public BigDecimal restripe(UUID walletId, int stripes) {
+        Wallet wallet = lockWallet(walletId);
+        BigDecimal balance = lockedBalance(wallet);
+
+        walletRepository.deleteSlots(walletId);
+        if (stripes > 0) {
+            walletRepository.createSlots(walletId, stripes);
+        }
+        wallet.setStripeCount(stripes);
+        updateLockedBalance(wallet, balance);
+        return balance;
+    }
+
+    /**
+     * Возвращает общий баланс заблокированного кошелька, блокируя при необходимости все его слоты
+     *
+     * @param wallet кошелёк, заблокированный через {@link WalletRepository#findByIdForUpdate}
+     * @return общий баланс кошелька
+     */
+    public BigDecimal lockedBalance(Wallet wallet) {
+        if (wallet.getStripeCount() == 0) {
+            return wallet.getBalance();
+        }
+        return walletRepository.findSlotBalancesForUpdate(wallet.getId()).stream()
+                .reduce(wallet.getBalance(), BigDecimal::add);
+    }
+
+    /**
+     * Записывает новый общий баланс заблокированного кошелька
+     *
+     * @param wallet  кошелёк, баланс и слоты которого заблокированы через {@link #lockedBalance}
+     * @param balance новый общий баланс
+     */
+    public void updateLockedBalance(Wallet wallet, BigDecimal balance) {
+        int stripes = wallet.getStripeCount();
+        if (stripes == 0) {
+            wallet.setBalance(balance);
+            return;
+        }
+
+        long cents = balance.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        wallet.setBalance(BigDecimal.ZERO);
+        walletRepository.distributeToSlots(wallet.getId(), BigDecimal.valueOf(cents / stripes, 2), (int) (cents % stripes));
+    }
+
+    /**
+     * Применяет операцию под блокировкой строки кошелька и всех его слотов при любой раскладке баланса
+     *
+     * @param request запрос
+     * @return общий баланс кошелька после операции
+     */
+    public BigDecimal applyLocked(WalletOperationRequest request) {
+        UUID walletId = request.getWalletId();
+        Wallet wallet = lockWallet(walletId);
+        BigDecimal balance = lockedBalance(wallet);
+
+        BigDecimal newBalance = switch (request.getOperationType()) {
+            case DEPOSIT -> balance.add(request.getAmount());
+            case WITHDRAW -> {
+                if (balance.compareTo(request.getAmount()) < 0) {
+                    throw new InsufficientFundsException(walletId, request.getAmount(), balance);
+                }
+                yield balance.subtract(request.getAmount());
+            }
+        };
+        updateLockedBalance(wallet, newBalance);
+        return newBalance;
+    }
+
+    /**
+     * Переводит сумму между кошельками под блокировкой их строк и всех слотов при любой раскладке баланса.
+     * Строки, а затем слоты блокируются в порядке идентификаторов кошельков, как и в однозапросном переводе
+     *
+     * @param request запрос перевода
+     * @return балансы обоих кошельков после перевода
+     */
+    public WalletTransferResult transferLocked(WalletTransferRequest request) {
+        UUID fromWalletId = request.getFromWalletId();
+        UUID toWalletId = request.getToWalletId();
+        List<UUID> lockOrder = WalletLockOrder.COMPARATOR.compare(fromWalletId, toWalletId) < 0
+                ? List.of(fromWalletId, toWalletId)
+                : List.of(toWalletId, fromWalletId);
+        Wallet first = lockWallet(lockOrder.get(0));
+        Wallet second = lockWallet(lockOrder.get(1));
+        BigDecimal firstBalance = lockedBalance(first);
+        BigDecimal secondBalance = lockedBalance(second);
+
+        boolean fromFirst = first.getId().equals(fromWalletId);
+        Wallet from = fromFirst ? first : second;
+        Wallet to = fromFirst ? second : first;
+        BigDecimal fromBalance = fromFirst ? firstBalance : secondBalance;
+        BigDecimal toBalance = fromFirst ? secondBalance : firstBalance;
+        if (fromBalance.compareTo(request.getAmount()) < 0) {
+            throw new InsufficientFundsException(fromWalletId, request.getAmount(), fromBalance);
+        }
+
+        fromBalance = fromBalance.subtract(request.getAmount());
+        toBalance = toBalance.add(request.getAmount());
+        updateLockedBalance(from, fromBalance);
+        updateLockedBalance(to, toBalance);
+        return new WalletTransferResult(fromWalletId, fromBalance, toWalletId, toBalance);
+    }
+
+    private Wallet lockWallet(UUID walletId) {
+        return metrics.timeLockWait(WalletMetrics.Lock.ROW, () -> walletRepository.findByIdForUpdate(walletId))
+                .orElseThrow(() -> new WalletNotFoundException(walletId));
+    }
+}
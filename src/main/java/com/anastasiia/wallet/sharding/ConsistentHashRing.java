@@ -0,0 +1,63 @@
+package com.anastasiia.wallet.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Кольцо консистентного хэширования: у каждого шарда {@code virtualNodes} точек на кольце, кошелёк
+ * принадлежит шарду первой точки не меньше хэша его идентификатора. При добавлении шарда к нему
+ * переходит примерно {@code 1/N} кошельков, остальные остаются на месте.
+ */
+public final class ConsistentHashRing {
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param names        имена шардов; шард обозначается индексом имени в списке
+     * @param virtualNodes количество точек каждого шарда
+     */
+    public ConsistentHashRing(List<String> names, int virtualNodes) {
+        if (names.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Ring needs at least one shard and one virtual node per shard");
+        }
+        for (int shard = 0; shard < names.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                long point = hash(names.get(shard) + "#" + node);
+                Integer previous = ring.putIfAbsent(point, shard);
+                if (previous != null && previous != shard) {
+                    throw new IllegalStateException("Hash collision between shards " + names.get(previous)
+                            + " and " + names.get(shard));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return индекс шарда кошелька
+     */
+    public int shardOf(UUID walletId) {
+        long hash = mix(walletId.getMostSignificantBits() ^ mix(walletId.getLeastSignificantBits()));
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash);
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Финализатор SplitMix64: соседние значения FNV-1a и последовательные UUID расходятся по всему кольцу
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
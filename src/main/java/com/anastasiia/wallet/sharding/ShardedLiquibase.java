@@ -0,0 +1,29 @@
+package com.anastasiia.wallet.sharding;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Применяет миграции к каждому шарду по очереди. Как бин {@link SpringLiquibase} он заменяет автоматическую
+ * настройку Liquibase, и JPA стартует только после миграции всех шардов.
+ */
+public class ShardedLiquibase extends SpringLiquibase {
+
+    private final List<? extends DataSource> shards;
+
+    public ShardedLiquibase(List<? extends DataSource> shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        for (DataSource shard : shards) {
+            setDataSource(shard);
+            super.afterPropertiesSet();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.anastasiia.wallet.sharding;
+
+import java.util.List;
+
+import com.anastasiia.wallet.config.BalanceCacheProperties;
+import com.anastasiia.wallet.config.CoalescingProperties;
+import com.anastasiia.wallet.config.ShardingProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Источник соединений и миграции для {@code wallet.sharding.enabled=true}: у каждого шарда свой пул Hikari
+ * с метриками {@code hikaricp.*} под именем пула {@code wallet-shard-<имя>}, JPA и {@code JdbcTemplate}
+ * работают через {@link ShardRoutingDataSource}.
+ * <p>
+ * Шардирование поддерживает только режим хранения {@code balance} без коалесцирования и рассылки инвалидаций:
+ * их фоновые потоки работают с базой без привязки к кошельку.
+ */
+@Slf4j
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(ShardingProperties properties,
+                                             StorageProperties storageProperties,
+                                             CoalescingProperties coalescingProperties,
+                                             BalanceCacheProperties balanceCacheProperties,
+                                             MeterRegistry meterRegistry) {
+        if (properties.shards().isEmpty()) {
+            throw new IllegalStateException("wallet.sharding.shards must list at least one shard");
+        }
+        if (storageProperties.mode() != StorageProperties.Mode.BALANCE || coalescingProperties.enabled()
+                || balanceCacheProperties.invalidation().enabled()) {
+            throw new IllegalStateException("wallet.sharding requires wallet.storage.mode=balance with "
+                    + "wallet.coalescing and wallet.balance-cache.invalidation disabled");
+        }
+
+        List<HikariDataSource> shards = properties.shards().stream()
+                .map(shard -> {
+                    HikariDataSource dataSource = new HikariDataSource();
+                    dataSource.setPoolName("wallet-shard-" + shard.name());
+                    dataSource.setJdbcUrl(shard.url());
+                    dataSource.setUsername(shard.username());
+                    dataSource.setPassword(shard.password());
+                    dataSource.setMaximumPoolSize(shard.maximumPoolSize());
+                    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                    return dataSource;
+                })
+                .toList();
+        log.info("Routing wallets across {} shards: {}", shards.size(),
+                properties.shards().stream().map(ShardingProperties.Shard::name).toList());
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    public SpringLiquibase liquibase(ShardRoutingDataSource dataSource,
+                                     @Value("${spring.liquibase.change-log}") String changeLog,
+                                     @Value("${spring.liquibase.enabled:true}") boolean enabled) {
+        ShardedLiquibase liquibase = new ShardedLiquibase(dataSource.getShards());
+        liquibase.setChangeLog(changeLog);
+        liquibase.setShouldRun(enabled);
+        return liquibase;
+    }
+}
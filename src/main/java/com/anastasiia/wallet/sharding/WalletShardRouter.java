@@ -0,0 +1,158 @@
+package com.anastasiia.wallet.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.anastasiia.wallet.config.ShardingProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Выбор шарда для операций с кошельками.
+ * <p>
+ * Шард привязывается к потоку на время действия, и {@link ShardRoutingDataSource} выдаёт соединения из пула
+ * этого шарда. Транзакция берёт соединение при открытии, поэтому шард выбирается до неё и одна транзакция
+ * всегда работает с одной базой. Действия над кошельками нескольких шардов выполняются параллельно,
+ * по одной задаче на шард. Без шардирования все кошельки относятся к шарду {@code 0}, а действия выполняются
+ * в вызывающем потоке.
+ */
+@Component
+@Profile("!reactive")
+public class WalletShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final ConsistentHashRing ring;
+    private final int shardCount;
+    private final ExecutorService fanOutExecutor;
+
+    public WalletShardRouter(ShardingProperties properties) {
+        if (!properties.enabled()) {
+            this.ring = null;
+            this.shardCount = 1;
+            this.fanOutExecutor = null;
+            return;
+        }
+        this.ring = new ConsistentHashRing(
+                properties.shards().stream().map(ShardingProperties.Shard::name).toList(), properties.virtualNodes());
+        this.shardCount = properties.shards().size();
+        this.fanOutExecutor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "wallet-shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public int shardOf(UUID walletId) {
+        return ring == null ? 0 : ring.shardOf(walletId);
+    }
+
+    /**
+     * @return шард, привязанный к текущему потоку, или {@code null} вне {@link #onShard}
+     */
+    static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет действие с соединениями шарда {@code shard}
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (ring == null) {
+            return action.get();
+        }
+        Integer previous = CURRENT.get();
+        if (previous != null && previous != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Transaction on shard " + previous + " cannot switch to shard " + shard);
+        }
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие с соединениями шарда кошелька
+     */
+    public <T> T onShardOf(UUID walletId, Supplier<T> action) {
+        return onShard(shardOf(walletId), action);
+    }
+
+    /**
+     * Выполняет действие на каждом шарде по очереди
+     *
+     * @return результаты в порядке шардов
+     */
+    public <T> List<T> onEachShard(Supplier<T> action) {
+        List<T> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.add(onShard(shard, action));
+        }
+        return results;
+    }
+
+    /**
+     * Раскладывает элементы по шардам их кошельков с сохранением порядка внутри шарда
+     */
+    public <E> Map<Integer, List<E>> partition(Collection<E> elements, Function<E, UUID> walletId) {
+        Map<Integer, List<E>> partitions = new TreeMap<>();
+        for (E element : elements) {
+            partitions.computeIfAbsent(shardOf(walletId.apply(element)), shard -> new ArrayList<>()).add(element);
+        }
+        return partitions;
+    }
+
+    /**
+     * Выполняет действие над частью каждого шарда, части разных шардов — параллельно
+     *
+     * @return результаты в порядке шардов
+     */
+    public <E, T> List<T> fanOut(Map<Integer, List<E>> partitions, Function<List<E>, T> action) {
+        if (partitions.size() <= 1) {
+            return partitions.entrySet().stream()
+                    .map(partition -> onShard(partition.getKey(), () -> action.apply(partition.getValue())))
+                    .toList();
+        }
+        List<CompletableFuture<T>> results = partitions.entrySet().stream()
+                .map(partition -> CompletableFuture.supplyAsync(
+                        () -> onShard(partition.getKey(), () -> action.apply(partition.getValue())), fanOutExecutor))
+                .toList();
+        try {
+            return results.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
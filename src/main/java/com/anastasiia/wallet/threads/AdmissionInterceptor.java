@@ -0,0 +1,100 @@
+package com.anastasiia.wallet.threads;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Пропускает запросы к API через {@link ConnectionAdmission}. Разрешение держится до завершения запроса,
+ * отклонённый запрос получает 503 через общий обработчик исключений. Асинхронный запрос проходит перехватчик
+ * повторно при async-диспетчеризации и держит разрешение, полученное при первой, до своего завершения.
+ * Исключение — запрос, помеченный {@link #PARKED_ATTRIBUTE}: он ждёт без соединения с базой, поэтому отдаёт
+ * разрешение, как только обработка уходит в асинхронный режим, и при async-диспетчеризации его не получает.
+ * Ожидание внутри обработки, которое не держит соединение, тоже может отдать разрешение — через {@link #awaitReleased}.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.admission", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class AdmissionInterceptor implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    /**
+     * Атрибут запроса, который ждёт события без соединения с базой
+     */
+    public static final String PARKED_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".parked";
+
+    private static final String ADMITTED_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".admitted";
+
+    private final ConnectionAdmission admission;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            return true;
+        }
+        admission.acquire();
+        request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(PARKED_ATTRIBUTE) != null
+                && Boolean.TRUE.equals(request.getAttribute(ADMITTED_ATTRIBUTE))) {
+            // Атрибут остаётся, чтобы async-диспетчеризация не занимала разрешение снова
+            request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.FALSE);
+            admission.release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object admitted = request.getAttribute(ADMITTED_ATTRIBUTE);
+        if (admitted != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            if (Boolean.TRUE.equals(admitted)) {
+                admission.release();
+            }
+        }
+    }
+
+    /**
+     * Выполняет ожидание, отдав на это время разрешение текущего запроса, и затем занимает разрешение снова.
+     * Вне запроса или без разрешения ожидание выполняется как есть
+     *
+     * @param wait     ожидание, не занимающее соединение
+     * @param rollback отменяет полученное ожиданием, если разрешение занять снова не удалось
+     */
+    public void awaitReleased(Runnable wait, Runnable rollback) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(
+                attributes.getAttribute(ADMITTED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+            wait.run();
+            return;
+        }
+        // Пока разрешение отдано, завершение запроса не должно возвращать его ещё раз
+        attributes.setAttribute(ADMITTED_ATTRIBUTE, Boolean.FALSE, RequestAttributes.SCOPE_REQUEST);
+        admission.release();
+        wait.run();
+        try {
+            admission.acquire();
+        } catch (RuntimeException ex) {
+            rollback.run();
+            throw ex;
+        }
+        attributes.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
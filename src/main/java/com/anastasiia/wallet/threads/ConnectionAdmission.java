@@ -0,0 +1,110 @@
+package com.anastasiia.wallet.threads;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import com.anastasiia.wallet.config.AdmissionProperties;
+import com.anastasiia.wallet.exception.ServiceOverloadedException;
+import com.anastasiia.wallet.replica.ReplicaRoutingDataSource;
+import com.anastasiia.wallet.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Допуск запросов к базе, рассчитанный на размер пула соединений.
+ * <p>
+ * На виртуальных потоках число одновременных запросов ничем не ограничено, и лишние запросы копились бы
+ * в очереди пула соединений до его таймаута. Здесь они ждут разрешения не дольше {@code maxWait},
+ * а при длинной очереди ожидающих отклоняются сразу, не занимая ни соединение, ни время.
+ * Число разрешений по умолчанию равно {@code maximumPoolSize} Hikari: с репликами — пула основной базы,
+ * через который идут все записи, с шардированием — сумме пулов шардов, между которыми хэш распределяет кошельки.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "wallet.admission", name = "enabled", havingValue = "true")
+public class ConnectionAdmission {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Duration maxWait;
+    private final int maxQueue;
+    private final Counter rejected;
+
+    public ConnectionAdmission(AdmissionProperties properties, DataSource dataSource, MeterRegistry meterRegistry) {
+        int permits = properties.permits() > 0 ? properties.permits() : poolSize(dataSource);
+        this.permits = new Semaphore(permits, true);
+        this.maxWait = properties.maxWait();
+        this.maxQueue = properties.maxQueue();
+        log.info("Admitting {} concurrent API requests, up to {} waiting for {} ms",
+                permits, maxQueue, maxWait.toMillis());
+        this.rejected = Counter.builder("wallet.admission.rejected")
+                .description("Requests rejected because all database permits were busy")
+                .register(meterRegistry);
+        Gauge.builder("wallet.admission.waiting", waiting, AtomicInteger::get)
+                .description("Requests waiting for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("wallet.admission.available", this.permits, Semaphore::availablePermits)
+                .description("Free database permits")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ждёт разрешения на обработку запроса
+     *
+     * @throws ServiceOverloadedException если очередь ожидающих заполнена или разрешение не освободилось за {@code maxWait}
+     */
+    public void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            throw reject("too many waiting requests");
+        }
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw reject("no database permit within " + maxWait.toMillis() + " ms");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted while waiting for a database permit");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    private ServiceOverloadedException reject(String reason) {
+        rejected.increment();
+        return new ServiceOverloadedException(reason, RETRY_AFTER);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        if (dataSource instanceof ReplicaRoutingDataSource replicas) {
+            return replicas.getPrimary().getMaximumPoolSize();
+        }
+        if (dataSource instanceof ShardRoutingDataSource shards) {
+            return shards.getShards().stream().mapToInt(HikariDataSource::getMaximumPoolSize).sum();
+        }
+        throw new IllegalStateException("wallet.admission.permits must be set for " + dataSource.getClass().getName());
+    }
+}
@@ -0,0 +1,203 @@
+package com.anastasiia.wallet.threads;
+
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.anastasiia.wallet.config.WalletAdmissionProperties;
+import com.anastasiia.wallet.exception.WalletOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Допуск операций по отдельному кошельку.
+ * <p>
+ * Операции по одному кошельку всё равно выполняются по очереди на блокировке его строки, и лишние
+ * из них только держат соединения, отнимая их у остальных кошельков. Кошельки распределены по
+ * {@code stripes} полосам, у каждой полосы свой лимит одновременных операций и короткая очередь;
+ * сверх неё операция сразу получает 429. Операция в очереди ждёт, отдав разрешение {@link ConnectionAdmission}
+ * своего запроса, и занимает его снова, только получив место в полосе: иначе очередь горячего кошелька
+ * держала бы разрешения, нужные остальным кошелькам.
+ * <p>
+ * Лимит полосы подстраивается по длительности операций: операция дольше {@code latency-threshold}
+ * уменьшает его на десятую часть, а быстрая операция при полностью занятом лимите увеличивает его
+ * на единицу за каждый лимит завершённых операций.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class WalletAdmission {
+
+    private static final double BACKOFF = 0.9;
+
+    private final WalletAdmissionProperties properties;
+    private final Stripe[] stripes;
+    private final long maxWaitNanos;
+    private final long latencyThresholdNanos;
+    private final Counter rejected;
+    private final AdmissionInterceptor connectionAdmission;
+
+    public WalletAdmission(WalletAdmissionProperties properties, MeterRegistry meterRegistry,
+                           ObjectProvider<AdmissionInterceptor> connectionAdmission) {
+        if (properties.enabled() && (properties.minLimit() < 1
+                || properties.initialLimit() < properties.minLimit()
+                || properties.maxLimit() < properties.initialLimit())) {
+            throw new IllegalStateException(
+                    "wallet.admission.per-wallet limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.properties = properties;
+        this.stripes = new Stripe[properties.enabled() ? properties.stripes() : 0];
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+            stripes[stripe] = new Stripe(properties.initialLimit());
+        }
+        this.maxWaitNanos = properties.maxWait().toNanos();
+        this.latencyThresholdNanos = properties.latencyThreshold().toNanos();
+        this.rejected = Counter.builder("wallet.admission.wallet.rejected")
+                .description("Operations rejected because their wallet had too many operations in flight")
+                .register(meterRegistry);
+        this.connectionAdmission = connectionAdmission != null ? connectionAdmission.getIfAvailable() : null;
+        if (properties.enabled()) {
+            log.info("Admitting {}..{} concurrent operations per wallet across {} stripes, up to {} waiting for {} ms",
+                    properties.minLimit(), properties.maxLimit(), stripes.length,
+                    properties.maxQueue(), properties.maxWait().toMillis());
+        }
+    }
+
+    /**
+     * Выполняет операцию по кошельку, если его полоса не перегружена
+     *
+     * @throws WalletOverloadedException если очередь полосы заполнена или место не освободилось за {@code maxWait}
+     */
+    public <T> T run(UUID walletId, Supplier<T> operation) {
+        if (stripes.length == 0) {
+            return operation.get();
+        }
+        Stripe stripe = stripes[Math.floorMod(walletId.hashCode(), stripes.length)];
+        if (!stripe.tryAcquire()) {
+            if (connectionAdmission != null) {
+                connectionAdmission.awaitReleased(() -> stripe.acquire(walletId), stripe::cancel);
+            } else {
+                stripe.acquire(walletId);
+            }
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            stripe.release(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * @return текущий лимит полосы кошелька
+     */
+    int limit(UUID walletId) {
+        Stripe stripe = stripes[Math.floorMod(walletId.hashCode(), stripes.length)];
+        stripe.lock.lock();
+        try {
+            return (int) stripe.limit;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private WalletOverloadedException reject(UUID walletId) {
+        rejected.increment();
+        return new WalletOverloadedException(walletId, properties.retryAfter());
+    }
+
+    /**
+     * Семафор с изменяемым числом разрешений; {@link ReentrantLock} вместо {@code synchronized},
+     * чтобы ожидание не закрепляло виртуальный поток за несущим
+     */
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private double limit;
+        private int inFlight;
+        private int waiting;
+
+        Stripe(int limit) {
+            this.limit = limit;
+        }
+
+        boolean tryAcquire() {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void acquire(UUID walletId) {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return;
+                }
+                if (waiting >= properties.maxQueue()) {
+                    throw reject(walletId);
+                }
+                waiting++;
+                try {
+                    long remaining = maxWaitNanos;
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            throw reject(walletId);
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                    inFlight++;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw reject(walletId);
+                } finally {
+                    waiting--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Возвращает место, не выполнив операцию, — лимит не меняется
+         */
+        void cancel() {
+            lock.lock();
+            try {
+                inFlight--;
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long latencyNanos) {
+            lock.lock();
+            try {
+                boolean saturated = inFlight >= (int) limit;
+                inFlight--;
+                if (latencyNanos > latencyThresholdNanos) {
+                    limit = Math.max(properties.minLimit(), limit * BACKOFF);
+                } else if (saturated) {
+                    limit = Math.min(properties.maxLimit(), limit + 1 / limit);
+                }
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.anastasiia.wallet.benchmark;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.controller.MinorUnitsWalletResponse;
+import com.anastasiia.wallet.controller.WalletResponse;
+import com.anastasiia.wallet.service.MinorUnitsOperationRequest;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Путь суммы через запрос без обращения к базе: разбор JSON операции, арифметика над балансом
+ * и запись ответа — для {@link BigDecimal} и для копеек типа {@code long}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBindingBenchmark {
+
+    private byte[] requestJson;
+    private ObjectReader decimalReader;
+    private ObjectReader minorUnitsReader;
+    private ObjectWriter decimalWriter;
+    private ObjectWriter minorUnitsWriter;
+    private BigDecimal decimalBalance;
+    private long minorUnitsBalance;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        requestJson = """
+                {"walletId": "7c4a8d09-ca37-4f3e-9b5a-3c1e7a0f2b11", "operationType": "DEPOSIT", "amount": 1234.56}
+                """.getBytes();
+        decimalReader = objectMapper.readerFor(WalletOperationRequest.class);
+        minorUnitsReader = objectMapper.readerFor(MinorUnitsOperationRequest.class);
+        decimalWriter = objectMapper.writerFor(WalletResponse.class);
+        minorUnitsWriter = objectMapper.writerFor(MinorUnitsWalletResponse.class);
+        decimalBalance = new BigDecimal("98765.43");
+        minorUnitsBalance = 9876543;
+    }
+
+    @Benchmark
+    public byte[] decimal() throws Exception {
+        WalletOperationRequest request = decimalReader.readValue(requestJson);
+        BigDecimal balance = decimalBalance.add(request.getAmount());
+        return decimalWriter.writeValueAsBytes(new WalletResponse(request.getWalletId(), balance));
+    }
+
+    @Benchmark
+    public byte[] minorUnits() throws Exception {
+        MinorUnitsOperationRequest request = minorUnitsReader.readValue(requestJson);
+        long balance = Math.addExact(minorUnitsBalance, request.getAmount());
+        return minorUnitsWriter.writeValueAsBytes(new MinorUnitsWalletResponse(request.getWalletId(), balance));
+    }
+}
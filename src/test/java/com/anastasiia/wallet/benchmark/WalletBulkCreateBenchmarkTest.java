@@ -0,0 +1,106 @@
+package com.anastasiia.wallet.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Скорость массового создания кошельков через {@code POST /api/v1/wallets:bulkCreate} по сравнению с созданием
+ * по одному через {@code POST /api/v1/create}. Запуск: {@code mvn test -Pbenchmark}, объёмы задаются
+ * {@code -Dbenchmark.bulk-create.count} и {@code -Dbenchmark.bulk-create.single-count}.
+ */
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.com.anastasiia.wallet=INFO"
+})
+@DisplayName("Скорость массового создания кошельков")
+class WalletBulkCreateBenchmarkTest {
+
+    private static final int COUNT = Integer.getInteger("benchmark.bulk-create.count", 1_000_000);
+    private static final int SINGLE_COUNT = Integer.getInteger("benchmark.bulk-create.single-count", 10_000);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("Кошельков в секунду при массовом создании и при создании по одному")
+    void bulkCreate_comparedToSingleCreates() throws Exception {
+        // given
+        long walletsBefore = countWallets();
+
+        // when
+        long bulkStartedAt = System.nanoTime();
+        HttpResponse<Stream<String>> response = client.send(
+                HttpRequest.newBuilder(uri("/api/v1/wallets:bulkCreate"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"count\": " + COUNT + "}"))
+                        .timeout(Duration.ofMinutes(5))
+                        .build(),
+                HttpResponse.BodyHandlers.ofLines());
+        long streamed = response.body().count();
+        double bulkSeconds = (System.nanoTime() - bulkStartedAt) / 1e9;
+
+        long singleStartedAt = System.nanoTime();
+        for (int i = 0; i < SINGLE_COUNT; i++) {
+            client.send(HttpRequest.newBuilder(uri("/api/v1/create"))
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+        double singleSeconds = (System.nanoTime() - singleStartedAt) / 1e9;
+
+        // then
+        log.info("Bulk create: {} wallets in {} s ({} wallets/s); single creates: {} wallets in {} s ({} wallets/s)",
+                COUNT, "%.2f".formatted(bulkSeconds), Math.round(COUNT / bulkSeconds),
+                SINGLE_COUNT, "%.2f".formatted(singleSeconds), Math.round(SINGLE_COUNT / singleSeconds));
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(streamed).isEqualTo(COUNT);
+        assertThat(countWallets() - walletsBefore).isEqualTo((long) COUNT + SINGLE_COUNT);
+    }
+
+    private long countWallets() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallets", Long.class);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,114 @@
+package com.anastasiia.wallet.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Запуск JMH-бенчмарков сервиса. Результаты каждого прогона пишутся в JSON-формате JMH в {@code target/jmh},
+ * чтобы их можно было сравнивать между релизами. Запуск: {@code mvn test -Pbenchmark}; число потоков
+ * для {@link WalletServiceBenchmark} — {@code -Dbenchmark.jmh.threads=1,4,16,64}, внешняя база вместо
+ * контейнера — {@code -Dbenchmark.datasource.url=...}.
+ */
+@Slf4j
+@Tag("benchmark")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("JMH-бенчмарки сервиса")
+class WalletJmhBenchmarkTest {
+
+    private static final Path RESULTS = Path.of("target", "jmh");
+    private static final String ALLOCATION_PER_OPERATION = "gc.alloc.rate.norm";
+    private static final List<Integer> THREADS = Arrays.stream(System.getProperty("benchmark.jmh.threads", "1,4,16,64")
+                    .split(","))
+            .map(String::trim)
+            .map(Integer::valueOf)
+            .toList();
+
+    @Test
+    @Order(1)
+    @DisplayName("Разбор и валидация WalletOperationRequest")
+    void requestBinding() throws Exception {
+        // when
+        Collection<RunResult> results = run(WalletRequestBindingBenchmark.class, "request-binding", 1);
+
+        // then
+        assertThat(results).hasSize(3);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Копейки типа long выделяют меньше памяти на запрос, чем BigDecimal")
+    void moneyBinding_minorUnitsAllocateLessThanDecimal() throws Exception {
+        // when
+        Collection<RunResult> results = run(MoneyBindingBenchmark.class, "money-binding", 1);
+
+        // then
+        Map<String, Double> allocations = results.stream().collect(Collectors.toMap(
+                WalletJmhBenchmarkTest::method,
+                result -> result.getSecondaryResults().get(ALLOCATION_PER_OPERATION).getScore()));
+        log.info("Bytes allocated per request: {}", allocations);
+        assertThat(allocations.get("minorUnits")).isLessThan(allocations.get("decimal"));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Операции и чтение баланса при разном числе потоков")
+    void walletService_acrossThreadCounts() throws Exception {
+        for (int threads : THREADS) {
+            // when
+            Collection<RunResult> results = run(WalletServiceBenchmark.class, "wallet-service-threads-" + threads, threads);
+
+            // then
+            assertThat(results).hasSize(3);
+            log.info("{} threads: {}", threads, results.stream().collect(Collectors.toMap(
+                    WalletJmhBenchmarkTest::method,
+                    result -> "%.0f ops/s".formatted(result.getPrimaryResult().getScore()))));
+        }
+    }
+
+    private Collection<RunResult> run(Class<?> benchmark, String name, int threads) throws Exception {
+        Files.createDirectories(RESULTS);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(benchmark.getName())
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTS.resolve(name + ".json").toString());
+        // Настройки внешней базы передаются в отдельную JVM, в которой JMH выполняет бенчмарк
+        String[] databaseProperties = Stream.of(WalletServiceBenchmark.DATASOURCE_URL,
+                        WalletServiceBenchmark.DATASOURCE_USERNAME, WalletServiceBenchmark.DATASOURCE_PASSWORD)
+                .filter(property -> System.getProperty(property) != null)
+                .map(property -> "-D" + property + "=" + System.getProperty(property))
+                .toArray(String[]::new);
+        if (databaseProperties.length > 0) {
+            options.jvmArgsAppend(databaseProperties);
+        }
+        return new Runner(options.build()).run();
+    }
+
+    private static String method(RunResult result) {
+        String benchmark = result.getParams().getBenchmark();
+        return benchmark.substring(benchmark.lastIndexOf('.') + 1);
+    }
+}
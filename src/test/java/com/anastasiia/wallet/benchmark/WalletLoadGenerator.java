@@ -0,0 +1,149 @@
+package com.anastasiia.wallet.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anastasiia.wallet.controller.WalletResponse;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+/**
+ * Нагрузка пополнениями по множеству кошельков на запущенное приложение: {@code concurrency} одновременных
+ * запросов, каждый по своему соединению. Ответ 503 считается отказом допуска: клиент повторяет запрос
+ * после паузы из {@code Retry-After} не больше {@link #MAX_RETRIES} раз, и задержка запроса считается с первой
+ * попытки. Запрос, отклонённый и после последнего повтора, считается ошибкой.
+ */
+final class WalletLoadGenerator {
+
+    static final int WALLETS = Integer.getInteger("benchmark.wallets", 1000);
+    static final int WARMUP_REQUESTS = Integer.getInteger("benchmark.warmup-requests", 2_000);
+    static final int MEASURED_REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    static final int MAX_RETRIES = Integer.getInteger("benchmark.max-retries", 3);
+
+    private WalletLoadGenerator() {
+    }
+
+    /**
+     * Настройки приложения в виде аргументов командной строки: в отличие от свойств по умолчанию
+     * они перекрывают значения из {@code application.yml}
+     */
+    static String[] arguments(Map<String, Object> properties) {
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    static Result run(ConfigurableApplicationContext context, int concurrency) {
+        ConnectionProvider connections = ConnectionProvider.builder("benchmark")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        try {
+            WebClient client = WebClient.builder()
+                    .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1")
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build();
+
+            List<UUID> wallets = Flux.range(0, WALLETS)
+                    .flatMap(i -> client.post().uri("/create")
+                            .retrieve()
+                            .bodyToMono(WalletResponse.class)
+                            .retryWhen(Retry.backoff(10, Duration.ofMillis(100)).filter(WalletLoadGenerator::isRejected)), 64)
+                    .map(WalletResponse::walletId)
+                    .collectList()
+                    .block();
+
+            load(client, wallets, WARMUP_REQUESTS, concurrency);
+            return load(client, wallets, MEASURED_REQUESTS, concurrency);
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    private static Result load(WebClient client, List<UUID> wallets, int requests, int concurrency) {
+        long[] latencies = new long[requests];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        long startedAt = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> {
+                    Map<String, Object> body = Map.of(
+                            "walletId", wallets.get(i % wallets.size()),
+                            "operationType", "DEPOSIT",
+                            "amount", BigDecimal.ONE);
+                    return Mono.defer(() -> {
+                                long requestStartedAt = System.nanoTime();
+                                return client.post().uri("/wallet")
+                                        .bodyValue(body)
+                                        .retrieve()
+                                        .toBodilessEntity()
+                                        .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                                            if (!isRejected(signal.failure()) || signal.totalRetries() >= MAX_RETRIES) {
+                                                return Mono.error(signal.failure());
+                                            }
+                                            rejected.incrementAndGet();
+                                            return Mono.delay(retryAfter((WebClientResponseException) signal.failure()));
+                                        })))
+                                        .doOnSuccess(response -> latencies[completed.getAndIncrement()] =
+                                                System.nanoTime() - requestStartedAt);
+                            })
+                            .onErrorResume(ex -> {
+                                failed.incrementAndGet();
+                                return Mono.empty();
+                            });
+                }, concurrency)
+                .blockLast();
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        int succeeded = completed.get();
+        long[] measured = Arrays.copyOf(latencies, Math.max(succeeded, 1));
+        Arrays.sort(measured);
+        return new Result(
+                succeeded / (elapsedNanos / 1_000_000_000.0),
+                measured[(int) (measured.length * 0.50)] / 1_000_000.0,
+                measured[(int) (measured.length * 0.99)] / 1_000_000.0,
+                rejected.get(),
+                failed.get());
+    }
+
+    private static Duration retryAfter(WebClientResponseException response) {
+        String retryAfter = response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        return retryAfter == null ? Duration.ZERO : Duration.ofSeconds(Long.parseLong(retryAfter));
+    }
+
+    private static boolean isRejected(Throwable ex) {
+        return ex instanceof WebClientResponseException response
+                && response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * @param throughput успешных запросов в секунду
+     * @param rejected   отказов допуска (503), после которых запрос был повторён
+     * @param failed     запросов, завершившихся ошибкой, включая отклонённые после {@link #MAX_RETRIES} повторов
+     */
+    record Result(double throughput, double p50Millis, double p99Millis, int rejected, int failed) {
+
+        @Override
+        public String toString() {
+            return "%.0f req/s, p50 %.1f ms, p99 %.1f ms, rejected %d, failed %d"
+                    .formatted(throughput, p50Millis, p99Millis, rejected, failed);
+        }
+    }
+}
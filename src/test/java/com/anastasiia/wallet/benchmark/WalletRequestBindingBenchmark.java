@@ -0,0 +1,75 @@
+package com.anastasiia.wallet.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Разбор JSON операции в {@link WalletOperationRequest} и его валидация — то, что выполняется
+ * для каждого запроса {@code POST /api/v1/wallet} до обращения к сервису
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalletRequestBindingBenchmark {
+
+    private byte[] validJson;
+    private byte[] invalidJson;
+    private ObjectReader reader;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup
+    public void setUp() {
+        validJson = """
+                {"walletId": "7c4a8d09-ca37-4f3e-9b5a-3c1e7a0f2b11", "operationType": "DEPOSIT", "amount": 1234.56}
+                """.getBytes();
+        invalidJson = """
+                {"walletId": "7c4a8d09-ca37-4f3e-9b5a-3c1e7a0f2b11", "operationType": "WITHDRAW", "amount": 0.001}
+                """.getBytes();
+        reader = new ObjectMapper().readerFor(WalletOperationRequest.class);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public WalletOperationRequest bind() throws Exception {
+        return reader.readValue(validJson);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<WalletOperationRequest>> bindAndValidate() throws Exception {
+        return validator.validate(reader.<WalletOperationRequest>readValue(validJson));
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<WalletOperationRequest>> bindAndRejectInvalid() throws Exception {
+        return validator.validate(reader.<WalletOperationRequest>readValue(invalidJson));
+    }
+}
@@ -0,0 +1,125 @@
+package com.anastasiia.wallet.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.WalletServiceApplication;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * {@link WalletService} на настоящем Postgres без HTTP-слоя. Число потоков задаёт запуск
+ * ({@link WalletJmhBenchmarkTest}): {@link #depositToHotWallet} показывает конкуренцию за строку одного кошелька,
+ * {@link #depositToOwnWallet} — ту же операцию без неё.
+ * <p>
+ * База — контейнер {@code postgres:13} или внешняя, если задано свойство {@value #DATASOURCE_URL}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class WalletServiceBenchmark {
+
+    static final String DATASOURCE_URL = "benchmark.datasource.url";
+    static final String DATASOURCE_USERNAME = "benchmark.datasource.username";
+    static final String DATASOURCE_PASSWORD = "benchmark.datasource.password";
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @State(Scope.Benchmark)
+    public static class Application {
+
+        private PostgreSQLContainer<?> postgres;
+        private ConfigurableApplicationContext context;
+        WalletService walletService;
+        WalletOperationRequest hotWalletDeposit;
+
+        @Setup(Level.Trial)
+        public void start() {
+            String url = System.getProperty(DATASOURCE_URL);
+            String username = System.getProperty(DATASOURCE_USERNAME, "postgres");
+            String password = System.getProperty(DATASOURCE_PASSWORD, "postgres");
+            if (url == null) {
+                postgres = new PostgreSQLContainer<>("postgres:13").withDatabaseName("test_wallet_db");
+                postgres.start();
+                url = postgres.getJdbcUrl();
+                username = postgres.getUsername();
+                password = postgres.getPassword();
+            }
+            context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(WalletLoadGenerator.arguments(Map.of(
+                            "spring.jpa.show-sql", "false",
+                            "logging.level.com.anastasiia.wallet", "WARN",
+                            "spring.datasource.url", url,
+                            "spring.datasource.username", username,
+                            "spring.datasource.password", password)));
+            walletService = context.getBean(WalletService.class);
+            hotWalletDeposit = deposit(walletService.createWallet().getId());
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnWallet {
+
+        UUID walletId;
+        WalletOperationRequest deposit;
+
+        @Setup(Level.Trial)
+        public void create(Application application) {
+            walletId = application.walletService.createWallet().getId();
+            deposit = deposit(walletId);
+            application.walletService.processOperation(deposit);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal depositToOwnWallet(Application application, OwnWallet wallet) {
+        return application.walletService.processOperation(wallet.deposit);
+    }
+
+    @Benchmark
+    public BigDecimal depositToHotWallet(Application application) {
+        return application.walletService.processOperation(application.hotWalletDeposit);
+    }
+
+    @Benchmark
+    public BigDecimal getBalance(Application application, OwnWallet wallet) {
+        return application.walletService.getBalance(wallet.walletId);
+    }
+
+    private static WalletOperationRequest deposit(UUID walletId) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(WalletOperationRequest.OperationType.DEPOSIT);
+        request.setAmount(AMOUNT);
+        return request;
+    }
+}
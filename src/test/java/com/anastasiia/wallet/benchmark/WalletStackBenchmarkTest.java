@@ -0,0 +1,70 @@
+package com.anastasiia.wallet.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import com.anastasiia.wallet.WalletServiceApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Сравнение блокирующего стека (MVC + JPA) и неблокирующего (WebFlux + R2DBC) при высокой конкурентности.
+ * Оба приложения поднимаются в одной JVM на общей базе и получают одинаковую нагрузку пополнениями
+ * по множеству кошельков. Запуск: {@code mvn test -Pbenchmark}, параметры нагрузки задаются
+ * системными свойствами {@code benchmark.*}.
+ */
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+@DisplayName("Нагрузочное сравнение блокирующего и реактивного стеков")
+class WalletStackBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 1024);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db")
+            .withCommand("postgres", "-c", "max_connections=200");
+
+    @Test
+    @DisplayName("p99 и пропускная способность пополнений")
+    void depositLatencyAndThroughput_blockingComparedToReactive() {
+        WalletLoadGenerator.Result blocking = run("blocking");
+        WalletLoadGenerator.Result reactive = run("reactive");
+
+        log.info("Stack comparison at concurrency {}: blocking {} | reactive {}", CONCURRENCY, blocking, reactive);
+        assertThat(blocking.failed()).isZero();
+        assertThat(reactive.failed()).isZero();
+    }
+
+    private WalletLoadGenerator.Result run(String stack) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(WalletServiceApplication.class);
+        if ("reactive".equals(stack)) {
+            builder.profiles("reactive");
+        }
+
+        String[] arguments = WalletLoadGenerator.arguments(Map.of(
+                    "server.port", "0",
+                    "spring.jpa.show-sql", "false",
+                    "logging.level.com.anastasiia.wallet", "INFO",
+                    "spring.datasource.url", postgres.getJdbcUrl(),
+                    "spring.datasource.username", postgres.getUsername(),
+                    "spring.datasource.password", postgres.getPassword(),
+                    "spring.r2dbc.url", "r2dbc:postgresql://%s:%d/%s".formatted(postgres.getHost(),
+                            postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), postgres.getDatabaseName())));
+
+        try (ConfigurableApplicationContext context = builder.run(arguments)) {
+            WalletLoadGenerator.Result result = WalletLoadGenerator.run(context, CONCURRENCY);
+            log.info("{} stack: {}", stack, result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.anastasiia.wallet.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.anastasiia.wallet.WalletServiceApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Сравнение обработки запросов на платформенных и виртуальных потоках при 10 000 одновременных клиентов.
+ * Виртуальные потоки прогоняются дважды: без допуска, когда все запросы сразу встают в очередь пула
+ * соединений, и в профиле {@code virtual}, где лишние запросы ждут разрешения ограниченное время
+ * или отклоняются с 503. Проект собирается под Java 17, поэтому тест вынесен из {@code -Pbenchmark} в профиль,
+ * который собирает его под Java 21: {@code mvn test -Pjava21} на JDK 21+.
+ */
+@Slf4j
+@Tag("java21")
+@Testcontainers
+@DisplayName("Нагрузочное сравнение платформенных и виртуальных потоков")
+class WalletThreadingBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.threading.concurrency", 10_000);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @Test
+    @DisplayName("p99, пропускная способность и отказы на платформенных и виртуальных потоках")
+    void depositLatencyAndThroughput_platformComparedToVirtual() {
+        WalletLoadGenerator.Result platform = run("platform", Map.of(
+                "server.tomcat.max-connections", String.valueOf(CONCURRENCY),
+                "server.tomcat.accept-count", String.valueOf(CONCURRENCY)));
+        WalletLoadGenerator.Result virtual = run("virtual", Map.of(
+                "spring.threads.virtual.enabled", "true",
+                "server.tomcat.max-connections", String.valueOf(CONCURRENCY),
+                "server.tomcat.accept-count", String.valueOf(CONCURRENCY)));
+        WalletLoadGenerator.Result admitted = run("virtual with admission", Map.of(), "virtual");
+
+        log.info("Threading comparison at concurrency {}: platform {} | virtual {} | virtual with admission {}",
+                CONCURRENCY, platform, virtual, admitted);
+        // Без допуска виртуальные потоки могут не дождаться соединения из пула, с допуском лишние запросы
+        // отклоняются до обращения к базе
+        assertThat(platform.failed()).isZero();
+        assertThat(admitted.failed()).isZero();
+    }
+
+    private WalletLoadGenerator.Result run(String mode, Map<String, Object> modeProperties, String... profiles) {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+                "server.port", "0",
+                "spring.jpa.show-sql", "false",
+                "logging.level.com.anastasiia.wallet", "INFO",
+                "spring.datasource.url", postgres.getJdbcUrl(),
+                "spring.datasource.username", postgres.getUsername(),
+                "spring.datasource.password", postgres.getPassword()));
+        properties.putAll(modeProperties);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .profiles(profiles)
+                .run(WalletLoadGenerator.arguments(properties))) {
+            WalletLoadGenerator.Result result = WalletLoadGenerator.run(context, CONCURRENCY);
+            log.info("{} threads: {}", mode, result);
+            return result;
+        }
+    }
+}
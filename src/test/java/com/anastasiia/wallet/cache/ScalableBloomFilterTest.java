@@ -0,0 +1,94 @@
+package com.anastasiia.wallet.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Юнит тесты ScalableBloomFilter")
+class ScalableBloomFilterTest {
+
+    private static final int WALLETS = 100_000;
+    private static final int PROBES = 200_000;
+
+    @Test
+    @Order(1)
+    @DisplayName("Добавленные идентификаторы всегда найдены, доля ложных срабатываний не выше заданной")
+    void mightContain_noFalseNegatives_boundedFalsePositives() {
+        // given
+        ScalableBloomFilter filter = new ScalableBloomFilter(WALLETS, 0.01);
+        List<UUID> walletIds = randomIds(new Random(42), WALLETS);
+
+        // when
+        walletIds.forEach(filter::add);
+
+        // then
+        assertThat(walletIds).allMatch(filter::mightContain);
+        assertThat(falsePositiveRate(filter, new Random(7))).isLessThan(0.01);
+        assertThat(filter.stageCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Переполненный фильтр добавляет ступени и держит долю ложных срабатываний")
+    void add_beyondCapacity_growsStages() {
+        // given
+        ScalableBloomFilter filter = new ScalableBloomFilter(WALLETS / 20, 0.01);
+        List<UUID> walletIds = randomIds(new Random(42), WALLETS);
+        long initialSize = filter.sizeInBytes();
+
+        // when
+        walletIds.forEach(filter::add);
+
+        // then
+        assertThat(walletIds).allMatch(filter::mightContain);
+        assertThat(filter.stageCount()).isGreaterThan(1);
+        assertThat(filter.sizeInBytes()).isGreaterThan(initialSize);
+        assertThat(falsePositiveRate(filter, new Random(7))).isLessThan(0.01);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Повторное добавление не расходует ёмкость фильтра")
+    void add_sameIdTwice_doesNotGrow() {
+        // given
+        ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+        UUID walletId = UUID.randomUUID();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            filter.add(walletId);
+        }
+
+        // then
+        assertThat(filter.mightContain(walletId)).isTrue();
+        assertThat(filter.stageCount()).isEqualTo(1);
+    }
+
+    private static double falsePositiveRate(ScalableBloomFilter filter, Random random) {
+        int positives = 0;
+        for (UUID probe : randomIds(random, PROBES)) {
+            if (filter.mightContain(probe)) {
+                positives++;
+            }
+        }
+        return (double) positives / PROBES;
+    }
+
+    private static List<UUID> randomIds(Random random, int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return ids;
+    }
+}
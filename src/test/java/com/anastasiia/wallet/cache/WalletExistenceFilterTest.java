@@ -0,0 +1,206 @@
+package com.anastasiia.wallet.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.existence-filter.enabled=true",
+        // Ложное срабатывание на случайном идентификаторе сделало бы проверки отклонения нестабильными
+        "wallet.existence-filter.false-positive-rate=0.00001",
+        "wallet.existence-filter.expected-wallets=1000"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты фильтра существующих кошельков")
+class WalletExistenceFilterTest {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletExistenceFilter existenceFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Первая загрузка идёт в фоне; до неё фильтр пропускает все запросы
+        existenceFilter.reload();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Неизвестный кошелёк отклоняется фильтром с 404, созданный — находится")
+    void unknownWallet_rejectedByFilter_createdWalletFound() throws Exception {
+        // given
+        UUID createdWallet = walletService.createWallet().getId();
+        double rejected = rejected();
+
+        // when & then
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId": "%s", "operationType": "DEPOSIT", "amount": 1.00}
+                                """.formatted(UUID.randomUUID())))
+                .andExpect(status().isNotFound());
+        assertThat(rejected()).isEqualTo(rejected + 2);
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", createdWallet))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0.00"));
+        assertThat(rejected()).isEqualTo(rejected + 2);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Кошелёк, созданный другим экземпляром, становится известен по уведомлению")
+    void walletCreatedElsewhere_knownAfterNotification() throws Exception {
+        // given
+        UUID walletId = insertWallet();
+        assertThat(existenceFilter.mightExist(walletId)).isFalse();
+
+        // when
+        jdbcTemplate.queryForList("SELECT pg_notify('wallet_created', ?)", "other-instance;" + walletId);
+
+        // then
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!existenceFilter.mightExist(walletId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(existenceFilter.mightExist(walletId)).isTrue();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Перезагрузка фильтра подхватывает кошельки, о которых не было уведомлений")
+    void reload_picksUpWalletsWithoutNotification() {
+        // given
+        UUID walletId = insertWallet();
+        assertThat(existenceFilter.mightExist(walletId)).isFalse();
+
+        // when
+        existenceFilter.reload();
+
+        // then
+        assertThat(existenceFilter.mightExist(walletId)).isTrue();
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Кошелёк, которого нет в фильтре, отклоняется без запроса к базе")
+    void walletMissingFromFilter_rejectedWithoutDatabase() throws Exception {
+        // given
+        UUID walletId = insertWallet();
+        double rejected = rejected();
+
+        // when & then
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(status().isNotFound());
+        assertThat(rejected()).isEqualTo(rejected + 1);
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Созданные кошельки рассылаются при фиксации их транзакции")
+    void createdWallets_notifiedOnCommit() throws Exception {
+        // given
+        List<UUID> notified = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN wallet_created");
+            }
+
+            // when
+            UUID created = walletService.createWallet().getId();
+            List<UUID> bulk = new ArrayList<>();
+            walletService.createWallets(3, bulk::addAll);
+
+            // then
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+            while (notified.size() < 4 && System.currentTimeMillis() < deadline) {
+                PGNotification[] notifications = pgConnection.getNotifications(100);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        String payload = notification.getParameter();
+                        for (String walletId : payload.substring(payload.indexOf(';') + 1).split(",")) {
+                            notified.add(UUID.fromString(walletId));
+                        }
+                    }
+                }
+            }
+            assertThat(notified).containsExactlyInAnyOrder(
+                    created, bulk.get(0), bulk.get(1), bulk.get(2));
+        }
+    }
+
+    private UUID insertWallet() {
+        UUID walletId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets (id, balance) VALUES (?, 0)", walletId);
+        return walletId;
+    }
+
+    private double rejected() {
+        return meterRegistry.get("wallet.existence.rejected").counter().count();
+    }
+
+}
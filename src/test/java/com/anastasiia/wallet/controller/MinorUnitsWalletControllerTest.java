@@ -0,0 +1,216 @@
+package com.anastasiia.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(properties = {
+        "wallet.storage.mode=minor_units",
+        "wallet.history.enabled=true"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты MinorUnitsWalletController")
+class MinorUnitsWalletControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Пополнение и списание принимают и возвращают десятичные суммы")
+    void depositAndWithdraw_decimalJson() throws Exception {
+        // given
+        UUID walletId = createWallet();
+
+        // when & then
+        postOperation(walletId, "DEPOSIT", "555.55")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.walletId").value(walletId.toString()))
+                .andExpect(jsonPath("$.balance").value(555.55))
+                .andExpect(header().doesNotExist(WalletController.READ_YOUR_WRITES_HEADER));
+        postOperation(walletId, "WITHDRAW", "0.5")
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"balance\": 555.05}"));
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("555.05"));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Ошибки возвращаются в том же формате, что и в режиме balance")
+    void errors_sameContract() throws Exception {
+        // given
+        UUID walletId = createWallet();
+
+        // when & then
+        postOperation(walletId, "WITHDRAW", "1.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("INSUFFICIENT_FUNDS"))
+                .andExpect(jsonPath("$.message").value(
+                        "Insufficient funds in wallet with id %s: requested 1.00, available 0.00".formatted(walletId)));
+        postOperation(UUID.randomUUID(), "DEPOSIT", "1.00")
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+        postOperation(walletId, "DEPOSIT", "0.001")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("BAD_REQUEST"));
+        postOperation(walletId, "DEPOSIT", "0")
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Переполнение баланса отклоняется без изменения кошелька")
+    void deposit_overflow_rejected() throws Exception {
+        // given
+        UUID walletId = createWallet();
+        postOperation(walletId, "DEPOSIT", "9999999999999.99").andExpect(status().isOk());
+
+        // when & then
+        postOperation(walletId, "DEPOSIT", "0.01")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("BALANCE_OVERFLOW"));
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(content().string("9999999999999.99"));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Переводы, пакеты и слоты над wallets.balance отклоняются")
+    void transferBatchAndStripes_unsupported() throws Exception {
+        // given
+        UUID fromWalletId = createWallet();
+        UUID toWalletId = createWallet();
+        postOperation(fromWalletId, "DEPOSIT", "100.00").andExpect(status().isOk());
+
+        // when & then
+        mockMvc.perform(post("/api/v1/wallets/operations:transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"fromWalletId": "%s", "toWalletId": "%s", "amount": 30.50}
+                                """.formatted(fromWalletId, toWalletId)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("UNSUPPORTED_OPERATION"));
+        mockMvc.perform(post("/api/v1/wallets/operations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"mode": "ATOMIC", "operations": [
+                                    {"walletId": "%s", "operationType": "WITHDRAW", "amount": 0.50}
+                                ]}
+                                """.formatted(fromWalletId)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("UNSUPPORTED_OPERATION"));
+        mockMvc.perform(put("/api/v1/wallets/{walletId}/stripes", toWalletId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stripes\": 4}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("UNSUPPORTED_OPERATION"));
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", fromWalletId))
+                .andExpect(content().string("100.00"));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Баланс, записанный в другом режиме, переводится в копейки при первой операции")
+    void balanceFromAnotherMode_convertedOnFirstOperation() throws Exception {
+        // given
+        UUID walletId = createWallet();
+        jdbcTemplate.update("UPDATE wallets SET balance = 7.25 WHERE id = ?", walletId);
+
+        // when & then
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(content().string("7.25"));
+        postOperation(walletId, "DEPOSIT", "0.75")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(8.00));
+        assertThat(jdbcTemplate.queryForObject("SELECT balance_minor FROM wallets WHERE id = ?", Long.class, walletId))
+                .isEqualTo(800L);
+        mockMvc.perform(get("/api/v1/wallets/{walletId}/operations", walletId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].balanceAfter").value(8.00));
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Операции в копейках пишут только balance_minor")
+    void minorUnitOperations_writeBigintColumn() throws Exception {
+        // given
+        UUID walletId = createWallet();
+
+        // when
+        postOperation(walletId, "DEPOSIT", "12.34").andExpect(status().isOk());
+
+        // then
+        assertThat(jdbcTemplate.queryForObject("SELECT balance_minor FROM wallets WHERE id = ?", Long.class, walletId))
+                .isEqualTo(1234L);
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", String.class, walletId))
+                .isEqualTo("0.00");
+    }
+
+    private UUID createWallet() throws Exception {
+        String response = mockMvc.perform(post("/api/v1/create"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(0))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, WalletResponse.class).walletId();
+    }
+
+    private ResultActions postOperation(UUID walletId, String operationType, String amount) throws Exception {
+        return mockMvc.perform(post("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"walletId": "%s", "operationType": "%s", "amount": %s}
+                        """.formatted(walletId, operationType, amount)));
+    }
+}
@@ -0,0 +1,263 @@
+package com.anastasiia.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты ReactiveWalletController")
+class ReactiveWalletControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://%s:%d/%s".formatted(
+                postgres.getHost(), postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), postgres.getDatabaseName()));
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Пополнение и списание возвращают баланс после операции")
+    void depositAndWithdraw_success() {
+        // given
+        UUID walletId = createWallet();
+
+        // when & then
+        postOperation(walletId, WalletOperationRequest.OperationType.DEPOSIT, "100.00")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.walletId").isEqualTo(walletId.toString())
+                .jsonPath("$.balance").isEqualTo(100.00);
+
+        postOperation(walletId, WalletOperationRequest.OperationType.WITHDRAW, "30.50")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(69.50);
+
+        webTestClient.get().uri("/api/v1/wallets/{walletId}", walletId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BigDecimal.class).isEqualTo(new BigDecimal("69.50"));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Ошибки возвращаются в том же формате, что и в блокирующем стеке")
+    void errors_sameContract() {
+        // given
+        UUID walletId = createWallet();
+
+        // when & then
+        postOperation(walletId, WalletOperationRequest.OperationType.WITHDRAW, "1.00")
+                .expectStatus().isEqualTo(422)
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("INSUFFICIENT_FUNDS");
+
+        postOperation(UUID.randomUUID(), WalletOperationRequest.OperationType.DEPOSIT, "1.00")
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("NOT_FOUND");
+
+        webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ invalid json }")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("BAD_REQUEST")
+                .jsonPath("$.message").isEqualTo("Invalid JSON format");
+
+        postOperation(walletId, WalletOperationRequest.OperationType.DEPOSIT, "-1.00")
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Операции над кошельком, разнесённым по слотам")
+    void stripedWallet_operationsApplied() {
+        // given
+        UUID walletId = createWallet();
+        postOperation(walletId, WalletOperationRequest.OperationType.DEPOSIT, "10.00").expectStatus().isOk();
+
+        // when
+        webTestClient.put().uri("/api/v1/wallets/{walletId}/stripes", walletId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"stripes\": 4}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(10.00);
+
+        // then
+        postOperation(walletId, WalletOperationRequest.OperationType.WITHDRAW, "9.00")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(1.00);
+        postOperation(walletId, WalletOperationRequest.OperationType.WITHDRAW, "2.00")
+                .expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Атомарный пакет откатывается целиком")
+    void atomicBatchWithFailure_rolledBack() {
+        // given
+        UUID firstWallet = createWallet();
+        UUID secondWallet = createWallet();
+        WalletBatchRequest request = new WalletBatchRequest();
+        request.setMode(WalletBatchRequest.Mode.ATOMIC);
+        request.setOperations(List.of(
+                createRequest(firstWallet, WalletOperationRequest.OperationType.DEPOSIT, "5.00"),
+                createRequest(secondWallet, WalletOperationRequest.OperationType.WITHDRAW, "1.00")));
+
+        // when & then
+        webTestClient.post().uri("/api/v1/wallets/operations:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.committed").isEqualTo(false)
+                .jsonPath("$.items[0].status").isEqualTo("ROLLED_BACK")
+                .jsonPath("$.items[1].status").isEqualTo("INSUFFICIENT_FUNDS");
+
+        webTestClient.get().uri("/api/v1/wallets/{walletId}", firstWallet)
+                .exchange()
+                .expectBody(BigDecimal.class).isEqualTo(new BigDecimal("0.00"));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Пакет с независимыми результатами применяет успешные операции")
+    void perItemBatch_successfulOperationsApplied() {
+        // given
+        UUID walletId = createWallet();
+        WalletBatchRequest request = new WalletBatchRequest();
+        request.setMode(WalletBatchRequest.Mode.PER_ITEM);
+        request.setOperations(List.of(
+                createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, "5.00"),
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, "7.00"),
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, "2.00")));
+
+        // when & then
+        webTestClient.post().uri("/api/v1/wallets/operations:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.committed").isEqualTo(true)
+                .jsonPath("$.items[1].status").isEqualTo("INSUFFICIENT_FUNDS")
+                .jsonPath("$.items[1].balance").doesNotExist()
+                .jsonPath("$.items[2].balance").isEqualTo(3.00);
+
+        webTestClient.get().uri("/api/v1/wallets/{walletId}", walletId)
+                .exchange()
+                .expectBody(BigDecimal.class).isEqualTo(new BigDecimal("3.00"));
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Перевод между кошельками, один из которых разнесён по слотам")
+    void transfer_stripedAndPlainWallets() {
+        // given
+        UUID fromWallet = createWallet();
+        UUID toWallet = createWallet();
+        postOperation(fromWallet, WalletOperationRequest.OperationType.DEPOSIT, "10.00").expectStatus().isOk();
+        webTestClient.put().uri("/api/v1/wallets/{walletId}/stripes", toWallet)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"stripes\": 2}")
+                .exchange()
+                .expectStatus().isOk();
+
+        // when & then
+        postTransfer(fromWallet, toWallet, "7.00")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.fromBalance").isEqualTo(3.00)
+                .jsonPath("$.toBalance").isEqualTo(7.00);
+
+        postTransfer(toWallet, fromWallet, "2.00")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.fromBalance").isEqualTo(5.00)
+                .jsonPath("$.toBalance").isEqualTo(5.00);
+
+        postTransfer(fromWallet, toWallet, "5.01")
+                .expectStatus().isEqualTo(422)
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("INSUFFICIENT_FUNDS");
+    }
+
+    private UUID createWallet() {
+        WalletResponse response = webTestClient.post().uri("/api/v1/create")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(WalletResponse.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(response).isNotNull();
+        return response.walletId();
+    }
+
+    private WebTestClient.ResponseSpec postOperation(UUID walletId,
+                                                     WalletOperationRequest.OperationType type,
+                                                     String amount) {
+        return webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createRequest(walletId, type, amount))
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec postTransfer(UUID fromWalletId, UUID toWalletId, String amount) {
+        WalletTransferRequest request = new WalletTransferRequest();
+        request.setFromWalletId(fromWalletId);
+        request.setToWalletId(toWalletId);
+        request.setAmount(new BigDecimal(amount));
+        return webTestClient.post().uri("/api/v1/wallets/operations:transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange();
+    }
+
+    private WalletOperationRequest createRequest(UUID walletId, WalletOperationRequest.OperationType type, String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
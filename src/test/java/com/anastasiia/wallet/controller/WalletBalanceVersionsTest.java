@@ -0,0 +1,178 @@
+package com.anastasiia.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.balance-versions.enabled=true",
+        "wallet.balance-cache.invalidation.enabled=true",
+        "wallet.balance-versions.notify-interval=300ms"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты версий балансов и ожидания изменений")
+class WalletBalanceVersionsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Неизменившийся баланс — 304 по ETag, после операции — новый баланс и новый ETag")
+    void ifNoneMatch_notModifiedUntilBalanceChanges() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        String etag = etag(mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn());
+        double unchanged = meterRegistry.get("wallet.balance.unchanged").counter().count();
+
+        // when & then
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertThat(meterRegistry.get("wallet.balance.unchanged").counter().count()).isEqualTo(unchanged + 1);
+
+        deposit(walletId, "10.00");
+        MvcResult changed = mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string("10.00"))
+                .andReturn();
+        assertThat(etag(changed)).isNotEqualTo(etag);
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId).header(HttpHeaders.IF_NONE_MATCH, "\"other-1\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Ожидающие запросы просыпаются один раз на серию изменений и получают новый баланс")
+    void longPoll_burstOfChanges_wakesWaitersOnce() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        String etag = etag(mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId)).andReturn());
+        MvcResult first = park(walletId, etag, 10);
+        MvcResult second = park(walletId, etag, 10);
+        double notifications = meterRegistry.get("wallet.balance.notifications").counter().count();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            deposit(walletId, "1.00");
+        }
+
+        // then
+        MvcResult firstResult = mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult secondResult = mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(etag(firstResult)).isNotEqualTo(etag).isEqualTo(etag(secondResult));
+        assertThat(new BigDecimal(firstResult.getResponse().getContentAsString()))
+                .isPositive()
+                .isEqualByComparingTo(secondResult.getResponse().getContentAsString());
+        assertThat(meterRegistry.get("wallet.balance.notifications").counter().count()).isEqualTo(notifications + 1);
+        assertThat(meterRegistry.get("wallet.balance.waiters").gauge().value()).isZero();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Без изменений ожидание заканчивается 304, с устаревшей версией ответ приходит сразу")
+    void longPoll_timeoutReturnsNotModified_staleVersionAnsweredImmediately() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        String etag = etag(mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId)).andReturn());
+
+        // when & then
+        MvcResult parked = park(walletId, etag, 1);
+        // MockMvc не отсчитывает время ожидания сам
+        MockAsyncContext asyncContext = (MockAsyncContext) parked.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+        mockMvc.perform(asyncDispatch(parked))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        deposit(walletId, "5.00");
+        MvcResult stale = mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId)
+                        .param("wait", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(stale))
+                .andExpect(status().isOk())
+                .andExpect(content().string("5.00"));
+        assertThat(meterRegistry.get("wallet.balance.waiters").gauge().value()).isZero();
+    }
+
+    private MvcResult park(UUID walletId, String etag, int waitSeconds) throws Exception {
+        return mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId)
+                        .param("wait", String.valueOf(waitSeconds))
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private void deposit(UUID walletId, String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(WalletOperationRequest.OperationType.DEPOSIT);
+        request.setAmount(new BigDecimal(amount));
+        walletService.processOperation(request);
+    }
+
+    private static String etag(MvcResult result) {
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -1,12 +1,18 @@
 package com.anastasiia.wallet.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 import com.anastasiia.wallet.service.WalletOperationRequest;
@@ -17,6 +23,7 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
@@ -30,6 +37,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 @Testcontainers
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @DisplayName("Интеграционные тесты WalletController")
@@ -80,7 +88,9 @@ public class WalletControllerTest {
         mockMvc.perform(post("/api/v1/wallet")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.walletId").value(walletId.toString()))
+                .andExpect(jsonPath("$.balance").value(555.55));
 
         mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
                 .andExpect(status().isOk())
@@ -104,7 +114,8 @@ public class WalletControllerTest {
         mockMvc.perform(post("/api/v1/wallet")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(333.33));
 
         mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
                 .andExpect(status().isOk())
@@ -200,6 +211,266 @@ public class WalletControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @Order(9)
+    @DisplayName("Разнесение баланса по слотам и списание больше одного слота")
+    void restripeWallet_balancePreservedAcrossSlots() throws Exception {
+        // given
+        UUID walletId = createWallet();
+        deposit(walletId, "100.00");
+
+        // when & then
+        mockMvc.perform(put("/api/v1/wallets/{walletId}/stripes", walletId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stripes\": 4}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(100.00));
+
+        deposit(walletId, "0.03");
+
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(WalletOperationRequest.OperationType.WITHDRAW);
+        request.setAmount(new BigDecimal("90.00"));
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(status().isOk())
+                .andExpect(content().string("10.03"));
+
+        mockMvc.perform(put("/api/v1/wallets/{walletId}/stripes", walletId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stripes\": 0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(10.03));
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("Пакет операций с независимыми результатами")
+    void batchOperationsPerItem_partialSuccess() throws Exception {
+        // given
+        UUID firstWallet = createWallet();
+        UUID secondWallet = createWallet();
+        UUID unknownWallet = UUID.randomUUID();
+
+        String body = """
+                {"mode": "PER_ITEM", "operations": [
+                  {"walletId": "%1$s", "operationType": "DEPOSIT", "amount": 100.00},
+                  {"walletId": "%2$s", "operationType": "WITHDRAW", "amount": 1.00},
+                  {"walletId": "%1$s", "operationType": "WITHDRAW", "amount": 30.00},
+                  {"walletId": "%3$s", "operationType": "DEPOSIT", "amount": 5.00}
+                ]}
+                """.formatted(firstWallet, secondWallet, unknownWallet);
+
+        // when & then
+        mockMvc.perform(post("/api/v1/wallets/operations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.committed").value(true))
+                .andExpect(jsonPath("$.items[0].status").value("SUCCESS"))
+                .andExpect(jsonPath("$.items[0].balance").value(100.00))
+                .andExpect(jsonPath("$.items[1].status").value("INSUFFICIENT_FUNDS"))
+                .andExpect(jsonPath("$.items[1].balance").doesNotExist())
+                .andExpect(jsonPath("$.items[2].status").value("SUCCESS"))
+                .andExpect(jsonPath("$.items[2].balance").value(70.00))
+                .andExpect(jsonPath("$.items[3].status").value("NOT_FOUND"));
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", firstWallet))
+                .andExpect(status().isOk())
+                .andExpect(content().string("70.00"));
+    }
+
+    @Test
+    @Order(11)
+    @DisplayName("Атомарный пакет операций откатывается целиком при ошибке")
+    void batchOperationsAtomic_rolledBack() throws Exception {
+        // given
+        UUID firstWallet = createWallet();
+        UUID secondWallet = createWallet();
+        deposit(secondWallet, "10.00");
+
+        String body = """
+                {"mode": "ATOMIC", "operations": [
+                  {"walletId": "%1$s", "operationType": "DEPOSIT", "amount": 100.00},
+                  {"walletId": "%2$s", "operationType": "WITHDRAW", "amount": 50.00}
+                ]}
+                """.formatted(firstWallet, secondWallet);
+
+        // when & then
+        mockMvc.perform(post("/api/v1/wallets/operations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.committed").value(false))
+                .andExpect(jsonPath("$.items[1].status").value("INSUFFICIENT_FUNDS"));
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", firstWallet))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0.00"));
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("Таймеры операций публикуются в формате Prometheus")
+    void prometheusEndpoint_exposesOperationTimers() throws Exception {
+        // given
+        deposit(createWallet(), "1.00");
+
+        // when & then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "wallet_operation_seconds_count{outcome=\"success\",type=\"deposit\",}")))
+                .andExpect(content().string(containsString("wallet_operation_seconds_bucket{outcome=\"success\"")))
+                .andExpect(content().string(containsString("wallet_transaction_commit_seconds_count")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")));
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("Перевод между кошельками")
+    void transfer_balancesOfBothWalletsReturned() throws Exception {
+        // given
+        UUID fromWallet = createWallet();
+        UUID toWallet = createWallet();
+        deposit(fromWallet, "100.00");
+        String body = """
+                {"fromWalletId": "%s", "toWalletId": "%s", "amount": %s}
+                """;
+
+        // when & then
+        mockMvc.perform(post("/api/v1/wallets/operations:transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(fromWallet, toWallet, "60.00")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromWalletId").value(fromWallet.toString()))
+                .andExpect(jsonPath("$.fromBalance").value(40.00))
+                .andExpect(jsonPath("$.toWalletId").value(toWallet.toString()))
+                .andExpect(jsonPath("$.toBalance").value(60.00));
+
+        mockMvc.perform(post("/api/v1/wallets/operations:transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(fromWallet, toWallet, "40.01")))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("INSUFFICIENT_FUNDS"));
+
+        mockMvc.perform(post("/api/v1/wallets/operations:transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(fromWallet, UUID.randomUUID(), "1.00")))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+
+        mockMvc.perform(post("/api/v1/wallets/operations:transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(fromWallet, fromWallet, "1.00")))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", toWallet))
+                .andExpect(status().isOk())
+                .andExpect(content().string("60.00"));
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("Массовое создание кошельков отдаёт идентификаторы потоком")
+    void bulkCreate_walletIdsStreamed() throws Exception {
+        // given
+        MvcResult started = mockMvc.perform(post("/api/v1/wallets:bulkCreate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"count\": 1000}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // when
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        // then
+        List<UUID> walletIds = result.getResponse().getContentAsString().lines()
+                .map(line -> UUID.fromString(line.substring("{\"walletId\":\"".length(), line.length() - 2)))
+                .toList();
+        assertThat(walletIds).hasSize(1000).doesNotHaveDuplicates();
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletIds.get(999)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0.00"));
+
+        mockMvc.perform(post("/api/v1/wallets:bulkCreate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"count\": 0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Пакетное чтение балансов отдаёт строку на каждый идентификатор в порядке запроса")
+    void batchGetBalances_linePerWalletInRequestOrder() throws Exception {
+        // given
+        UUID walletId = createWallet();
+        deposit(walletId, "42.50");
+        UUID unknownWalletId = UUID.randomUUID();
+        String ndjson = "{\"walletId\":\"" + unknownWalletId + "\"}\n"
+                + "not-a-uuid\n"
+                + "\"" + walletId + "\"\n";
+
+        // when
+        MvcResult fromJson = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/v1/wallets/balances:batchGet")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"walletIds\": [\"" + walletId + "\", \"" + unknownWalletId + "\"]}"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        MvcResult fromNdjson = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/v1/wallets/balances:batchGet")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content(ndjson))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // then
+        assertThat(fromJson.getResponse().getContentAsString().lines()).containsExactly(
+                "{\"walletId\":\"" + walletId + "\",\"status\":\"FOUND\",\"balance\":42.50}",
+                "{\"walletId\":\"" + unknownWalletId + "\",\"status\":\"NOT_FOUND\"}");
+        assertThat(fromNdjson.getResponse().getContentAsString().lines()).containsExactly(
+                "{\"walletId\":\"" + unknownWalletId + "\",\"status\":\"NOT_FOUND\"}",
+                "{\"status\":\"INVALID\",\"input\":\"not-a-uuid\"}",
+                "{\"walletId\":\"" + walletId + "\",\"status\":\"FOUND\",\"balance\":42.50}");
+
+        mockMvc.perform(post("/api/v1/wallets/balances:batchGet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"walletIds\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("Сумма с тремя знаками после точки - ошибка, баланс не меняется")
+    void operationWithThreeDecimalPlaces_badRequest() throws Exception {
+        // given
+        UUID walletId = createWallet();
+
+        // when & then
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId": "%s", "operationType": "DEPOSIT", "amount": 1.001}
+                                """.formatted(walletId)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0.00"));
+    }
+
     private UUID createWallet() throws Exception {
         MvcResult result = mockMvc.perform(post("/api/v1/create"))
                 .andReturn();
@@ -0,0 +1,182 @@
+package com.anastasiia.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.history.enabled=true",
+        "wallet.history.export-fetch-size=2"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты истории операций кошелька")
+class WalletHistoryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Каждая применённая операция попадает в историю с балансом после неё, отклонённая — нет")
+    void operations_recordedWithBalanceAfter() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        apply(walletId, WalletOperationRequest.OperationType.DEPOSIT, "100.00");
+        apply(walletId, WalletOperationRequest.OperationType.WITHDRAW, "30.00");
+        try {
+            apply(walletId, WalletOperationRequest.OperationType.WITHDRAW, "500.00");
+        } catch (RuntimeException ignored) {
+            // недостаточно средств
+        }
+
+        // when & then
+        mockMvc.perform(get("/api/v1/wallets/{walletId}/operations", walletId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].operationType").value("DEPOSIT"))
+                .andExpect(jsonPath("$.items[0].amount").value(100.00))
+                .andExpect(jsonPath("$.items[0].balanceAfter").value(100.00))
+                .andExpect(jsonPath("$.items[1].operationType").value("WITHDRAW"))
+                .andExpect(jsonPath("$.items[1].balanceAfter").value(70.00))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Страницы по курсору проходят историю целиком без пропусков и повторов")
+    void page_keysetCursorWalksWholeHistory() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        for (int i = 1; i <= 5; i++) {
+            apply(walletId, WalletOperationRequest.OperationType.DEPOSIT, i + ".00");
+        }
+
+        // when
+        JsonNode first = page(walletId, null);
+        JsonNode second = page(walletId, first.get("next").asLong());
+        JsonNode third = page(walletId, second.get("next").asLong());
+
+        // then
+        assertThat(first.get("items")).hasSize(2);
+        assertThat(second.get("items")).hasSize(2);
+        assertThat(third.get("items")).hasSize(1);
+        assertThat(third.has("next") && !third.get("next").isNull()).isFalse();
+        List<Double> balances = new ArrayList<>();
+        for (JsonNode page : List.of(first, second, third)) {
+            page.get("items").forEach(item -> balances.add(item.get("balanceAfter").asDouble()));
+        }
+        assertThat(balances).containsExactly(1.0, 3.0, 6.0, 10.0, 15.0);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Выгрузка отдаёт всю историю в NDJSON и CSV и продолжается с курсора")
+    void export_streamsNdjsonAndCsv() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        for (int i = 1; i <= 5; i++) {
+            apply(walletId, WalletOperationRequest.OperationType.DEPOSIT, "10.00");
+        }
+
+        // when
+        List<String> ndjson = export(walletId, MediaType.APPLICATION_NDJSON, null).lines().toList();
+        List<String> csv = export(walletId, MediaType.parseMediaType("text/csv"), null).lines().toList();
+        long thirdId = objectMapper.readTree(ndjson.get(2)).get("id").asLong();
+        List<String> resumed = export(walletId, MediaType.APPLICATION_NDJSON, thirdId).lines().toList();
+
+        // then
+        assertThat(ndjson).hasSize(5);
+        assertThat(objectMapper.readTree(ndjson.get(4)).get("balanceAfter").decimalValue())
+                .isEqualByComparingTo("50.00");
+        assertThat(csv).hasSize(6);
+        assertThat(csv.get(0)).isEqualTo("id,created_at,operation_type,amount,balance_after");
+        assertThat(csv.get(5)).endsWith(",DEPOSIT,10.00,50.00");
+        assertThat(resumed).containsExactlyElementsOf(ndjson.subList(3, 5));
+    }
+
+    private void apply(UUID walletId, WalletOperationRequest.OperationType type, String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(new BigDecimal(amount));
+        walletService.processOperation(request);
+    }
+
+    private JsonNode page(UUID walletId, Long after) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/v1/wallets/{walletId}/operations", walletId).param("limit", "2");
+        if (after != null) {
+            builder.param("after", after.toString());
+        }
+        String body = mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String export(UUID walletId, MediaType mediaType, Long after) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/v1/wallets/{walletId}/operations:export", walletId)
+                .header(HttpHeaders.ACCEPT, mediaType.toString());
+        if (after != null) {
+            builder.param("after", after.toString());
+        }
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
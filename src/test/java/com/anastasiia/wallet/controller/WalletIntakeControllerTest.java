@@ -0,0 +1,225 @@
+package com.anastasiia.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletIntakeOperation;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.impl.WalletIntake;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.intake.enabled=true",
+        "wallet.intake.workers=4",
+        "wallet.intake.claim-size=50",
+        "wallet.intake.poll-interval=20ms"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты асинхронного приёма операций")
+class WalletIntakeControllerTest {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletIntake walletIntake;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Принятая операция отвечает 202 и применяется в фоне")
+    void asyncOperation_acceptedThenApplied() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+
+        // when
+        MvcResult result = mockMvc.perform(post("/api/v1/wallet").param("mode", "async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "100.00"))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn();
+        UUID operationId = read(result).operationId();
+
+        // then
+        WalletIntakeOperation operation = awaitCompletion(operationId);
+        assertThat(operation.status()).isEqualTo(WalletIntakeOperation.Status.SUCCESS);
+        assertThat(operation.balance()).isEqualByComparingTo("100.00");
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                .andExpect(status().isOk())
+                .andExpect(content().string("100.00"));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Каждая операция горячего кошелька получает свой результат, баланс сходится")
+    void hotWallet_eachOperationGetsOutcome() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        UUID missingWallet = UUID.randomUUID();
+        List<UUID> operationIds = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            operationIds.add(submit(request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "1.00")));
+            operationIds.add(submit(request(walletId, WalletOperationRequest.OperationType.WITHDRAW, "1.50")));
+        }
+        UUID missingOperation = submit(request(missingWallet, WalletOperationRequest.OperationType.DEPOSIT, "1.00"));
+
+        // then
+        BigDecimal expected = BigDecimal.ZERO;
+        for (UUID operationId : operationIds) {
+            WalletIntakeOperation operation = awaitCompletion(operationId);
+            switch (operation.status()) {
+                case SUCCESS -> expected = operation.operationType() == WalletOperationRequest.OperationType.DEPOSIT
+                        ? expected.add(operation.amount())
+                        : expected.subtract(operation.amount());
+                case INSUFFICIENT_FUNDS -> {
+                    assertThat(operation.operationType()).isEqualTo(WalletOperationRequest.OperationType.WITHDRAW);
+                    assertThat(operation.balance()).isNull();
+                }
+                default -> throw new AssertionError("Unexpected status " + operation.status());
+            }
+        }
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo(expected);
+        assertThat(awaitCompletion(missingOperation).status()).isEqualTo(WalletIntakeOperation.Status.NOT_FOUND);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Неизвестная операция — 404, без mode операция выполняется синхронно")
+    void unknownOperation_notFound_syncModeUnchanged() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+
+        // when & then
+        mockMvc.perform(get("/api/v1/wallet/operations/{operationId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"));
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "5.00"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(5.00));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Операция, на которой падает пачка, не задерживает забранные вместе с ней и получает FAILED")
+    void failingOperation_doesNotBlockItsBatch() throws Exception {
+        // given
+        UUID healthyWallet = walletService.createWallet().getId();
+        UUID fullWallet = walletService.createWallet().getId();
+        jdbcTemplate.update("UPDATE wallets SET balance = 9999999999999.99 WHERE id = ?", fullWallet);
+
+        // when
+        // Обе операции фиксируются одной транзакцией и попадают в одну пачку
+        List<UUID> operationIds = transactionTemplate.execute(status -> List.of(
+                walletIntake.submit(request(fullWallet, WalletOperationRequest.OperationType.DEPOSIT, "1.00")).operationId(),
+                walletIntake.submit(request(healthyWallet, WalletOperationRequest.OperationType.DEPOSIT, "10.00")).operationId()));
+
+        // then
+        WalletIntakeOperation healthy = awaitCompletion(operationIds.get(1));
+        assertThat(healthy.status()).isEqualTo(WalletIntakeOperation.Status.SUCCESS);
+        assertThat(healthy.balance()).isEqualByComparingTo("10.00");
+        WalletIntakeOperation overflowing = awaitCompletion(operationIds.get(0));
+        assertThat(overflowing.status()).isEqualTo(WalletIntakeOperation.Status.FAILED);
+        assertThat(overflowing.error()).contains("overflow");
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, fullWallet))
+                .isEqualByComparingTo("9999999999999.99");
+    }
+
+    private UUID submit(WalletOperationRequest request) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/wallet").param("mode", "async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        return read(result).operationId();
+    }
+
+    private WalletIntakeOperation awaitCompletion(UUID operationId) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            WalletIntakeOperation operation = read(mockMvc.perform(get("/api/v1/wallet/operations/{operationId}", operationId))
+                    .andExpect(status().isOk())
+                    .andReturn());
+            if (operation.status() != WalletIntakeOperation.Status.PENDING || System.currentTimeMillis() > deadline) {
+                return operation;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private WalletIntakeOperation read(MvcResult result) throws Exception {
+        return objectMapper.readValue(result.getResponse().getContentAsString(), WalletIntakeOperation.class);
+    }
+
+    private static WalletOperationRequest request(UUID walletId, WalletOperationRequest.OperationType type,
+                                                  String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
@@ -0,0 +1,232 @@
+package com.anastasiia.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import com.anastasiia.wallet.replica.ReplicaRoutingDataSource;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Чтение с реплики потоковой репликации: реплика снимается с основной базы через {@code pg_basebackup}
+ * и подключается к ней по сети контейнеров.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.read-replicas.enabled=true",
+        "wallet.read-replicas.max-lag=1s",
+        "wallet.read-replicas.lag-check-interval=100ms"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты чтения с реплик")
+class WalletReplicaReadTest {
+
+    private static final String READ_YOUR_WRITES = WalletController.READ_YOUR_WRITES_HEADER;
+    private static final long WAIT_MILLIS = 10_000;
+
+    private static final String ALLOW_REPLICATION = """
+            echo "host replication all all md5" >> "$PGDATA/pg_hba.conf"
+            """;
+
+    private static final String START_REPLICA = """
+            until gosu postgres pg_basebackup -h primary -U test -D /var/lib/postgresql/data -R -X stream; do
+                sleep 1
+            done
+            chmod 700 /var/lib/postgresql/data
+            exec gosu postgres postgres -D /var/lib/postgresql/data
+            """;
+
+    static Network network = Network.newNetwork();
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withCopyToContainer(Transferable.of(ALLOW_REPLICATION), "/docker-entrypoint-initdb.d/replication.sh");
+
+    @Container
+    static GenericContainer<?> replica = new GenericContainer<>("postgres:13")
+            .withNetwork(network)
+            .withExposedPorts(5432)
+            .withEnv("PGPASSWORD", "test")
+            .withCommand("bash", "-c", START_REPLICA)
+            .dependsOn(postgres)
+            .waitingFor(Wait.forLogMessage(".*ready to accept read.only connections.*\\s", 1));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReplicaRoutingDataSource dataSource;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("wallet.read-replicas.nodes[0].name", () -> "replica-1");
+        registry.add("wallet.read-replicas.nodes[0].url", WalletReplicaReadTest::replicaJdbcUrl);
+        registry.add("wallet.read-replicas.nodes[0].username", postgres::getUsername);
+        registry.add("wallet.read-replicas.nodes[0].password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Чтение с токеном записи видит запись, догнавшая реплика обслуживает чтения")
+    void readWithToken_seesWrite_servedByReplicaOnceCaughtUp() throws Exception {
+        // given
+        UUID walletId = createWallet();
+
+        // when
+        String token = deposit(walletId, "100.00");
+
+        // then
+        mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId).header(READ_YOUR_WRITES, token))
+                .andExpect(status().isOk())
+                .andExpect(content().string("100.00"));
+
+        double replicaReads = reads("replica");
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (reads("replica") == replicaReads && System.currentTimeMillis() < deadline) {
+            mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId).header(READ_YOUR_WRITES, token))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("100.00"));
+            Thread.sleep(50);
+        }
+        assertThat(reads("replica")).isGreaterThan(replicaReads);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Реплика с остановленным воспроизведением журнала не используется после max-lag")
+    void laggingReplica_readsFallBackToPrimary() throws Exception {
+        // given
+        UUID walletId = createWallet();
+        deposit(walletId, "10.00");
+        replay("pg_wal_replay_pause()");
+
+        try {
+            // when
+            String token = deposit(walletId, "5.00");
+            Thread.sleep(1_500);
+            double primaryReads = reads("primary");
+
+            // then
+            mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId).header(READ_YOUR_WRITES, token))
+                    .andExpect(content().string("15.00"));
+            mockMvc.perform(get("/api/v1/wallets/{walletId}", walletId))
+                    .andExpect(content().string("15.00"));
+            assertThat(reads("primary")).isEqualTo(primaryReads + 2);
+            assertThat(meterRegistry.get("wallet.replica.lag").gauge().value()).isGreaterThan(1.0);
+        } finally {
+            replay("pg_wal_replay_resume()");
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Токен записи — позиция журнала после её фиксации")
+    void writeToken_isPrimaryPositionAfterCommit() throws Exception {
+        // given
+        UUID walletId = createWallet();
+        long before = primaryPosition();
+
+        // when
+        long token = Long.parseLong(deposit(walletId, "1.00"));
+
+        // then
+        assertThat(token).isGreaterThan(before).isLessThanOrEqualTo(primaryPosition());
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("wallet.replica.reads").tag("target", target).counter().count();
+    }
+
+    private void replay(String function) throws SQLException {
+        try (Connection connection = dataSource.getReplicas().get(0).getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SELECT " + function);
+        }
+    }
+
+    private long primaryPosition() throws SQLException {
+        try (Connection connection = dataSource.getPrimary().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private UUID createWallet() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/create"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(READ_YOUR_WRITES))
+                .andReturn();
+        return UUID.fromString(objectMapper.readTree(result.getResponse().getContentAsString())
+                .get("walletId").asText());
+    }
+
+    /**
+     * @return токен из ответа на пополнение
+     */
+    private String deposit(UUID walletId, String amount) throws Exception {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(WalletOperationRequest.OperationType.DEPOSIT);
+        request.setAmount(new BigDecimal(amount));
+        return mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(READ_YOUR_WRITES);
+    }
+
+    private static String replicaJdbcUrl() {
+        return "jdbc:postgresql://%s:%d/test_wallet_db".formatted(replica.getHost(), replica.getMappedPort(5432));
+    }
+}
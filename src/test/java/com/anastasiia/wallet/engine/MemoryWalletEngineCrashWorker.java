@@ -0,0 +1,87 @@
+package com.anastasiia.wallet.engine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Процесс для проверки восстановления: нагружает движок, пока его не завершат принудительно.
+ * <p>
+ * Каждый поток работает только со своими кошельками и выполняет операции по одной, поэтому у потока
+ * не больше одной неподтверждённой операции. Перед операцией печатается {@code @B <поток> <тип> <откуда> <куда>
+ * <сумма>}, после подтверждения — {@code @A <поток>}, после отказа — {@code @F <поток>}.
+ */
+class MemoryWalletEngineCrashWorker {
+
+    static final int SHARDS = 4;
+    static final int THREADS = 4;
+    static final int WALLETS_PER_THREAD = 8;
+    static final long INITIAL_BALANCE = 1_000;
+
+    public static void main(String[] args) {
+        MemoryWalletEngine engine = engine(Path.of(args[0]), DataSize.ofKilobytes(64), Duration.ofMillis(100));
+        List<UUID> walletIds = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int wallet = 0; wallet < WALLETS_PER_THREAD; wallet++) {
+                walletIds.add(walletId(thread, wallet));
+            }
+        }
+        long[] balances = new long[walletIds.size()];
+        Arrays.fill(balances, INITIAL_BALANCE);
+        engine.createAll(walletIds, balances);
+        System.out.println("@READY");
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            int index = thread;
+            new Thread(() -> run(engine, index), "crash-worker-" + thread).start();
+        }
+    }
+
+    static MemoryWalletEngine engine(Path directory, DataSize segmentSize, Duration snapshotInterval) {
+        return new MemoryWalletEngine(new StorageProperties(
+                StorageProperties.Mode.MEMORY,
+                new StorageProperties.Ledger(Duration.ofSeconds(1), Duration.ofHours(1), 2),
+                new StorageProperties.Memory(SHARDS, 1024, directory, segmentSize, snapshotInterval,
+                        Duration.ofSeconds(1))));
+    }
+
+    /**
+     * Идентификаторы подряд, чтобы кошельки одного потока попадали в разные шарды
+     */
+    static UUID walletId(int thread, int wallet) {
+        return new UUID(0, 1 + (long) thread * WALLETS_PER_THREAD + wallet);
+    }
+
+    private static void run(MemoryWalletEngine engine, int thread) {
+        Random random = new Random(thread);
+        while (true) {
+            int type = random.nextInt(3);
+            int from = random.nextInt(WALLETS_PER_THREAD);
+            int to = (from + 1 + random.nextInt(WALLETS_PER_THREAD - 1)) % WALLETS_PER_THREAD;
+            long amount = 1 + random.nextInt(500);
+            System.out.println("@B " + thread + " " + type + " " + from + " " + to + " " + amount);
+            try {
+                switch (type) {
+                    case 0 -> MemoryWalletEngine.await(engine.apply(walletId(thread, from),
+                            WalletOperationRequest.OperationType.DEPOSIT, amount));
+                    case 1 -> MemoryWalletEngine.await(engine.apply(walletId(thread, from),
+                            WalletOperationRequest.OperationType.WITHDRAW, amount));
+                    default -> MemoryWalletEngine.await(engine.transfer(walletId(thread, from),
+                            walletId(thread, to), amount));
+                }
+                System.out.println("@A " + thread);
+            } catch (InsufficientFundsException ex) {
+                System.out.println("@F " + thread);
+            }
+        }
+    }
+}
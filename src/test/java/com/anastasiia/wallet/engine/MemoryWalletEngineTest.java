@@ -0,0 +1,236 @@
+package com.anastasiia.wallet.engine;
+
+import static com.anastasiia.wallet.engine.MemoryWalletEngineCrashWorker.INITIAL_BALANCE;
+import static com.anastasiia.wallet.engine.MemoryWalletEngineCrashWorker.THREADS;
+import static com.anastasiia.wallet.engine.MemoryWalletEngineCrashWorker.WALLETS_PER_THREAD;
+import static com.anastasiia.wallet.engine.MemoryWalletEngineCrashWorker.walletId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Юнит тесты MemoryWalletEngine")
+class MemoryWalletEngineTest {
+
+    private static final int ACKNOWLEDGED_BEFORE_KILL = 2_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Order(1)
+    @DisplayName("Балансы и переводы внутри шарда и между шардами восстанавливаются после перезапуска")
+    void restart_balancesRecoveredFromSnapshotAndWal() {
+        // given
+        UUID first = new UUID(0, 1);
+        UUID sameShard = new UUID(0, 5);
+        UUID otherShard = new UUID(0, 2);
+        MemoryWalletEngine engine = engine();
+        engine.createAll(List.of(first, sameShard, otherShard), null);
+
+        // when
+        MemoryWalletEngine.await(engine.apply(first, WalletOperationRequest.OperationType.DEPOSIT, 10_000));
+        engine.snapshot();
+        MemoryWalletEngine.await(engine.transfer(first, sameShard, 2_500));
+        MemoryWalletEngine.TransferOutcome outcome = MemoryWalletEngine.await(engine.transfer(first, otherShard, 1_500));
+        MemoryWalletEngine.await(engine.apply(otherShard, WalletOperationRequest.OperationType.WITHDRAW, 500));
+
+        // then
+        assertThat(outcome).isEqualTo(new MemoryWalletEngine.TransferOutcome(6_000, 1_500));
+        assertThrows(InsufficientFundsException.class, () -> MemoryWalletEngine.await(
+                engine.transfer(otherShard, first, 5_000)));
+        assertThrows(WalletNotFoundException.class, () -> MemoryWalletEngine.await(
+                engine.apply(new UUID(0, 3), WalletOperationRequest.OperationType.DEPOSIT, 1)));
+        engine.close();
+
+        MemoryWalletEngine restarted = engine();
+        assertThat(restarted.findBalance(first)).hasValue(6_000);
+        assertThat(restarted.findBalance(sameShard)).hasValue(2_500);
+        assertThat(restarted.findBalance(otherShard)).hasValue(1_000);
+        assertThat(restarted.walletCount()).isEqualTo(3);
+        restarted.close();
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Оборванная запись в конце журнала отбрасывается, журнал продолжается с её места")
+    void tornRecord_discardedAndOverwritten() throws IOException {
+        // given
+        UUID walletId = new UUID(0, 1);
+        MemoryWalletEngine engine = engine();
+        MemoryWalletEngine.await(engine.create(walletId, 1_000));
+        engine.close();
+        writeGarbageAfterLastRecord(directory.resolve("shard-1"));
+
+        // when
+        MemoryWalletEngine recovered = engine();
+        MemoryWalletEngine.await(recovered.apply(walletId, WalletOperationRequest.OperationType.DEPOSIT, 1));
+        recovered.close();
+
+        // then
+        MemoryWalletEngine restarted = engine();
+        assertThat(restarted.findBalance(walletId)).hasValue(1_001);
+        restarted.close();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("После принудительного завершения процесса подтверждённые операции не теряются")
+    void processKilled_acknowledgedOperationsRecovered() throws Exception {
+        // given
+        Path log = Files.createTempFile("crash-worker", ".log");
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                MemoryWalletEngineCrashWorker.class.getName(),
+                directory.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+
+        // when
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (process.isAlive() && System.nanoTime() < deadline && acknowledged(log) < ACKNOWLEDGED_BEFORE_KILL) {
+            Thread.sleep(50);
+        }
+        process.destroyForcibly().waitFor();
+        // Вывод читается целиком после завершения: строки, напечатанные до него, тоже описывают подтверждённые
+        // операции. Недописанная последняя строка отбрасывается — её операция остаётся неподтверждённой
+        CrashModel model = new CrashModel();
+        String output = Files.readString(log, StandardCharsets.UTF_8);
+        Files.delete(log);
+        output.substring(0, output.lastIndexOf('\n') + 1).lines().forEach(model::accept);
+
+        // then
+        assertThat(model.acknowledged).isGreaterThanOrEqualTo(ACKNOWLEDGED_BEFORE_KILL);
+        for (int restart = 0; restart < 2; restart++) {
+            MemoryWalletEngine recovered = engine();
+            for (int thread = 0; thread < THREADS; thread++) {
+                long[] actual = new long[WALLETS_PER_THREAD];
+                for (int wallet = 0; wallet < WALLETS_PER_THREAD; wallet++) {
+                    actual[wallet] = recovered.findBalance(walletId(thread, wallet)).orElseThrow();
+                }
+                assertThat(actual).as("thread %d balances", thread).isIn(model.expected(thread));
+            }
+            recovered.close();
+        }
+    }
+
+    private static long acknowledged(Path log) throws IOException {
+        try (Stream<String> lines = Files.lines(log, StandardCharsets.UTF_8)) {
+            return lines.filter(line -> line.startsWith("@A ")).count();
+        }
+    }
+
+    private MemoryWalletEngine engine() {
+        return MemoryWalletEngineCrashWorker.engine(directory, DataSize.ofKilobytes(64), Duration.ofHours(1));
+    }
+
+    private static void writeGarbageAfterLastRecord(Path shard) throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(shard)) {
+            segment = files.filter(path -> path.toString().endsWith(".wal")).max(Path::compareTo).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer record = ByteBuffer.allocate(WriteAheadLog.RECORD_SIZE);
+            long position = 0;
+            while (true) {
+                record.clear();
+                channel.read(record, position);
+                if (record.getInt(0) == 0 && record.get(4) == 0) {
+                    break;
+                }
+                position += WriteAheadLog.RECORD_SIZE;
+            }
+            // Тип записи верный, контрольная сумма — нет: запись оборвалась посередине
+            ByteBuffer garbage = ByteBuffer.allocate(WriteAheadLog.RECORD_SIZE);
+            garbage.putInt(0, 0x12345678).put(4, (byte) (WalEntry.Type.DEPOSIT.ordinal() + 1)).putLong(48, 1_000_000);
+            channel.write(garbage, position);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Балансы по протоколу {@link MemoryWalletEngineCrashWorker}: подтверждённые операции применяются всегда,
+     * последняя неподтверждённая операция потока — может быть применена, а может и нет
+     */
+    private static final class CrashModel {
+
+        private final long[][] balances = new long[THREADS][WALLETS_PER_THREAD];
+        private final String[][] pending = new String[THREADS][];
+        private int acknowledged;
+
+        CrashModel() {
+            for (long[] thread : balances) {
+                Arrays.fill(thread, INITIAL_BALANCE);
+            }
+        }
+
+        void accept(String line) {
+            if (!line.startsWith("@") || line.equals("@READY")) {
+                return;
+            }
+            String[] parts = line.split(" ");
+            int thread = Integer.parseInt(parts[1]);
+            switch (parts[0]) {
+                case "@B" -> pending[thread] = parts;
+                case "@A" -> {
+                    balances[thread] = applied(balances[thread], pending[thread]);
+                    pending[thread] = null;
+                    acknowledged++;
+                }
+                case "@F" -> pending[thread] = null;
+                default -> throw new IllegalStateException("Unexpected worker output: " + line);
+            }
+        }
+
+        List<long[]> expected(int thread) {
+            if (pending[thread] == null) {
+                return List.of(balances[thread]);
+            }
+            return List.of(balances[thread], applied(balances[thread], pending[thread]));
+        }
+
+        private static long[] applied(long[] balances, String[] operation) {
+            long[] result = balances.clone();
+            int from = Integer.parseInt(operation[3]);
+            int to = Integer.parseInt(operation[4]);
+            long amount = Long.parseLong(operation[5]);
+            switch (operation[2]) {
+                case "0" -> result[from] += amount;
+                case "1" -> result[from] -= result[from] >= amount ? amount : 0;
+                default -> {
+                    if (result[from] >= amount) {
+                        result[from] -= amount;
+                        result[to] += amount;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
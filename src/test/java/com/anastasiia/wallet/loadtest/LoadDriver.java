@@ -0,0 +1,163 @@
+package com.anastasiia.wallet.loadtest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Выполняет план сценария по HTTP и ведёт ожидаемые балансы: успешная операция меняет ожидаемый баланс,
+ * отказ 4xx — нет. Операции с 5xx или ошибкой соединения могли примениться, а могли и нет, поэтому для их
+ * кошельков баланс проверяется по диапазону.
+ */
+final class LoadDriver implements AutoCloseable {
+
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ConnectionProvider connections;
+    private final WebClient client;
+    private final List<UUID> wallets;
+    private final AtomicLongArray expected;
+    private final AtomicLongArray uncertainDeposits;
+    private final AtomicLongArray uncertainWithdrawals;
+
+    LoadDriver(String baseUrl, int maxConnections, int wallets) {
+        this.connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl + "/api/v1")
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)
+                        .responseTimeout(RESPONSE_TIMEOUT)))
+                .build();
+        this.wallets = Flux.range(0, wallets)
+                .flatMap(i -> client.post().uri("/create").retrieve().bodyToMono(JsonNode.class), 32)
+                .map(response -> UUID.fromString(response.get("walletId").asText()))
+                .collectList()
+                .block();
+        this.expected = new AtomicLongArray(wallets);
+        this.uncertainDeposits = new AtomicLongArray(wallets);
+        this.uncertainWithdrawals = new AtomicLongArray(wallets);
+    }
+
+    LoadReport run(LoadScenario scenario) {
+        List<LoadScenario.Operation> plan = scenario.plan();
+        long[] writeLatencies = new long[plan.size()];
+        long[] readLatencies = new long[plan.size()];
+        AtomicInteger writes = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        Map<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+
+        long startedAt = System.nanoTime();
+        Flux.fromIterable(plan)
+                .flatMap(operation -> Mono.defer(() -> {
+                            long requestStartedAt = System.nanoTime();
+                            return execute(operation).doOnSuccess(ignored -> {
+                                long latency = System.nanoTime() - requestStartedAt;
+                                if (operation.type() == LoadScenario.Operation.Type.READ) {
+                                    readLatencies[reads.getAndIncrement()] = latency;
+                                } else {
+                                    writeLatencies[writes.getAndIncrement()] = latency;
+                                    applied(operation);
+                                }
+                            });
+                        })
+                        .onErrorResume(ex -> {
+                            String reason = ex instanceof WebClientResponseException response
+                                    ? "HTTP " + response.getStatusCode().value()
+                                    : ex.getClass().getSimpleName();
+                            errors.computeIfAbsent(reason, key -> new AtomicInteger()).incrementAndGet();
+                            if (!reason.startsWith("HTTP 4")) {
+                                uncertain(operation);
+                            }
+                            return Mono.empty();
+                        }), scenario.concurrency())
+                .blockLast();
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        Map<String, Integer> errorCounts = new HashMap<>();
+        errors.forEach((reason, count) -> errorCounts.put(reason, count.get()));
+        return new LoadReport(scenario.name(), plan.size(), plan.size() / (elapsedNanos / 1_000_000_000.0),
+                LoadReport.Latency.of(writeLatencies, writes.get()),
+                LoadReport.Latency.of(readLatencies, reads.get()),
+                errorCounts,
+                verifyBalances());
+    }
+
+    /**
+     * Сверяет балансы всех кошельков с суммой успешных операций
+     *
+     * @return номер кошелька и описание расхождения
+     */
+    private Map<Integer, String> verifyBalances() {
+        Map<Integer, String> mismatched = new ConcurrentHashMap<>();
+        Flux.range(0, wallets.size())
+                .flatMap(wallet -> client.get().uri("/wallets/{walletId}", wallets.get(wallet))
+                        .retrieve()
+                        .bodyToMono(BigDecimal.class)
+                        .doOnNext(balance -> {
+                            long actual = balance.movePointRight(2).longValueExact();
+                            long lowest = expected.get(wallet) - uncertainWithdrawals.get(wallet);
+                            long highest = expected.get(wallet) + uncertainDeposits.get(wallet);
+                            if (actual < lowest || actual > highest) {
+                                mismatched.put(wallet, "%s: expected %s, actual %s".formatted(wallets.get(wallet),
+                                        BigDecimal.valueOf(expected.get(wallet), 2), balance));
+                            }
+                        }), 32)
+                .blockLast();
+        return mismatched;
+    }
+
+    private Mono<?> execute(LoadScenario.Operation operation) {
+        UUID walletId = wallets.get(operation.wallet());
+        if (operation.type() == LoadScenario.Operation.Type.READ) {
+            return client.get().uri("/wallets/{walletId}", walletId).retrieve().toBodilessEntity();
+        }
+        return client.post().uri("/wallet")
+                .bodyValue(Map.of(
+                        "walletId", walletId,
+                        "operationType", operation.type().name(),
+                        "amount", BigDecimal.valueOf(operation.amountMinor(), 2)))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private void applied(LoadScenario.Operation operation) {
+        switch (operation.type()) {
+            case DEPOSIT -> expected.addAndGet(operation.wallet(), operation.amountMinor());
+            case WITHDRAW -> expected.addAndGet(operation.wallet(), -operation.amountMinor());
+            case READ -> {
+            }
+        }
+    }
+
+    private void uncertain(LoadScenario.Operation operation) {
+        switch (operation.type()) {
+            case DEPOSIT -> uncertainDeposits.addAndGet(operation.wallet(), operation.amountMinor());
+            case WITHDRAW -> uncertainWithdrawals.addAndGet(operation.wallet(), operation.amountMinor());
+            case READ -> {
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        connections.dispose();
+    }
+}
@@ -0,0 +1,72 @@
+package com.anastasiia.wallet.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Итог прогона сценария
+ *
+ * @param throughput        запросов в секунду, включая неуспешные
+ * @param writeLatency      задержки операций над балансом
+ * @param readLatency       задержки чтений баланса
+ * @param errors            число ответов по причине: {@code HTTP 422}, {@code HTTP 503}, имя исключения клиента
+ * @param mismatchedWallets кошельки, баланс которых разошёлся с суммой успешных операций
+ */
+record LoadReport(String scenario,
+                  int requests,
+                  double throughput,
+                  Latency writeLatency,
+                  Latency readLatency,
+                  Map<String, Integer> errors,
+                  Map<Integer, String> mismatchedWallets) {
+
+    /**
+     * @return число ответов 5xx и ошибок соединения: для них неизвестно, применилась ли операция
+     */
+    int serverErrors() {
+        return errors.entrySet().stream()
+                .filter(error -> !error.getKey().startsWith("HTTP 4"))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+    }
+
+    @Override
+    public String toString() {
+        return """
+                scenario %s: %d requests, %.0f req/s
+                  writes: %s
+                  reads:  %s
+                  errors: %s
+                  lost or phantom updates: %s""".formatted(scenario, requests, throughput, writeLatency, readLatency,
+                errors.isEmpty() ? "none" : new TreeMap<>(errors),
+                mismatchedWallets.isEmpty() ? "none" : mismatchedWallets.size() + " wallets " + mismatchedWallets);
+    }
+
+    /**
+     * Процентили задержек успешных запросов, мс
+     */
+    record Latency(int count, double p50, double p90, double p99, double p999, double max) {
+
+        static Latency of(long[] nanos, int count) {
+            if (count == 0) {
+                return new Latency(0, 0, 0, 0, 0, 0);
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return new Latency(count,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[count - 1] / 1_000_000.0);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            return sorted[Math.min((int) (sorted.length * quantile), sorted.length - 1)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return count == 0 ? "-" : "%d ok, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms"
+                    .formatted(count, p50, p90, p99, p999, max);
+        }
+    }
+}
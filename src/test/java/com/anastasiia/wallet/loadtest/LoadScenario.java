@@ -0,0 +1,98 @@
+package com.anastasiia.wallet.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Сценарий нагрузки. Запросы заранее разворачиваются в план с фиксированным зерном, поэтому один и тот же
+ * сценарий повторяет одну и ту же последовательность операций. Параметры по умолчанию переопределяются
+ * системными свойствами {@code loadtest.<name>.*}, например {@code -Dloadtest.hot-wallet.requests=50000}.
+ *
+ * @param name          имя сценария
+ * @param requests      число запросов в замере
+ * @param concurrency   одновременных запросов
+ * @param wallets       число кошельков
+ * @param zipfExponent  показатель распределения Ципфа по кошелькам; 0 — равномерно
+ * @param readRatio     доля чтений баланса
+ * @param withdrawRatio доля списаний среди изменений баланса
+ * @param seed          зерно плана
+ */
+record LoadScenario(String name,
+                    int requests,
+                    int concurrency,
+                    int wallets,
+                    double zipfExponent,
+                    double readRatio,
+                    double withdrawRatio,
+                    long seed) {
+
+    /**
+     * @return сценарий с параметрами из системных свойств поверх переданных значений
+     */
+    LoadScenario withSystemProperties() {
+        String prefix = "loadtest." + name + ".";
+        return new LoadScenario(name,
+                Integer.getInteger(prefix + "requests", requests),
+                Integer.getInteger(prefix + "concurrency", concurrency),
+                Integer.getInteger(prefix + "wallets", wallets),
+                Double.parseDouble(System.getProperty(prefix + "zipf-exponent", String.valueOf(zipfExponent))),
+                Double.parseDouble(System.getProperty(prefix + "read-ratio", String.valueOf(readRatio))),
+                Double.parseDouble(System.getProperty(prefix + "withdraw-ratio", String.valueOf(withdrawRatio))),
+                Long.getLong(prefix + "seed", seed));
+    }
+
+    List<Operation> plan() {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] cumulative = zipfCumulative();
+        List<Operation> operations = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            int wallet = pickWallet(cumulative, random.nextDouble());
+            if (random.nextDouble() < readRatio) {
+                operations.add(new Operation(wallet, Operation.Type.READ, 0));
+            } else {
+                Operation.Type type = random.nextDouble() < withdrawRatio ? Operation.Type.WITHDRAW : Operation.Type.DEPOSIT;
+                operations.add(new Operation(wallet, type, random.nextLong(1, 10_000)));
+            }
+        }
+        return operations;
+    }
+
+    private double[] zipfCumulative() {
+        double[] cumulative = new double[wallets];
+        double sum = 0;
+        for (int rank = 0; rank < wallets; rank++) {
+            sum += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < wallets; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pickWallet(double[] cumulative, double probability) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < probability) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param wallet      номер кошелька в сценарии
+     * @param amountMinor сумма в копейках
+     */
+    record Operation(int wallet, Type type, long amountMinor) {
+
+        enum Type {
+            DEPOSIT, WITHDRAW, READ
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.anastasiia.wallet.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Нагрузочные сценарии против собранного jar сервиса: {@code mvn verify -Ploadtest}.
+ * <p>
+ * Каждый сценарий работает на своих кошельках и проверяет, что ответов 5xx и ошибок соединения нет,
+ * а итоговые балансы равны сумме успешных операций. Сценарий одного горячего кошелька дополнительно
+ * проверяет пропускную способность не ниже {@code loadtest.min-rps} (по умолчанию 1000 запросов в секунду).
+ * Отчёты пишутся в лог и в {@code target/loadtest/<сценарий>.txt}. Вместо контейнера можно использовать
+ * свою базу: {@code -Dloadtest.datasource.url=jdbc:postgresql://...}.
+ */
+@Slf4j
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Нагрузочные сценарии сервиса")
+class WalletLoadIT {
+
+    private static final int WARMUP_REQUESTS = Integer.getInteger("loadtest.warmup-requests", 2_000);
+    private static final double MIN_HOT_WALLET_RPS = Double.parseDouble(System.getProperty("loadtest.min-rps", "1000"));
+
+    private static PostgreSQLContainer<?> postgres;
+    private static WalletServiceProcess service;
+
+    @BeforeAll
+    static void startService() throws Exception {
+        String url = System.getProperty("loadtest.datasource.url");
+        String username = System.getProperty("loadtest.datasource.username", "postgres");
+        String password = System.getProperty("loadtest.datasource.password", "postgres");
+        if (url == null) {
+            postgres = new PostgreSQLContainer<>("postgres:13").withDatabaseName("test_wallet_db");
+            postgres.start();
+            url = postgres.getJdbcUrl();
+            username = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+        service = new WalletServiceProcess(url, username, password);
+    }
+
+    @AfterAll
+    static void stopService() throws Exception {
+        if (service != null) {
+            service.close();
+        }
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Один горячий кошелёк")
+    void hotWallet() throws Exception {
+        // when
+        LoadReport report = run(new LoadScenario("hot-wallet", 20_000, 64, 1, 0, 0, 0.2, 1));
+
+        // then
+        assertConsistent(report);
+        assertThat(report.throughput()).as("hot wallet throughput, req/s").isGreaterThanOrEqualTo(MIN_HOT_WALLET_RPS);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Операции по множеству кошельков с распределением Ципфа")
+    void zipfianWallets() throws Exception {
+        // when
+        LoadReport report = run(new LoadScenario("zipf", 20_000, 64, 1_000, 1.1, 0, 0.2, 2));
+
+        // then
+        assertConsistent(report);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Смешанные чтения и операции")
+    void mixedReadsAndWrites() throws Exception {
+        // when
+        LoadReport report = run(new LoadScenario("mixed", 20_000, 64, 100, 1.0, 0.8, 0.2, 3));
+
+        // then
+        assertConsistent(report);
+    }
+
+    private LoadReport run(LoadScenario defaults) throws Exception {
+        LoadScenario scenario = defaults.withSystemProperties();
+        try (LoadDriver driver = new LoadDriver(service.baseUrl(), scenario.concurrency(), scenario.wallets())) {
+            if (WARMUP_REQUESTS > 0) {
+                driver.run(new LoadScenario(scenario.name() + "-warmup", WARMUP_REQUESTS, scenario.concurrency(),
+                        scenario.wallets(), scenario.zipfExponent(), scenario.readRatio(), scenario.withdrawRatio(),
+                        ~scenario.seed()));
+            }
+            LoadReport report = driver.run(scenario);
+            log.info("{}", report);
+            Path file = Path.of("target", "loadtest", scenario.name() + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, scenario + System.lineSeparator() + report + System.lineSeparator());
+            return report;
+        }
+    }
+
+    private void assertConsistent(LoadReport report) {
+        assertThat(report.serverErrors()).as("5xx and connection errors: %s", report.errors()).isZero();
+        assertThat(report.mismatchedWallets()).as("wallets with lost or phantom updates").isEmpty();
+    }
+}
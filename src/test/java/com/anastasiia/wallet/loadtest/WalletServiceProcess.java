@@ -0,0 +1,105 @@
+package com.anastasiia.wallet.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Собранный jar сервиса, запущенный отдельным процессом. Путь к jar — свойство {@code wallet.jar},
+ * его выставляет failsafe; дополнительные аргументы приложения — {@code loadtest.service-args},
+ * например {@code --wallet.coalescing.enabled=true}. Вывод процесса пишется в {@code target/loadtest/service.log}.
+ */
+@Slf4j
+final class WalletServiceProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Process process;
+    private final String baseUrl;
+
+    WalletServiceProcess(String jdbcUrl, String username, String password) throws IOException, InterruptedException {
+        Path jar = Path.of(System.getProperty("wallet.jar", "target/wallet-service-0.0.1-SNAPSHOT.jar"));
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Service jar not found: " + jar + ", run mvn verify -Ploadtest");
+        }
+        int port = freePort();
+        Path output = Path.of("target", "loadtest", "service.log");
+        Files.createDirectories(output.getParent());
+
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", jar.toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.anastasiia.wallet=INFO"));
+        String serviceArgs = System.getProperty("loadtest.service-args", "").trim();
+        if (!serviceArgs.isEmpty()) {
+            command.addAll(Arrays.asList(serviceArgs.split("\\s+")));
+        }
+        log.info("Starting {}", String.join(" ", command));
+        this.process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile())
+                .start();
+        this.baseUrl = "http://localhost:" + port;
+        awaitHealthy();
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    private void awaitHealthy() throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Service exited with code " + process.exitValue()
+                        + ", see target/loadtest/service.log");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // ещё не слушает порт
+            }
+            Thread.sleep(250);
+        }
+        close();
+        throw new IllegalStateException("Service did not become healthy within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
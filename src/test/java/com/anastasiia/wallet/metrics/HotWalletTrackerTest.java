@@ -0,0 +1,127 @@
+package com.anastasiia.wallet.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import com.anastasiia.wallet.config.MetricsProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Юнит тесты HotWalletTracker")
+class HotWalletTrackerTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    @Order(1)
+    @DisplayName("Рейтинг упорядочен по суммарному времени операций")
+    void current_rankedByWeight() {
+        // given
+        HotWalletTracker tracker = tracker(2, 10);
+        UUID hot = UUID.randomUUID();
+        UUID warm = UUID.randomUUID();
+        UUID cold = UUID.randomUUID();
+
+        // when
+        tracker.record(cold, millis(1));
+        tracker.record(warm, millis(5));
+        tracker.record(hot, millis(20));
+        tracker.record(hot, millis(30));
+
+        // then
+        HotWalletTracker.Window window = tracker.current();
+        assertThat(window.wallets()).extracting(HotWalletTracker.HotWallet::walletId).containsExactly(hot, warm);
+        assertThat(window.wallets().get(0).samples()).isEqualTo(2);
+        assertThat(window.wallets().get(0).weightMillis()).isEqualTo(50.0);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Новый кошелёк вытесняет самый лёгкий и наследует его вес")
+    void record_capacityExceeded_lightestEvicted() {
+        // given
+        HotWalletTracker tracker = tracker(2, 2);
+        UUID heavy = UUID.randomUUID();
+        UUID light = UUID.randomUUID();
+        UUID newcomer = UUID.randomUUID();
+        tracker.record(heavy, millis(10));
+        tracker.record(light, millis(2));
+
+        // when
+        tracker.record(newcomer, millis(3));
+
+        // then
+        assertThat(tracker.current().wallets())
+                .extracting(HotWalletTracker.HotWallet::walletId)
+                .containsExactly(heavy, newcomer);
+        HotWalletTracker.HotWallet evicting = tracker.current().wallets().get(1);
+        assertThat(evicting.weightMillis()).isEqualTo(5.0);
+        assertThat(evicting.errorMillis()).isEqualTo(2.0);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("По окончании окна рейтинг переходит в предыдущее окно")
+    void window_elapsed_rotated() {
+        // given
+        HotWalletTracker tracker = tracker(10, 100);
+        UUID walletId = UUID.randomUUID();
+        tracker.record(walletId, millis(1));
+        assertThat(tracker.previous()).isNull();
+
+        // when
+        clock.advance(Duration.ofSeconds(61));
+
+        // then
+        assertThat(tracker.current().wallets()).isEmpty();
+        assertThat(tracker.previous().wallets())
+                .extracting(HotWalletTracker.HotWallet::walletId)
+                .containsExactly(walletId);
+        assertThat(tracker.previous().to()).isEqualTo(START.plus(Duration.ofMinutes(1)));
+    }
+
+    private HotWalletTracker tracker(int top, int capacity) {
+        return new HotWalletTracker(
+                new MetricsProperties.HotWallets(true, 1.0, top, capacity, Duration.ofMinutes(1)), clock);
+    }
+
+    private static long millis(long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = START;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
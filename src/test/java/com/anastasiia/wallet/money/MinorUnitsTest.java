@@ -0,0 +1,75 @@
+package com.anastasiia.wallet.money;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import com.anastasiia.wallet.service.MinorUnitsOperationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Тесты MinorUnits")
+class MinorUnitsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @Order(1)
+    @CsvSource({"0,0", "1,100", "0.5,50", "0.05,5", "12.34,1234", "12.340,1234", "-7.1,-710", "+3,300"})
+    @DisplayName("Разбор десятичной записи в копейки")
+    void parse_decimal(String text, long expected) {
+        // when
+        long units = MinorUnits.parse(text.toCharArray(), 0, text.length());
+
+        // then
+        assertThat(units).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @Order(2)
+    @ValueSource(strings = {"", "-", ".", "1.001", "1.2.3", "abc", "92233720368547758.08"})
+    @DisplayName("Некорректная или не помещающаяся в long запись отклоняется")
+    void parse_invalid_throwsException(String text) {
+        // when & then
+        assertThatThrownBy(() -> MinorUnits.parse(text.toCharArray(), 0, text.length()))
+                .isInstanceOfAny(NumberFormatException.class, ArithmeticException.class);
+    }
+
+    @ParameterizedTest
+    @Order(3)
+    @ValueSource(longs = {0, 5, 50, 1234, -710, Long.MAX_VALUE, Long.MIN_VALUE})
+    @DisplayName("Форматирование совпадает с BigDecimal масштаба 2")
+    void format_sameAsBigDecimal(long units) {
+        // when & then
+        assertThat(MinorUnits.format(units)).isEqualTo(BigDecimal.valueOf(units, 2).toPlainString());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Сумма запроса читается из JSON числа, строки и записи с экспонентой")
+    void deserialize_amountInMinorUnits() throws Exception {
+        // when & then
+        assertThat(read("12.34").getAmount()).isEqualTo(1234);
+        assertThat(read("100").getAmount()).isEqualTo(10000);
+        assertThat(read("\"0.01\"").getAmount()).isEqualTo(1);
+        assertThat(read("1.5e2").getAmount()).isEqualTo(15000);
+        assertThatThrownBy(() -> read("0.001")).isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> read("100000000000000000000")).isInstanceOf(InvalidFormatException.class);
+    }
+
+    private MinorUnitsOperationRequest read(String amount) throws Exception {
+        return objectMapper.readValue("""
+                {"walletId": "7c4a8d09-ca37-4f3e-9b5a-3c1e7a0f2b11", "operationType": "DEPOSIT", "amount": %s}
+                """.formatted(amount), MinorUnitsOperationRequest.class);
+    }
+}
@@ -0,0 +1,140 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.engine.WalletProjection;
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.UnsupportedWalletOperationException;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Режим движка в памяти. Фоновая проекция отключена длинным интервалом, тесты вызывают её сами.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.storage.mode=memory",
+        "wallet.storage.memory.shards=4",
+        "wallet.storage.memory.projection-interval=1h"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты движка в памяти")
+class MemoryWalletServiceTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletProjection projection;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("wallet.storage.memory.wal-directory", MemoryWalletServiceTest::walDirectory);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Операции и перевод выполняются в памяти, проекция записывает балансы в wallets")
+    void operationsAndTransfer_projectedToWallets() {
+        // given
+        UUID fromWalletId = walletService.createWallet().getId();
+        UUID toWalletId = walletService.createWallet().getId();
+
+        // when
+        walletService.processOperation(createRequest(fromWalletId, WalletOperationRequest.OperationType.DEPOSIT,
+                new BigDecimal("100.00")));
+        WalletTransferRequest transfer = new WalletTransferRequest();
+        transfer.setFromWalletId(fromWalletId);
+        transfer.setToWalletId(toWalletId);
+        transfer.setAmount(new BigDecimal("40.00"));
+        WalletTransferResult result = walletService.transfer(transfer);
+
+        // then
+        assertThat(result.fromBalance()).isEqualByComparingTo("60.00");
+        assertThat(result.toBalance()).isEqualByComparingTo("40.00");
+        assertThat(walletService.getBalance(toWalletId)).isEqualByComparingTo("40.00");
+        assertThat(projected(fromWalletId)).isEmpty();
+
+        assertThat(projection.project()).isGreaterThanOrEqualTo(2);
+        assertThat(projected(fromWalletId)).singleElement().satisfies(balance ->
+                assertThat(balance).isEqualByComparingTo("60.00"));
+        assertThat(projected(toWalletId)).singleElement().satisfies(balance ->
+                assertThat(balance).isEqualByComparingTo("40.00"));
+        assertThat(projection.project()).isZero();
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Списание сверх баланса отклоняется, атомарные пакеты не поддерживаются")
+    void overdraftRejected_atomicBatchUnsupported() {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        WalletBatchRequest batch = new WalletBatchRequest();
+        batch.setMode(WalletBatchRequest.Mode.ATOMIC);
+        batch.setOperations(List.of(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT,
+                BigDecimal.ONE)));
+
+        // when / then
+        assertThrows(InsufficientFundsException.class, () -> walletService.processOperation(
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, BigDecimal.ONE)));
+        assertThrows(UnsupportedWalletOperationException.class, () -> walletService.processBatch(batch));
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    private List<BigDecimal> projected(UUID walletId) {
+        return jdbcTemplate.queryForList("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, walletId);
+    }
+
+    private static String walDirectory() {
+        try {
+            return Files.createTempDirectory("wallet-wal").toString();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static WalletOperationRequest createRequest(UUID walletId,
+                                                        WalletOperationRequest.OperationType type,
+                                                        BigDecimal amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(amount);
+        return request;
+    }
+}
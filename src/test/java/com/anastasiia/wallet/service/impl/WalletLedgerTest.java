@@ -0,0 +1,260 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Режим журнала операций. Фоновая свёртка отключена длинным интервалом, тесты вызывают её сами.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.storage.mode=ledger",
+        "wallet.storage.ledger.compaction-interval=1h"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты журнала операций")
+class WalletLedgerTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 100;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletLedgerCompactor compactor;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Операции попадают в журнал, свёртка переносит их в снимок без изменения баланса")
+    void operationsAppendedAndCompacted_balanceUnchanged() {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+
+        // when
+        walletService.processOperation(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("100.00")));
+        BigDecimal afterWithdraw = walletService.processOperation(
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, new BigDecimal("30.00")));
+
+        // then
+        assertThat(afterWithdraw).isEqualByComparingTo("70.00");
+        assertThat(snapshot(walletId)).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("70.00");
+
+        compactor.compact();
+        assertThat(snapshot(walletId)).isEqualByComparingTo("70.00");
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("70.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wallet_operations WHERE wallet_id = ?", Long.class, walletId)).isEqualTo(2);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Параллельные списания не уводят баланс в минус при работающей свёртке")
+    void concurrentWithdrawalsDuringCompaction_neverOverdraw() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        walletService.processOperation(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("100.00")));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        Future<?> compaction = executor.submit(() -> {
+            while (running.get()) {
+                compactor.compact();
+            }
+        });
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    walletService.processOperation(createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, BigDecimal.TEN));
+                    succeeded.incrementAndGet();
+                } catch (InsufficientFundsException ex) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        running.set(false);
+        compaction.get();
+        executor.shutdown();
+
+        // then
+        assertThat(succeeded.get()).isEqualTo(10);
+        assertThat(rejected.get()).isEqualTo(10);
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Пакет в режиме журнала добавляет только успешные операции")
+    void batchInLedgerMode_successfulOperationsAppended() {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        WalletBatchRequest request = new WalletBatchRequest();
+        request.setMode(WalletBatchRequest.Mode.PER_ITEM);
+        request.setOperations(List.of(
+                createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("50.00")),
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, new BigDecimal("80.00")),
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, new BigDecimal("20.00"))));
+
+        // when
+        WalletBatchResult result = walletService.processBatch(request);
+
+        // then
+        assertThat(result.items()).extracting(WalletBatchResult.Item::status).containsExactly(
+                WalletBatchResult.Status.SUCCESS,
+                WalletBatchResult.Status.INSUFFICIENT_FUNDS,
+                WalletBatchResult.Status.SUCCESS);
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("30.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wallet_operations WHERE wallet_id = ?", Long.class, walletId)).isEqualTo(2);
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Пропускная способность горячего кошелька: журнал и обновление строки")
+    void hotWalletThroughput_ledgerComparedToRowUpdate() throws Exception {
+        // given
+        UUID rowWallet = walletService.createWallet().getId();
+        UUID ledgerWallet = walletService.createWallet().getId();
+        BigDecimal amount = new BigDecimal("1.00");
+        BigDecimal expectedBalance = amount.multiply(BigDecimal.valueOf((long) THREADS * OPERATIONS_PER_THREAD));
+
+        // when
+        double rowThroughput = measureThroughput(request -> transactionTemplate.executeWithoutResult(
+                status -> walletRepository.deposit(request.getWalletId(), request.getAmount())), rowWallet, amount);
+        double ledgerThroughput = measureThroughput(walletService::processOperation, ledgerWallet, amount);
+
+        // then
+        log.info("Hot wallet throughput: row update {} ops/s, ledger {} ops/s ({}x)",
+                String.format("%.0f", rowThroughput),
+                String.format("%.0f", ledgerThroughput),
+                String.format("%.2f", ledgerThroughput / rowThroughput));
+        compactor.compact();
+        assertThat(walletService.getBalance(ledgerWallet)).isEqualByComparingTo(expectedBalance);
+        assertThat(snapshot(rowWallet)).isEqualByComparingTo(expectedBalance);
+    }
+
+    private BigDecimal snapshot(UUID walletId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, walletId);
+    }
+
+    private double measureThroughput(Consumer<WalletOperationRequest> operation, UUID walletId, BigDecimal amount)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long startedAt = System.nanoTime();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    operation.accept(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, amount));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        return THREADS * OPERATIONS_PER_THREAD / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Перевод в режиме журнала добавляет списание и зачисление")
+    void transferInLedgerMode_twoEntriesAppended() {
+        // given
+        UUID fromWalletId = walletService.createWallet().getId();
+        UUID toWalletId = walletService.createWallet().getId();
+        walletService.processOperation(createRequest(fromWalletId, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("40.00")));
+        WalletTransferRequest request = new WalletTransferRequest();
+        request.setFromWalletId(fromWalletId);
+        request.setToWalletId(toWalletId);
+        request.setAmount(new BigDecimal("15.00"));
+
+        // when
+        WalletTransferResult result = walletService.transfer(request);
+        compactor.compact();
+
+        // then
+        assertThat(result.fromBalance()).isEqualByComparingTo("25.00");
+        assertThat(result.toBalance()).isEqualByComparingTo("15.00");
+        assertThat(walletService.getBalance(fromWalletId)).isEqualByComparingTo("25.00");
+        assertThat(walletService.getBalance(toWalletId)).isEqualByComparingTo("15.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wallet_operations WHERE wallet_id = ?", Long.class, toWalletId)).isEqualTo(1);
+    }
+
+    private WalletOperationRequest createRequest(UUID id, WalletOperationRequest.OperationType type, BigDecimal amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(id);
+        request.setOperationType(type);
+        request.setAmount(amount);
+        return request;
+    }
+}
@@ -0,0 +1,163 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Сравнение пропускной способности на одном горячем кошельке с коалесцированием и без него.
+ * Режим без коалесцирования — UPDATE строки кошелька в своей транзакции, как в {@code processOperation}
+ * с выключенным коалесцированием, режим с коалесцированием — {@link WalletOperationCoalescer#submit},
+ * поэтому оба прогона идут в одном контексте.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.coalescing.enabled=true"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты WalletOperationCoalescer")
+class WalletOperationCoalescerTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 100;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletOperationCoalescer operationCoalescer;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Пропускная способность горячего кошелька с коалесцированием и без")
+    void hotWalletThroughput_coalescingComparedToRowLocking() throws Exception {
+        // given
+        UUID directWallet = walletService.createWallet().getId();
+        UUID coalescedWallet = walletService.createWallet().getId();
+        BigDecimal expectedBalance = AMOUNT.multiply(BigDecimal.valueOf((long) THREADS * OPERATIONS_PER_THREAD));
+
+        // when
+        double directThroughput = measureThroughput(request -> transactionTemplate.execute(
+                status -> walletRepository.deposit(request.getWalletId(), request.getAmount())), directWallet);
+        double coalescedThroughput = measureThroughput(operationCoalescer::submit, coalescedWallet);
+
+        // then
+        log.info("Hot wallet throughput: row locking {} ops/s, coalescing {} ops/s ({}x)",
+                String.format("%.0f", directThroughput),
+                String.format("%.0f", coalescedThroughput),
+                String.format("%.2f", coalescedThroughput / directThroughput));
+        assertThat(walletService.getBalance(directWallet)).isEqualByComparingTo(expectedBalance);
+        assertThat(walletService.getBalance(coalescedWallet)).isEqualByComparingTo(expectedBalance);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Каждое списание в пачке получает свой результат")
+    void concurrentWithdrawals_eachCallerGetsOwnOutcome() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        operationCoalescer.submit(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("100.00")));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    operationCoalescer.submit(createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, BigDecimal.TEN));
+                    succeeded.incrementAndGet();
+                } catch (InsufficientFundsException ex) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(succeeded.get()).isEqualTo(10);
+        assertThat(rejected.get()).isEqualTo(10);
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    private double measureThroughput(Consumer<WalletOperationRequest> operation, UUID walletId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long startedAt = System.nanoTime();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    operation.accept(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, AMOUNT));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        return THREADS * OPERATIONS_PER_THREAD / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    private WalletOperationRequest createRequest(UUID id, WalletOperationRequest.OperationType type, BigDecimal amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(id);
+        request.setOperationType(type);
+        request.setAmount(amount);
+        return request;
+    }
+}
@@ -0,0 +1,160 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Проверка, что каждая операция с кошельком выполняется ровно одним SQL-запросом
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Количество SQL-запросов на операцию с кошельком")
+class WalletOperationRoundTripTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    private Statistics statistics;
+    private UUID walletId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        walletId = walletService.createWallet().getId();
+        walletService.processOperation(createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, "100.00"));
+        statistics.clear();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Пополнение — один запрос")
+    void deposit_singleStatement() {
+        // when
+        BigDecimal balance = walletService.processOperation(
+                createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, "10.00"));
+
+        // then
+        assertThat(balance).isEqualByComparingTo("110.00");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Списание — один запрос")
+    void withdraw_singleStatement() {
+        // when
+        BigDecimal balance = walletService.processOperation(
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, "40.00"));
+
+        // then
+        assertThat(balance).isEqualByComparingTo("60.00");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Списание при недостаточном балансе — один запрос")
+    void withdrawInsufficientFunds_singleStatement() {
+        // when
+        assertThrows(InsufficientFundsException.class, () -> walletService.processOperation(
+                createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, "500.00")));
+
+        // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Операция с несуществующим кошельком — один запрос")
+    void unknownWallet_singleStatement() {
+        // when
+        assertThrows(WalletNotFoundException.class, () -> walletService.processOperation(
+                createRequest(UUID.randomUUID(), WalletOperationRequest.OperationType.DEPOSIT, "10.00")));
+
+        // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Перевод между кошельками — один запрос")
+    void transfer_singleStatement() {
+        // given
+        UUID toWalletId = walletService.createWallet().getId();
+        statistics.clear();
+        WalletTransferRequest request = new WalletTransferRequest();
+        request.setFromWalletId(walletId);
+        request.setToWalletId(toWalletId);
+        request.setAmount(new BigDecimal("25.00"));
+
+        // when
+        WalletTransferResult result = walletService.transfer(request);
+
+        // then
+        assertThat(result.fromBalance()).isEqualByComparingTo("75.00");
+        assertThat(result.toBalance()).isEqualByComparingTo("25.00");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Создание кошелька — один INSERT без предварительного SELECT")
+    void createWallet_singleInsert() {
+        // when
+        walletService.createWallet();
+
+        // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private WalletOperationRequest createRequest(UUID id, WalletOperationRequest.OperationType type, String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(id);
+        request.setOperationType(type);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
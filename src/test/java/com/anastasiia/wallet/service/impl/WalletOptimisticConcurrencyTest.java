@@ -0,0 +1,161 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.concurrency.strategy=optimistic",
+        "wallet.concurrency.max-retries=2",
+        "wallet.concurrency.backoff-base=1ms",
+        "wallet.concurrency.backoff-max=5ms",
+        "wallet.concurrency.contended-for=1h"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты оптимистичной записи балансов")
+class WalletOptimisticConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Без конкуренции операции выполняются оптимистично и без конфликтов")
+    void uncontendedWallets_appliedOptimistically() {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        double optimistic = count("wallet.concurrency.operations", "strategy", "optimistic");
+        double conflicts = meterRegistry.get("wallet.concurrency.conflicts").counter().count();
+
+        // when
+        BigDecimal deposited = walletService.processOperation(request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "100.00"));
+        BigDecimal withdrawn = walletService.processOperation(request(walletId, WalletOperationRequest.OperationType.WITHDRAW, "40.00"));
+
+        // then
+        assertThat(deposited).isEqualByComparingTo("100.00");
+        assertThat(withdrawn).isEqualByComparingTo("60.00");
+        assertThrows(InsufficientFundsException.class, () -> walletService.processOperation(
+                request(walletId, WalletOperationRequest.OperationType.WITHDRAW, "60.01")));
+        assertThrows(WalletNotFoundException.class, () -> walletService.processOperation(
+                request(UUID.randomUUID(), WalletOperationRequest.OperationType.DEPOSIT, "1.00")));
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("60.00");
+        assertThat(count("wallet.concurrency.operations", "strategy", "optimistic")).isEqualTo(optimistic + 2);
+        assertThat(meterRegistry.get("wallet.concurrency.conflicts").counter().count()).isEqualTo(conflicts);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Горячий кошелёк переходит на блокировку строки, ни одно пополнение не теряется")
+    void contendedWallet_fallsBackToLocking_noLostUpdates() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    walletService.processOperation(request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "1.00"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(walletService.getBalance(walletId))
+                .isEqualByComparingTo(BigDecimal.valueOf((long) THREADS * OPERATIONS_PER_THREAD));
+        assertThat(meterRegistry.get("wallet.concurrency.conflicts").counter().count()).isPositive();
+        assertThat(count("wallet.concurrency.fallbacks", "reason", "exhausted")).isPositive();
+        assertThat(count("wallet.concurrency.fallbacks", "reason", "contended")).isPositive();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Запись пакетом меняет версию строки, и оптимистичная запись её не затирает")
+    void concurrentBatchAndOptimisticWrites_noLostUpdates() throws Exception {
+        // given
+        UUID walletId = walletService.createWallet().getId();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when
+        Future<?> optimistic = executor.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                walletService.processOperation(request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "1.00"));
+            }
+        });
+        Future<?> batches = executor.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                WalletBatchRequest batch = new WalletBatchRequest();
+                batch.setOperations(List.of(request(walletId, WalletOperationRequest.OperationType.DEPOSIT, "1.00")));
+                walletService.processBatch(batch);
+            }
+        });
+        optimistic.get();
+        batches.get();
+        executor.shutdown();
+
+        // then
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("400.00");
+    }
+
+    private double count(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    private static WalletOperationRequest request(UUID walletId, WalletOperationRequest.OperationType type, String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
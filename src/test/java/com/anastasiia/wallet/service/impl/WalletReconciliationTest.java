@@ -0,0 +1,172 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletReconciliationReport;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Сверка идёт мелкими порциями и с маленьким курсором, чтобы диапазоны проходили через несколько контрольных точек
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.history.enabled=true",
+        "wallet.reconciliation.enabled=true",
+        "wallet.reconciliation.ranges=4",
+        "wallet.reconciliation.parallelism=2",
+        "wallet.reconciliation.checkpoint-size=2",
+        "wallet.reconciliation.fetch-size=1"
+})
+@AutoConfigureMockMvc
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты сверки балансов с историей операций")
+class WalletReconciliationTest {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Сверка находит только кошелёк, баланс которого изменён в обход операций после начала истории")
+    void reconcile_reportsOnlyTamperedWallet() throws Exception {
+        // given
+        UUID first = walletService.createWallet().getId();
+        UUID second = walletService.createWallet().getId();
+        UUID third = walletService.createWallet().getId();
+        // Баланс, накопленный до включения истории
+        UUID legacy = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets (id, balance) VALUES (?, 50)", legacy);
+        for (int i = 0; i < 5; i++) {
+            walletService.createWallet();
+        }
+        walletService.processOperation(request(legacy, WalletOperationRequest.OperationType.DEPOSIT, "10.00"));
+        walletService.processOperation(request(first, WalletOperationRequest.OperationType.DEPOSIT, "100.00"));
+        WalletTransferRequest transfer = new WalletTransferRequest();
+        transfer.setFromWalletId(first);
+        transfer.setToWalletId(second);
+        transfer.setAmount(new BigDecimal("30.00"));
+        walletService.transfer(transfer);
+        WalletBatchRequest batch = new WalletBatchRequest();
+        batch.setOperations(List.of(request(third, WalletOperationRequest.OperationType.DEPOSIT, "5.00"),
+                request(third, WalletOperationRequest.OperationType.WITHDRAW, "2.00")));
+        walletService.processBatch(batch);
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + 1 WHERE id = ?", third);
+
+        // when
+        WalletReconciliationReport report = awaitFinished(start());
+
+        // then
+        assertThat(report.rangesDone()).isEqualTo(4);
+        assertThat(report.scanned()).isEqualTo(9);
+        assertThat(report.mismatchCount()).isEqualTo(1);
+        assertThat(report.walletsPerSecond()).isPositive();
+        assertThat(report.mismatches()).singleElement().satisfies(mismatch -> {
+            assertThat(mismatch.walletId()).isEqualTo(third);
+            assertThat(mismatch.storedBalance()).isEqualByComparingTo("4.00");
+            assertThat(mismatch.recomputedBalance()).isEqualByComparingTo("3.00");
+        });
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Прерванная сверка продолжается с контрольных точек без повторной сверки кошельков")
+    void interruptedRun_resumesFromCheckpoints() throws Exception {
+        // given
+        WalletReconciliationReport finished = awaitFinished(start());
+        // Сверка будто прервалась: диапазоны не отмечены сверенными, но позиции сохранены
+        jdbcTemplate.update("UPDATE wallet_reconciliation_runs SET finished_at = NULL WHERE id = ?", finished.runId());
+        jdbcTemplate.update("UPDATE wallet_reconciliation_ranges SET done = false WHERE run_id = ?", finished.runId());
+
+        // when
+        WalletReconciliationReport resumed = awaitFinished(start());
+
+        // then
+        assertThat(resumed.runId()).isEqualTo(finished.runId());
+        assertThat(resumed.rangesDone()).isEqualTo(4);
+        assertThat(resumed.scanned()).isEqualTo(finished.scanned());
+        assertThat(resumed.mismatchCount()).isEqualTo(1);
+    }
+
+    private WalletReconciliationReport start() throws Exception {
+        return read(mockMvc.perform(post("/actuator/reconciliation"))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    private WalletReconciliationReport awaitFinished(WalletReconciliationReport started) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            WalletReconciliationReport report = read(mockMvc.perform(get("/actuator/reconciliation"))
+                    .andExpect(status().isOk())
+                    .andReturn());
+            if (report.runId() == started.runId() && !report.running() && report.finishedAt() != null
+                    || System.currentTimeMillis() > deadline) {
+                return report;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private WalletReconciliationReport read(MvcResult result) throws Exception {
+        return objectMapper.readValue(result.getResponse().getContentAsString(), WalletReconciliationReport.class);
+    }
+
+    private static WalletOperationRequest request(UUID walletId, WalletOperationRequest.OperationType type,
+                                                  String amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
@@ -3,19 +3,42 @@ package com.anastasiia.wallet.service.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
+import com.anastasiia.wallet.cache.WalletBalanceCache;
+import com.anastasiia.wallet.cache.WalletExistenceFilter;
+import com.anastasiia.wallet.config.ExistenceFilterProperties;
+import com.anastasiia.wallet.config.HistoryProperties;
+import com.anastasiia.wallet.config.ReplicaProperties;
+import com.anastasiia.wallet.config.ShardingProperties;
+import com.anastasiia.wallet.config.StorageProperties;
+import com.anastasiia.wallet.config.WalletAdmissionProperties;
 import com.anastasiia.wallet.entity.Wallet;
 import com.anastasiia.wallet.exception.InsufficientFundsException;
 import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.metrics.WalletMetrics;
+import com.anastasiia.wallet.replica.ReplicaReadRouter;
+import com.anastasiia.wallet.repository.WalletBalanceView;
+import com.anastasiia.wallet.repository.WalletOperationOutcome;
 import com.anastasiia.wallet.repository.WalletRepository;
+import com.anastasiia.wallet.service.WalletBalanceChangedEvent;
 import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import com.anastasiia.wallet.threads.WalletAdmission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
@@ -24,7 +47,11 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -34,24 +61,87 @@ class WalletServiceImplTest {
     @Mock
     private WalletRepository walletRepository;
 
+    @Mock
+    private WalletBalanceCache balanceCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private WalletOperationCoalescer operationCoalescer;
+
+    @Mock
+    private WalletStripeManager stripeManager;
+
+    @Mock
+    private WalletLedger ledger;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private WalletMetrics metrics = new WalletMetrics(meterRegistry, Optional.empty());
+
+    @Spy
+    private WalletShardRouter shardRouter = new WalletShardRouter(new ShardingProperties(false, 128, List.of()));
+
+    @Spy
+    private ReplicaReadRouter replicaRouter = new ReplicaReadRouter(
+            new ReplicaProperties(false, Duration.ofSeconds(1), Duration.ofMillis(200), List.of()), null, meterRegistry);
+
+    @Mock
+    private WalletOptimisticWriter optimisticWriter;
+
+    @Spy
+    private WalletAdmission walletAdmission = new WalletAdmission(new WalletAdmissionProperties(
+            false, 4096, 4, 1, 16, 16, Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofSeconds(1)), meterRegistry, null);
+
+    @Spy
+    private WalletExistenceFilter existenceFilter = new WalletExistenceFilter(null, null,
+            new ExistenceFilterProperties(false, 0.01, 1_000_000, 4, "wallet_created"),
+            new ShardingProperties(false, 128, List.of()), new StorageProperties(StorageProperties.Mode.BALANCE, null, null),
+            meterRegistry);
+
+    @Spy
+    private WalletHistory history = new WalletHistory(null, new HistoryProperties(false, 100, 1000, 1000),
+            new StorageProperties(StorageProperties.Mode.BALANCE, null, null), shardRouter, replicaRouter);
+
+    @Spy
+    private StorageProperties storageProperties = new StorageProperties(StorageProperties.Mode.BALANCE, null, null);
+
     @InjectMocks
     private WalletServiceImpl walletService;
 
     private final UUID walletId = UUID.randomUUID();
     private final BigDecimal amount = new BigDecimal("123.45");
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> action = invocation.getArgument(0);
+            return action.doInTransaction(null);
+        });
+        lenient().when(balanceCache.get(eq(walletId), any())).thenAnswer(invocation -> {
+            Function<UUID, BigDecimal> loader = invocation.getArgument(1);
+            return loader.apply(walletId);
+        });
+    }
+
     @Test
     @Order(1)
     @DisplayName("Успешное пополнение кошелька")
     void processOperationDeposit_success() {
         // given
         WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, amount);
-        when(walletRepository.existsById(walletId)).thenReturn(true);
+        when(walletRepository.deposit(walletId, amount)).thenReturn(outcome(amount, BigDecimal.ZERO, 0));
 
         // when
-        walletService.processOperation(request);
+        BigDecimal result = walletService.processOperation(request);
 
         // then
+        assertThat(result).isEqualTo(amount);
         verify(walletRepository).deposit(walletId, amount);
         verify(walletRepository, never()).withdraw(any(), any());
     }
@@ -62,13 +152,13 @@ class WalletServiceImplTest {
     void processOperationWithdraw_success() {
         // given
         WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, amount);
-        when(walletRepository.existsById(walletId)).thenReturn(true);
-        when(walletRepository.withdraw(walletId, amount)).thenReturn(1);
+        when(walletRepository.withdraw(walletId, amount)).thenReturn(outcome(BigDecimal.ZERO, amount, 0));
 
         // when
-        walletService.processOperation(request);
+        BigDecimal result = walletService.processOperation(request);
 
         // then
+        assertThat(result).isEqualTo(BigDecimal.ZERO);
         verify(walletRepository).withdraw(walletId, amount);
         verify(walletRepository, never()).deposit(any(), any());
     }
@@ -79,12 +169,12 @@ class WalletServiceImplTest {
     void processOperationWithWalletNotExist_throwsException() {
         // given
         WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, amount);
-        when(walletRepository.existsById(walletId)).thenReturn(false);
+        when(walletRepository.deposit(walletId, amount)).thenReturn(outcome(null, null, null));
 
         // then
         assertThrows(WalletNotFoundException.class, () -> walletService.processOperation(request));
-        verify(walletRepository, never()).deposit(any(), any());
         verify(walletRepository, never()).withdraw(any(), any());
+        verify(stripeManager, never()).applyLocked(any());
     }
 
     @Test
@@ -93,18 +183,14 @@ class WalletServiceImplTest {
     void processOperationWithInsufficientFunds_throwsException() {
         // given
         WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, amount);
-        when(walletRepository.existsById(walletId)).thenReturn(true);
-        when(walletRepository.withdraw(walletId, amount)).thenReturn(0);
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(
-                Wallet.builder()
-                        .id(walletId)
-                        .balance(BigDecimal.ZERO)
-                        .build()
-        ));
+        when(walletRepository.withdraw(walletId, amount)).thenReturn(outcome(null, BigDecimal.ZERO, 0));
 
         // then
         assertThrows(InsufficientFundsException.class, () -> walletService.processOperation(request));
         verify(walletRepository).withdraw(walletId, amount);
+        verify(walletRepository, never()).findById(any());
+        assertThat(meterRegistry.get("wallet.operation")
+                .tags("type", "withdraw", "outcome", "insufficient_funds").timer().count()).isEqualTo(1);
     }
 
     @Test
@@ -129,12 +215,7 @@ class WalletServiceImplTest {
     void getBalance_success() {
         // given
         BigDecimal expectedBalance = new BigDecimal("123.45");
-        var wallet = Wallet.builder()
-                .id(walletId)
-                .balance(expectedBalance)
-                .build();
-
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.findBalance(walletId)).thenReturn(Optional.of(expectedBalance));
 
         // when
         BigDecimal result = walletService.getBalance(walletId);
@@ -148,12 +229,176 @@ class WalletServiceImplTest {
     @DisplayName("Ошибка при получении баланса несуществующего кошелька")
     void getBalance_throwsException() {
         // given
-        when(walletRepository.findById(walletId)).thenReturn(Optional.empty());
+        when(walletRepository.findBalance(walletId)).thenReturn(Optional.empty());
 
         // then
         assertThrows(WalletNotFoundException.class, () -> walletService.getBalance(walletId));
     }
 
+    @Test
+    @Order(8)
+    @DisplayName("Операция передаётся в коалесцер при включенном групповом применении")
+    void processOperationWithCoalescing_delegatesToCoalescer() {
+        // given
+        WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, amount);
+        when(operationCoalescer.isEnabled()).thenReturn(true);
+
+        // when
+        walletService.processOperation(request);
+
+        // then
+        verify(operationCoalescer).submit(request);
+        verify(walletRepository, never()).deposit(any(), any());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("Операция с кошельком, разнесённым по слотам, выполняется через слоты")
+    void processOperationStripedWallet_appliedToSlots() {
+        // given
+        WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, amount);
+        when(walletRepository.withdraw(walletId, amount)).thenReturn(outcome(null, BigDecimal.ZERO, 4));
+        when(stripeManager.apply(request, 4)).thenReturn(BigDecimal.ONE);
+
+        // when
+        BigDecimal result = walletService.processOperation(request);
+
+        // then
+        assertThat(result).isEqualTo(BigDecimal.ONE);
+        verify(stripeManager).apply(request, 4);
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("Баланс из кэша возвращается без обращения к базе")
+    void getBalanceCached_noDatabaseRead() {
+        // given
+        when(balanceCache.get(eq(walletId), any())).thenReturn(amount);
+
+        // when
+        BigDecimal result = walletService.getBalance(walletId);
+
+        // then
+        assertThat(result).isEqualTo(amount);
+        verify(walletRepository, never()).findBalance(any());
+    }
+
+    @Test
+    @Order(11)
+    @DisplayName("Успешная операция публикует событие об изменении баланса")
+    void processOperation_publishesBalanceChanged() {
+        // given
+        WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, amount);
+        when(walletRepository.deposit(walletId, amount)).thenReturn(outcome(amount, BigDecimal.ZERO, 0));
+
+        // when
+        walletService.processOperation(request);
+
+        // then
+        verify(eventPublisher).publishEvent(new WalletBalanceChangedEvent(walletId));
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("Неуспешная операция не инвалидирует кэш")
+    void processOperationFailed_noBalanceChangedEvent() {
+        // given
+        WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.WITHDRAW, amount);
+        when(walletRepository.withdraw(walletId, amount)).thenReturn(outcome(null, BigDecimal.ZERO, 0));
+
+        // then
+        assertThrows(InsufficientFundsException.class, () -> walletService.processOperation(request));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("В режиме журнала операция добавляется в журнал без изменения строки кошелька")
+    void processOperationLedgerMode_appendedToLedger() {
+        // given
+        WalletOperationRequest request = createRequest(walletId, WalletOperationRequest.OperationType.DEPOSIT, amount);
+        when(ledger.isEnabled()).thenReturn(true);
+        when(ledger.append(request)).thenReturn(amount);
+
+        // when
+        BigDecimal result = walletService.processOperation(request);
+
+        // then
+        assertThat(result).isEqualTo(amount);
+        verify(walletRepository, never()).deposit(any(), any());
+        verify(operationCoalescer, never()).submit(any());
+        verify(eventPublisher).publishEvent(new WalletBalanceChangedEvent(walletId));
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("В режиме журнала баланс читается из снимка и журнала")
+    void getBalanceLedgerMode_readFromLedger() {
+        // given
+        when(ledger.isEnabled()).thenReturn(true);
+        when(ledger.findBalance(walletId)).thenReturn(Optional.of(amount));
+
+        // when
+        BigDecimal result = walletService.getBalance(walletId);
+
+        // then
+        assertThat(result).isEqualTo(amount);
+        verify(walletRepository, never()).findBalance(any());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Пакетное чтение берёт закэшированные балансы из кэша, остальные — одним запросом")
+    void getBalances_cachedFromCacheMissesFromDatabase() {
+        // given
+        UUID cachedWalletId = UUID.randomUUID();
+        UUID unknownWalletId = UUID.randomUUID();
+        List<UUID> walletIds = List.of(cachedWalletId, walletId, unknownWalletId);
+        when(balanceCache.getAllPresent(walletIds)).thenReturn(Map.of(cachedWalletId, BigDecimal.ONE));
+        when(walletRepository.findBalances(new UUID[]{walletId, unknownWalletId}))
+                .thenReturn(List.of(balanceView(walletId, amount)));
+
+        // when
+        Map<UUID, BigDecimal> result = walletService.getBalances(walletIds);
+
+        // then
+        assertThat(result).containsExactlyInAnyOrderEntriesOf(Map.of(cachedWalletId, BigDecimal.ONE, walletId, amount));
+    }
+
+    private WalletBalanceView balanceView(UUID id, BigDecimal balance) {
+        return new WalletBalanceView() {
+            @Override
+            public UUID getWalletId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return balance;
+            }
+        };
+    }
+
+    private WalletOperationOutcome outcome(BigDecimal balance, BigDecimal available, Integer stripeCount) {
+        return new WalletOperationOutcome() {
+            @Override
+            public BigDecimal getBalance() {
+                return balance;
+            }
+
+            @Override
+            public BigDecimal getAvailable() {
+                return available;
+            }
+
+            @Override
+            public Integer getStripeCount() {
+                return stripeCount;
+            }
+        };
+    }
+
     private WalletOperationRequest createRequest(UUID id, WalletOperationRequest.OperationType type, BigDecimal amount) {
         WalletOperationRequest request = new WalletOperationRequest();
         request.setWalletId(id);
@@ -0,0 +1,190 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.anastasiia.wallet.exception.CrossShardOperationException;
+import com.anastasiia.wallet.service.WalletBatchRequest;
+import com.anastasiia.wallet.service.WalletBatchResult;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.sharding.WalletShardRouter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Шардирование по двум базам, каждая в своём контейнере
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "wallet.sharding.enabled=true"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты шардирования кошельков")
+class WalletShardingTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Container
+    static PostgreSQLContainer<?> firstShard = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @Container
+    static PostgreSQLContainer<?> secondShard = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("wallet.sharding.shards[0].name", () -> "shard-a");
+        registry.add("wallet.sharding.shards[0].url", firstShard::getJdbcUrl);
+        registry.add("wallet.sharding.shards[0].username", firstShard::getUsername);
+        registry.add("wallet.sharding.shards[0].password", firstShard::getPassword);
+        registry.add("wallet.sharding.shards[1].name", () -> "shard-b");
+        registry.add("wallet.sharding.shards[1].url", secondShard::getJdbcUrl);
+        registry.add("wallet.sharding.shards[1].username", secondShard::getUsername);
+        registry.add("wallet.sharding.shards[1].password", secondShard::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Миграции применены к каждому шарду, новые кошельки попадают только в базу своего шарда")
+    void createWallets_placedOnOwnShard() {
+        // given
+        List<UUID> walletIds = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            walletIds.add(walletService.createWallet().getId());
+        }
+        walletService.createWallets(200, walletIds::addAll);
+
+        // then
+        int[] counts = new int[2];
+        for (UUID walletId : walletIds) {
+            int shard = shardRouter.shardOf(walletId);
+            counts[shard]++;
+            assertThat(countOnShard(shard, walletId)).isEqualTo(1);
+            assertThat(countOnShard(1 - shard, walletId)).isZero();
+        }
+        assertThat(counts).doesNotContain(0);
+        for (int shard = 0; shard < 2; shard++) {
+            assertThat(shardRouter.onShard(shard, () -> jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM databasechangelog", Long.class))).isPositive();
+        }
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Операции, переводы внутри шарда и пакетное чтение работают поверх обоих шардов")
+    void operationsAndLookups_routedToShards() {
+        // given
+        UUID first = walletOnShard(0);
+        UUID sameShard = walletOnShard(0);
+        UUID otherShard = walletOnShard(1);
+
+        // when
+        walletService.processOperation(createRequest(first, WalletOperationRequest.OperationType.DEPOSIT,
+                new BigDecimal("100.00")));
+        walletService.processOperation(createRequest(otherShard, WalletOperationRequest.OperationType.DEPOSIT,
+                new BigDecimal("5.00")));
+        walletService.transfer(transferRequest(first, sameShard, new BigDecimal("30.00")));
+        Map<UUID, BigDecimal> balances = walletService.getBalances(List.of(first, sameShard, otherShard,
+                UUID.randomUUID()));
+
+        // then
+        assertThat(balances).hasSize(3);
+        assertThat(balances.get(first)).isEqualByComparingTo("70.00");
+        assertThat(balances.get(sameShard)).isEqualByComparingTo("30.00");
+        assertThat(balances.get(otherShard)).isEqualByComparingTo("5.00");
+        assertThat(walletService.getBalance(otherShard)).isEqualByComparingTo("5.00");
+        assertThrows(CrossShardOperationException.class, () -> walletService.transfer(
+                transferRequest(first, otherShard, BigDecimal.ONE)));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Пакет по кошелькам разных шардов выполняется по частям, атомарный пакет отклоняется")
+    void batchAcrossShards_splitPerItemRejectAtomic() {
+        // given
+        UUID first = walletOnShard(0);
+        UUID second = walletOnShard(1);
+        WalletBatchRequest batch = new WalletBatchRequest();
+        batch.setOperations(List.of(
+                createRequest(first, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("10.00")),
+                createRequest(second, WalletOperationRequest.OperationType.WITHDRAW, new BigDecimal("1.00")),
+                createRequest(second, WalletOperationRequest.OperationType.DEPOSIT, new BigDecimal("2.00"))));
+
+        // when
+        WalletBatchResult result = walletService.processBatch(batch);
+
+        // then
+        assertThat(result.committed()).isTrue();
+        assertThat(result.items()).extracting(WalletBatchResult.Item::index).containsExactly(0, 1, 2);
+        assertThat(result.items()).extracting(WalletBatchResult.Item::status).containsExactly(
+                WalletBatchResult.Status.SUCCESS, WalletBatchResult.Status.INSUFFICIENT_FUNDS,
+                WalletBatchResult.Status.SUCCESS);
+        assertThat(walletService.getBalance(second)).isEqualByComparingTo("2.00");
+
+        batch.setMode(WalletBatchRequest.Mode.ATOMIC);
+        assertThrows(CrossShardOperationException.class, () -> walletService.processBatch(batch));
+        assertThat(walletService.getBalance(first)).isEqualByComparingTo("10.00");
+    }
+
+    private UUID walletOnShard(int shard) {
+        while (true) {
+            UUID walletId = walletService.createWallet().getId();
+            if (shardRouter.shardOf(walletId) == shard) {
+                return walletId;
+            }
+        }
+    }
+
+    private long countOnShard(int shard, UUID walletId) {
+        return shardRouter.onShard(shard, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wallets WHERE id = ?", Long.class, walletId));
+    }
+
+    private static WalletTransferRequest transferRequest(UUID from, UUID to, BigDecimal amount) {
+        WalletTransferRequest request = new WalletTransferRequest();
+        request.setFromWalletId(from);
+        request.setToWalletId(to);
+        request.setAmount(amount);
+        return request;
+    }
+
+    private static WalletOperationRequest createRequest(UUID walletId,
+                                                        WalletOperationRequest.OperationType type,
+                                                        BigDecimal amount) {
+        WalletOperationRequest request = new WalletOperationRequest();
+        request.setWalletId(walletId);
+        request.setOperationType(type);
+        request.setAmount(amount);
+        return request;
+    }
+}
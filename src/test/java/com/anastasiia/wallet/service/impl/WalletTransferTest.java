@@ -0,0 +1,154 @@
+package com.anastasiia.wallet.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.exception.InsufficientFundsException;
+import com.anastasiia.wallet.exception.WalletNotFoundException;
+import com.anastasiia.wallet.service.WalletOperationRequest;
+import com.anastasiia.wallet.service.WalletService;
+import com.anastasiia.wallet.service.WalletTransferRequest;
+import com.anastasiia.wallet.service.WalletTransferResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Переводы между кошельками. Встречные переводы выполняются параллельно с коротким {@code lock_timeout}:
+ * взаимоблокировка или долгое ожидание блокировки завершили бы часть переводов ошибкой.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.connection-init-sql=SET lock_timeout = '5s'"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Интеграционные тесты переводов между кошельками")
+class WalletTransferTest {
+
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13")
+            .withDatabaseName("test_wallet_db");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Встречные параллельные переводы не взаимоблокируются и сохраняют сумму балансов")
+    void opposingConcurrentTransfers_noDeadlocks() throws Exception {
+        // given
+        UUID first = createWallet("1000.00");
+        UUID second = createWallet("1000.00");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            boolean forward = thread % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    walletService.transfer(forward
+                            ? createRequest(first, second, "1.00")
+                            : createRequest(second, first, "1.00"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(walletService.getBalance(first)).isEqualByComparingTo("1000.00");
+        assertThat(walletService.getBalance(second)).isEqualByComparingTo("1000.00");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Перевод без достаточного баланса и с несуществующим кошельком не меняет балансы")
+    void failedTransfer_balancesUnchanged() {
+        // given
+        UUID from = createWallet("10.00");
+        UUID to = createWallet("0.00");
+
+        // when & then
+        assertThrows(InsufficientFundsException.class,
+                () -> walletService.transfer(createRequest(from, to, "10.01")));
+        assertThrows(WalletNotFoundException.class,
+                () -> walletService.transfer(createRequest(from, UUID.randomUUID(), "1.00")));
+        assertThrows(WalletNotFoundException.class,
+                () -> walletService.transfer(createRequest(UUID.randomUUID(), to, "1.00")));
+        assertThat(walletService.getBalance(from)).isEqualByComparingTo("10.00");
+        assertThat(walletService.getBalance(to)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Перевод с кошелька, разнесённого по слотам, учитывает баланс всех слотов")
+    void transferFromStripedWallet_allSlotsUsed() {
+        // given
+        UUID from = createWallet("9.00");
+        UUID to = createWallet("1.00");
+        walletService.restripeWallet(from, 3);
+
+        // when
+        WalletTransferResult result = walletService.transfer(createRequest(from, to, "8.50"));
+
+        // then
+        assertThat(result.fromBalance()).isEqualByComparingTo("0.50");
+        assertThat(result.toBalance()).isEqualByComparingTo("9.50");
+        assertThat(walletService.getBalance(from)).isEqualByComparingTo("0.50");
+        assertThat(walletService.getBalance(to)).isEqualByComparingTo("9.50");
+        assertThrows(InsufficientFundsException.class,
+                () -> walletService.transfer(createRequest(from, to, "0.51")));
+    }
+
+    private UUID createWallet(String balance) {
+        UUID walletId = walletService.createWallet().getId();
+        if (new BigDecimal(balance).signum() > 0) {
+            WalletOperationRequest request = new WalletOperationRequest();
+            request.setWalletId(walletId);
+            request.setOperationType(WalletOperationRequest.OperationType.DEPOSIT);
+            request.setAmount(new BigDecimal(balance));
+            walletService.processOperation(request);
+        }
+        return walletId;
+    }
+
+    private WalletTransferRequest createRequest(UUID from, UUID to, String amount) {
+        WalletTransferRequest request = new WalletTransferRequest();
+        request.setFromWalletId(from);
+        request.setToWalletId(to);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
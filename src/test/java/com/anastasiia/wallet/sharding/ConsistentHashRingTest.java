@@ -0,0 +1,67 @@
+package com.anastasiia.wallet.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Юнит тесты ConsistentHashRing")
+class ConsistentHashRingTest {
+
+    private static final int WALLETS = 100_000;
+    private static final List<String> SHARDS = List.of("shard-a", "shard-b", "shard-c", "shard-d");
+
+    @Test
+    @Order(1)
+    @DisplayName("Кошельки распределяются по шардам примерно поровну")
+    void shardOf_spreadsWalletsEvenly() {
+        // given
+        ConsistentHashRing ring = new ConsistentHashRing(SHARDS, 128);
+        Random random = new Random(42);
+        int[] counts = new int[SHARDS.size()];
+
+        // when
+        for (int i = 0; i < WALLETS; i++) {
+            counts[ring.shardOf(new UUID(random.nextLong(), random.nextLong()))]++;
+        }
+
+        // then
+        int expected = WALLETS / SHARDS.size();
+        for (int count : counts) {
+            assertThat(count).isBetween(expected * 8 / 10, expected * 12 / 10);
+        }
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("При добавлении шарда переезжают только кошельки, попавшие в новый шард")
+    void addShard_movesOnlyWalletsOfNewShard() {
+        // given
+        ConsistentHashRing before = new ConsistentHashRing(SHARDS, 128);
+        ConsistentHashRing after = new ConsistentHashRing(
+                List.of("shard-a", "shard-b", "shard-c", "shard-d", "shard-e"), 128);
+        Random random = new Random(7);
+        int moved = 0;
+
+        // when
+        for (int i = 0; i < WALLETS; i++) {
+            UUID walletId = new UUID(random.nextLong(), random.nextLong());
+            int shard = after.shardOf(walletId);
+            if (shard != before.shardOf(walletId)) {
+                assertThat(shard).isEqualTo(4);
+                moved++;
+            }
+        }
+
+        // then
+        assertThat(moved).isBetween(WALLETS / 5 * 8 / 10, WALLETS / 5 * 12 / 10);
+    }
+}
@@ -0,0 +1,141 @@
+package com.anastasiia.wallet.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.config.AdmissionProperties;
+import com.anastasiia.wallet.exception.ServiceOverloadedException;
+import com.anastasiia.wallet.replica.ReplicaRoutingDataSource;
+import com.anastasiia.wallet.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Тесты ConnectionAdmission")
+class ConnectionAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Число разрешений по умолчанию равно размеру пула соединений")
+    void permits_defaultToPoolSize() {
+        // given
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(2);
+        ConnectionAdmission admission = new ConnectionAdmission(
+                new AdmissionProperties(true, 0, Duration.ofMillis(50), 10), dataSource, meterRegistry);
+
+        // when
+        admission.acquire();
+        admission.acquire();
+
+        // then
+        assertThatThrownBy(admission::acquire).isInstanceOf(ServiceOverloadedException.class);
+        admission.release();
+        admission.acquire();
+        assertThat(meterRegistry.counter("wallet.admission.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Ожидающий запрос получает освободившееся разрешение")
+    void waitingRequest_admittedAfterRelease() throws Exception {
+        // given
+        ConnectionAdmission admission = new ConnectionAdmission(
+                new AdmissionProperties(true, 1, Duration.ofSeconds(5), 10), new HikariDataSource(), meterRegistry);
+        admission.acquire();
+
+        // when
+        Future<?> waiting = executor.submit(admission::acquire);
+        awaitWaiting(1);
+        admission.release();
+
+        // then
+        waiting.get(5, TimeUnit.SECONDS);
+        assertThat(meterRegistry.counter("wallet.admission.rejected").count()).isZero();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Сверх лимита очереди запрос отклоняется сразу")
+    void fullQueue_rejectedImmediately() throws Exception {
+        // given
+        ConnectionAdmission admission = new ConnectionAdmission(
+                new AdmissionProperties(true, 1, Duration.ofSeconds(30), 1), new HikariDataSource(), meterRegistry);
+        admission.acquire();
+        CountDownLatch released = new CountDownLatch(1);
+        Future<?> waiting = executor.submit(() -> {
+            admission.acquire();
+            released.countDown();
+        });
+        awaitWaiting(1);
+
+        // when
+        long startedAt = System.nanoTime();
+        assertThatThrownBy(admission::acquire)
+                .isInstanceOf(ServiceOverloadedException.class)
+                .extracting(ex -> ((ServiceOverloadedException) ex).getRetryAfter())
+                .isEqualTo(Duration.ofSeconds(1));
+
+        // then
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(1));
+        admission.release();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertThat(released.getCount()).isZero();
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("С репликами разрешений столько, сколько в пуле основной базы, с шардами — сколько во всех пулах шардов")
+    void permits_defaultToRoutedPoolSizes() {
+        // given
+        HikariDataSource primary = pool(3);
+        ReplicaRoutingDataSource replicas = new ReplicaRoutingDataSource(primary, List.of(pool(7)));
+        ShardRoutingDataSource shards = new ShardRoutingDataSource(List.of(pool(2), pool(5)));
+        AdmissionProperties properties = new AdmissionProperties(true, 0, Duration.ofMillis(50), 10);
+        SimpleMeterRegistry replicaRegistry = new SimpleMeterRegistry();
+        SimpleMeterRegistry shardRegistry = new SimpleMeterRegistry();
+
+        // when
+        new ConnectionAdmission(properties, replicas, replicaRegistry);
+        new ConnectionAdmission(properties, shards, shardRegistry);
+
+        // then
+        assertThat(replicaRegistry.get("wallet.admission.available").gauge().value()).isEqualTo(3);
+        assertThat(shardRegistry.get("wallet.admission.available").gauge().value()).isEqualTo(7);
+    }
+
+    private static HikariDataSource pool(int size) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(size);
+        return dataSource;
+    }
+
+    private void awaitWaiting(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("wallet.admission.waiting").gauge().value() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
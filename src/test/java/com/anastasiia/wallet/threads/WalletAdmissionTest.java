@@ -0,0 +1,212 @@
+package com.anastasiia.wallet.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.anastasiia.wallet.config.AdmissionProperties;
+import com.anastasiia.wallet.config.WalletAdmissionProperties;
+import com.anastasiia.wallet.exception.WalletOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Тесты WalletAdmission")
+class WalletAdmissionTest {
+
+    private static final int STRIPES = 1024;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Сверх лимита и очереди операция по кошельку отклоняется сразу, другие кошельки обслуживаются")
+    void hotWallet_rejectedImmediately_otherWalletsAdmitted() throws Exception {
+        // given
+        WalletAdmission admission = admission(1, 1, 1, 0, Duration.ofSeconds(30), Duration.ofSeconds(1));
+        UUID hotWallet = UUID.randomUUID();
+        UUID otherWallet = walletOnOtherStripe(hotWallet);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<String> inFlight = executor.submit(() -> admission.run(hotWallet, () -> {
+            started.countDown();
+            await(finish);
+            return "hot";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        long startedAt = System.nanoTime();
+        assertThatThrownBy(() -> admission.run(hotWallet, () -> "rejected"))
+                .isInstanceOf(WalletOverloadedException.class)
+                .extracting(ex -> ((WalletOverloadedException) ex).getRetryAfter())
+                .isEqualTo(Duration.ofSeconds(1));
+
+        // then
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(1));
+        assertThat(admission.run(otherWallet, () -> "other")).isEqualTo("other");
+        finish.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("hot");
+        assertThat(meterRegistry.counter("wallet.admission.wallet.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Операция из очереди выполняется, когда кошелёк освобождается")
+    void queuedOperation_admittedAfterRelease() throws Exception {
+        // given
+        WalletAdmission admission = admission(1, 1, 1, 1, Duration.ofSeconds(5), Duration.ofSeconds(1));
+        UUID walletId = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<String> inFlight = executor.submit(() -> admission.run(walletId, () -> {
+            started.countDown();
+            await(finish);
+            return "first";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        Future<String> queued = executor.submit(() -> admission.run(walletId, () -> "second"));
+        Thread.sleep(100);
+        finish.countDown();
+
+        // then
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(meterRegistry.counter("wallet.admission.wallet.rejected").count()).isZero();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Медленные операции уменьшают лимит кошелька, быстрые при занятом лимите увеличивают его")
+    void limit_followsObservedLatency() {
+        // given
+        WalletAdmission admission = admission(4, 1, 8, 0, Duration.ofMillis(10), Duration.ofMillis(10));
+        UUID walletId = UUID.randomUUID();
+
+        // when
+        for (int i = 0; i < 15; i++) {
+            admission.run(walletId, () -> {
+                sleep(20);
+                return null;
+            });
+        }
+
+        // then
+        assertThat(admission.limit(walletId)).isEqualTo(1);
+        admission.run(walletId, () -> null);
+        assertThat(admission.limit(walletId)).isEqualTo(2);
+        // Без одновременных операций лимит дальше не растёт
+        for (int i = 0; i < 10; i++) {
+            admission.run(walletId, () -> null);
+        }
+        assertThat(admission.limit(walletId)).isEqualTo(2);
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Операция в очереди кошелька ждёт, отдав разрешение запроса на соединение")
+    void queuedOperation_releasesConnectionPermitWhileWaiting() throws Exception {
+        // given
+        ConnectionAdmission connectionAdmission = new ConnectionAdmission(
+                new AdmissionProperties(true, 1, Duration.ofMillis(100), 10), null, meterRegistry);
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(connectionAdmission);
+        WalletAdmission admission = new WalletAdmission(new WalletAdmissionProperties(true, STRIPES, 1, 1, 1, 1,
+                Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(1)), meterRegistry,
+                new StaticListableBeanFactory(Map.of("admissionInterceptor", interceptor))
+                        .getBeanProvider(AdmissionInterceptor.class));
+        UUID walletId = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<String> inFlight = executor.submit(() -> admission.run(walletId, () -> {
+            started.countDown();
+            await(finish);
+            return "first";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        Future<String> queued = executor.submit(() -> {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            interceptor.preHandle(request, response, null);
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            try {
+                return admission.run(walletId, () -> available() == 0 ? "second" : "without permit");
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+                interceptor.afterCompletion(request, response, null, null);
+            }
+        });
+
+        // then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (available() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(available()).isEqualTo(1);
+        finish.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(available()).isEqualTo(1);
+    }
+
+    private double available() {
+        return meterRegistry.get("wallet.admission.available").gauge().value();
+    }
+
+    private WalletAdmission admission(int initialLimit, int minLimit, int maxLimit, int maxQueue,
+                                      Duration maxWait, Duration latencyThreshold) {
+        return new WalletAdmission(new WalletAdmissionProperties(true, STRIPES, initialLimit, minLimit, maxLimit,
+                maxQueue, maxWait, latencyThreshold, Duration.ofSeconds(1)), meterRegistry, null);
+    }
+
+    private static UUID walletOnOtherStripe(UUID walletId) {
+        UUID other = UUID.randomUUID();
+        while (Math.floorMod(other.hashCode(), STRIPES) == Math.floorMod(walletId.hashCode(), STRIPES)) {
+            other = UUID.randomUUID();
+        }
+        return other;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}